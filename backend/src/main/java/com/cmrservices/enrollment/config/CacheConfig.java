@@ -0,0 +1,23 @@
+package com.cmrservices.enrollment.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Configuration for the in-process cache used for Contentful content.
+ * Caches are created on first use and sized from {@code caching.*}.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Value("${caching.refresh-threads:2}")
+    private int refreshThreads;
+
+    @Bean
+    public RefreshAheadCacheManager cacheManager(Environment environment, ObjectMapper objectMapper) {
+        return new RefreshAheadCacheManager(environment, objectMapper, refreshThreads);
+    }
+}
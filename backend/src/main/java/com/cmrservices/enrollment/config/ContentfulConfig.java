@@ -1,15 +1,26 @@
 package com.cmrservices.enrollment.config;
 
 import com.contentful.java.cda.CDAClient;
+import com.contentful.java.cma.CMAClient;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
 /**
- * Configuration for Contentful CMS client.
+ * Configuration for Contentful CMS clients.
  * Contentful stores the form schemas and program information.
+ *
+ * The delivery (CDA) and management (CMA) clients are singletons that share
+ * one OkHttp connection pool and dispatcher, so publish, update and delete
+ * calls reuse warm TLS connections instead of building a new Retrofit/OkHttp
+ * stack per call.
  */
 @Configuration
 public class ContentfulConfig {
@@ -22,9 +33,47 @@ public class ContentfulConfig {
     @Value("${contentful.access-token}")
     private String accessToken;
 
+    @Value("${contentful.management-token}")
+    private String managementToken;
+
     @Value("${contentful.environment}")
     private String environment;
 
+    @Value("${contentful.management-endpoint:}")
+    private String managementEndpoint;
+
+    @Value("${contentful.http.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${contentful.http.read-timeout-ms:30000}")
+    private long readTimeoutMs;
+
+    @Value("${contentful.http.write-timeout-ms:30000}")
+    private long writeTimeoutMs;
+
+    @Value("${contentful.http.max-idle-connections:5}")
+    private int maxIdleConnections;
+
+    @Value("${contentful.http.keep-alive-ms:300000}")
+    private long keepAliveMs;
+
+    /**
+     * Connection pool shared by the delivery and management clients.
+     */
+    @Bean
+    public ConnectionPool contentfulConnectionPool() {
+        return new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Dispatcher shared by the delivery and management clients; owns the
+     * OkHttp worker threads.
+     */
+    @Bean
+    public Dispatcher contentfulDispatcher() {
+        return new Dispatcher();
+    }
+
     /**
      * Creates and configures the Contentful CDA (Content Delivery API) client.
      * This client is used to fetch form schemas and program information.
@@ -32,17 +81,57 @@ public class ContentfulConfig {
      * @return configured CDAClient instance
      */
     @Bean
-    public CDAClient contentfulClient() {
+    public CDAClient contentfulClient(ConnectionPool contentfulConnectionPool, Dispatcher contentfulDispatcher) {
         log.info("Initializing Contentful client for space: {} and environment: {}",
                  spaceId, environment);
 
-        CDAClient client = CDAClient.builder()
+        CDAClient.Builder builder = CDAClient.builder()
                 .setSpace(spaceId)
                 .setToken(accessToken)
-                .setEnvironment(environment)
-                .build();
+                .setEnvironment(environment);
+        // The default call factory carries the SDK's auth and error interceptors; only tune its transport
+        builder.setCallFactory(tune(builder.defaultCallFactoryBuilder(), contentfulConnectionPool, contentfulDispatcher));
+
+        CDAClient client = builder.build();
 
         log.info("Contentful client initialized successfully");
         return client;
     }
+
+    /**
+     * Creates the Contentful CMA (Content Management API) client used to
+     * publish, update and delete programs and form schemas.
+     *
+     * @return configured CMAClient instance
+     */
+    @Bean
+    public CMAClient contentfulManagementClient(ConnectionPool contentfulConnectionPool,
+                                                Dispatcher contentfulDispatcher) {
+        log.info("Initializing Contentful management client");
+
+        // Space and environment are passed explicitly on every call
+        CMAClient.Builder builder = new CMAClient.Builder()
+                .setAccessToken(managementToken);
+        if (!managementEndpoint.isBlank()) {
+            // A proxy or a local stand-in; the SDK's default is https://api.contentful.com/
+            builder.setCoreEndpoint(managementEndpoint);
+        }
+        builder.setCoreCallFactory(tune(builder.defaultCoreCallFactoryBuilder(), contentfulConnectionPool,
+                contentfulDispatcher));
+
+        CMAClient client = builder.build();
+
+        log.info("Contentful management client initialized successfully");
+        return client;
+    }
+
+    private OkHttpClient tune(OkHttpClient.Builder builder, ConnectionPool connectionPool, Dispatcher dispatcher) {
+        return builder
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
 }
@@ -0,0 +1,206 @@
+package com.cmrservices.enrollment.config;
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound HTTP for all external providers. Each provider gets a named Reactor
+ * Netty connection pool with its own limits and timeouts, so a burst of Claude
+ * calls cannot starve ScreenshotOne (or the other way round), and repeated
+ * calls reuse warm TLS connections instead of opening new ones.
+ *
+ * Settings are read from {@code outbound-http.pools.<name>.*}, falling back to
+ * {@code outbound-http.defaults.*}.
+ */
+@Component
+public class OutboundHttpClients {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundHttpClients.class);
+
+    public static final String POOL_CLAUDE = "claude";
+    public static final String POOL_GOOGLE = "google";
+    public static final String POOL_SCREENSHOTONE = "screenshotone";
+    public static final String POOL_LOGO = "logo";
+
+    private final WebClient.Builder webClientBuilder;
+    private final Environment environment;
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    public OutboundHttpClients(WebClient.Builder webClientBuilder, Environment environment) {
+        this.webClientBuilder = webClientBuilder;
+        this.environment = environment;
+    }
+
+    /**
+     * A WebClient builder bound to the named pool. Clients built from it share
+     * the pool's connections.
+     */
+    public WebClient.Builder builder(String poolName) {
+        Pool pool = pools.computeIfAbsent(poolName, this::createPool);
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(pool.httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(pool.maxInMemorySize))
+                .filter(pool.countingFilter());
+    }
+
+    /**
+     * Per-pool settings, request counters and live connection counts per remote host.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        pools.forEach((name, pool) -> stats.put(name, pool.getStats()));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(pool -> pool.provider.dispose());
+    }
+
+    private Pool createPool(String name) {
+        int maxConnections = intProperty(name, "max-connections", 50);
+        int pendingAcquireMaxCount = intProperty(name, "pending-acquire-max-count", 200);
+        Duration pendingAcquireTimeout = Duration.ofMillis(intProperty(name, "pending-acquire-timeout-ms", 45000));
+        Duration maxIdleTime = Duration.ofMillis(intProperty(name, "max-idle-time-ms", 55000));
+        Duration maxLifeTime = Duration.ofMillis(intProperty(name, "max-life-time-ms", 600000));
+        Duration evictInBackground = Duration.ofMillis(intProperty(name, "evict-in-background-ms", 30000));
+        int connectTimeoutMs = intProperty(name, "connect-timeout-ms", 10000);
+        Duration responseTimeout = Duration.ofMillis(intProperty(name, "response-timeout-ms", 60000));
+        int maxInMemorySize = intProperty(name, "max-in-memory-size-mb", 16) * 1024 * 1024;
+        boolean http2 = property(name, "http2", Boolean.class, true);
+
+        Pool pool = new Pool(maxConnections, maxInMemorySize, http2);
+
+        pool.provider = ConnectionProvider.builder("outbound-" + name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInBackground)
+                .metrics(true, () -> pool)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(pool.provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(responseTimeout)
+                .observe((connection, state) -> {
+                    if (state == ConnectionObserver.State.CONNECTED) {
+                        pool.connectionsOpened.incrementAndGet();
+                    }
+                });
+        if (http2) {
+            // Negotiated via ALPN; hosts without HTTP/2 fall back to HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        pool.httpClient = httpClient;
+
+        log.info("Outbound pool '{}': max {} connections, {} pending, idle {} s, response timeout {} s, HTTP/2 {}",
+                name, maxConnections, pendingAcquireMaxCount, maxIdleTime.toSeconds(),
+                responseTimeout.toSeconds(), http2 ? "enabled" : "disabled");
+        return pool;
+    }
+
+    private int intProperty(String pool, String key, int defaultValue) {
+        return property(pool, key, Integer.class, defaultValue);
+    }
+
+    private <T> T property(String pool, String key, Class<T> type, T defaultValue) {
+        T value = environment.getProperty("outbound-http.pools." + pool + "." + key, type);
+        if (value != null) {
+            return value;
+        }
+        return environment.getProperty("outbound-http.defaults." + key, type, defaultValue);
+    }
+
+    /**
+     * One named pool. Reactor Netty registers a metrics view per remote host,
+     * which is kept here so the counts can be read without a meter registry.
+     */
+    private static final class Pool implements ConnectionProvider.MeterRegistrar {
+
+        private final int maxConnections;
+        private final int maxInMemorySize;
+        private final boolean http2;
+        private final Map<String, ConnectionPoolMetrics> remotes = new ConcurrentHashMap<>();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong connectionsOpened = new AtomicLong();
+        private ConnectionProvider provider;
+        private HttpClient httpClient;
+
+        private Pool(int maxConnections, int maxInMemorySize, boolean http2) {
+            this.maxConnections = maxConnections;
+            this.maxInMemorySize = maxInMemorySize;
+            this.http2 = http2;
+        }
+
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress,
+                ConnectionPoolMetrics metrics) {
+            remotes.put(String.valueOf(remoteAddress), metrics);
+        }
+
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+            remotes.remove(String.valueOf(remoteAddress));
+        }
+
+        private ExchangeFilterFunction countingFilter() {
+            return (request, next) -> {
+                requests.incrementAndGet();
+                return next.exchange(request).doOnError(e -> failures.incrementAndGet());
+            };
+        }
+
+        private Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("maxConnections", maxConnections);
+            stats.put("http2", http2);
+            stats.put("requests", requests.get());
+            stats.put("failures", failures.get());
+            stats.put("connectionsOpened", connectionsOpened.get());
+
+            int active = 0;
+            int idle = 0;
+            int pending = 0;
+            Map<String, Object> hosts = new TreeMap<>();
+            for (Map.Entry<String, ConnectionPoolMetrics> entry : remotes.entrySet()) {
+                ConnectionPoolMetrics metrics = entry.getValue();
+                Map<String, Object> host = new LinkedHashMap<>();
+                host.put("active", metrics.acquiredSize());
+                host.put("idle", metrics.idleSize());
+                host.put("pending", metrics.pendingAcquireSize());
+                hosts.put(entry.getKey(), host);
+                active += metrics.acquiredSize();
+                idle += metrics.idleSize();
+                pending += metrics.pendingAcquireSize();
+            }
+            stats.put("activeConnections", active);
+            stats.put("idleConnections", idle);
+            stats.put("pendingAcquires", pending);
+            stats.put("hosts", hosts);
+            return stats;
+        }
+    }
+}
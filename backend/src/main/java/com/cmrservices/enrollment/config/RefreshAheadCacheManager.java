@@ -0,0 +1,267 @@
+package com.cmrservices.enrollment.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache manager backed by bounded, size-aware Caffeine caches.
+ * <ul>
+ *   <li>Each cache is limited by the estimated serialized size of its values
+ *       and expires entries after a TTL.</li>
+ *   <li>A miss loads the value once per key; concurrent callers wait for that
+ *       load instead of all calling upstream. Use {@code @Cacheable(sync = true)}
+ *       so Spring routes every lookup through {@link Cache#get(Object, Callable)}.</li>
+ *   <li>A hit older than the refresh interval is served immediately while the
+ *       value is reloaded in the background, so hot keys never expire under load.</li>
+ * </ul>
+ * Settings are read from {@code caching.caches.<name>.*}, falling back to
+ * {@code caching.defaults.*}.
+ */
+public class RefreshAheadCacheManager implements CacheManager, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshAheadCacheManager.class);
+
+    // Weight used when a value cannot be serialized to estimate its size
+    private static final int DEFAULT_WEIGHT = 1024;
+
+    private final Environment environment;
+    private final ObjectMapper objectMapper;
+    private final Map<String, RefreshAheadCache> caches = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor refreshExecutor;
+
+    public RefreshAheadCacheManager(Environment environment, ObjectMapper objectMapper, int refreshThreads) {
+        this.environment = environment;
+        this.objectMapper = objectMapper;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.refreshExecutor = new ThreadPoolExecutor(
+                refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(100),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Set.copyOf(caches.keySet());
+    }
+
+    /**
+     * Hit ratio, size and refresh counters per cache.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.getStats()));
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private RefreshAheadCache createCache(String name) {
+        long maxSizeBytes = property(name, "max-size-mb", 32L) * 1024 * 1024;
+        Duration ttl = Duration.ofSeconds(property(name, "ttl-seconds", 300L));
+        Duration refreshAfter = Duration.ofSeconds(property(name, "refresh-after-seconds", 240L));
+
+        log.info("Cache '{}': max {} MB, TTL {} s, refresh after {} s",
+                name, maxSizeBytes / (1024 * 1024), ttl.toSeconds(), refreshAfter.toSeconds());
+
+        com.github.benmanes.caffeine.cache.Cache<Object, CachedValue> cache = Caffeine.newBuilder()
+                .maximumWeight(maxSizeBytes)
+                .weigher((Object key, CachedValue value) -> value.weight)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        return new RefreshAheadCache(name, cache, refreshAfter.toNanos(), maxSizeBytes);
+    }
+
+    private long property(String cache, String key, long defaultValue) {
+        Long value = environment.getProperty("caching.caches." + cache + "." + key, Long.class);
+        if (value != null) {
+            return value;
+        }
+        return environment.getProperty("caching.defaults." + key, Long.class, defaultValue);
+    }
+
+    private int weigh(Object storeValue) {
+        if (storeValue == NullValue.INSTANCE) {
+            return 64;
+        }
+        try {
+            return Math.max(64, objectMapper.writeValueAsBytes(storeValue).length);
+        } catch (Exception e) {
+            return DEFAULT_WEIGHT;
+        }
+    }
+
+    /**
+     * A stored value with its load time and weight.
+     */
+    private static final class CachedValue {
+
+        private final Object value;
+        private final long loadedAtNanos;
+        private final int weight;
+
+        private CachedValue(Object value, int weight) {
+            this.value = value;
+            this.loadedAtNanos = System.nanoTime();
+            this.weight = weight;
+        }
+    }
+
+    private final class RefreshAheadCache extends AbstractValueAdaptingCache {
+
+        private final String name;
+        private final com.github.benmanes.caffeine.cache.Cache<Object, CachedValue> cache;
+        private final long refreshAfterNanos;
+        private final long maxSizeBytes;
+        private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+        private final AtomicLong refreshes = new AtomicLong();
+        private final AtomicLong refreshFailures = new AtomicLong();
+
+        private RefreshAheadCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, CachedValue> cache,
+                long refreshAfterNanos, long maxSizeBytes) {
+            super(true);
+            this.name = name;
+            this.cache = cache;
+            this.refreshAfterNanos = refreshAfterNanos;
+            this.maxSizeBytes = maxSizeBytes;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return cache;
+        }
+
+        @Override
+        protected Object lookup(Object key) {
+            CachedValue cached = cache.getIfPresent(key);
+            return cached != null ? cached.value : null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            // Caffeine runs the loader once per key; concurrent callers wait for it
+            CachedValue cached = cache.get(key, k -> load(k, valueLoader));
+
+            if (System.nanoTime() - cached.loadedAtNanos > refreshAfterNanos) {
+                refreshAsync(key, cached, valueLoader);
+            }
+            return (T) fromStoreValue(cached.value);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            Object storeValue = toStoreValue(value);
+            cache.put(key, new CachedValue(storeValue, weigh(storeValue)));
+        }
+
+        @Override
+        public void evict(Object key) {
+            cache.invalidate(key);
+        }
+
+        @Override
+        public void clear() {
+            cache.invalidateAll();
+        }
+
+        private CachedValue load(Object key, Callable<?> valueLoader) {
+            try {
+                Object storeValue = toStoreValue(valueLoader.call());
+                return new CachedValue(storeValue, weigh(storeValue));
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        }
+
+        /**
+         * Reload a stale entry in the background, at most once per key at a time.
+         * The result only replaces the entry it was refreshed from, so an eviction
+         * that happened meanwhile is not undone.
+         */
+        private void refreshAsync(Object key, CachedValue stale, Callable<?> valueLoader) {
+            if (!refreshing.add(key)) {
+                return;
+            }
+            try {
+                refreshExecutor.execute(() -> {
+                    try {
+                        CachedValue fresh = load(key, valueLoader);
+                        cache.asMap().replace(key, stale, fresh);
+                        refreshes.incrementAndGet();
+                    } catch (Exception e) {
+                        refreshFailures.incrementAndGet();
+                        log.warn("Background refresh of cache '{}' key {} failed, serving the stale value: {}",
+                                name, key, e.getMessage());
+                    } finally {
+                        refreshing.remove(key);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refreshing.remove(key);
+                log.debug("Refresh queue full, cache '{}' key {} will be refreshed on a later hit", name, key);
+            }
+        }
+
+        private Map<String, Object> getStats() {
+            CacheStats cacheStats = cache.stats();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("entries", cache.estimatedSize());
+            stats.put("sizeBytes", cache.policy().eviction()
+                    .flatMap(eviction -> eviction.weightedSize().stream().boxed().findFirst())
+                    .orElse(0L));
+            stats.put("maxSizeBytes", maxSizeBytes);
+            stats.put("hits", cacheStats.hitCount());
+            stats.put("misses", cacheStats.missCount());
+            stats.put("hitRatio", cacheStats.hitRate());
+            stats.put("loads", cacheStats.loadCount());
+            stats.put("loadFailures", cacheStats.loadFailureCount());
+            stats.put("evictions", cacheStats.evictionCount());
+            stats.put("refreshes", refreshes.get());
+            stats.put("refreshFailures", refreshFailures.get());
+            return stats;
+        }
+    }
+}
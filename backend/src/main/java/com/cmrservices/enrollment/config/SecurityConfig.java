@@ -27,7 +27,8 @@ import java.util.List;
 
 /**
  * Security configuration for session-based authentication.
- * Protects all API endpoints except login, logout, and health checks.
+ * Protects all API endpoints except login, logout, health checks and the
+ * signed Contentful webhook.
  */
 @Configuration
 @EnableWebSecurity
@@ -54,7 +55,11 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // Public endpoints
                         .requestMatchers("/auth/login", "/auth/logout", "/auth/status").permitAll()
+                        // Cache, provider, pool and queue internals; the health checks stay public
+                        .requestMatchers("/health/metrics").authenticated()
                         .requestMatchers("/health", "/health/**").permitAll()
+                        // Authenticated by the Contentful request signature instead of a session
+                        .requestMatchers("/webhooks/contentful").permitAll()
                         // All other endpoints require authentication
                         .anyRequest().authenticated())
                 .formLogin(form -> form
@@ -0,0 +1,74 @@
+package com.cmrservices.enrollment.controller;
+
+import com.cmrservices.enrollment.service.ContentfulWebhookService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * REST controller for webhooks sent by Contentful.
+ * Requests are authenticated by their Contentful request signature rather than
+ * a session, so this path is open in the security configuration.
+ */
+@RestController
+@RequestMapping("/webhooks")
+public class ContentfulWebhookController {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentfulWebhookController.class);
+
+    private final ContentfulWebhookService webhookService;
+
+    public ContentfulWebhookController(ContentfulWebhookService webhookService) {
+        this.webhookService = webhookService;
+    }
+
+    /**
+     * POST /webhooks/contentful
+     * Receives entry publish, unpublish, archive and delete events and evicts
+     * the affected program or form schema cache entries.
+     *
+     * @param body    the raw request body, as signed by Contentful
+     * @param request the servlet request, for the method, path and headers
+     * @return what was evicted, 401 for an invalid signature, or 503 if no
+     *         signing secret is configured
+     */
+    @PostMapping("/contentful")
+    public ResponseEntity<Map<String, Object>> receiveContentfulEvent(
+            @RequestBody(required = false) byte[] body,
+            HttpServletRequest request) {
+        byte[] payload = body != null ? body : new byte[0];
+
+        if (!webhookService.isConfigured()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("message", "Contentful webhook secret is not configured"));
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        for (String name : Collections.list(request.getHeaderNames())) {
+            headers.put(name.toLowerCase(Locale.ROOT), request.getHeader(name));
+        }
+        // Contentful signs the path as it sent it, including the query string
+        String path = request.getRequestURI()
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+
+        if (!webhookService.verifySignature(request.getMethod(), path, headers, payload)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("message", "Invalid webhook signature"));
+        }
+
+        String topic = headers.get(ContentfulWebhookService.HEADER_TOPIC);
+        log.info("Received Contentful webhook: {}", topic);
+        return ResponseEntity.ok(webhookService.handleEvent(topic, payload));
+    }
+}
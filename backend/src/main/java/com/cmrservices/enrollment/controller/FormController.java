@@ -2,11 +2,19 @@ package com.cmrservices.enrollment.controller;
 
 import com.cmrservices.enrollment.model.dto.FormSchemaDTO;
 import com.cmrservices.enrollment.service.ContentfulService;
+import com.cmrservices.enrollment.service.FormSchemaRepresentations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Locale;
+import java.util.Optional;
+
 /**
  * REST controller for form schema endpoints.
  * Provides access to form configurations stored in Contentful.
@@ -18,36 +26,106 @@ public class FormController {
     private static final Logger log = LoggerFactory.getLogger(FormController.class);
 
     private final ContentfulService contentfulService;
+    private final FormSchemaRepresentations representations;
 
-    public FormController(ContentfulService contentfulService) {
+    public FormController(ContentfulService contentfulService, FormSchemaRepresentations representations) {
         this.contentfulService = contentfulService;
+        this.representations = representations;
     }
 
     /**
      * GET /forms/{formId}
      * Returns the complete JSON schema for a form.
+     * The body is pre-serialized (and pre-gzipped when the client accepts gzip)
+     * and carries a strong ETag; a matching If-None-Match gets 304 with no body.
      *
-     * @param formId the form ID
-     * @return the form schema
+     * @param formId         the form ID
+     * @param ifNoneMatch    ETags the client already has
+     * @param acceptEncoding encodings the client accepts
+     * @return the form schema JSON
      */
     @GetMapping("/{formId}")
-    public ResponseEntity<FormSchemaDTO> getFormSchema(@PathVariable String formId) {
+    public ResponseEntity<byte[]> getFormSchema(
+            @PathVariable String formId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("Received request to get form schema: {}", formId);
 
         try {
-            return contentfulService.getFormSchema(formId)
-                    .map(schema -> {
-                        log.info("Found form schema: {}", formId);
-                        return ResponseEntity.ok(schema);
-                    })
-                    .orElseGet(() -> {
-                        log.warn("Form schema not found: {}", formId);
-                        return ResponseEntity.notFound().build();
-                    });
+            Optional<FormSchemaDTO> formSchema = contentfulService.getFormSchema(formId);
+            if (formSchema.isEmpty()) {
+                log.warn("Form schema not found: {}", formId);
+                return ResponseEntity.notFound().build();
+            }
+
+            FormSchemaRepresentations.Representation representation = representations.get(formSchema.get());
+            boolean gzip = acceptsGzip(acceptEncoding);
+            String etag = gzip ? representation.getGzipEtag() : representation.getEtag();
+
+            if (representation.matches(ifNoneMatch)) {
+                log.info("Form schema {} not modified", formId);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache())
+                        .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                        .build();
+            }
+
+            log.info("Found form schema: {}", formId);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(etag)
+                    // Revalidate on every load; unchanged schemas cost a 304
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(representation.getGzip());
+            }
+            return response.body(representation.getJson());
 
         } catch (Exception e) {
             log.error("Error retrieving form schema {}", formId, e);
             throw e;
         }
     }
+
+    /**
+     * True if the Accept-Encoding header allows gzip with a non-zero q-value.
+     * An explicit gzip entry decides on its own; * only applies when gzip is
+     * not listed, so "*;q=0, gzip" still gets gzip.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals("gzip")) {
+                return quality(parts) > 0;
+            }
+            if (name.equals("*")) {
+                wildcard = quality(parts);
+            }
+        }
+        return wildcard != null && wildcard > 0;
+    }
+
+    /**
+     * The q-value among a coding's parameters: 1 if absent, 0 if unreadable.
+     */
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.length() > 1 && Character.toLowerCase(param.charAt(0)) == 'q' && param.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
 }
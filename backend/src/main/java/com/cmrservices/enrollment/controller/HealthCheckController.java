@@ -1,6 +1,17 @@
 package com.cmrservices.enrollment.controller;
 
+import com.cmrservices.enrollment.config.OutboundHttpClients;
+import com.cmrservices.enrollment.config.RefreshAheadCacheManager;
+import com.cmrservices.enrollment.service.ContentfulReplicaService;
 import com.cmrservices.enrollment.service.ContentfulService;
+import com.cmrservices.enrollment.service.ContentfulWebhookService;
+import com.cmrservices.enrollment.service.FormSchemaRepresentations;
+import com.cmrservices.enrollment.service.PageImageCache;
+import com.cmrservices.enrollment.service.PageImageEncoder;
+import com.cmrservices.enrollment.service.ProviderStats;
+import com.cmrservices.enrollment.service.SchemaCacheService;
+import com.cmrservices.enrollment.service.SubmissionBatchWriter;
+import com.cmrservices.enrollment.service.SubmissionIngestService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -26,10 +37,45 @@ public class HealthCheckController {
 
     private final JdbcTemplate jdbcTemplate;
     private final ContentfulService contentfulService;
-
-    public HealthCheckController(JdbcTemplate jdbcTemplate, ContentfulService contentfulService) {
+    private final SchemaCacheService schemaCacheService;
+    private final PageImageCache pageImageCache;
+    private final PageImageEncoder pageImageEncoder;
+    private final ProviderStats providerStats;
+    private final OutboundHttpClients outboundHttpClients;
+    private final RefreshAheadCacheManager cacheManager;
+    private final ContentfulReplicaService contentfulReplicaService;
+    private final ContentfulWebhookService contentfulWebhookService;
+    private final FormSchemaRepresentations formSchemaRepresentations;
+    private final SubmissionIngestService submissionIngestService;
+    private final SubmissionBatchWriter submissionBatchWriter;
+
+    public HealthCheckController(
+            JdbcTemplate jdbcTemplate,
+            ContentfulService contentfulService,
+            SchemaCacheService schemaCacheService,
+            PageImageCache pageImageCache,
+            PageImageEncoder pageImageEncoder,
+            ProviderStats providerStats,
+            OutboundHttpClients outboundHttpClients,
+            RefreshAheadCacheManager cacheManager,
+            ContentfulReplicaService contentfulReplicaService,
+            ContentfulWebhookService contentfulWebhookService,
+            FormSchemaRepresentations formSchemaRepresentations,
+            SubmissionIngestService submissionIngestService,
+            SubmissionBatchWriter submissionBatchWriter) {
         this.jdbcTemplate = jdbcTemplate;
         this.contentfulService = contentfulService;
+        this.schemaCacheService = schemaCacheService;
+        this.pageImageCache = pageImageCache;
+        this.pageImageEncoder = pageImageEncoder;
+        this.providerStats = providerStats;
+        this.outboundHttpClients = outboundHttpClients;
+        this.cacheManager = cacheManager;
+        this.contentfulReplicaService = contentfulReplicaService;
+        this.contentfulWebhookService = contentfulWebhookService;
+        this.formSchemaRepresentations = formSchemaRepresentations;
+        this.submissionIngestService = submissionIngestService;
+        this.submissionBatchWriter = submissionBatchWriter;
     }
 
     /**
@@ -107,6 +153,7 @@ public class HealthCheckController {
 
             response.put("status", "UP");
             response.put("message", "Contentful connection successful");
+            response.put("replica", contentfulReplicaService.getStats());
             log.info("Contentful health check passed");
             return ResponseEntity.ok(response);
 
@@ -153,6 +200,11 @@ public class HealthCheckController {
             log.error("Contentful check failed in full health check", e);
         }
 
+        // Check write-behind intake; if the flusher has stopped, submissions are refused
+        if (submissionIngestService.isEnabled()) {
+            components.put("submissionIngest", submissionIngestService.isRunning() ? "UP" : "DOWN");
+        }
+
         response.put("components", components);
 
         // Determine overall status
@@ -164,4 +216,35 @@ public class HealthCheckController {
         HttpStatus httpStatus = allUp ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
         return ResponseEntity.status(httpStatus).body(response);
     }
+
+    /**
+     * GET /health/metrics
+     * Cache statistics (hits, misses, sizes) and page encoding savings for the
+     * IDP pipeline.
+     *
+     * @return aggregated IDP metrics
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> metrics() {
+        log.debug("Metrics requested");
+
+        Map<String, Object> caches = new HashMap<>();
+        caches.put("schemaCache", schemaCacheService.getStats());
+        caches.put("pageImageCache", pageImageCache.getStats());
+        caches.put("contentful", cacheManager.getStats());
+        caches.put("formSchemaBytes", formSchemaRepresentations.getStats());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("caches", caches);
+        response.put("pageEncoding", pageImageEncoder.getStats());
+        response.put("providers", providerStats.getStats());
+        response.put("outboundHttp", outboundHttpClients.getStats());
+        response.put("contentfulReplica", contentfulReplicaService.getStats());
+        response.put("contentfulWebhooks", contentfulWebhookService.getStats());
+        response.put("submissionIngest", submissionIngestService.getStats());
+        response.put("submissionWrites", submissionBatchWriter.getStats());
+
+        return ResponseEntity.ok(response);
+    }
 }
@@ -11,11 +11,15 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/idp")
@@ -23,9 +27,7 @@ public class IdpController {
 
     private static final Logger log = LoggerFactory.getLogger(IdpController.class);
 
-    private final PdfProcessingService pdfProcessingService;
-    private final ClaudeApiService claudeApiService;
-    private final GoogleAiService googleAiService;
+    private final SchemaGenerationService schemaGenerationService;
     private final ScreenshotService screenshotService;
     private final ColorDetectionService colorDetectionService;
     private final LogoFetchService logoFetchService;
@@ -34,18 +36,14 @@ public class IdpController {
     private final ObjectMapper objectMapper;
 
     public IdpController(
-            PdfProcessingService pdfProcessingService,
-            ClaudeApiService claudeApiService,
-            GoogleAiService googleAiService,
+            SchemaGenerationService schemaGenerationService,
             ScreenshotService screenshotService,
             ColorDetectionService colorDetectionService,
             LogoFetchService logoFetchService,
             ContentfulManagementService contentfulManagementService,
             ColorAnalysisService colorAnalysisService,
             ObjectMapper objectMapper) {
-        this.pdfProcessingService = pdfProcessingService;
-        this.claudeApiService = claudeApiService;
-        this.googleAiService = googleAiService;
+        this.schemaGenerationService = schemaGenerationService;
         this.screenshotService = screenshotService;
         this.colorDetectionService = colorDetectionService;
         this.logoFetchService = logoFetchService;
@@ -55,119 +53,104 @@ public class IdpController {
     }
 
     /**
-     * Analyze PDF and generate JSON Schema
+     * Analyze PDF and generate JSON Schema.
+     * Provider is "claude", "google" or "race" (both at once, first valid schema wins).
+     * Handled asynchronously: the servlet thread is released while the
+     * provider call is in flight.
      */
     @PostMapping(value = "/analyze-pdf", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<JsonSchemaResponse> analyzePdf(
+    public Mono<ResponseEntity<JsonSchemaResponse>> analyzePdf(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "provider", defaultValue = "claude") String provider) {
         log.info("Received PDF for analysis: {} with provider: {}", file.getOriginalFilename(), provider);
 
-        try {
-            // Validate file
-            if (file.isEmpty()) {
-                return ResponseEntity.badRequest().build();
-            }
-
-            if (!"application/pdf".equals(file.getContentType())) {
-                log.error("Invalid file type: {}", file.getContentType());
-                return ResponseEntity.badRequest().build();
-            }
-
-            // Convert PDF to images
-            byte[] pdfBytes = file.getBytes();
-            List<String> base64Images = pdfProcessingService.convertPdfToBase64Images(pdfBytes);
-
-            // Send to appropriate AI provider for analysis
-            String jsonSchema;
-            if ("google".equalsIgnoreCase(provider)) {
-                log.info("Using Google AI for PDF analysis");
-                jsonSchema = googleAiService.analyzePdfAndGenerateSchema(base64Images);
-            } else {
-                log.info("Using Claude AI for PDF analysis");
-                jsonSchema = claudeApiService.analyzePdfAndGenerateSchema(base64Images);
-            }
-
-            // Build response
-            JsonSchemaResponse response = new JsonSchemaResponse();
-            response.setSchema(jsonSchema);
-            response.setFormId(generateFormIdFromFilename(file.getOriginalFilename()));
-            response.setConfidence(85); // Placeholder
-            response.setNotes(
-                    "Schema generated successfully using " + provider + " AI. Please review and adjust as needed.");
+        // Validate file
+        if (file.isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
 
-            return ResponseEntity.ok(response);
+        if (!"application/pdf".equals(file.getContentType())) {
+            log.error("Invalid file type: {}", file.getContentType());
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
 
-        } catch (Exception e) {
-            log.error("Error analyzing PDF", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        byte[] pdfBytes;
+        try {
+            pdfBytes = file.getBytes();
+        } catch (IOException e) {
+            log.error("Error reading uploaded PDF", e);
+            return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
         }
-    }
 
-    private String generateFormIdFromFilename(String filename) {
-        return filename
-                .toLowerCase()
-                .replaceAll("\\.pdf$", "")
-                .replaceAll("[^a-z0-9]+", "-");
+        // Generate the schema, or reuse one generated earlier for the same PDF
+        return schemaGenerationService.generateSchemaAsync(pdfBytes, provider, IdpProgressListener.NONE)
+                .map(result -> ResponseEntity.ok(
+                        schemaGenerationService.toResponse(result, file.getOriginalFilename())))
+                .onErrorResume(e -> {
+                    log.error("Error analyzing PDF", e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
     }
 
     /**
      * Capture screenshot and extract colors
      */
     @PostMapping("/capture-screenshot")
-    public ResponseEntity<ColorSuggestion> captureScreenshot(@RequestBody Map<String, String> request) {
+    public Mono<ResponseEntity<ColorSuggestion>> captureScreenshot(@RequestBody Map<String, String> request) {
         String websiteUrl = request.get("url");
 
-        try {
-            // Capture screenshot
-            String screenshotBase64 = screenshotService.captureScreenshot(websiteUrl);
-
-            ColorSuggestion response = new ColorSuggestion();
-
-            if (screenshotBase64 != null) {
-                // Extract colors from screenshot
-                byte[] imageBytes = Base64.getDecoder().decode(screenshotBase64);
-                List<String> colors = colorDetectionService.extractDominantColors(imageBytes);
-                response.setColors(colors);
-                response.setScreenshotBase64(screenshotBase64);
-            } else {
-                // Screenshot failed, return default colors without screenshot
-                log.info("Screenshot unavailable, returning default colors");
-                List<String> defaultColors = Arrays.asList("#E41F35", "#000000", "#FFFFFF", "#0066CC", "#FF6600",
-                        "#333333");
-                response.setColors(defaultColors);
-                response.setScreenshotBase64(null);
-            }
-
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
-            log.error("Error in capture screenshot endpoint", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+        return screenshotService.captureScreenshotAsync(websiteUrl)
+                // Color extraction is CPU and ImageIO work; keep it off the HTTP client threads
+                .publishOn(Schedulers.boundedElastic())
+                .map(screenshotBase64 -> {
+                    // Extract colors from screenshot
+                    byte[] imageBytes = Base64.getDecoder().decode(screenshotBase64);
+                    List<String> colors = colorDetectionService.extractDominantColors(imageBytes);
+
+                    ColorSuggestion response = new ColorSuggestion();
+                    response.setColors(colors);
+                    response.setScreenshotBase64(screenshotBase64);
+                    return response;
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    // Screenshot failed, return default colors without screenshot
+                    log.info("Screenshot unavailable, returning default colors");
+                    List<String> defaultColors = Arrays.asList("#E41F35", "#000000", "#FFFFFF", "#0066CC", "#FF6600",
+                            "#333333");
+
+                    ColorSuggestion response = new ColorSuggestion();
+                    response.setColors(defaultColors);
+                    response.setScreenshotBase64(null);
+                    return response;
+                }))
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    log.error("Error in capture screenshot endpoint", e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
     }
 
     /**
      * Fetch logo from Logo.dev
      */
     @PostMapping("/fetch-logo")
-    public ResponseEntity<LogoResponse> fetchLogo(@RequestBody Map<String, String> request) {
+    public Mono<ResponseEntity<LogoResponse>> fetchLogo(@RequestBody Map<String, String> request) {
         String websiteUrl = request.get("url");
 
-        try {
-            String logoUrl = logoFetchService.fetchLogo(websiteUrl);
-
-            LogoResponse response = new LogoResponse();
-            response.setFound(logoUrl != null);
-            response.setLogoUrl(logoUrl);
-            response.setMessage(logoUrl != null ? "Logo found" : "Logo not found");
-
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
-            log.error("Error fetching logo", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+        return logoFetchService.fetchLogoAsync(websiteUrl)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .map(logoUrl -> {
+                    LogoResponse response = new LogoResponse();
+                    response.setFound(logoUrl.isPresent());
+                    response.setLogoUrl(logoUrl.orElse(null));
+                    response.setMessage(logoUrl.isPresent() ? "Logo found" : "Logo not found");
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> {
+                    log.error("Error fetching logo", e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
     }
 
     /**
@@ -176,24 +159,22 @@ public class IdpController {
      * colors
      */
     @PostMapping("/analyze-colors")
-    public ResponseEntity<ColorAnalysisResponse> analyzeColors(@RequestBody ColorAnalysisRequest request) {
+    public Mono<ResponseEntity<ColorAnalysisResponse>> analyzeColors(@RequestBody ColorAnalysisRequest request) {
         String websiteUrl = request.getWebsiteUrl();
 
         if (websiteUrl == null || websiteUrl.isBlank()) {
             log.warn("analyze-colors called with null/blank websiteUrl");
-            return ResponseEntity.badRequest().build();
+            return Mono.just(ResponseEntity.badRequest().build());
         }
 
         log.info("Analyzing colors for website: {}", websiteUrl);
 
-        try {
-            ColorAnalysisResponse response = colorAnalysisService.analyzeWebsiteColors(websiteUrl);
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
-            log.error("Error analyzing colors", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+        return colorAnalysisService.analyzeWebsiteColorsAsync(websiteUrl)
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    log.error("Error analyzing colors", e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
     }
 
     /**
@@ -202,38 +183,42 @@ public class IdpController {
      * document
      */
     @PostMapping(value = "/analyze-pdf-colors", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<ColorAnalysisResponse> analyzePdfColors(@RequestParam("file") MultipartFile file) {
+    public Mono<ResponseEntity<ColorAnalysisResponse>> analyzePdfColors(@RequestParam("file") MultipartFile file) {
         log.info("Received PDF for color analysis: {}", file.getOriginalFilename());
 
-        try {
-            // Validate file
-            if (file.isEmpty()) {
-                log.warn("Empty file received for PDF color analysis");
-                return ResponseEntity.badRequest().body(
-                        ColorAnalysisResponse.error("Please select a PDF file to analyze"));
-            }
+        // Validate file
+        if (file.isEmpty()) {
+            log.warn("Empty file received for PDF color analysis");
+            return Mono.just(ResponseEntity.badRequest().body(
+                    ColorAnalysisResponse.error("Please select a PDF file to analyze")));
+        }
 
-            if (!"application/pdf".equals(file.getContentType())) {
-                log.warn("Invalid file type for PDF color analysis: {}", file.getContentType());
-                return ResponseEntity.badRequest().body(
-                        ColorAnalysisResponse.error("Please upload a valid PDF file"));
-            }
+        if (!"application/pdf".equals(file.getContentType())) {
+            log.warn("Invalid file type for PDF color analysis: {}", file.getContentType());
+            return Mono.just(ResponseEntity.badRequest().body(
+                    ColorAnalysisResponse.error("Please upload a valid PDF file")));
+        }
 
-            // Convert PDF to base64
+        // Convert PDF to base64
+        String pdfBase64;
+        try {
             byte[] pdfBytes = file.getBytes();
-            String pdfBase64 = Base64.getEncoder().encodeToString(pdfBytes);
-
+            pdfBase64 = Base64.getEncoder().encodeToString(pdfBytes);
             log.info("PDF size: {} bytes, analyzing colors...", pdfBytes.length);
-
-            // Analyze PDF with Claude Vision
-            ColorAnalysisResponse response = colorAnalysisService.analyzePdfColors(pdfBase64);
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
+        } catch (IOException e) {
             log.error("Error analyzing PDF colors", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
-                    ColorAnalysisResponse.error("Failed to analyze PDF: " + e.getMessage()));
+            return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    ColorAnalysisResponse.error("Failed to analyze PDF: " + e.getMessage())));
         }
+
+        // Analyze PDF with Claude Vision
+        return colorAnalysisService.analyzePdfColorsAsync(pdfBase64)
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    log.error("Error analyzing PDF colors", e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                            ColorAnalysisResponse.error("Failed to analyze PDF: " + e.getMessage())));
+                });
     }
 
     /**
@@ -0,0 +1,103 @@
+package com.cmrservices.enrollment.controller;
+
+import com.cmrservices.enrollment.model.dto.IdpJobStatus;
+import com.cmrservices.enrollment.service.IdpJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous PDF analysis. A job is submitted with the same parameters as
+ * /idp/analyze-pdf and can then be polled or followed over Server-Sent Events.
+ */
+@RestController
+@RequestMapping("/idp/jobs")
+public class IdpJobController {
+
+    private static final Logger log = LoggerFactory.getLogger(IdpJobController.class);
+
+    private final IdpJobService idpJobService;
+
+    public IdpJobController(IdpJobService idpJobService) {
+        this.idpJobService = idpJobService;
+    }
+
+    /**
+     * POST /idp/jobs
+     * Queue a PDF for analysis and return the job id immediately.
+     *
+     * @param file     the PDF to analyze
+     * @param provider AI provider (claude, google or race)
+     * @return 202 with the initial job status
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<IdpJobStatus> submitJob(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "provider", defaultValue = "claude") String provider) {
+        log.info("Received PDF analysis job: {} with provider: {}", file.getOriginalFilename(), provider);
+
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (!"application/pdf".equals(file.getContentType())) {
+            log.error("Invalid file type: {}", file.getContentType());
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            IdpJobStatus status = idpJobService.submit(file.getBytes(), file.getOriginalFilename(), provider);
+            URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .path("/{jobId}")
+                    .buildAndExpand(status.getJobId())
+                    .toUri();
+            return ResponseEntity.accepted().location(location).body(status);
+
+        } catch (RejectedExecutionException e) {
+            log.warn("IDP job queue is full, rejecting {}", file.getOriginalFilename());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (IOException e) {
+            log.error("Error reading uploaded PDF", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * GET /idp/jobs/{jobId}
+     * Poll a job's status. The result is included once the job has succeeded.
+     *
+     * @param jobId the job ID
+     * @return the job status, or 404 if unknown or expired
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<IdpJobStatus> getJob(@PathVariable String jobId) {
+        return idpJobService.getStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * GET /idp/jobs/{jobId}/events
+     * Follow a job over Server-Sent Events. Each "status" event carries the
+     * full job status; the stream ends when the job succeeds or fails.
+     *
+     * @param jobId the job ID
+     * @return the event stream, or 404 if unknown or expired
+     */
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJobEvents(@PathVariable String jobId) {
+        return idpJobService.subscribe(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -1,6 +1,8 @@
 package com.cmrservices.enrollment.controller;
 
+import com.cmrservices.enrollment.model.dto.PageDTO;
 import com.cmrservices.enrollment.model.dto.ProgramDTO;
+import com.cmrservices.enrollment.model.dto.ProgramSummaryDTO;
 import com.cmrservices.enrollment.service.ContentfulService;
 import com.cmrservices.enrollment.service.ContentfulManagementService;
 import org.slf4j.Logger;
@@ -20,6 +22,9 @@ public class ProgramController {
 
     private static final Logger log = LoggerFactory.getLogger(ProgramController.class);
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+
     private final ContentfulService contentfulService;
     private final ContentfulManagementService contentfulManagementService;
 
@@ -31,14 +36,44 @@ public class ProgramController {
     /**
      * GET /programs
      * Returns all active enrollment programs.
+     * With {@code view=summary}, or when {@code limit} or {@code cursor} is
+     * given, returns one page ordered by display name instead; summaries carry
+     * only the fields shown on a program card.
      *
-     * @return list of active programs
+     * @param view   "full" (default) or "summary"
+     * @param limit  page size, 1 to {@value #MAX_PAGE_SIZE}; defaults to {@value #DEFAULT_PAGE_SIZE} when paging
+     * @param cursor nextCursor from the previous page
+     * @return list of active programs, or a page of programs
      */
     @GetMapping
-    public ResponseEntity<List<ProgramDTO>> getAllPrograms() {
-        log.info("Received request to get all programs");
+    public ResponseEntity<?> getAllPrograms(
+            @RequestParam(defaultValue = "full") String view,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        log.info("Received request to get all programs (view={}, limit={})", view, limit);
+
+        boolean summary = "summary".equalsIgnoreCase(view);
+        if (!summary && !"full".equalsIgnoreCase(view)) {
+            throw new IllegalArgumentException("view must be 'full' or 'summary'");
+        }
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
 
         try {
+            if (summary) {
+                PageDTO<ProgramSummaryDTO> page = contentfulService.getProgramSummaries(
+                        limit != null ? limit : DEFAULT_PAGE_SIZE, cursor);
+                log.info("Returning {} program summaries", page.getItems().size());
+                return ResponseEntity.ok(page);
+            }
+            if (limit != null || cursor != null) {
+                PageDTO<ProgramDTO> page = contentfulService.getProgramsPage(
+                        limit != null ? limit : DEFAULT_PAGE_SIZE, cursor);
+                log.info("Returning {} programs", page.getItems().size());
+                return ResponseEntity.ok(page);
+            }
+
             List<ProgramDTO> programs = contentfulService.getAllPrograms();
             log.info("Returning {} programs", programs.size());
             return ResponseEntity.ok(programs);
@@ -1,15 +1,26 @@
 package com.cmrservices.enrollment.controller;
 
+import com.cmrservices.enrollment.model.dto.BulkImportResult;
+import com.cmrservices.enrollment.model.dto.PageDTO;
 import com.cmrservices.enrollment.model.dto.SubmissionDTO;
+import com.cmrservices.enrollment.service.SubmissionImportService;
+import com.cmrservices.enrollment.service.SubmissionQueryService;
 import com.cmrservices.enrollment.service.SubmissionService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * REST controller for form submission endpoints.
@@ -21,24 +32,50 @@ public class SubmissionController {
 
     private static final Logger log = LoggerFactory.getLogger(SubmissionController.class);
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final SubmissionService submissionService;
+    private final SubmissionImportService submissionImportService;
+    private final SubmissionQueryService submissionQueryService;
 
-    public SubmissionController(SubmissionService submissionService) {
+    public SubmissionController(SubmissionService submissionService,
+                                SubmissionImportService submissionImportService,
+                                SubmissionQueryService submissionQueryService) {
         this.submissionService = submissionService;
+        this.submissionImportService = submissionImportService;
+        this.submissionQueryService = submissionQueryService;
     }
 
     /**
      * POST /submissions
-     * Saves a form submission to the database.
+     * Saves a form submission to the database. With write-behind enabled the
+     * submission is journaled and queued instead, and the response is 202 with
+     * the pre-assigned ID; 503 if the queue is full.
      *
      * @param submissionDTO the submission data
-     * @return the saved submission with ID and status
+     * @return the saved (or accepted) submission with ID and status
      */
     @PostMapping
     public ResponseEntity<SubmissionDTO> createSubmission(@Valid @RequestBody SubmissionDTO submissionDTO) {
         log.info("Received submission for program: {}, form: {}",
                 submissionDTO.getProgramId(), submissionDTO.getFormId());
 
+        if (submissionService.isWriteBehindEnabled()) {
+            try {
+                SubmissionDTO accepted = submissionService.acceptSubmission(submissionDTO);
+                URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{id}")
+                        .buildAndExpand(accepted.getId())
+                        .toUri();
+                return ResponseEntity.accepted().location(location).body(accepted);
+
+            } catch (RejectedExecutionException e) {
+                log.warn("Rejecting submission for program {}: {}", submissionDTO.getProgramId(), e.getMessage());
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+        }
+
         try {
             SubmissionDTO savedSubmission = submissionService.saveSubmission(submissionDTO);
             log.info("Successfully saved submission with ID: {}", savedSubmission.getId());
@@ -50,6 +87,103 @@ public class SubmissionController {
         }
     }
 
+    /**
+     * POST /submissions/bulk
+     * Imports many submissions in one request. The body is a JSON array of
+     * submissions or NDJSON (one submission per line) and is parsed as it
+     * streams in, so files of any size can be sent.
+     *
+     * @param body the request body
+     * @return counts and the records that failed; 400 if the body is malformed
+     *         part-way (records before that point are still imported), 503 if
+     *         a batch could not be written (the failed index range is given)
+     */
+    @PostMapping(path = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkImportResult> importSubmissions(InputStream body) throws IOException {
+        log.info("Received bulk submission import");
+
+        BulkImportResult result = submissionImportService.importSubmissions(body);
+        HttpStatus status;
+        if (BulkImportResult.STATUS_COMPLETED.equals(result.getStatus())) {
+            status = HttpStatus.OK;
+        } else if (result.getFailedFromIndex() != null) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+        } else {
+            status = HttpStatus.BAD_REQUEST;
+        }
+        return ResponseEntity.status(status).body(result);
+    }
+
+    /**
+     * GET /submissions
+     * Lists the submissions for a program and/or form, oldest first, one page
+     * at a time.
+     *
+     * @param programId the program ID
+     * @param formId    the form ID (at least one of programId and formId is required)
+     * @param limit     page size, 1-200 (default 50)
+     * @param cursor    the previous page's nextCursor
+     * @return the page and the cursor for the next one (null on the last page)
+     */
+    @GetMapping
+    public ResponseEntity<PageDTO<SubmissionDTO>> listSubmissions(
+            @RequestParam(required = false) String programId,
+            @RequestParam(required = false) String formId,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String cursor) {
+        log.info("Received request to list submissions for program: {}, form: {}", programId, formId);
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        PageDTO<SubmissionDTO> page = submissionQueryService.getPage(programId, formId, limit, cursor);
+        log.info("Returning {} submissions", page.getItems().size());
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * GET /submissions/export
+     * Streams every submission for a program and/or form as NDJSON, oldest
+     * first, without holding the result set in memory. 503 if too many
+     * exports are already running. An error after the first rows have been
+     * sent cannot change the status any more, so it is logged and the
+     * response simply ends.
+     *
+     * @param programId the program ID
+     * @param formId    the form ID (at least one of programId and formId is required)
+     * @param response  the response the rows are written to
+     */
+    @GetMapping("/export")
+    public void exportSubmissions(
+            @RequestParam(required = false) String programId,
+            @RequestParam(required = false) String formId,
+            HttpServletResponse response) throws IOException {
+        log.info("Received request to export submissions for program: {}, form: {}", programId, formId);
+
+        if ((programId == null || programId.isBlank()) && (formId == null || formId.isBlank())) {
+            throw new IllegalArgumentException("programId or formId is required");
+        }
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        try {
+            submissionQueryService.export(programId, formId, response.getOutputStream());
+
+        } catch (RejectedExecutionException e) {
+            log.warn("Rejecting export for program: {}, form: {}: {}", programId, formId, e.getMessage());
+            response.reset();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+
+        } catch (IOException | RuntimeException e) {
+            if (!response.isCommitted()) {
+                throw e;
+            }
+            log.warn("Export for program: {}, form: {} stopped after the response was committed: {}",
+                    programId, formId, e.toString());
+        }
+    }
+
     /**
      * GET /submissions/{id}
      * Retrieves a specific submission by ID.
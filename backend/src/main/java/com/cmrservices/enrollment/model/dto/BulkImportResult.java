@@ -0,0 +1,148 @@
+package com.cmrservices.enrollment.model.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk submission import.
+ * Records are numbered from 0 in the order they appear in the request body;
+ * only failed records are listed, up to a cap, so the summary stays small
+ * however many records were sent. A record whose id already exists is
+ * skipped rather than failed, so received = inserted + skipped + failed for
+ * a completed import. An import stopped by a database error gives the index
+ * range of the batch that was being written: records before it were
+ * processed, records after it were not read.
+ */
+public class BulkImportResult {
+
+    public static final String STATUS_COMPLETED = "completed";
+    public static final String STATUS_ABORTED = "aborted";
+
+    private String status = STATUS_COMPLETED;
+    private long received;
+    private long inserted;
+    private long skipped;
+    private long failed;
+    private List<RecordFailure> failures = new ArrayList<>();
+    private boolean failuresTruncated;
+    private String error;
+    private Long failedFromIndex;
+    private Long failedToIndex;
+
+    // Getters
+    public String getStatus() {
+        return status;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public List<RecordFailure> getFailures() {
+        return failures;
+    }
+
+    public boolean isFailuresTruncated() {
+        return failuresTruncated;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Long getFailedFromIndex() {
+        return failedFromIndex;
+    }
+
+    public Long getFailedToIndex() {
+        return failedToIndex;
+    }
+
+    // Setters
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public void setReceived(long received) {
+        this.received = received;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    public void setSkipped(long skipped) {
+        this.skipped = skipped;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public void setFailures(List<RecordFailure> failures) {
+        this.failures = failures;
+    }
+
+    public void setFailuresTruncated(boolean failuresTruncated) {
+        this.failuresTruncated = failuresTruncated;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public void setFailedFromIndex(Long failedFromIndex) {
+        this.failedFromIndex = failedFromIndex;
+    }
+
+    public void setFailedToIndex(Long failedToIndex) {
+        this.failedToIndex = failedToIndex;
+    }
+
+    /**
+     * A record that was not imported, and why.
+     */
+    public static class RecordFailure {
+
+        private long index;
+        private List<String> errors;
+
+        // Default constructor
+        public RecordFailure() {
+        }
+
+        // Full constructor
+        public RecordFailure(long index, List<String> errors) {
+            this.index = index;
+            this.errors = errors;
+        }
+
+        public long getIndex() {
+            return index;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public void setIndex(long index) {
+            this.index = index;
+        }
+
+        public void setErrors(List<String> errors) {
+            this.errors = errors;
+        }
+    }
+}
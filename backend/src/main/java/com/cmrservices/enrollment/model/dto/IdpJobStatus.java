@@ -0,0 +1,146 @@
+package com.cmrservices.enrollment.model.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of an asynchronous PDF analysis job.
+ * Returned when polling a job and sent as the payload of each SSE event.
+ */
+public class IdpJobStatus {
+    private String jobId;
+    private String status;
+    private String stage;
+    private String message;
+    private String fileName;
+    private String provider;
+    private Integer currentPage;
+    private Integer totalPages;
+    private Integer sectionsParsed;
+    private Long firstSectionMs;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+    private JsonSchemaResponse result;
+    private String error;
+
+    // Manual getters and setters (NO LOMBOK)
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public void setProvider(String provider) {
+        this.provider = provider;
+    }
+
+    public Integer getCurrentPage() {
+        return currentPage;
+    }
+
+    public void setCurrentPage(Integer currentPage) {
+        this.currentPage = currentPage;
+    }
+
+    public Integer getTotalPages() {
+        return totalPages;
+    }
+
+    public void setTotalPages(Integer totalPages) {
+        this.totalPages = totalPages;
+    }
+
+    public Integer getSectionsParsed() {
+        return sectionsParsed;
+    }
+
+    public void setSectionsParsed(Integer sectionsParsed) {
+        this.sectionsParsed = sectionsParsed;
+    }
+
+    public Long getFirstSectionMs() {
+        return firstSectionMs;
+    }
+
+    public void setFirstSectionMs(Long firstSectionMs) {
+        this.firstSectionMs = firstSectionMs;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public JsonSchemaResponse getResult() {
+        return result;
+    }
+
+    public void setResult(JsonSchemaResponse result) {
+        this.result = result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
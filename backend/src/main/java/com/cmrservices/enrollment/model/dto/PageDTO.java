@@ -0,0 +1,44 @@
+package com.cmrservices.enrollment.model.dto;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated list.
+ * Pass {@code nextCursor} back as the {@code cursor} parameter to fetch the
+ * following page; it is null on the last page.
+ *
+ * @param <T> the item type
+ */
+public class PageDTO<T> {
+
+    private List<T> items;
+    private String nextCursor;
+
+    // Default constructor
+    public PageDTO() {
+    }
+
+    // Full constructor
+    public PageDTO(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    // Setters
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -42,6 +42,21 @@ public class ProgramDTO {
         this.formSchemaId = formSchemaId;
     }
 
+    // Copy constructor
+    public ProgramDTO(ProgramDTO other) {
+        this(other.programId, other.displayName, other.manufacturer, other.shortDescription,
+                other.logoUrl, other.isActive, other.formSchemaId);
+        this.primaryColor = other.primaryColor;
+        this.primaryButtonColor = other.primaryButtonColor;
+        this.secondaryColor = other.secondaryColor;
+        this.secondaryButtonColor = other.secondaryButtonColor;
+        this.headerBackgroundColor = other.headerBackgroundColor;
+        this.footerBackgroundColor = other.footerBackgroundColor;
+        this.formBackgroundColor = other.formBackgroundColor;
+        this.footerText = other.footerText;
+        this.companyName = other.companyName;
+    }
+
     // Getters
     public String getProgramId() {
         return programId;
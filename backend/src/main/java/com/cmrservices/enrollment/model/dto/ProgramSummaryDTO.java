@@ -0,0 +1,98 @@
+package com.cmrservices.enrollment.model.dto;
+
+/**
+ * Data Transfer Object for the program list view.
+ * Carries only the fields shown on a program card; the full branding lives in
+ * {@link ProgramDTO}.
+ */
+public class ProgramSummaryDTO {
+
+    private String programId;
+    private String displayName;
+    private String manufacturer;
+    private String shortDescription;
+    private String logoUrl;
+    private String primaryColor;
+    private String primaryButtonColor;
+
+    // Default constructor
+    public ProgramSummaryDTO() {
+    }
+
+    // Projection of a full program
+    public ProgramSummaryDTO(ProgramDTO program) {
+        this.programId = program.getProgramId();
+        this.displayName = program.getDisplayName();
+        this.manufacturer = program.getManufacturer();
+        this.shortDescription = program.getShortDescription();
+        this.logoUrl = program.getLogoUrl();
+        this.primaryColor = program.getPrimaryColor();
+        this.primaryButtonColor = program.getPrimaryButtonColor();
+    }
+
+    // Getters
+    public String getProgramId() {
+        return programId;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getManufacturer() {
+        return manufacturer;
+    }
+
+    public String getShortDescription() {
+        return shortDescription;
+    }
+
+    public String getLogoUrl() {
+        return logoUrl;
+    }
+
+    public String getPrimaryColor() {
+        return primaryColor;
+    }
+
+    public String getPrimaryButtonColor() {
+        return primaryButtonColor;
+    }
+
+    // Setters
+    public void setProgramId(String programId) {
+        this.programId = programId;
+    }
+
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public void setManufacturer(String manufacturer) {
+        this.manufacturer = manufacturer;
+    }
+
+    public void setShortDescription(String shortDescription) {
+        this.shortDescription = shortDescription;
+    }
+
+    public void setLogoUrl(String logoUrl) {
+        this.logoUrl = logoUrl;
+    }
+
+    public void setPrimaryColor(String primaryColor) {
+        this.primaryColor = primaryColor;
+    }
+
+    public void setPrimaryButtonColor(String primaryButtonColor) {
+        this.primaryButtonColor = primaryButtonColor;
+    }
+
+    @Override
+    public String toString() {
+        return "ProgramSummaryDTO{" +
+                "programId='" + programId + '\'' +
+                ", displayName='" + displayName + '\'' +
+                '}';
+    }
+}
@@ -1,6 +1,8 @@
 package com.cmrservices.enrollment.model.dto;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -11,9 +13,12 @@ import java.util.UUID;
 public class SubmissionDTO {
 
     private UUID id;
+    @NotBlank(message = "programId is required")
     private String programId;
+    @NotBlank(message = "formId is required")
     private String formId;
     private String formType;
+    @NotNull(message = "formData is required")
     private JsonNode formData;
     private String submissionStatus;
     private LocalDateTime submittedAt;
@@ -12,11 +12,15 @@ import java.util.UUID;
  * Maps to the form_submissions table.
  */
 @Entity
-@Table(name = "form_submissions")
+@Table(name = "form_submissions", indexes = {
+        // Keyset pagination and export order for GET /submissions
+        @Index(name = "idx_form_submissions_program_submitted", columnList = "program_id, submitted_at, id"),
+        @Index(name = "idx_form_submissions_form_submitted", columnList = "form_id, submitted_at, id")
+})
 public class FormSubmission {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @TimeOrderedUuid
     private UUID id;
 
     @Column(name = "program_id", nullable = false)
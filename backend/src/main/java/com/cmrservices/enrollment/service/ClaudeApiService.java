@@ -1,19 +1,30 @@
 package com.cmrservices.enrollment.service;
 
+import com.cmrservices.enrollment.config.OutboundHttpClients;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class ClaudeApiService {
@@ -32,139 +43,221 @@ public class ClaudeApiService {
   @Value("${claude.max-tokens}")
   private int maxTokens;
 
+  private static final ParameterizedTypeReference<ServerSentEvent<String>> STREAM_EVENT_TYPE =
+      new ParameterizedTypeReference<>() {
+      };
+
   private final WebClient webClient;
   private final ObjectMapper objectMapper;
-
-  public ClaudeApiService(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
-    this.webClient = webClientBuilder.build();
+  private final VisionRequestWriter visionRequestWriter;
+  private final ProviderStats providerStats;
+
+  public ClaudeApiService(
+      OutboundHttpClients outboundHttpClients,
+      ObjectMapper objectMapper,
+      VisionRequestWriter visionRequestWriter,
+      ProviderStats providerStats) {
+    this.webClient = outboundHttpClients.builder(OutboundHttpClients.POOL_CLAUDE).build();
     this.objectMapper = objectMapper;
+    this.visionRequestWriter = visionRequestWriter;
+    this.providerStats = providerStats;
   }
 
   /**
-   * Analyze PDF and generate JSON Schema
+   * Model used for schema generation; part of the schema cache key.
    */
-  public String analyzePdfAndGenerateSchema(List<String> base64Images) {
-    log.info("Sending {} PDF pages to Claude API for analysis", base64Images.size());
+  public String getModel() {
+    return model;
+  }
 
-    try {
-      // Build the message content with images
-      List<Map<String, Object>> content = new ArrayList<>();
-
-      // Add the system prompt
-      content.add(Map.of(
-          "type", "text",
-          "text", buildAnalysisPrompt()));
-
-      // Calculate approximate payload size
-      long totalImageSize = base64Images.stream()
-          .mapToLong(String::length)
-          .sum();
-      double payloadSizeMB = totalImageSize / (1024.0 * 1024.0);
-      log.info("Estimated payload size: {} MB ({} pages)", String.format("%.2f", payloadSizeMB), base64Images.size());
-
-      if (payloadSizeMB > 10) {
-        log.warn("Large payload detected ({} MB) - may cause connection issues or timeouts",
-            String.format("%.2f", payloadSizeMB));
-      }
+  /**
+   * Fingerprint of the analysis prompt, so cached schemas are invalidated
+   * whenever the prompt changes.
+   */
+  public String getPromptVersion() {
+    return SchemaCacheService.fingerprint(buildAnalysisPrompt());
+  }
 
-      // Add each PDF page as an image
-      for (int i = 0; i < base64Images.size(); i++) {
-        content.add(Map.of(
-            "type", "image",
-            "source", Map.of(
-                "type", "base64",
-                "media_type", "image/png",
-                "data", base64Images.get(i))));
-      }
+  /**
+   * Analyze PDF pages as they are rendered and generate JSON Schema.
+   * The request body is streamed: each page is base64-encoded directly into
+   * the outgoing body as soon as it arrives, so rendering overlaps with the
+   * upload to Claude and only about one page is held in memory at a time.
+   * The response is streamed too (server-sent events) and parsed as it
+   * arrives; see {@link StreamingSchemaParser}. No thread is held while
+   * waiting for Claude; the schema is emitted when the response arrives.
+   */
+  public Mono<String> analyzePdfAndGenerateSchemaAsync(Flux<RenderedPage> pages) {
+    return analyzePdfAndGenerateSchemaAsync(pages, null);
+  }
 
-      // Build the request body
-      Map<String, Object> requestBody = new HashMap<>();
-      requestBody.put("model", model);
-      requestBody.put("max_tokens", maxTokens);
-      requestBody.put("messages", List.of(
-          Map.of("role", "user", "content", content)));
+  /**
+   * Same as {@link #analyzePdfAndGenerateSchemaAsync(Flux)}, appending extra
+   * instructions to the analysis prompt (for example, when the pages are only
+   * one chunk of a longer form).
+   */
+  public Mono<String> analyzePdfAndGenerateSchemaAsync(Flux<RenderedPage> pages, String additionalInstructions) {
+    return analyzePdfAndGenerateSchemaAsync(pages, additionalInstructions, IdpProgressListener.NONE);
+  }
 
-      // Call Claude API with retry logic
-      String response = callClaudeApiWithRetry(requestBody);
+  /**
+   * Same as {@link #analyzePdfAndGenerateSchemaAsync(Flux, String)}, reporting
+   * each form section to the listener as soon as it has been streamed back.
+   */
+  public Mono<String> analyzePdfAndGenerateSchemaAsync(Flux<RenderedPage> pages, String additionalInstructions,
+      IdpProgressListener listener) {
+    return Mono.defer(() -> {
+      log.info("Streaming PDF pages to Claude API for analysis");
+
+      AtomicInteger pageCount = new AtomicInteger();
+      AtomicLong imageBytes = new AtomicLong();
+
+      Flux<DataBuffer> requestBody = visionRequestWriter.writeClaudeRequest(
+          model,
+          maxTokens,
+          true,
+          buildAnalysisPrompt(additionalInstructions),
+          pages.doOnNext(page -> {
+            pageCount.incrementAndGet();
+            imageBytes.addAndGet(page.getData().length);
+          }))
+          .doOnComplete(() -> logPayloadSize(imageBytes.get(), pageCount.get()));
 
-      // Parse response and extract JSON schema
-      JsonNode responseNode = objectMapper.readTree(response);
-      String generatedSchema = responseNode
-          .path("content")
-          .get(0)
-          .path("text")
-          .asText();
+      // Call Claude API with retry logic
+      return streamClaudeApiWithRetry(BodyInserters.fromDataBuffers(requestBody), listener)
+          .map(this::extractSchema)
+          .doOnNext(schema -> log.info("Successfully received schema from Claude API"));
+    })
+        .onErrorMap(e -> {
+          log.error("Error calling Claude API", e);
+          if (e.getCause() != null && e.getCause() instanceof java.net.SocketException) {
+            return new RuntimeException(
+                "Connection reset by Claude API - PDF may be too large or network is unstable. Try a smaller PDF.", e);
+          }
+          return new RuntimeException("Failed to analyze PDF with Claude API", e);
+        });
+  }
 
-      // Strip markdown code fences if present
-      generatedSchema = stripMarkdownCodeFence(generatedSchema);
+  /**
+   * Clean up the streamed schema text
+   */
+  private String extractSchema(String generatedSchema) {
+    // Strip markdown code fences if present
+    generatedSchema = stripMarkdownCodeFence(generatedSchema);
 
-      // Validate and attempt to fix common JSON issues
-      generatedSchema = validateAndFixJson(generatedSchema);
+    // Validate and attempt to fix common JSON issues
+    return validateAndFixJson(generatedSchema);
+  }
 
-      log.info("Successfully received schema from Claude API");
-      return generatedSchema;
+  private void logPayloadSize(long imageBytes, int pages) {
+    // Base64 encoding inflates image bytes by 4/3
+    double payloadSizeMB = (imageBytes * 4 / 3) / (1024.0 * 1024.0);
+    log.info("Streamed payload size: {} MB ({} pages)", String.format("%.2f", payloadSizeMB), pages);
 
-    } catch (Exception e) {
-      log.error("Error calling Claude API", e);
-      if (e.getCause() != null && e.getCause() instanceof java.net.SocketException) {
-        throw new RuntimeException(
-            "Connection reset by Claude API - PDF may be too large or network is unstable. Try a smaller PDF.", e);
-      }
-      throw new RuntimeException("Failed to analyze PDF with Claude API", e);
+    if (payloadSizeMB > 10) {
+      log.warn("Large payload detected ({} MB) - may cause connection issues or timeouts",
+          String.format("%.2f", payloadSizeMB));
     }
   }
 
   /**
-   * Call Claude API with retry logic for connection errors
+   * Call the streaming Messages API with retry logic for connection errors and
+   * return the generated text. Text deltas are fed to a
+   * {@link StreamingSchemaParser} as they arrive; if the output stops being
+   * valid JSON the stream fails and the response is cancelled right away.
+   * Each attempt fails after 5 minutes in total or 5 minutes without an event.
+   * A streamed body is re-subscribed on retry, which re-renders its pages
+   * (served from the page image cache after the first attempt).
    */
-  private String callClaudeApiWithRetry(Map<String, Object> requestBody) {
+  private Mono<String> streamClaudeApiWithRetry(BodyInserter<?, ? super ClientHttpRequest> requestBody,
+      IdpProgressListener listener) {
     int maxRetries = 2;
     int retryDelayMs = 2000;
+    AtomicInteger attempt = new AtomicInteger();
+
+    return Mono.defer(() -> {
+      log.info("Calling Claude API (attempt {}/{})", attempt.incrementAndGet(), maxRetries);
+      StreamingSchemaParser schemaParser = new StreamingSchemaParser(objectMapper, listener,
+          SchemaGenerationService.PROVIDER_CLAUDE);
+
+      return webClient.post()
+          .uri(java.util.Objects.requireNonNull(apiUrl, "API URL must not be null"))
+          .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+          .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+          .header("x-api-key", apiKey)
+          .header("anthropic-version", "2023-06-01")
+          .body(java.util.Objects.requireNonNull(requestBody, "Request body must not be null"))
+          .retrieve()
+          .bodyToFlux(STREAM_EVENT_TYPE)
+          // 5 minutes without any event; Claude's pings keep a stalled generation under this
+          .timeout(Duration.ofMinutes(5))
+          .<Void>handle((event, sink) -> {
+            try {
+              handleStreamEvent(event, schemaParser);
+            } catch (IOException e) {
+              sink.error(new RuntimeException("Claude returned malformed JSON after "
+                  + schemaParser.getText().length() + " characters, cancelled the response: " + e.getMessage(), e));
+            }
+          })
+          .then(Mono.fromCallable(() -> finishStream(schemaParser)))
+          .timeout(Duration.ofMinutes(5)); // 5 minutes for the whole response, pings or not
+    })
+        // Connection reset or network error; other errors shouldn't retry
+        .retryWhen(Retry.fixedDelay(maxRetries - 1, Duration.ofMillis(retryDelayMs))
+            .filter(e -> e instanceof WebClientRequestException)
+            .doBeforeRetry(signal -> log.warn("Connection error on attempt {}, retrying in {}ms: {}",
+                signal.totalRetries() + 1, retryDelayMs, signal.failure().getMessage()))
+            .onRetryExhaustedThrow((spec, signal) -> {
+              log.error("All retry attempts failed");
+              return signal.failure();
+            }))
+        .doOnNext(response -> log.info("Successfully received response from Claude API"));
+  }
 
-    for (int attempt = 1; attempt <= maxRetries; attempt++) {
-      try {
-        log.info("Calling Claude API (attempt {}/{})", attempt, maxRetries);
-
-        String response = webClient.post()
-            .uri(java.util.Objects.requireNonNull(apiUrl, "API URL must not be null"))
-            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-            .header("x-api-key", apiKey)
-            .header("anthropic-version", "2023-06-01")
-            .bodyValue(java.util.Objects.requireNonNull(requestBody, "Request body must not be null"))
-            .retrieve()
-            .bodyToMono(String.class)
-            .timeout(java.time.Duration.ofMinutes(5)) // 5 minute timeout
-            .block();
-
-        if (response == null) {
-          throw new RuntimeException("Received null response from Claude API");
-        }
+  /**
+   * Handle one server-sent event of the Messages streaming API. Only text
+   * deltas carry schema content; ping, message_start, content_block_start/stop
+   * and message_stop need no handling.
+   */
+  private void handleStreamEvent(ServerSentEvent<String> event, StreamingSchemaParser schemaParser)
+      throws IOException {
+    String data = event.data();
+    if (event.event() == null || data == null) {
+      return;
+    }
 
-        log.info("Successfully received response from Claude API");
-        return response;
-
-      } catch (org.springframework.web.reactive.function.client.WebClientRequestException e) {
-        // Connection reset or network error
-        if (attempt < maxRetries) {
-          log.warn("Connection error on attempt {}, retrying in {}ms: {}", attempt, retryDelayMs, e.getMessage());
-          try {
-            Thread.sleep(retryDelayMs);
-          } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Retry interrupted", ie);
-          }
-        } else {
-          log.error("All retry attempts failed");
-          throw e;
+    switch (event.event()) {
+      case "content_block_delta" -> {
+        JsonNode delta = objectMapper.readTree(data).path("delta");
+        if ("text_delta".equals(delta.path("type").asText())) {
+          schemaParser.accept(delta.path("text").asText());
+        }
+      }
+      case "message_delta" -> {
+        String stopReason = objectMapper.readTree(data).path("delta").path("stop_reason").asText();
+        if ("max_tokens".equals(stopReason)) {
+          log.warn("Claude response hit max_tokens ({}); the schema is truncated", maxTokens);
         }
-      } catch (Exception e) {
-        // Other errors shouldn't retry
-        log.error("Non-retryable error calling Claude API", e);
-        throw e;
+      }
+      case "error" -> throw new RuntimeException("Claude API stream error: "
+          + objectMapper.readTree(data).path("error").path("message").asText());
+      default -> {
+        // Nothing to do
       }
     }
+  }
 
-    throw new RuntimeException("Failed to call Claude API after " + maxRetries + " attempts");
+  private String finishStream(StreamingSchemaParser schemaParser) {
+    String text = schemaParser.getText();
+    if (text.isBlank()) {
+      throw new RuntimeException("Received empty response from Claude API");
+    }
+    if (schemaParser.getFirstSectionMs() >= 0) {
+      providerStats.recordFirstSection(SchemaGenerationService.PROVIDER_CLAUDE, schemaParser.getFirstSectionMs());
+      log.info("Streamed {} form sections, first after {} ms", schemaParser.getSectionCount(),
+          schemaParser.getFirstSectionMs());
+    }
+    return text;
   }
 
   /**
@@ -242,6 +335,13 @@ public class ClaudeApiService {
     return trimmed.trim();
   }
 
+  private String buildAnalysisPrompt(String additionalInstructions) {
+    if (additionalInstructions == null || additionalInstructions.isBlank()) {
+      return buildAnalysisPrompt();
+    }
+    return buildAnalysisPrompt() + "\n" + additionalInstructions;
+  }
+
   private String buildAnalysisPrompt() {
     return """
         You are an expert at analyzing PDF enrollment forms and converting them into JSON Schema format.
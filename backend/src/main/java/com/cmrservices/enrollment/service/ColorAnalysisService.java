@@ -1,5 +1,6 @@
 package com.cmrservices.enrollment.service;
 
+import com.cmrservices.enrollment.config.OutboundHttpClients;
 import com.cmrservices.enrollment.model.dto.ColorAnalysisResponse;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -10,6 +11,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.ArrayList;
@@ -41,10 +43,10 @@ public class ColorAnalysisService {
     private final ScreenshotService screenshotService;
 
     public ColorAnalysisService(
-            WebClient.Builder webClientBuilder,
+            OutboundHttpClients outboundHttpClients,
             ObjectMapper objectMapper,
             ScreenshotService screenshotService) {
-        this.webClient = webClientBuilder.build();
+        this.webClient = outboundHttpClients.builder(OutboundHttpClients.POOL_CLAUDE).build();
         this.objectMapper = objectMapper;
         this.screenshotService = screenshotService;
     }
@@ -53,36 +55,33 @@ public class ColorAnalysisService {
      * Analyze a website by capturing a screenshot and using Claude Vision
      * to identify brand colors.
      */
-    public ColorAnalysisResponse analyzeWebsiteColors(String websiteUrl) {
-        log.info("Analyzing website colors for: {}", websiteUrl);
+    public Mono<ColorAnalysisResponse> analyzeWebsiteColorsAsync(String websiteUrl) {
+        return Mono.defer(() -> {
+            log.info("Analyzing website colors for: {}", websiteUrl);
 
-        try {
             // Check if screenshot service is ready
             if (!screenshotService.isReady()) {
                 log.error("Screenshot service not ready");
-                return ColorAnalysisResponse.error(
-                        "Screenshot service is not available. Please try using the 'Analyze PDF' feature instead.");
+                return Mono.just(ColorAnalysisResponse.error(
+                        "Screenshot service is not available. Please try using the 'Analyze PDF' feature instead."));
             }
 
-            // Capture screenshot
-            String screenshotBase64 = screenshotService.captureScreenshot(websiteUrl);
-
-            if (screenshotBase64 == null || screenshotBase64.isEmpty()) {
-                log.warn("Failed to capture screenshot for {}", websiteUrl);
-                return ColorAnalysisResponse.blocked(
-                        "Unable to capture screenshot of the website. The site may be blocking automated access. " +
-                                "Please try using the 'Analyze PDF' feature to extract colors from a PDF document instead.");
-            }
-
-            // Analyze screenshot with Claude Vision
-            return analyzeImageWithVision(screenshotBase64, "image/png", "website screenshot");
-
-        } catch (Exception e) {
+            // Capture screenshot, then analyze it with Claude Vision
+            return screenshotService.captureScreenshotAsync(websiteUrl)
+                    .filter(screenshotBase64 -> !screenshotBase64.isEmpty())
+                    .flatMap(screenshotBase64 -> analyzeImageWithVision(screenshotBase64, "image/png", "website screenshot"))
+                    .switchIfEmpty(Mono.fromSupplier(() -> {
+                        log.warn("Failed to capture screenshot for {}", websiteUrl);
+                        return ColorAnalysisResponse.blocked(
+                                "Unable to capture screenshot of the website. The site may be blocking automated access. " +
+                                        "Please try using the 'Analyze PDF' feature to extract colors from a PDF document instead.");
+                    }));
+        }).onErrorResume(e -> {
             log.error("Error analyzing website colors: {}", e.getMessage(), e);
-            return ColorAnalysisResponse.error(
+            return Mono.just(ColorAnalysisResponse.error(
                     "An error occurred while analyzing the website: " + e.getMessage() + ". " +
-                            "Please try using the 'Analyze PDF' feature instead.");
-        }
+                            "Please try using the 'Analyze PDF' feature instead."));
+        });
     }
 
     /**
@@ -91,72 +90,63 @@ public class ColorAnalysisService {
      * @param pdfBase64 Base64 encoded PDF content
      * @return ColorAnalysisResponse with extracted colors
      */
-    public ColorAnalysisResponse analyzePdfColors(String pdfBase64) {
-        log.info("Analyzing PDF colors using Claude Vision");
+    public Mono<ColorAnalysisResponse> analyzePdfColorsAsync(String pdfBase64) {
+        return Mono.defer(() -> {
+            log.info("Analyzing PDF colors using Claude Vision");
 
-        try {
             if (pdfBase64 == null || pdfBase64.isEmpty()) {
-                return ColorAnalysisResponse.error("PDF content is empty");
+                return Mono.just(ColorAnalysisResponse.error("PDF content is empty"));
             }
 
             // Analyze PDF with Claude Vision
             return analyzeDocumentWithVision(pdfBase64, "application/pdf", "PDF document");
-
-        } catch (Exception e) {
+        }).onErrorResume(e -> {
             log.error("Error analyzing PDF colors: {}", e.getMessage(), e);
-            return ColorAnalysisResponse.error(
-                    "An error occurred while analyzing the PDF: " + e.getMessage());
-        }
+            return Mono.just(ColorAnalysisResponse.error(
+                    "An error occurred while analyzing the PDF: " + e.getMessage()));
+        });
     }
 
     /**
      * Analyze an image (screenshot) with Claude Vision API
      */
-    private ColorAnalysisResponse analyzeImageWithVision(String imageBase64, String mediaType,
+    private Mono<ColorAnalysisResponse> analyzeImageWithVision(String imageBase64, String mediaType,
             String sourceDescription) {
-        log.info("Analyzing {} with Claude Vision", sourceDescription);
+        return Mono.defer(() -> {
+            log.info("Analyzing {} with Claude Vision", sourceDescription);
 
-        try {
             String prompt = buildVisionPrompt(sourceDescription);
 
             // Build Claude Vision API request with image
             Map<String, Object> requestBody = buildVisionImageRequest(imageBase64, mediaType, prompt);
 
-            // Call Claude API
-            String response = callClaudeApi(requestBody);
-
-            // Parse response
-            return parseVisionResponse(response);
-
-        } catch (Exception e) {
+            // Call Claude API and parse response
+            return callClaudeApi(requestBody).map(this::parseVisionResponse);
+        }).onErrorResume(e -> {
             log.error("Error in Claude Vision analysis: {}", e.getMessage(), e);
-            return ColorAnalysisResponse.error("Failed to analyze " + sourceDescription + ": " + e.getMessage());
-        }
+            return Mono.just(ColorAnalysisResponse.error("Failed to analyze " + sourceDescription + ": " + e.getMessage()));
+        });
     }
 
     /**
      * Analyze a PDF document with Claude Vision API
      */
-    private ColorAnalysisResponse analyzeDocumentWithVision(String documentBase64, String mediaType,
+    private Mono<ColorAnalysisResponse> analyzeDocumentWithVision(String documentBase64, String mediaType,
             String sourceDescription) {
-        log.info("Analyzing {} with Claude Vision", sourceDescription);
+        return Mono.defer(() -> {
+            log.info("Analyzing {} with Claude Vision", sourceDescription);
 
-        try {
             String prompt = buildVisionPrompt(sourceDescription);
 
             // Build Claude Vision API request with document
             Map<String, Object> requestBody = buildVisionDocumentRequest(documentBase64, mediaType, prompt);
 
-            // Call Claude API
-            String response = callClaudeApi(requestBody);
-
-            // Parse response
-            return parseVisionResponse(response);
-
-        } catch (Exception e) {
+            // Call Claude API and parse response
+            return callClaudeApi(requestBody).map(this::parseVisionResponse);
+        }).onErrorResume(e -> {
             log.error("Error in Claude Vision analysis: {}", e.getMessage(), e);
-            return ColorAnalysisResponse.error("Failed to analyze " + sourceDescription + ": " + e.getMessage());
-        }
+            return Mono.just(ColorAnalysisResponse.error("Failed to analyze " + sourceDescription + ": " + e.getMessage()));
+        });
     }
 
     /**
@@ -275,10 +265,10 @@ public class ColorAnalysisService {
     /**
      * Call Claude API with the request body
      */
-    private String callClaudeApi(Map<String, Object> requestBody) throws Exception {
+    private Mono<String> callClaudeApi(Map<String, Object> requestBody) {
         log.info("Calling Claude Vision API");
 
-        String response = webClient.post()
+        return webClient.post()
                 .uri(java.util.Objects.requireNonNull(apiUrl, "API URL must not be null"))
                 .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .header("x-api-key", apiKey)
@@ -287,14 +277,8 @@ public class ColorAnalysisService {
                 .retrieve()
                 .bodyToMono(String.class)
                 .timeout(Duration.ofSeconds(90)) // Longer timeout for vision
-                .block();
-
-        if (response == null) {
-            throw new RuntimeException("Received null response from Claude Vision API");
-        }
-
-        log.info("Received response from Claude Vision API");
-        return response;
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Received null response from Claude Vision API")))
+                .doOnNext(response -> log.info("Received response from Claude Vision API"));
     }
 
     /**
@@ -0,0 +1,220 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.FormSchemaDTO;
+import com.cmrservices.enrollment.model.dto.ProgramDTO;
+import com.cmrservices.enrollment.model.dto.ProgramSummaryDTO;
+import com.contentful.java.cda.CDAEntry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Maps Contentful delivery entries to the program and form schema DTOs.
+ * Shared by the on-demand lookups in {@link ContentfulService} and the synced
+ * replica in {@link ContentfulReplicaService}.
+ */
+@Component
+public class ContentfulEntryMapper {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentfulEntryMapper.class);
+
+    public static final String PROGRAM_CONTENT_TYPE = "enrollmentProgram";
+    public static final String FORM_SCHEMA_CONTENT_TYPE = "enrollmentFormSchema";
+
+    /** Fields selected for the program list view; the SDK adds {@code sys} itself. */
+    public static final String[] PROGRAM_SUMMARY_FIELDS = {
+            "fields.programId",
+            "fields.displayName",
+            "fields.manufacturer",
+            "fields.shortDescription",
+            "fields.logoUrl",
+            "fields.primaryColor",
+            "fields.primaryButtonColor"
+    };
+
+    private final ObjectMapper objectMapper;
+
+    public ContentfulEntryMapper() {
+        this.objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * Maps a Contentful entry to a ProgramDTO.
+     * Handles type casting issues (Contentful may return Double instead of
+     * Integer).
+     *
+     * @param entry the Contentful entry
+     * @return mapped ProgramDTO
+     */
+    public ProgramDTO mapToProgram(CDAEntry entry) {
+        ProgramDTO dto = new ProgramDTO();
+
+        try {
+            dto.setProgramId(getStringField(entry, "programId"));
+            dto.setDisplayName(getStringField(entry, "displayName"));
+            dto.setManufacturer(getStringField(entry, "manufacturer"));
+            dto.setShortDescription(getStringField(entry, "shortDescription"));
+            dto.setLogoUrl(getStringField(entry, "logoUrl"));
+            dto.setIsActive(getBooleanField(entry, "isActive"));
+
+            // Extract formSchemaId from the formSchema reference field
+            Object formSchemaEntry = entry.getField("formSchema");
+            String formSchemaId = null;
+            if (formSchemaEntry instanceof CDAEntry) {
+                formSchemaId = getStringField((CDAEntry) formSchemaEntry, "formId");
+            }
+            dto.setFormSchemaId(formSchemaId);
+
+            // Branding fields
+            dto.setPrimaryColor(getStringField(entry, "primaryColor"));
+            dto.setPrimaryButtonColor(getStringField(entry, "primaryButtonColor"));
+            dto.setSecondaryColor(getStringField(entry, "secondaryColor"));
+            dto.setSecondaryButtonColor(getStringField(entry, "secondaryButtonColor"));
+            dto.setHeaderBackgroundColor(getStringField(entry, "headerBackgroundColor"));
+            dto.setFooterBackgroundColor(getStringField(entry, "footerBackgroundColor"));
+            dto.setFormBackgroundColor(getStringField(entry, "formBackgroundColor"));
+            dto.setFooterText(getStringField(entry, "footerText"));
+            dto.setCompanyName(getStringField(entry, "companyName"));
+
+            log.debug("Mapped program: {}", dto);
+            return dto;
+
+        } catch (Exception e) {
+            log.error("Error mapping Contentful entry to ProgramDTO", e);
+            throw new RuntimeException("Failed to map program data", e);
+        }
+    }
+
+    /**
+     * Maps a Contentful entry fetched with {@link #PROGRAM_SUMMARY_FIELDS} to a
+     * ProgramSummaryDTO.
+     *
+     * @param entry the Contentful entry
+     * @return mapped ProgramSummaryDTO
+     */
+    public ProgramSummaryDTO mapToProgramSummary(CDAEntry entry) {
+        ProgramSummaryDTO dto = new ProgramSummaryDTO();
+        dto.setProgramId(getStringField(entry, "programId"));
+        dto.setDisplayName(getStringField(entry, "displayName"));
+        dto.setManufacturer(getStringField(entry, "manufacturer"));
+        dto.setShortDescription(getStringField(entry, "shortDescription"));
+        dto.setLogoUrl(getStringField(entry, "logoUrl"));
+        dto.setPrimaryColor(getStringField(entry, "primaryColor"));
+        dto.setPrimaryButtonColor(getStringField(entry, "primaryButtonColor"));
+        return dto;
+    }
+
+    /**
+     * Maps a Contentful entry to a FormSchemaDTO.
+     *
+     * @param entry the Contentful entry
+     * @return mapped FormSchemaDTO
+     */
+    public FormSchemaDTO mapToFormSchema(CDAEntry entry) {
+        FormSchemaDTO dto = new FormSchemaDTO();
+
+        try {
+            dto.setFormId(getStringField(entry, "formId"));
+            dto.setVersion(getStringField(entry, "version"));
+
+            // Get the schema field and convert it to JsonNode
+            Object schemaObj = entry.getField("schema");
+            if (schemaObj != null) {
+                JsonNode schemaNode = objectMapper.valueToTree(schemaObj);
+                dto.setSchema(schemaNode);
+            }
+
+            log.debug("Mapped form schema: {}", dto);
+            return dto;
+
+        } catch (Exception e) {
+            log.error("Error mapping Contentful entry to FormSchemaDTO", e);
+            throw new RuntimeException("Failed to map form schema data", e);
+        }
+    }
+
+    /**
+     * ID of the content type an entry belongs to, or null if it is unknown.
+     */
+    public String getContentTypeId(CDAEntry entry) {
+        if (entry.contentType() != null) {
+            return entry.contentType().id();
+        }
+        return linkId(entry.attrs().get("contentType"));
+    }
+
+    /**
+     * Entry ID behind a reference field, whether the SDK resolved the link to
+     * an entry or left it as a raw link (as it does for entries outside the
+     * current response, e.g. in a sync delta).
+     *
+     * @param entry     the Contentful entry
+     * @param fieldName the reference field name
+     * @return the linked entry ID or null if the field is empty
+     */
+    public String getLinkedEntryId(CDAEntry entry, String fieldName) {
+        Object value = entry.getField(fieldName);
+        if (value instanceof CDAEntry) {
+            return ((CDAEntry) value).id();
+        }
+        String id = linkId(value);
+        if (id != null) {
+            return id;
+        }
+
+        // Unresolved links are dropped from the localized fields; the raw
+        // fields keep them per locale
+        Object raw = entry.rawFields() != null ? entry.rawFields().get(fieldName) : null;
+        if (raw instanceof Map) {
+            for (Object localized : ((Map<?, ?>) raw).values()) {
+                id = linkId(localized);
+                if (id != null) {
+                    return id;
+                }
+            }
+        }
+        return null;
+    }
+
+    private String linkId(Object link) {
+        if (link instanceof Map) {
+            Object sys = ((Map<?, ?>) link).get("sys");
+            if (sys instanceof Map) {
+                Object id = ((Map<?, ?>) sys).get("id");
+                return id != null ? id.toString() : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Safely extracts a string field from a Contentful entry.
+     *
+     * @param entry     the Contentful entry
+     * @param fieldName the field name
+     * @return the field value or null if not found
+     */
+    private String getStringField(CDAEntry entry, String fieldName) {
+        Object value = entry.getField(fieldName);
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Safely extracts a boolean field from a Contentful entry.
+     *
+     * @param entry     the Contentful entry
+     * @param fieldName the field name
+     * @return the field value or null if not found
+     */
+    private Boolean getBooleanField(CDAEntry entry, String fieldName) {
+        Object value = entry.getField(fieldName);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return null;
+    }
+}
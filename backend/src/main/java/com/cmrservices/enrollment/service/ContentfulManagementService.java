@@ -1,9 +1,7 @@
 package com.cmrservices.enrollment.service;
 
-import com.contentful.java.cda.CDAArray;
-import com.contentful.java.cda.CDAClient;
-import com.contentful.java.cda.CDAEntry;
 import com.contentful.java.cma.CMAClient;
+import com.contentful.java.cma.model.CMAArray;
 import com.contentful.java.cma.model.CMAEntry;
 import com.contentful.java.cma.model.CMAHttpException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -11,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
@@ -24,33 +23,18 @@ public class ContentfulManagementService {
     @Value("${contentful.space-id}")
     private String spaceId;
 
-    @Value("${contentful.management-token}")
-    private String managementToken;
-
-    @Value("${contentful.access-token}")
-    private String accessToken;
-
     @Value("${contentful.environment}")
     private String environment;
 
     private final ObjectMapper objectMapper;
+    private final CMAClient client;
+    private final ContentfulReplicaService replicaService;
 
-    public ContentfulManagementService(ObjectMapper objectMapper) {
+    public ContentfulManagementService(ObjectMapper objectMapper, CMAClient contentfulManagementClient,
+            ContentfulReplicaService replicaService) {
         this.objectMapper = objectMapper;
-    }
-
-    private CMAClient getClient() {
-        return new CMAClient.Builder()
-                .setAccessToken(managementToken)
-                .build();
-    }
-
-    private CDAClient getDeliveryClient() {
-        return CDAClient.builder()
-                .setSpace(spaceId)
-                .setToken(accessToken)
-                .setEnvironment(environment)
-                .build();
+        this.client = contentfulManagementClient;
+        this.replicaService = replicaService;
     }
 
     /**
@@ -60,8 +44,6 @@ public class ContentfulManagementService {
         log.info("Creating form schema in Contentful: {}", formId);
 
         try {
-            CMAClient client = getClient();
-
             // Parse JSON string to object for Contentful
             Object schemaObject;
             try {
@@ -154,8 +136,14 @@ public class ContentfulManagementService {
     }
 
     /**
-     * Create and publish Enrollment Program entry
+     * Create and publish Enrollment Program entry.
+     * Evicts the program's own entry (it may hold a cached "not found") and the
+     * active program index; other programs stay cached.
      */
+    @Caching(evict = {
+            @CacheEvict(value = ContentfulService.PROGRAMS_CACHE, key = "#programId"),
+            @CacheEvict(value = ContentfulService.PROGRAM_INDEX_CACHE, allEntries = true)
+    })
     public String createProgram(
             String programId,
             String displayName,
@@ -175,8 +163,6 @@ public class ContentfulManagementService {
         log.info("Creating enrollment program in Contentful: {}", programId);
 
         try {
-            CMAClient client = getClient();
-
             // Create reference to form schema
             Map<String, Object> formSchemaLink = new HashMap<>();
             formSchemaLink.put("sys", Map.of(
@@ -211,6 +197,8 @@ public class ContentfulManagementService {
             CMAEntry published = client.entries().publish(created);
 
             log.info("Enrollment program created and published: {}", published.getId());
+            // Pull the change into the read replica rather than waiting for the next scheduled sync
+            replicaService.requestSync();
             return published.getId();
 
         } catch (CMAHttpException e) {
@@ -229,9 +217,15 @@ public class ContentfulManagementService {
     }
 
     /**
-     * Update an existing enrollment program in Contentful
+     * Update an existing enrollment program in Contentful.
+     * Only this program's cache entry and the list-view summaries are evicted;
+     * the active program list is assembled from per-program entries and picks
+     * up the change.
      */
-    @CacheEvict(value = "contentful-programs", allEntries = true)
+    @Caching(evict = {
+            @CacheEvict(value = ContentfulService.PROGRAMS_CACHE, key = "#programId"),
+            @CacheEvict(value = ContentfulService.PROGRAM_INDEX_CACHE, key = "'" + ContentfulService.SUMMARIES_KEY + "'")
+    })
     public void updateProgram(
             String programId,
             String displayName,
@@ -250,17 +244,12 @@ public class ContentfulManagementService {
         log.info("Updating enrollment program in Contentful: {}", programId);
 
         try {
-            CMAClient client = getClient();
-
-            // First, find the entry by programId
-            String entryId = findEntryIdByProgramId(programId);
-            if (entryId == null) {
+            // Find the existing entry - modify it directly to preserve all system metadata
+            CMAEntry entry = findProgramEntry(programId);
+            if (entry == null) {
                 throw new RuntimeException("Program not found with ID: " + programId);
             }
-
-            // Fetch the existing entry - modify it directly to preserve all system metadata
-            CMAEntry entry = client.entries().fetchOne(spaceId, environment, entryId);
-            log.info("Fetched entry {} with version {}", entryId, entry.getVersion());
+            log.info("Fetched entry {} with version {}", entry.getId(), entry.getVersion());
 
             // Update the fields directly on the existing entry
             entry.setField("displayName", "en-US", displayName);
@@ -292,6 +281,7 @@ public class ContentfulManagementService {
             log.info("Entry published, version: {}", published.getVersion());
 
             log.info("Enrollment program updated and published: {}", programId);
+            replicaService.requestSync();
 
         } catch (CMAHttpException e) {
             log.error("Contentful HTTP Error - Message: {}", e.getMessage());
@@ -310,9 +300,13 @@ public class ContentfulManagementService {
     }
 
     /**
-     * Update an existing enrollment program with a new form schema
+     * Update an existing enrollment program with a new form schema.
+     * Only this program's cache entry and the list-view summaries are evicted.
      */
-    @CacheEvict(value = "contentful-programs", allEntries = true)
+    @Caching(evict = {
+            @CacheEvict(value = ContentfulService.PROGRAMS_CACHE, key = "#programId"),
+            @CacheEvict(value = ContentfulService.PROGRAM_INDEX_CACHE, key = "'" + ContentfulService.SUMMARIES_KEY + "'")
+    })
     public void updateProgramWithSchema(
             String programId,
             String displayName,
@@ -332,17 +326,12 @@ public class ContentfulManagementService {
         log.info("Updating enrollment program with new schema in Contentful: {}", programId);
 
         try {
-            CMAClient client = getClient();
-
-            // First, find the entry by programId
-            String entryId = findEntryIdByProgramId(programId);
-            if (entryId == null) {
+            // Find the existing entry - modify it directly to preserve all system metadata
+            CMAEntry entry = findProgramEntry(programId);
+            if (entry == null) {
                 throw new RuntimeException("Program not found with ID: " + programId);
             }
-
-            // Fetch the existing entry - modify it directly to preserve all system metadata
-            CMAEntry entry = client.entries().fetchOne(spaceId, environment, entryId);
-            log.info("Fetched entry {} with version {}", entryId, entry.getVersion());
+            log.info("Fetched entry {} with version {}", entry.getId(), entry.getVersion());
 
             // Create reference to the new form schema
             Map<String, Object> formSchemaLink = new HashMap<>();
@@ -383,6 +372,7 @@ public class ContentfulManagementService {
             log.info("Entry published, version: {}", published.getVersion());
 
             log.info("Enrollment program updated with new schema and published: {}", programId);
+            replicaService.requestSync();
 
         } catch (CMAHttpException e) {
             log.error("Contentful HTTP Error - Message: {}", e.getMessage());
@@ -401,23 +391,23 @@ public class ContentfulManagementService {
     }
 
     /**
-     * Delete an enrollment program and its associated form schema from Contentful
+     * Delete an enrollment program and its associated form schema from Contentful.
+     * Evicts the program's entry and the active program index.
      */
-    @CacheEvict(value = "contentful-programs", allEntries = true)
+    @Caching(evict = {
+            @CacheEvict(value = ContentfulService.PROGRAMS_CACHE, key = "#programId"),
+            @CacheEvict(value = ContentfulService.PROGRAM_INDEX_CACHE, allEntries = true)
+    })
     public void deleteProgram(String programId) {
         log.info("Deleting enrollment program and form schema from Contentful: {}", programId);
 
         try {
-            CMAClient client = getClient();
-
-            // First, find the program entry by programId
-            String programEntryId = findEntryIdByProgramId(programId);
-            if (programEntryId == null) {
+            // Find the program entry; it also carries the form schema reference
+            CMAEntry programEntry = findProgramEntry(programId);
+            if (programEntry == null) {
                 throw new RuntimeException("Program not found with ID: " + programId);
             }
-
-            // Fetch the program entry to get the form schema reference
-            CMAEntry programEntry = client.entries().fetchOne(spaceId, environment, programEntryId);
+            String programEntryId = programEntry.getId();
             log.info("Fetched program entry {} with version {}", programEntryId, programEntry.getVersion());
 
             // Extract form schema entry ID from the program's formSchema field
@@ -442,15 +432,14 @@ public class ContentfulManagementService {
 
             // 1. Unpublish and delete the program entry first (it references the form
             // schema)
+            // unPublish returns the entry at its new version, so no re-fetch is needed before delete
             try {
-                client.entries().unPublish(programEntry);
+                programEntry = client.entries().unPublish(programEntry);
                 log.info("Program entry unpublished: {}", programEntryId);
             } catch (CMAHttpException e) {
                 log.warn("Could not unpublish program entry (may already be unpublished): {}", e.getMessage());
             }
 
-            // Fetch again to get updated version after unpublish
-            programEntry = client.entries().fetchOne(spaceId, environment, programEntryId);
             client.entries().delete(programEntry);
             log.info("Program entry deleted: {}", programEntryId);
 
@@ -463,15 +452,13 @@ public class ContentfulManagementService {
 
                     // Unpublish the form schema
                     try {
-                        client.entries().unPublish(formSchemaEntry);
+                        formSchemaEntry = client.entries().unPublish(formSchemaEntry);
                         log.info("Form schema entry unpublished: {}", formSchemaEntryId);
                     } catch (CMAHttpException e) {
                         log.warn("Could not unpublish form schema entry (may already be unpublished): {}",
                                 e.getMessage());
                     }
 
-                    // Fetch again and delete
-                    formSchemaEntry = client.entries().fetchOne(spaceId, environment, formSchemaEntryId);
                     client.entries().delete(formSchemaEntry);
                     log.info("Form schema entry deleted: {}", formSchemaEntryId);
 
@@ -484,6 +471,7 @@ public class ContentfulManagementService {
             }
 
             log.info("Enrollment program and form schema deleted successfully: {}", programId);
+            replicaService.requestSync();
 
         } catch (CMAHttpException e) {
             log.error("Contentful HTTP Error - Message: {}", e.getMessage());
@@ -501,32 +489,48 @@ public class ContentfulManagementService {
     }
 
     /**
-     * Find the Contentful entry ID by programId field
+     * Find the enrollment program entry by its programId field. Queries the
+     * management API directly, so the entry comes back with the version needed
+     * for update/publish/delete and no separate fetch is required.
+     *
+     * As on the delivery API, only published entries match; drafts and
+     * archived entries are skipped. If more than one published entry carries
+     * the programId, the lookup fails rather than risk updating or deleting
+     * the wrong one.
      */
-    private String findEntryIdByProgramId(String programId) {
-        log.info("Finding entry ID for program: {}", programId);
+    private CMAEntry findProgramEntry(String programId) {
+        log.info("Finding entry for program: {}", programId);
 
+        CMAArray<CMAEntry> result;
         try {
-            CDAClient deliveryClient = getDeliveryClient();
-
-            CDAArray result = deliveryClient.fetch(CDAEntry.class)
-                    .withContentType("enrollmentProgram")
-                    .where("fields.programId", programId)
-                    .all();
-
-            if (result.items().isEmpty()) {
-                log.warn("No entry found for programId: {}", programId);
-                return null;
-            }
+            Map<String, String> query = new HashMap<>();
+            query.put("content_type", "enrollmentProgram");
+            query.put("fields.programId", programId);
+            query.put("sys.publishedAt[exists]", "true");
+            query.put("sys.archivedAt[exists]", "false");
+            query.put("order", "sys.createdAt");
+            // Two are enough to tell a unique match from an ambiguous one
+            query.put("limit", "2");
 
-            CDAEntry entry = (CDAEntry) result.items().get(0);
-            String entryId = entry.id();
-            log.info("Found entry ID {} for programId {}", entryId, programId);
-            return entryId;
+            result = client.entries().fetchAll(spaceId, environment, query);
 
         } catch (Exception e) {
-            log.error("Error finding entry ID for programId: {}", programId, e);
+            log.error("Error finding entry for programId: {}", programId, e);
             throw new RuntimeException("Failed to find program entry", e);
         }
+
+        if (result.getItems().isEmpty()) {
+            log.warn("No entry found for programId: {}", programId);
+            return null;
+        }
+        if (result.getItems().size() > 1) {
+            log.error("Found {} published entries for programId {} (including {} and {})", result.getTotal(),
+                    programId, result.getItems().get(0).getId(), result.getItems().get(1).getId());
+            throw new IllegalStateException("More than one published program entry has programId " + programId);
+        }
+
+        CMAEntry entry = result.getItems().get(0);
+        log.info("Found entry ID {} for programId {}", entry.getId(), programId);
+        return entry;
     }
 }
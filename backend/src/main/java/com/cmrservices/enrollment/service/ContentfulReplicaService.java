@@ -0,0 +1,505 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.FormSchemaDTO;
+import com.cmrservices.enrollment.model.dto.ProgramDTO;
+import com.contentful.java.cda.CDAClient;
+import com.contentful.java.cda.CDAEntry;
+import com.contentful.java.cda.CDAHttpException;
+import com.contentful.java.cda.CDAResource;
+import com.contentful.java.cda.SynchronizedSpace;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local replica of the enrollment programs and form schemas, kept current with
+ * Contentful's Sync API. The first sync downloads every entry; later syncs send
+ * the stored sync token and only receive entries changed or deleted since.
+ *
+ * The replica is an immutable snapshot indexed by programId and formId and
+ * swapped atomically after each sync, so reads never wait on Contentful. The
+ * snapshot and sync token are written to disk after every change and loaded on
+ * startup, so a restart serves data immediately and resumes with a delta.
+ */
+@Service
+public class ContentfulReplicaService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentfulReplicaService.class);
+    private static final String SNAPSHOT_FILE = "snapshot.json";
+    private static final Pattern SYNC_TOKEN = Pattern.compile("[?&]sync_token=([^&]+)");
+
+    private final CDAClient contentfulClient;
+    private final ContentfulEntryMapper entryMapper;
+    private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
+    private final boolean enabled;
+    private final Path snapshotPath;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final AtomicBoolean resyncRequested = new AtomicBoolean();
+    private final ExecutorService syncExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "contentful-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong fullSyncs = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong entriesApplied = new AtomicLong();
+    private volatile Replica replica;
+    private volatile Instant lastSyncAt;
+    private volatile long lastSyncMs;
+    private volatile String lastError;
+
+    public ContentfulReplicaService(
+            CDAClient contentfulClient,
+            ContentfulEntryMapper entryMapper,
+            ObjectMapper objectMapper,
+            CacheManager cacheManager,
+            @Value("${contentful.replica.enabled:true}") boolean enabled,
+            @Value("${contentful.replica.dir:./data/contentful-replica}") String dir) {
+        this.contentfulClient = contentfulClient;
+        this.entryMapper = entryMapper;
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+        this.enabled = enabled;
+        this.snapshotPath = Paths.get(dir).resolve(SNAPSHOT_FILE);
+
+        if (enabled) {
+            loadSnapshot();
+        }
+    }
+
+    /**
+     * True once the replica holds data, either from disk or from a first sync.
+     * Until then callers fall back to querying Contentful directly.
+     */
+    public boolean isReady() {
+        return enabled && replica != null;
+    }
+
+    public Optional<ProgramDTO> findProgram(String programId) {
+        Replica current = replica;
+        return current != null ? Optional.ofNullable(current.programsById.get(programId)) : Optional.empty();
+    }
+
+    /**
+     * Active programs in the order Contentful delivered them.
+     */
+    public List<ProgramDTO> getActivePrograms() {
+        Replica current = replica;
+        return current != null ? current.activePrograms : Collections.emptyList();
+    }
+
+    /**
+     * Active programs in {@link ContentfulService#PROGRAM_ORDER}, for cursor pagination.
+     */
+    public List<ProgramDTO> getActiveProgramsByName() {
+        Replica current = replica;
+        return current != null ? current.activeProgramsByName : Collections.emptyList();
+    }
+
+    public Optional<FormSchemaDTO> findFormSchema(String formId) {
+        Replica current = replica;
+        return current != null ? Optional.ofNullable(current.formSchemasById.get(formId)) : Optional.empty();
+    }
+
+    /**
+     * programId of the program stored under a Contentful entry ID, e.g. for an
+     * unpublish event that only carries the entry ID.
+     */
+    public Optional<String> findProgramIdByEntryId(String entryId) {
+        Replica current = replica;
+        ProgramRecord record = current != null ? current.programs.get(entryId) : null;
+        return record != null ? Optional.ofNullable(record.program.getProgramId()) : Optional.empty();
+    }
+
+    /**
+     * formId of the form schema stored under a Contentful entry ID.
+     */
+    public Optional<String> findFormIdByEntryId(String entryId) {
+        Replica current = replica;
+        FormSchemaDTO formSchema = current != null ? current.formSchemas.get(entryId) : null;
+        return formSchema != null ? Optional.ofNullable(formSchema.getFormId()) : Optional.empty();
+    }
+
+    /**
+     * Pull the next delta on a schedule; the first run does the initial sync.
+     */
+    @Scheduled(initialDelayString = "${contentful.replica.initial-delay-ms:0}",
+            fixedDelayString = "${contentful.replica.sync-interval-ms:30000}")
+    public void scheduledSync() {
+        if (enabled) {
+            sync();
+        }
+    }
+
+    /**
+     * Sync in the background as soon as possible, e.g. after a publish.
+     */
+    public void requestSync() {
+        if (enabled) {
+            syncExecutor.execute(this::sync);
+        }
+    }
+
+    /**
+     * Apply the changes since the last sync. If a sync is already running, it
+     * runs once more when done so a change published meanwhile is not missed.
+     */
+    public void sync() {
+        if (!syncLock.tryLock()) {
+            resyncRequested.set(true);
+            return;
+        }
+        try {
+            do {
+                resyncRequested.set(false);
+                syncOnce();
+            } while (resyncRequested.get());
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Entry counts, sync counters and the last error, for the metrics endpoint.
+     */
+    public Map<String, Object> getStats() {
+        Replica current = replica;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", isReady());
+        stats.put("programs", current != null ? current.programsById.size() : 0);
+        stats.put("formSchemas", current != null ? current.formSchemasById.size() : 0);
+        stats.put("syncs", syncs.get());
+        stats.put("fullSyncs", fullSyncs.get());
+        stats.put("failures", failures.get());
+        stats.put("entriesApplied", entriesApplied.get());
+        stats.put("lastSyncAt", lastSyncAt);
+        stats.put("lastSyncMs", lastSyncMs);
+        stats.put("lastError", lastError);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncExecutor.shutdownNow();
+    }
+
+    private void syncOnce() {
+        long start = System.nanoTime();
+        Replica previous = replica;
+
+        try {
+            Replica base = previous;
+            SynchronizedSpace space;
+            if (base == null || base.syncToken == null) {
+                base = null;
+                space = fetchInitial();
+            } else {
+                try {
+                    space = contentfulClient.sync(base.syncToken).fetch();
+                } catch (CDAHttpException e) {
+                    if (e.responseCode() < 400 || e.responseCode() >= 500 || e.responseCode() == 429) {
+                        throw e;
+                    }
+                    // The token is no longer accepted; start over with the full data set
+                    log.warn("Contentful rejected the sync token ({}), running a full sync", e.responseCode());
+                    base = null;
+                    space = fetchInitial();
+                }
+            }
+
+            Replica next = apply(base, space);
+            lastSyncMs = (System.nanoTime() - start) / 1_000_000;
+            lastSyncAt = Instant.now();
+            lastError = null;
+            syncs.incrementAndGet();
+
+            if (base != null && next.changes == 0) {
+                // Nothing changed; just advance the token
+                replica = next;
+                return;
+            }
+
+            replica = next;
+            entriesApplied.addAndGet(next.changes);
+            evictChanged(previous, next);
+            saveSnapshot(next);
+            log.info("Contentful sync applied {} changes in {} ms ({} programs, {} form schemas)",
+                    next.changes, lastSyncMs, next.programsById.size(), next.formSchemasById.size());
+
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            lastError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.warn("Contentful sync failed, serving the last replica: {}", lastError);
+        }
+    }
+
+    private SynchronizedSpace fetchInitial() {
+        log.info("Running initial Contentful sync");
+        fullSyncs.incrementAndGet();
+        return contentfulClient.sync().fetch();
+    }
+
+    /**
+     * Apply a sync response on top of a replica (or an empty one for a full sync).
+     */
+    private Replica apply(Replica base, SynchronizedSpace space) {
+        Map<String, ProgramRecord> programs = base != null ? new LinkedHashMap<>(base.programs) : new LinkedHashMap<>();
+        Map<String, FormSchemaDTO> formSchemas = base != null
+                ? new LinkedHashMap<>(base.formSchemas)
+                : new LinkedHashMap<>();
+        int changes = 0;
+
+        for (CDAResource item : space.items()) {
+            if (!(item instanceof CDAEntry)) {
+                continue;
+            }
+            CDAEntry entry = (CDAEntry) item;
+            String contentType = entryMapper.getContentTypeId(entry);
+            try {
+                if (ContentfulEntryMapper.PROGRAM_CONTENT_TYPE.equals(contentType)) {
+                    programs.put(entry.id(), new ProgramRecord(entryMapper.mapToProgram(entry),
+                            entryMapper.getLinkedEntryId(entry, "formSchema")));
+                    changes++;
+                } else if (ContentfulEntryMapper.FORM_SCHEMA_CONTENT_TYPE.equals(contentType)) {
+                    formSchemas.put(entry.id(), entryMapper.mapToFormSchema(entry));
+                    changes++;
+                }
+            } catch (Exception e) {
+                log.warn("Skipping Contentful entry {} ({}): {}", entry.id(), contentType, e.getMessage());
+            }
+        }
+
+        // Deleted and unpublished entries arrive as IDs only
+        for (String entryId : space.deletedEntries()) {
+            boolean removed = programs.remove(entryId) != null;
+            removed |= formSchemas.remove(entryId) != null;
+            if (removed) {
+                changes++;
+            }
+        }
+
+        String syncToken = extractSyncToken(space.nextSyncUrl());
+        if (syncToken == null && base != null) {
+            syncToken = base.syncToken;
+        }
+        return new Replica(syncToken, programs, formSchemas, changes);
+    }
+
+    private String extractSyncToken(String nextSyncUrl) {
+        if (nextSyncUrl == null) {
+            return null;
+        }
+        Matcher matcher = SYNC_TOKEN.matcher(nextSyncUrl);
+        return matcher.find() ? URLDecoder.decode(matcher.group(1), StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Evict the cache entries of every program and form schema that changed,
+     * so cached lookups do not outlive the replica data behind them.
+     */
+    private void evictChanged(Replica previous, Replica next) {
+        Map<String, ProgramRecord> oldPrograms = previous != null ? previous.recordsById : Map.of();
+        Map<String, FormSchemaDTO> oldForms = previous != null ? previous.formSchemasById : Map.of();
+
+        Set<String> programIds = new HashSet<>(oldPrograms.keySet());
+        programIds.addAll(next.recordsById.keySet());
+        Cache programCache = cacheManager.getCache(ContentfulService.PROGRAMS_CACHE);
+        boolean programsChanged = false;
+        for (String programId : programIds) {
+            // Records are shared between snapshots until the entry changes; the DTOs are not
+            ProgramRecord before = oldPrograms.get(programId);
+            ProgramRecord after = next.recordsById.get(programId);
+            if (before != after || (after != null && !Objects.equals(next.formSchemaIds.get(programId),
+                    previous != null ? previous.formSchemaIds.get(programId) : null))) {
+                programsChanged = true;
+                if (programCache != null) {
+                    programCache.evict(programId);
+                }
+            }
+        }
+        if (programsChanged) {
+            Cache indexCache = cacheManager.getCache(ContentfulService.PROGRAM_INDEX_CACHE);
+            if (indexCache != null) {
+                indexCache.clear();
+            }
+        }
+
+        Set<String> formIds = new HashSet<>(oldForms.keySet());
+        formIds.addAll(next.formSchemasById.keySet());
+        Cache formCache = cacheManager.getCache(ContentfulService.FORMS_CACHE);
+        for (String formId : formIds) {
+            if (oldForms.get(formId) != next.formSchemasById.get(formId) && formCache != null) {
+                formCache.evict(formId);
+            }
+        }
+    }
+
+    private void loadSnapshot() {
+        try {
+            JsonNode root = objectMapper.readTree(Files.readAllBytes(snapshotPath));
+
+            Map<String, ProgramRecord> programs = new LinkedHashMap<>();
+            for (JsonNode node : root.path("programs")) {
+                programs.put(node.path("entryId").asText(), new ProgramRecord(
+                        objectMapper.treeToValue(node.path("program"), ProgramDTO.class),
+                        node.path("formSchemaEntryId").isTextual() ? node.path("formSchemaEntryId").asText() : null));
+            }
+            Map<String, FormSchemaDTO> formSchemas = new LinkedHashMap<>();
+            for (JsonNode node : root.path("formSchemas")) {
+                formSchemas.put(node.path("entryId").asText(),
+                        objectMapper.treeToValue(node.path("formSchema"), FormSchemaDTO.class));
+            }
+
+            String syncToken = root.path("syncToken").isTextual() ? root.path("syncToken").asText() : null;
+            replica = new Replica(syncToken, programs, formSchemas, 0);
+            log.info("Loaded Contentful replica from {} ({} programs, {} form schemas)",
+                    snapshotPath.toAbsolutePath(), replica.programsById.size(), replica.formSchemasById.size());
+        } catch (NoSuchFileException e) {
+            log.info("No Contentful replica snapshot at {}; waiting for the initial sync", snapshotPath.toAbsolutePath());
+        } catch (Exception e) {
+            log.warn("Could not load Contentful replica snapshot {}, running a full sync: {}",
+                    snapshotPath, e.getMessage());
+        }
+    }
+
+    private void saveSnapshot(Replica snapshot) {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("syncToken", snapshot.syncToken);
+        root.put("savedAt", Instant.now().toString());
+        ArrayNode programs = root.putArray("programs");
+        snapshot.programs.forEach((entryId, record) -> {
+            ObjectNode node = programs.addObject();
+            node.put("entryId", entryId);
+            node.put("formSchemaEntryId", record.formSchemaEntryId);
+            node.set("program", objectMapper.valueToTree(record.program));
+        });
+        ArrayNode formSchemas = root.putArray("formSchemas");
+        snapshot.formSchemas.forEach((entryId, formSchema) -> {
+            ObjectNode node = formSchemas.addObject();
+            node.put("entryId", entryId);
+            node.set("formSchema", objectMapper.valueToTree(formSchema));
+        });
+
+        try {
+            Files.createDirectories(snapshotPath.getParent());
+            // Write to a temp file first so a crash never leaves a partial snapshot
+            Path temp = Files.createTempFile(snapshotPath.getParent(), SNAPSHOT_FILE, ".tmp");
+            Files.write(temp, objectMapper.writeValueAsBytes(root));
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write Contentful replica snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    /**
+     * A program as synced, with the entry ID of the form schema it links to.
+     * The link is kept as an ID because a delta only carries changed entries.
+     */
+    private static final class ProgramRecord {
+
+        private final ProgramDTO program;
+        private final String formSchemaEntryId;
+
+        private ProgramRecord(ProgramDTO program, String formSchemaEntryId) {
+            this.program = program;
+            this.formSchemaEntryId = formSchemaEntryId;
+        }
+    }
+
+    /**
+     * One immutable snapshot of the synced entries, keyed by entry ID, with
+     * lookup indexes by programId and formId.
+     */
+    private static final class Replica {
+
+        private final String syncToken;
+        private final Map<String, ProgramRecord> programs;
+        private final Map<String, FormSchemaDTO> formSchemas;
+        private final int changes;
+        private final Map<String, ProgramRecord> recordsById = new LinkedHashMap<>();
+        private final Map<String, ProgramDTO> programsById = new LinkedHashMap<>();
+        private final Map<String, String> formSchemaIds = new LinkedHashMap<>();
+        private final Map<String, FormSchemaDTO> formSchemasById = new LinkedHashMap<>();
+        private final List<ProgramDTO> activePrograms;
+        private final List<ProgramDTO> activeProgramsByName;
+
+        private Replica(String syncToken, Map<String, ProgramRecord> programs,
+                Map<String, FormSchemaDTO> formSchemas, int changes) {
+            this.syncToken = syncToken;
+            this.programs = programs;
+            this.formSchemas = formSchemas;
+            this.changes = changes;
+
+            formSchemas.values().stream()
+                    .filter(formSchema -> formSchema.getFormId() != null)
+                    .forEach(formSchema -> formSchemasById.put(formSchema.getFormId(), formSchema));
+
+            List<ProgramDTO> active = new ArrayList<>();
+            for (ProgramRecord record : programs.values()) {
+                ProgramDTO program = record.program;
+                if (program.getProgramId() == null) {
+                    continue;
+                }
+                // Resolve the link against the synced form schemas, which may be newer than the program
+                FormSchemaDTO linked = record.formSchemaEntryId != null
+                        ? formSchemas.get(record.formSchemaEntryId)
+                        : null;
+                if (linked != null) {
+                    // The record's DTO is shared with earlier snapshots, so resolve into a copy
+                    program = new ProgramDTO(program);
+                    program.setFormSchemaId(linked.getFormId());
+                }
+                recordsById.put(program.getProgramId(), record);
+                programsById.put(program.getProgramId(), program);
+                formSchemaIds.put(program.getProgramId(), program.getFormSchemaId());
+                if (Boolean.TRUE.equals(program.getIsActive())) {
+                    active.add(program);
+                }
+            }
+            this.activePrograms = Collections.unmodifiableList(active);
+            List<ProgramDTO> byName = new ArrayList<>(active);
+            byName.sort(ContentfulService.PROGRAM_ORDER);
+            this.activeProgramsByName = Collections.unmodifiableList(byName);
+        }
+    }
+}
@@ -1,114 +1,170 @@
 package com.cmrservices.enrollment.service;
 
 import com.cmrservices.enrollment.model.dto.FormSchemaDTO;
+import com.cmrservices.enrollment.model.dto.PageDTO;
 import com.cmrservices.enrollment.model.dto.ProgramDTO;
+import com.cmrservices.enrollment.model.dto.ProgramSummaryDTO;
 import com.contentful.java.cda.CDAArray;
 import com.contentful.java.cda.CDAClient;
 import com.contentful.java.cda.CDAEntry;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.contentful.java.cda.FetchQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 /**
  * Service for fetching data from Contentful CMS.
- * Handles enrollment programs and form schemas.
+ * Handles enrollment programs and form schemas. Reads go to the local replica
+ * maintained by {@link ContentfulReplicaService} when it is ready, so they do
+ * not wait on Contentful.
  */
 @Service
 public class ContentfulService {
 
     private static final Logger log = LoggerFactory.getLogger(ContentfulService.class);
 
+    /** One entry per program ID. */
+    public static final String PROGRAMS_CACHE = "contentful-programs";
+    /** Ordered IDs of the active programs, under {@link #ACTIVE_PROGRAMS_KEY}. */
+    public static final String PROGRAM_INDEX_CACHE = "contentful-program-index";
+    public static final String ACTIVE_PROGRAMS_KEY = "active";
+    /** List-view fields of the active programs, in cursor order, under the index cache. */
+    public static final String SUMMARIES_KEY = "summaries";
+    /** One entry per form ID. */
+    public static final String FORMS_CACHE = "contentful-forms";
+
+    /** Order of paginated program lists: display name (case-insensitive), then programId. */
+    public static final Comparator<ProgramDTO> PROGRAM_ORDER =
+            Comparator.comparing((ProgramDTO program) -> sortKey(program.getDisplayName()))
+                    .thenComparing(ProgramDTO::getProgramId);
+
+    // The delivery API returns at most 1000 items per request
+    private static final int FETCH_PAGE_SIZE = 1000;
+
     private final CDAClient contentfulClient;
-    private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
+    private final ContentfulEntryMapper entryMapper;
+    private final ContentfulReplicaService replicaService;
 
-    public ContentfulService(CDAClient contentfulClient) {
+    public ContentfulService(CDAClient contentfulClient, CacheManager cacheManager,
+                             ContentfulEntryMapper entryMapper, ContentfulReplicaService replicaService) {
         this.contentfulClient = contentfulClient;
-        this.objectMapper = new ObjectMapper();
+        this.cacheManager = cacheManager;
+        this.entryMapper = entryMapper;
+        this.replicaService = replicaService;
     }
 
     /**
-     * Fetches all active enrollment programs from Contentful.
-     * Results are cached to improve performance.
+     * Fetches all active enrollment programs.
+     * Served from the synced replica once it is ready. Until then the list is
+     * assembled from the per-program cache entries, in the order given by a
+     * cached index of active program ids, so evicting one program only reloads
+     * that program.
      *
      * @return list of active programs
      */
-    @Cacheable("contentful-programs")
     public List<ProgramDTO> getAllPrograms() {
-        log.info("Fetching all programs from Contentful");
+        if (replicaService.isReady()) {
+            return replicaService.getActivePrograms();
+        }
 
-        try {
-            CDAArray result = contentfulClient.fetch(CDAEntry.class)
-                    .withContentType("enrollmentProgram")
-                    .all();
+        Cache programCache = cache(PROGRAMS_CACHE);
+        List<String> programIds = cache(PROGRAM_INDEX_CACHE).get(ACTIVE_PROGRAMS_KEY, this::fetchActiveProgramIds);
 
-            List<ProgramDTO> programs = result.items().stream()
-                    .filter(item -> item instanceof CDAEntry)
-                    .map(item -> (CDAEntry) item)
-                    .map(this::mapToProgram)
-                    .filter(program -> program.getIsActive() != null && program.getIsActive())
-                    .collect(Collectors.toList());
+        // Entries hold bare DTOs (or null), as @Cacheable(sync = true) stores getProgramById's result
+        List<ProgramDTO> programs = new ArrayList<>(programIds.size());
+        for (String programId : programIds) {
+            ProgramDTO program = programCache.get(programId, () -> fetchProgram(programId).orElse(null));
+            if (program != null && Boolean.TRUE.equals(program.getIsActive())) {
+                programs.add(program);
+            }
+        }
+        return programs;
+    }
 
-            log.info("Successfully fetched {} active programs from Contentful", programs.size());
-            return programs;
+    /**
+     * One page of active programs in list-view form, ordered by display name.
+     * Served from the replica when it is ready; otherwise from a cached
+     * Contentful query that selects only the list-view fields.
+     *
+     * @param limit  maximum number of programs to return
+     * @param cursor the previous page's nextCursor, or null for the first page
+     * @return the page and the cursor for the next one
+     */
+    public PageDTO<ProgramSummaryDTO> getProgramSummaries(int limit, String cursor) {
+        if (replicaService.isReady()) {
+            // Only the programs on this page are projected
+            PageDTO<ProgramDTO> page = page(replicaService.getActiveProgramsByName(), ProgramDTO::getDisplayName,
+                    ProgramDTO::getProgramId, limit, cursor);
+            List<ProgramSummaryDTO> items = new ArrayList<>(page.getItems().size());
+            page.getItems().forEach(program -> items.add(new ProgramSummaryDTO(program)));
+            return new PageDTO<>(items, page.getNextCursor());
+        }
 
-        } catch (Exception e) {
-            log.error("Error fetching programs from Contentful", e);
-            throw new RuntimeException("Failed to fetch programs from Contentful", e);
+        List<ProgramSummaryDTO> summaries = cache(PROGRAM_INDEX_CACHE).get(SUMMARIES_KEY, this::fetchProgramSummaries);
+        return page(summaries, ProgramSummaryDTO::getDisplayName, ProgramSummaryDTO::getProgramId, limit, cursor);
+    }
+
+    /**
+     * One page of active programs with full branding, ordered by display name.
+     *
+     * @param limit  maximum number of programs to return
+     * @param cursor the previous page's nextCursor, or null for the first page
+     * @return the page and the cursor for the next one
+     */
+    public PageDTO<ProgramDTO> getProgramsPage(int limit, String cursor) {
+        List<ProgramDTO> programs;
+        if (replicaService.isReady()) {
+            programs = replicaService.getActiveProgramsByName();
+        } else {
+            programs = new ArrayList<>(getAllPrograms());
+            programs.sort(PROGRAM_ORDER);
         }
+        return page(programs, ProgramDTO::getDisplayName, ProgramDTO::getProgramId, limit, cursor);
     }
 
     /**
-     * Fetches a specific program by ID from Contentful.
-     * Results are cached to improve performance.
+     * Fetches a specific program by ID, from the synced replica once it is
+     * ready and from Contentful before that.
+     * Results are cached per program ID.
      *
      * @param programId the program ID
      * @return Optional containing the program if found
      */
-    @Cacheable("contentful-programs")
+    @Cacheable(value = PROGRAMS_CACHE, sync = true)
     public Optional<ProgramDTO> getProgramById(String programId) {
-        log.info("Fetching program with ID: {} from Contentful", programId);
-
-        try {
-            CDAArray result = contentfulClient.fetch(CDAEntry.class)
-                    .withContentType("enrollmentProgram")
-                    .where("fields.programId", programId)
-                    .all();
-
-            if (result.items().isEmpty()) {
-                log.warn("Program not found with ID: {}", programId);
-                return Optional.empty();
-            }
-
-            ProgramDTO program = mapToProgram((CDAEntry) result.items().get(0));
-            log.info("Successfully fetched program: {}", programId);
-            return Optional.of(program);
-
-        } catch (Exception e) {
-            log.error("Error fetching program {} from Contentful", programId, e);
-            throw new RuntimeException("Failed to fetch program from Contentful", e);
+        if (replicaService.isReady()) {
+            return replicaService.findProgram(programId);
         }
+        return fetchProgram(programId);
     }
 
     /**
-     * Fetches a form schema by form ID from Contentful.
+     * Fetches a form schema by form ID, from the synced replica once it is
+     * ready and from Contentful before that.
      * Results are cached to improve performance.
      *
      * @param formId the form ID
      * @return Optional containing the form schema if found
      */
-    @Cacheable("contentful-forms")
+    @Cacheable(value = FORMS_CACHE, sync = true)
     public Optional<FormSchemaDTO> getFormSchema(String formId) {
+        if (replicaService.isReady()) {
+            return replicaService.findFormSchema(formId);
+        }
+
         log.info("Fetching form schema with ID: {} from Contentful", formId);
 
         try {
             CDAArray result = contentfulClient.fetch(CDAEntry.class)
-                    .withContentType("enrollmentFormSchema")
+                    .withContentType(ContentfulEntryMapper.FORM_SCHEMA_CONTENT_TYPE)
                     .where("fields.formId", formId)
                     .all();
 
@@ -117,7 +173,7 @@ public class ContentfulService {
                 return Optional.empty();
             }
 
-            FormSchemaDTO formSchema = mapToFormSchema((CDAEntry) result.items().get(0));
+            FormSchemaDTO formSchema = entryMapper.mapToFormSchema((CDAEntry) result.items().get(0));
             log.info("Successfully fetched form schema: {}", formId);
             return Optional.of(formSchema);
 
@@ -128,106 +184,171 @@ public class ContentfulService {
     }
 
     /**
-     * Maps a Contentful entry to a ProgramDTO.
-     * Handles type casting issues (Contentful may return Double instead of
-     * Integer).
-     *
-     * @param entry the Contentful entry
-     * @return mapped ProgramDTO
+     * Loads the active programs from Contentful, warms the per-program cache
+     * with them and returns their IDs.
      */
-    private ProgramDTO mapToProgram(CDAEntry entry) {
-        ProgramDTO dto = new ProgramDTO();
+    private List<String> fetchActiveProgramIds() {
+        log.info("Fetching all programs from Contentful");
 
         try {
-            dto.setProgramId(getStringField(entry, "programId"));
-            dto.setDisplayName(getStringField(entry, "displayName"));
-            dto.setManufacturer(getStringField(entry, "manufacturer"));
-            dto.setShortDescription(getStringField(entry, "shortDescription"));
-            dto.setLogoUrl(getStringField(entry, "logoUrl"));
-            dto.setIsActive(getBooleanField(entry, "isActive"));
-
-            // Extract formSchemaId from the formSchema reference field
-            CDAEntry formSchemaEntry = entry.getField("formSchema");
-            String formSchemaId = null;
-            if (formSchemaEntry != null) {
-                formSchemaId = getStringField(formSchemaEntry, "formId");
-            }
-            dto.setFormSchemaId(formSchemaId);
-
-            // Branding fields
-            dto.setPrimaryColor(getStringField(entry, "primaryColor"));
-            dto.setPrimaryButtonColor(getStringField(entry, "primaryButtonColor"));
-            dto.setSecondaryColor(getStringField(entry, "secondaryColor"));
-            dto.setSecondaryButtonColor(getStringField(entry, "secondaryButtonColor"));
-            dto.setHeaderBackgroundColor(getStringField(entry, "headerBackgroundColor"));
-            dto.setFooterBackgroundColor(getStringField(entry, "footerBackgroundColor"));
-            dto.setFormBackgroundColor(getStringField(entry, "formBackgroundColor"));
-            dto.setFooterText(getStringField(entry, "footerText"));
-            dto.setCompanyName(getStringField(entry, "companyName"));
-
-            log.debug("Mapped program: {}", dto);
-            return dto;
+            Cache programCache = cache(PROGRAMS_CACHE);
+            List<String> programIds = new ArrayList<>();
+            fetchActiveProgramEntries(false).stream()
+                    .map(entryMapper::mapToProgram)
+                    .filter(program -> program.getProgramId() != null)
+                    .forEach(program -> {
+                        programCache.put(program.getProgramId(), program);
+                        programIds.add(program.getProgramId());
+                    });
+
+            log.info("Successfully fetched {} active programs from Contentful", programIds.size());
+            return programIds;
 
         } catch (Exception e) {
-            log.error("Error mapping Contentful entry to ProgramDTO", e);
-            throw new RuntimeException("Failed to map program data", e);
+            log.error("Error fetching programs from Contentful", e);
+            throw new RuntimeException("Failed to fetch programs from Contentful", e);
         }
     }
 
     /**
-     * Maps a Contentful entry to a FormSchemaDTO.
-     *
-     * @param entry the Contentful entry
-     * @return mapped FormSchemaDTO
+     * Loads the list-view fields of the active programs, sorted in cursor order.
      */
-    private FormSchemaDTO mapToFormSchema(CDAEntry entry) {
-        FormSchemaDTO dto = new FormSchemaDTO();
+    private List<ProgramSummaryDTO> fetchProgramSummaries() {
+        log.info("Fetching program summaries from Contentful");
 
         try {
-            dto.setFormId(getStringField(entry, "formId"));
-            dto.setVersion(getStringField(entry, "version"));
-
-            // Get the schema field and convert it to JsonNode
-            Object schemaObj = entry.getField("schema");
-            if (schemaObj != null) {
-                JsonNode schemaNode = objectMapper.valueToTree(schemaObj);
-                dto.setSchema(schemaNode);
+            List<ProgramSummaryDTO> summaries = new ArrayList<>();
+            for (CDAEntry entry : fetchActiveProgramEntries(true)) {
+                ProgramSummaryDTO summary = entryMapper.mapToProgramSummary(entry);
+                if (summary.getProgramId() != null) {
+                    summaries.add(summary);
+                }
             }
+            summaries.sort(Comparator.comparing((ProgramSummaryDTO summary) -> sortKey(summary.getDisplayName()))
+                    .thenComparing(ProgramSummaryDTO::getProgramId));
 
-            log.debug("Mapped form schema: {}", dto);
-            return dto;
+            log.info("Successfully fetched {} program summaries from Contentful", summaries.size());
+            return summaries;
 
         } catch (Exception e) {
-            log.error("Error mapping Contentful entry to FormSchemaDTO", e);
-            throw new RuntimeException("Failed to map form schema data", e);
+            log.error("Error fetching program summaries from Contentful", e);
+            throw new RuntimeException("Failed to fetch programs from Contentful", e);
         }
     }
 
     /**
-     * Safely extracts a string field from a Contentful entry.
+     * Fetches every active program entry, filtered by Contentful rather than in
+     * Java and paged past the delivery API's default limit of 100 items.
      *
-     * @param entry     the Contentful entry
-     * @param fieldName the field name
-     * @return the field value or null if not found
+     * @param summaryOnly select only the list-view fields and skip linked entries
      */
-    private String getStringField(CDAEntry entry, String fieldName) {
-        Object value = entry.getField(fieldName);
-        return value != null ? value.toString() : null;
+    private List<CDAEntry> fetchActiveProgramEntries(boolean summaryOnly) {
+        List<CDAEntry> entries = new ArrayList<>();
+        int skip = 0;
+        while (true) {
+            FetchQuery<CDAEntry> query = contentfulClient.fetch(CDAEntry.class)
+                    .withContentType(ContentfulEntryMapper.PROGRAM_CONTENT_TYPE)
+                    .where("fields.isActive", "true")
+                    .orderBy("sys.createdAt")
+                    .limit(FETCH_PAGE_SIZE)
+                    .skip(skip);
+            if (summaryOnly) {
+                query.select(ContentfulEntryMapper.PROGRAM_SUMMARY_FIELDS).include(0);
+            }
+
+            CDAArray page = query.all();
+            page.items().stream()
+                    .filter(item -> item instanceof CDAEntry)
+                    .forEach(item -> entries.add((CDAEntry) item));
+
+            skip += page.items().size();
+            if (page.items().isEmpty() || skip >= page.total()) {
+                return entries;
+            }
+        }
+    }
+
+    private Optional<ProgramDTO> fetchProgram(String programId) {
+        log.info("Fetching program with ID: {} from Contentful", programId);
+
+        try {
+            CDAArray result = contentfulClient.fetch(CDAEntry.class)
+                    .withContentType(ContentfulEntryMapper.PROGRAM_CONTENT_TYPE)
+                    .where("fields.programId", programId)
+                    .all();
+
+            if (result.items().isEmpty()) {
+                log.warn("Program not found with ID: {}", programId);
+                return Optional.empty();
+            }
+
+            ProgramDTO program = entryMapper.mapToProgram((CDAEntry) result.items().get(0));
+            log.info("Successfully fetched program: {}", programId);
+            return Optional.of(program);
+
+        } catch (Exception e) {
+            log.error("Error fetching program {} from Contentful", programId, e);
+            throw new RuntimeException("Failed to fetch program from Contentful", e);
+        }
     }
 
     /**
-     * Safely extracts a boolean field from a Contentful entry.
-     *
-     * @param entry     the Contentful entry
-     * @param fieldName the field name
-     * @return the field value or null if not found
+     * Keyset pagination over a list sorted by (display name, programId). The
+     * cursor encodes the last item's sort key, so pages stay consistent when
+     * programs are added or removed between requests.
      */
-    private Boolean getBooleanField(CDAEntry entry, String fieldName) {
-        Object value = entry.getField(fieldName);
-        if (value instanceof Boolean) {
-            return (Boolean) value;
+    private <T> PageDTO<T> page(List<T> sorted, Function<T, String> displayName, Function<T, String> programId,
+                                int limit, String cursor) {
+        int start = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = decodeCursor(cursor);
+            while (start < sorted.size()) {
+                T item = sorted.get(start);
+                int order = sortKey(displayName.apply(item)).compareTo(position[0]);
+                if (order > 0 || (order == 0 && programId.apply(item).compareTo(position[1]) > 0)) {
+                    break;
+                }
+                start++;
+            }
+        }
+
+        int end = Math.min(sorted.size(), start + limit);
+        List<T> items = new ArrayList<>(sorted.subList(start, end));
+        String nextCursor = null;
+        if (end < sorted.size() && !items.isEmpty()) {
+            T last = items.get(items.size() - 1);
+            nextCursor = encodeCursor(sortKey(displayName.apply(last)), programId.apply(last));
         }
-        return null;
+        return new PageDTO<>(items, nextCursor);
     }
 
+    static String sortKey(String displayName) {
+        return displayName != null ? displayName.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private String encodeCursor(String sortKey, String programId) {
+        String position = sortKey + "\n" + programId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.lastIndexOf('\n');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new String[] { position.substring(0, separator), position.substring(separator + 1) };
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    private Cache cache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache == null) {
+            throw new IllegalStateException("Cache not configured: " + name);
+        }
+        return cache;
+    }
 }
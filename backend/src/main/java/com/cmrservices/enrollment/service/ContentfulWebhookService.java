@@ -0,0 +1,264 @@
+package com.cmrservices.enrollment.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handles Contentful webhooks for entry publish, unpublish, archive and delete
+ * events. Each request must carry a valid Contentful request signature
+ * (HMAC-SHA256 over the method, path, signed headers and body) with a recent
+ * timestamp; the event then evicts exactly the affected program or form schema
+ * cache entries and triggers a replica sync, so edits made in the Contentful
+ * web app are served within seconds instead of after a TTL.
+ */
+@Service
+public class ContentfulWebhookService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentfulWebhookService.class);
+
+    public static final String HEADER_SIGNATURE = "x-contentful-signature";
+    public static final String HEADER_SIGNED_HEADERS = "x-contentful-signed-headers";
+    public static final String HEADER_TIMESTAMP = "x-contentful-timestamp";
+    public static final String HEADER_TOPIC = "x-contentful-topic";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
+    private final ContentfulReplicaService replicaService;
+    private final byte[] secret;
+    private final long maxAgeMs;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong ignored = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ContentfulWebhookService(
+            ObjectMapper objectMapper,
+            CacheManager cacheManager,
+            ContentfulReplicaService replicaService,
+            @Value("${contentful.webhook.secret:}") String secret,
+            @Value("${contentful.webhook.max-age-seconds:30}") long maxAgeSeconds) {
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+        this.replicaService = replicaService;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.maxAgeMs = maxAgeSeconds * 1000;
+
+        if (secret.isEmpty()) {
+            log.warn("contentful.webhook.secret is not set; Contentful webhooks will be rejected");
+        }
+    }
+
+    public boolean isConfigured() {
+        return secret.length > 0;
+    }
+
+    /**
+     * Verify a Contentful request signature.
+     *
+     * @param method  the HTTP method
+     * @param path    the request path including the query string, as received
+     * @param headers request headers keyed by lower-case name
+     * @param body    the raw request body
+     * @return true if the signature matches and the timestamp is recent enough
+     */
+    public boolean verifySignature(String method, String path, Map<String, String> headers, byte[] body) {
+        received.incrementAndGet();
+
+        String signature = headers.get(HEADER_SIGNATURE);
+        String signedHeaders = headers.get(HEADER_SIGNED_HEADERS);
+        String timestamp = headers.get(HEADER_TIMESTAMP);
+        if (!isConfigured() || signature == null || signedHeaders == null || timestamp == null) {
+            return reject("missing signature headers");
+        }
+
+        // The timestamp only protects against replays if it is itself signed
+        List<String> signedNames = new ArrayList<>();
+        for (String name : signedHeaders.split(",")) {
+            if (!name.isBlank()) {
+                signedNames.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        if (!signedNames.contains(HEADER_TIMESTAMP)) {
+            return reject("timestamp is not a signed header");
+        }
+
+        long age;
+        try {
+            age = Math.abs(System.currentTimeMillis() - Long.parseLong(timestamp.trim()));
+        } catch (NumberFormatException e) {
+            return reject("invalid timestamp");
+        }
+        if (age > maxAgeMs) {
+            return reject("timestamp is " + age + " ms old");
+        }
+
+        List<String> canonicalHeaders = new ArrayList<>();
+        for (String name : signedNames) {
+            String value = headers.get(name);
+            if (value == null) {
+                return reject("signed header " + name + " is missing");
+            }
+            canonicalHeaders.add(name + ":" + value.trim());
+        }
+        String canonicalRequest = method.toUpperCase(Locale.ROOT) + "\n"
+                + path + "\n"
+                + String.join(";", canonicalHeaders) + "\n"
+                + new String(body, StandardCharsets.UTF_8);
+
+        byte[] expected = HexFormat.of().formatHex(hmac(canonicalRequest)).getBytes(StandardCharsets.UTF_8);
+        byte[] actual = signature.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return reject("signature mismatch");
+        }
+        return true;
+    }
+
+    /**
+     * Invalidate the cache entries affected by a verified webhook event.
+     *
+     * @param topic the X-Contentful-Topic header, e.g. ContentManagement.Entry.publish
+     * @param body  the raw request body
+     * @return a summary of what was evicted
+     */
+    public Map<String, Object> handleEvent(String topic, byte[] body) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("topic", topic);
+
+        String[] parts = topic != null ? topic.split("\\.") : new String[0];
+        if (parts.length != 3 || !"Entry".equals(parts[1])) {
+            ignored.incrementAndGet();
+            result.put("status", "ignored");
+            return result;
+        }
+        String action = parts[2];
+        if (!"publish".equals(action) && !"unpublish".equals(action)
+                && !"archive".equals(action) && !"delete".equals(action)) {
+            // Drafts (save, auto_save, create) are not visible to the delivery API
+            ignored.incrementAndGet();
+            result.put("status", "ignored");
+            return result;
+        }
+
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(body);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Webhook body is not valid JSON", e);
+        }
+        String entryId = payload.path("sys").path("id").asText(null);
+        String contentType = payload.path("sys").path("contentType").path("sys").path("id").asText(null);
+        result.put("entryId", entryId);
+        result.put("contentType", contentType);
+
+        List<String> evicted = new ArrayList<>();
+        if (ContentfulEntryMapper.PROGRAM_CONTENT_TYPE.equals(contentType)) {
+            // Unpublish and delete payloads carry no fields, so fall back to the replica
+            Optional<String> programId = firstLocaleValue(payload, "programId")
+                    .or(() -> replicaService.findProgramIdByEntryId(entryId));
+            programId.ifPresent(id -> evict(ContentfulService.PROGRAMS_CACHE, id, evicted));
+            // The program may have joined or left the active list
+            clear(ContentfulService.PROGRAM_INDEX_CACHE, evicted);
+        } else if (ContentfulEntryMapper.FORM_SCHEMA_CONTENT_TYPE.equals(contentType)) {
+            Optional<String> formId = firstLocaleValue(payload, "formId")
+                    .or(() -> replicaService.findFormIdByEntryId(entryId));
+            formId.ifPresent(id -> evict(ContentfulService.FORMS_CACHE, id, evicted));
+        } else {
+            ignored.incrementAndGet();
+            result.put("status", "ignored");
+            return result;
+        }
+
+        // Pull the change into the replica; the sync evicts anything else it touches
+        replicaService.requestSync();
+
+        log.info("Contentful webhook {} for entry {} evicted {}", topic, entryId, evicted);
+        result.put("status", "applied");
+        result.put("evicted", evicted);
+        return result;
+    }
+
+    /**
+     * Request counters, for the metrics endpoint.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("configured", isConfigured());
+        stats.put("received", received.get());
+        stats.put("rejected", rejected.get());
+        stats.put("ignored", ignored.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private boolean reject(String reason) {
+        rejected.incrementAndGet();
+        log.warn("Rejected Contentful webhook: {}", reason);
+        return false;
+    }
+
+    private byte[] hmac(String canonicalRequest) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, HMAC_ALGORITHM));
+            return mac.doFinal(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    }
+
+    /**
+     * Value of a localized field in a management API payload ({@code fields.name.<locale>}).
+     */
+    private Optional<String> firstLocaleValue(JsonNode payload, String fieldName) {
+        Iterator<JsonNode> values = payload.path("fields").path(fieldName).elements();
+        while (values.hasNext()) {
+            JsonNode value = values.next();
+            if (value.isTextual() && !value.asText().isEmpty()) {
+                return Optional.of(value.asText());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void evict(String cacheName, String key, List<String> evicted) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+            evictions.incrementAndGet();
+            evicted.add(cacheName + ":" + key);
+        }
+    }
+
+    private void clear(String cacheName, List<String> evicted) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+            evictions.incrementAndGet();
+            evicted.add(cacheName + ":*");
+        }
+    }
+}
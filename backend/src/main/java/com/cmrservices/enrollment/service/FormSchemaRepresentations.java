@@ -0,0 +1,180 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.FormSchemaDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pre-serialized form schemas. Each schema is serialized to JSON and gzipped
+ * once per version and then served as immutable bytes, so repeat requests cost
+ * neither serialization nor compression.
+ *
+ * One entry is kept per formId, for its latest version. The source DTO is kept
+ * alongside the bytes: the replica and the Contentful cache hand out the same
+ * instance until the entry changes, so an identity check detects edits even
+ * when the version field was not bumped. ETags are derived from a hash of the
+ * JSON bytes.
+ */
+@Component
+public class FormSchemaRepresentations {
+
+    private static final Logger log = LoggerFactory.getLogger(FormSchemaRepresentations.class);
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Representation> representations = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong serializations = new AtomicLong();
+
+    public FormSchemaRepresentations(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The serialized form of a schema, serializing it only if this DTO has not
+     * been seen before.
+     */
+    public Representation get(FormSchemaDTO formSchema) {
+        Representation cached = representations.get(formSchema.getFormId());
+        if (cached != null && cached.source == formSchema
+                && Objects.equals(cached.version, formSchema.getVersion())) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        // Replaces any older version of the same form
+        Representation created = serialize(formSchema);
+        representations.put(formSchema.getFormId(), created);
+        return created;
+    }
+
+    /**
+     * Hit/serialization counters and retained bytes, for the metrics endpoint.
+     */
+    public Map<String, Object> getStats() {
+        long json = 0;
+        long gzip = 0;
+        for (Representation representation : representations.values()) {
+            json += representation.json.length;
+            gzip += representation.gzip.length;
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", representations.size());
+        stats.put("hits", hits.get());
+        stats.put("serializations", serializations.get());
+        stats.put("jsonBytes", json);
+        stats.put("gzipBytes", gzip);
+        return stats;
+    }
+
+    private Representation serialize(FormSchemaDTO formSchema) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(formSchema);
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+            // Compressed once per version, so spend the CPU on the smallest output
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                gzip.write(json);
+            }
+
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json), 0, 12);
+            // The version is free text in Contentful; keep only characters that are safe inside an ETag
+            String version = formSchema.getVersion() != null
+                    ? formSchema.getVersion().replaceAll("[^A-Za-z0-9._-]", "")
+                    : "";
+            String tag = version.isEmpty() ? hash : version + "-" + hash;
+
+            serializations.incrementAndGet();
+            log.debug("Serialized form schema {} version {}: {} bytes, {} gzipped",
+                    formSchema.getFormId(), formSchema.getVersion(), json.length, buffer.size());
+            return new Representation(formSchema, json, buffer.toByteArray(), tag);
+
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to serialize form schema " + formSchema.getFormId(), e);
+        }
+    }
+
+    /**
+     * One schema version as JSON and gzipped JSON, with a strong ETag for each
+     * encoding (a gzipped body is a different representation, so it needs its
+     * own strong validator).
+     */
+    public static final class Representation {
+
+        private final FormSchemaDTO source;
+        private final String version;
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+        private final String gzipEtag;
+
+        private Representation(FormSchemaDTO source, byte[] json, byte[] gzip, String tag) {
+            this.source = source;
+            this.version = source.getVersion();
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = "\"" + tag + "\"";
+            this.gzipEtag = "\"" + tag + "-gzip\"";
+        }
+
+        /**
+         * The JSON body. Shared; callers must not modify it.
+         */
+        public byte[] getJson() {
+            return json;
+        }
+
+        /**
+         * The gzipped JSON body. Shared; callers must not modify it.
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getGzipEtag() {
+            return gzipEtag;
+        }
+
+        /**
+         * True if an If-None-Match header names either encoding of this version.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                // If-None-Match uses weak comparison
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag) || tag.equals(gzipEtag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
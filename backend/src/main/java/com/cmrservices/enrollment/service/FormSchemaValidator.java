@@ -0,0 +1,92 @@
+package com.cmrservices.enrollment.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Structural checks for AI-generated form schemas: the JSON must parse and
+ * describe a form the renderer can actually display (properties, pages with
+ * sections, and layouts/required lists that only reference known fields).
+ */
+@Component
+public class FormSchemaValidator {
+
+    private final ObjectMapper objectMapper;
+
+    public FormSchemaValidator(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Validate a generated schema.
+     *
+     * @param schemaJson the schema text
+     * @return the problems found; empty if the schema is usable
+     */
+    public List<String> validate(String schemaJson) {
+        List<String> problems = new ArrayList<>();
+
+        if (schemaJson == null || schemaJson.isBlank()) {
+            problems.add("Schema is empty");
+            return problems;
+        }
+
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(schemaJson);
+        } catch (Exception e) {
+            problems.add("Schema is not valid JSON: " + e.getMessage());
+            return problems;
+        }
+
+        if (!root.isObject()) {
+            problems.add("Schema root is not an object");
+            return problems;
+        }
+
+        JsonNode properties = root.path("properties");
+        if (!properties.isObject() || properties.isEmpty()) {
+            problems.add("Schema has no properties");
+        }
+
+        JsonNode pages = root.path("x-form-config").path("pages");
+        if (!pages.isArray() || pages.isEmpty()) {
+            problems.add("x-form-config has no pages");
+        } else {
+            for (JsonNode page : pages) {
+                JsonNode sections = page.path("sections");
+                if (!sections.isArray() || sections.isEmpty()) {
+                    problems.add("Page '" + page.path("pageId").asText() + "' has no sections");
+                    continue;
+                }
+                for (JsonNode section : sections) {
+                    for (JsonNode row : section.path("layout")) {
+                        for (JsonNode column : row.path("columns")) {
+                            for (JsonNode field : column.path("fields")) {
+                                if (!properties.has(field.asText())) {
+                                    problems.add("Layout references unknown field '" + field.asText() + "'");
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        for (JsonNode field : root.path("required")) {
+            if (!properties.has(field.asText())) {
+                problems.add("Required list references unknown field '" + field.asText() + "'");
+            }
+        }
+
+        return problems;
+    }
+
+    public boolean isValid(String schemaJson) {
+        return validate(schemaJson).isEmpty();
+    }
+}
@@ -1,19 +1,28 @@
 package com.cmrservices.enrollment.service;
 
+import com.cmrservices.enrollment.config.OutboundHttpClients;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class GoogleAiService {
@@ -31,134 +40,144 @@ public class GoogleAiService {
 
   private final WebClient webClient;
   private final ObjectMapper objectMapper;
+  private final VisionRequestWriter visionRequestWriter;
 
-  public GoogleAiService(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
-    this.webClient = webClientBuilder.build();
+  public GoogleAiService(
+      OutboundHttpClients outboundHttpClients,
+      ObjectMapper objectMapper,
+      VisionRequestWriter visionRequestWriter) {
+    this.webClient = outboundHttpClients.builder(OutboundHttpClients.POOL_GOOGLE).build();
     this.objectMapper = objectMapper;
+    this.visionRequestWriter = visionRequestWriter;
   }
 
   /**
-   * Analyze PDF and generate JSON Schema using Google AI
+   * Model used for schema generation; part of the schema cache key.
    */
-  public String analyzePdfAndGenerateSchema(List<String> base64Images) {
-    log.info("Sending {} PDF pages to Google AI API for analysis", base64Images.size());
+  public String getModel() {
+    return model;
+  }
 
-    try {
-      // Build the request content with images
-      List<Map<String, Object>> parts = new ArrayList<>();
-
-      // Add the text prompt first
-      parts.add(Map.of("text", buildAnalysisPrompt()));
-
-      // Calculate approximate payload size
-      long totalImageSize = base64Images.stream()
-          .mapToLong(String::length)
-          .sum();
-      double payloadSizeMB = totalImageSize / (1024.0 * 1024.0);
-      log.info("Estimated payload size: {} MB ({} pages)", String.format("%.2f", payloadSizeMB), base64Images.size());
-
-      if (payloadSizeMB > 10) {
-        log.warn("Large payload detected ({} MB) - may cause connection issues or timeouts",
-            String.format("%.2f", payloadSizeMB));
-      }
+  /**
+   * Fingerprint of the analysis prompt, so cached schemas are invalidated
+   * whenever the prompt changes.
+   */
+  public String getPromptVersion() {
+    return SchemaCacheService.fingerprint(buildAnalysisPrompt());
+  }
 
-      // Add each PDF page as an inline image
-      for (int i = 0; i < base64Images.size(); i++) {
-        parts.add(Map.of(
-            "inlineData", Map.of(
-                "mimeType", "image/png",
-                "data", base64Images.get(i))));
-      }
+  /**
+   * Analyze PDF pages as they are rendered and generate JSON Schema using
+   * Google AI. The request body is streamed: each page is base64-encoded
+   * directly into the outgoing body as soon as it arrives, so only about one
+   * page is held in memory at a time. No thread is held while waiting for
+   * Google AI; the schema is emitted when the response arrives.
+   */
+  public Mono<String> analyzePdfAndGenerateSchemaAsync(Flux<RenderedPage> pages) {
+    return analyzePdfAndGenerateSchemaAsync(pages, null);
+  }
 
-      // Build the request body for Google AI API
-      Map<String, Object> requestBody = new HashMap<>();
-      requestBody.put("contents", List.of(
-          Map.of("parts", parts)));
+  /**
+   * Same as {@link #analyzePdfAndGenerateSchemaAsync(Flux)}, appending extra
+   * instructions to the analysis prompt (for example, when the pages are only
+   * one chunk of a longer form).
+   */
+  public Mono<String> analyzePdfAndGenerateSchemaAsync(Flux<RenderedPage> pages, String additionalInstructions) {
+    return Mono.defer(() -> {
+      log.info("Streaming PDF pages to Google AI API for analysis");
 
-      // Call Google AI API with retry logic
-      String response = callGoogleAiApiWithRetry(requestBody);
+      AtomicInteger pageCount = new AtomicInteger();
+      AtomicLong imageBytes = new AtomicLong();
 
-      // Parse response and extract JSON schema
-      JsonNode responseNode = objectMapper.readTree(response);
-      String generatedSchema = responseNode
-          .path("candidates")
-          .get(0)
-          .path("content")
-          .path("parts")
-          .get(0)
-          .path("text")
-          .asText();
+      Flux<DataBuffer> requestBody = visionRequestWriter.writeGeminiRequest(
+          buildAnalysisPrompt(additionalInstructions),
+          pages.doOnNext(page -> {
+            pageCount.incrementAndGet();
+            imageBytes.addAndGet(page.getData().length);
+          }))
+          .doOnComplete(() -> logPayloadSize(imageBytes.get(), pageCount.get()));
 
-      // Strip markdown code fences if present
-      generatedSchema = stripMarkdownCodeFence(generatedSchema);
+      // Call Google AI API with retry logic
+      return callGoogleAiApiWithRetry(BodyInserters.fromDataBuffers(requestBody))
+          .flatMap(response -> Mono.fromCallable(() -> extractSchema(response)))
+          .doOnNext(schema -> log.info("Successfully received schema from Google AI API"));
+    })
+        .onErrorMap(e -> {
+          log.error("Error calling Google AI API", e);
+          if (e.getCause() != null && e.getCause() instanceof java.net.SocketException) {
+            return new RuntimeException(
+                "Connection reset by Google AI API - PDF may be too large or network is unstable. Try a smaller PDF.", e);
+          }
+          return new RuntimeException("Failed to analyze PDF with Google AI API", e);
+        });
+  }
 
-      // Validate and attempt to fix common JSON issues
-      generatedSchema = validateAndFixJson(generatedSchema);
+  /**
+   * Parse the Google AI response and extract the JSON schema text
+   */
+  private String extractSchema(String response) throws JsonProcessingException {
+    JsonNode responseNode = objectMapper.readTree(response);
+    String generatedSchema = responseNode
+        .path("candidates")
+        .get(0)
+        .path("content")
+        .path("parts")
+        .get(0)
+        .path("text")
+        .asText();
+
+    // Strip markdown code fences if present
+    generatedSchema = stripMarkdownCodeFence(generatedSchema);
+
+    // Validate and attempt to fix common JSON issues
+    return validateAndFixJson(generatedSchema);
+  }
 
-      log.info("Successfully received schema from Google AI API");
-      return generatedSchema;
+  private void logPayloadSize(long imageBytes, int pages) {
+    // Base64 encoding inflates image bytes by 4/3
+    double payloadSizeMB = (imageBytes * 4 / 3) / (1024.0 * 1024.0);
+    log.info("Streamed payload size: {} MB ({} pages)", String.format("%.2f", payloadSizeMB), pages);
 
-    } catch (Exception e) {
-      log.error("Error calling Google AI API", e);
-      if (e.getCause() != null && e.getCause() instanceof java.net.SocketException) {
-        throw new RuntimeException(
-            "Connection reset by Google AI API - PDF may be too large or network is unstable. Try a smaller PDF.", e);
-      }
-      throw new RuntimeException("Failed to analyze PDF with Google AI API", e);
+    if (payloadSizeMB > 10) {
+      log.warn("Large payload detected ({} MB) - may cause connection issues or timeouts",
+          String.format("%.2f", payloadSizeMB));
     }
   }
 
   /**
-   * Call Google AI API with retry logic for connection errors
+   * Call Google AI API with retry logic for connection errors.
+   * A streamed body is re-subscribed on retry, which re-renders its pages
+   * (served from the page image cache after the first attempt).
    */
-  private String callGoogleAiApiWithRetry(Map<String, Object> requestBody) {
+  private Mono<String> callGoogleAiApiWithRetry(BodyInserter<?, ? super ClientHttpRequest> requestBody) {
     int maxRetries = 2;
     int retryDelayMs = 2000;
-
-    for (int attempt = 1; attempt <= maxRetries; attempt++) {
-      try {
-        log.info("Calling Google AI API (attempt {}/{})", attempt, maxRetries);
-
-        // Google AI API key is sent in the header, not query parameter
-        String response = webClient.post()
-            .uri(java.util.Objects.requireNonNull(apiUrl, "API URL must not be null"))
-            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-            .header("X-goog-api-key", apiKey)
-            .bodyValue(java.util.Objects.requireNonNull(requestBody, "Request body must not be null"))
-            .retrieve()
-            .bodyToMono(String.class)
-            .timeout(java.time.Duration.ofMinutes(5)) // 5 minute timeout
-            .block();
-
-        if (response == null) {
-          throw new RuntimeException("Received null response from Google AI API");
-        }
-
-        log.info("Successfully received response from Google AI API");
-        return response;
-
-      } catch (org.springframework.web.reactive.function.client.WebClientRequestException e) {
-        // Connection reset or network error
-        if (attempt < maxRetries) {
-          log.warn("Connection error on attempt {}, retrying in {}ms: {}", attempt, retryDelayMs, e.getMessage());
-          try {
-            Thread.sleep(retryDelayMs);
-          } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Retry interrupted", ie);
-          }
-        } else {
-          log.error("All retry attempts failed");
-          throw e;
-        }
-      } catch (Exception e) {
-        // Other errors shouldn't retry
-        log.error("Non-retryable error calling Google AI API", e);
-        throw e;
-      }
-    }
-
-    throw new RuntimeException("Failed to call Google AI API after " + maxRetries + " attempts");
+    AtomicInteger attempt = new AtomicInteger();
+
+    return Mono.defer(() -> {
+      log.info("Calling Google AI API (attempt {}/{})", attempt.incrementAndGet(), maxRetries);
+
+      // Google AI API key is sent in the header, not query parameter
+      return webClient.post()
+          .uri(java.util.Objects.requireNonNull(apiUrl, "API URL must not be null"))
+          .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+          .header("X-goog-api-key", apiKey)
+          .body(java.util.Objects.requireNonNull(requestBody, "Request body must not be null"))
+          .retrieve()
+          .bodyToMono(String.class)
+          .timeout(Duration.ofMinutes(5)); // 5 minute timeout
+    })
+        .switchIfEmpty(Mono.error(() -> new RuntimeException("Received null response from Google AI API")))
+        // Connection reset or network error; other errors shouldn't retry
+        .retryWhen(Retry.fixedDelay(maxRetries - 1, Duration.ofMillis(retryDelayMs))
+            .filter(e -> e instanceof WebClientRequestException)
+            .doBeforeRetry(signal -> log.warn("Connection error on attempt {}, retrying in {}ms: {}",
+                signal.totalRetries() + 1, retryDelayMs, signal.failure().getMessage()))
+            .onRetryExhaustedThrow((spec, signal) -> {
+              log.error("All retry attempts failed");
+              return signal.failure();
+            }))
+        .doOnNext(response -> log.info("Successfully received response from Google AI API"));
   }
 
   /**
@@ -236,6 +255,13 @@ public class GoogleAiService {
     return trimmed.trim();
   }
 
+  private String buildAnalysisPrompt(String additionalInstructions) {
+    if (additionalInstructions == null || additionalInstructions.isBlank()) {
+      return buildAnalysisPrompt();
+    }
+    return buildAnalysisPrompt() + "\n" + additionalInstructions;
+  }
+
   private String buildAnalysisPrompt() {
     return """
         You are an expert at analyzing PDF enrollment forms and converting them into JSON Schema format.
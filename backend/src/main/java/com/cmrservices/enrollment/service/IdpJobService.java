@@ -0,0 +1,426 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.IdpJobStatus;
+import com.cmrservices.enrollment.model.dto.JsonSchemaResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs PDF analysis as background jobs so requests return immediately instead
+ * of holding a servlet thread for the length of the provider call. Jobs run on
+ * a dedicated, bounded executor; clients poll the job or follow it over
+ * Server-Sent Events. Finished jobs are kept for a configurable TTL.
+ *
+ * Progress is reported from the job's worker, the PDF render pool and the
+ * provider's HTTP event loop, none of which should wait on a slow client. SSE
+ * events are therefore queued per job and sent by a separate sender pool.
+ */
+@Service
+public class IdpJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdpJobService.class);
+
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_SUCCEEDED = "succeeded";
+    public static final String STATUS_FAILED = "failed";
+
+    private static final String EVENT_NAME = "status";
+    private static final String SECTION_EVENT_NAME = "section";
+
+    private final SchemaGenerationService schemaGenerationService;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor sseExecutor;
+    private final Map<String, IdpJob> jobs = new ConcurrentHashMap<>();
+    private final Duration resultTtl;
+    private final long sseTimeoutMs;
+
+    public IdpJobService(
+            SchemaGenerationService schemaGenerationService,
+            @Value("${idp.jobs.pool-size:4}") int poolSize,
+            @Value("${idp.jobs.queue-capacity:50}") int queueCapacity,
+            @Value("${idp.jobs.result-ttl-minutes:60}") long resultTtlMinutes,
+            @Value("${idp.jobs.sse-timeout-minutes:10}") long sseTimeoutMinutes,
+            @Value("${idp.jobs.sse-threads:4}") int sseThreads,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.schemaGenerationService = schemaGenerationService;
+        this.resultTtl = Duration.ofMinutes(resultTtlMinutes);
+        this.sseTimeoutMs = TimeUnit.MINUTES.toMillis(sseTimeoutMinutes);
+
+        // Jobs spend nearly all their time waiting on the provider, so in virtual-thread
+        // mode they run on virtual threads; the pool still caps concurrency and queue size
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory("idp-job-", virtualThreads));
+
+        // Each job hands its events to this pool one batch at a time, so a slow
+        // subscriber holds up its own job's stream and one sender thread, not the job
+        this.sseExecutor = new ThreadPoolExecutor(sseThreads, sseThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory("idp-sse-", virtualThreads));
+
+        log.info("IDP job executor initialized with {} {} workers and {} queue slots",
+                poolSize, virtualThreads ? "virtual" : "platform", queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        sseExecutor.shutdownNow();
+    }
+
+    /**
+     * Queue a PDF for analysis.
+     *
+     * @return the initial job status, including the job id
+     * @throws java.util.concurrent.RejectedExecutionException if the job queue is full
+     */
+    public IdpJobStatus submit(byte[] pdfBytes, String fileName, String provider) {
+        IdpJob job = new IdpJob(UUID.randomUUID().toString(), fileName, provider, sseExecutor);
+        jobs.put(job.id, job);
+
+        try {
+            executor.execute(() -> run(job, pdfBytes));
+        } catch (RuntimeException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+
+        log.info("Queued IDP job {} for {} with provider {}", job.id, fileName, provider);
+        return job.snapshot();
+    }
+
+    public Optional<IdpJobStatus> getStatus(String jobId) {
+        IdpJob job = jobs.get(jobId);
+        return job != null ? Optional.of(job.snapshot()) : Optional.empty();
+    }
+
+    /**
+     * Subscribe to a job's progress. The current status is sent right away;
+     * the stream completes once the job succeeds or fails.
+     */
+    public Optional<SseEmitter> subscribe(String jobId) {
+        IdpJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        emitter.onCompletion(() -> job.emitters.remove(emitter));
+        emitter.onTimeout(() -> job.emitters.remove(emitter));
+        emitter.onError(error -> job.emitters.remove(emitter));
+        job.attach(emitter);
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Drop finished jobs whose results have outlived the TTL.
+     */
+    @Scheduled(fixedDelayString = "${idp.jobs.cleanup-interval-ms:60000}")
+    public void evictExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(resultTtl);
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.isFinished() && job.completedAt.isBefore(cutoff));
+
+        int removed = before - jobs.size();
+        if (removed > 0) {
+            log.info("Evicted {} expired IDP jobs", removed);
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix, boolean virtualThreads) {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory();
+        }
+        AtomicInteger threadCounter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void run(IdpJob job, byte[] pdfBytes) {
+        job.start();
+        try {
+            SchemaGenerationResult result = schemaGenerationService.generateSchema(pdfBytes, job.provider, job);
+            job.succeed(schemaGenerationService.toResponse(result, job.fileName));
+            log.info("IDP job {} finished in {} ms", job.id, result.getElapsedMs());
+        } catch (Exception e) {
+            log.error("IDP job {} failed", job.id, e);
+            job.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Mutable state of one job. Updates happen under the job's lock, which is
+     * never held across I/O; each update queues its SSE events in the job's
+     * outbox in the same order, and the outbox is drained by one sender task
+     * at a time, so subscribers see stages in order and never miss the final
+     * event.
+     */
+    private static final class IdpJob implements IdpProgressListener {
+
+        private final String id;
+        private final String fileName;
+        private final String provider;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Executor sender;
+        private final Queue<Runnable> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private String status = STATUS_QUEUED;
+        private String stage = STATUS_QUEUED;
+        private String message = "Waiting for a worker";
+        private Integer currentPage;
+        private Integer totalPages;
+        private Integer sectionsParsed;
+        private Long firstSectionMs;
+        private LocalDateTime updatedAt = createdAt;
+        private volatile LocalDateTime completedAt;
+        private JsonSchemaResponse result;
+        private String error;
+
+        private IdpJob(String id, String fileName, String provider, Executor sender) {
+            this.id = id;
+            this.fileName = fileName;
+            this.provider = provider;
+            this.sender = sender;
+        }
+
+        private boolean isFinished() {
+            return completedAt != null;
+        }
+
+        private void start() {
+            lock.lock();
+            try {
+                status = STATUS_RUNNING;
+                update(STATUS_RUNNING, "Analysis started");
+            } finally {
+                lock.unlock();
+            }
+            deliver();
+        }
+
+        @Override
+        public void onStage(String stage, String message) {
+            lock.lock();
+            try {
+                // The final "done" update is sent by succeed(), together with the result
+                if (STAGE_DONE.equals(stage)) {
+                    return;
+                }
+                update(stage, message);
+            } finally {
+                lock.unlock();
+            }
+            deliver();
+        }
+
+        @Override
+        public void onPageRendered(int pageNumber, int pageCount) {
+            lock.lock();
+            try {
+                currentPage = pageNumber;
+                totalPages = pageCount;
+                update(STAGE_RENDERING, "Rendered page " + pageNumber + " of " + pageCount);
+            } finally {
+                lock.unlock();
+            }
+            deliver();
+        }
+
+        @Override
+        public void onSectionParsed(String provider, int pageNumber, JsonNode section, long elapsedMs) {
+            lock.lock();
+            try {
+                if (sectionsParsed == null) {
+                    sectionsParsed = 0;
+                    firstSectionMs = elapsedMs;
+                }
+                sectionsParsed++;
+
+                // The section itself goes out as its own event so the client can preview it.
+                // This runs on the provider's HTTP event loop, so it is only queued here
+                Map<String, Object> payload = new LinkedHashMap<>();
+                payload.put("provider", provider);
+                payload.put("pageNumber", pageNumber);
+                payload.put("section", section);
+                outbox.add(() -> {
+                    for (SseEmitter emitter : emitters) {
+                        try {
+                            emitter.send(SseEmitter.event().name(SECTION_EVENT_NAME).data(payload));
+                        } catch (IOException | IllegalStateException e) {
+                            log.debug("Could not send section to SSE subscriber of job {}: {}", id, e.getMessage());
+                        }
+                    }
+                });
+
+                update(STAGE_STREAMING, "Received section '" + section.path("title").asText()
+                        + "' (page " + pageNumber + ") from " + provider);
+            } finally {
+                lock.unlock();
+            }
+            deliver();
+        }
+
+        private void succeed(JsonSchemaResponse response) {
+            lock.lock();
+            try {
+                status = STATUS_SUCCEEDED;
+                result = response;
+                completedAt = LocalDateTime.now();
+                update(STAGE_DONE, response.getNotes());
+            } finally {
+                lock.unlock();
+            }
+            deliver();
+        }
+
+        private void fail(String errorMessage) {
+            lock.lock();
+            try {
+                status = STATUS_FAILED;
+                error = errorMessage;
+                completedAt = LocalDateTime.now();
+                update(STAGE_FAILED, "Analysis failed");
+            } finally {
+                lock.unlock();
+            }
+            deliver();
+        }
+
+        private void attach(SseEmitter emitter) {
+            lock.lock();
+            try {
+                IdpJobStatus snapshot = snapshot();
+                boolean finished = isFinished();
+                outbox.add(() -> {
+                    if (send(emitter, snapshot) && !finished) {
+                        emitters.add(emitter);
+                    } else {
+                        emitter.complete();
+                    }
+                });
+            } finally {
+                lock.unlock();
+            }
+            deliver();
+        }
+
+        private void update(String newStage, String newMessage) {
+            stage = newStage;
+            message = newMessage;
+            updatedAt = LocalDateTime.now();
+
+            IdpJobStatus snapshot = snapshot();
+            boolean finished = isFinished();
+            outbox.add(() -> {
+                for (SseEmitter emitter : emitters) {
+                    if (!send(emitter, snapshot) || finished) {
+                        emitters.remove(emitter);
+                        emitter.complete();
+                    }
+                }
+            });
+        }
+
+        /**
+         * Start a sender task for the outbox unless one is already running.
+         * Called after releasing the lock.
+         */
+        private void deliver() {
+            if (outbox.isEmpty() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                draining.set(false);
+                outbox.clear();
+            }
+        }
+
+        private void drain() {
+            do {
+                Runnable delivery;
+                while ((delivery = outbox.poll()) != null) {
+                    try {
+                        delivery.run();
+                    } catch (RuntimeException e) {
+                        log.debug("Failed to deliver SSE event of job {}: {}", id, e.getMessage());
+                    }
+                }
+                draining.set(false);
+                // An event queued after the last poll but before the flag was cleared is ours to send
+            } while (!outbox.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private boolean send(SseEmitter emitter, IdpJobStatus snapshot) {
+            try {
+                emitter.send(SseEmitter.event().name(EVENT_NAME).data(snapshot));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping SSE subscriber of job {}: {}", id, e.getMessage());
+                return false;
+            }
+        }
+
+        private IdpJobStatus snapshot() {
+            lock.lock();
+            try {
+                IdpJobStatus snapshot = new IdpJobStatus();
+                snapshot.setJobId(id);
+                snapshot.setStatus(status);
+                snapshot.setStage(stage);
+                snapshot.setMessage(message);
+                snapshot.setFileName(fileName);
+                snapshot.setProvider(provider);
+                snapshot.setCurrentPage(currentPage);
+                snapshot.setTotalPages(totalPages);
+                snapshot.setSectionsParsed(sectionsParsed);
+                snapshot.setFirstSectionMs(firstSectionMs);
+                snapshot.setCreatedAt(createdAt);
+                snapshot.setUpdatedAt(updatedAt);
+                snapshot.setCompletedAt(completedAt);
+                snapshot.setResult(result);
+                snapshot.setError(error);
+                return snapshot;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
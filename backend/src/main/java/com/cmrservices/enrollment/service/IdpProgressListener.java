@@ -0,0 +1,46 @@
+package com.cmrservices.enrollment.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Receives progress updates while a PDF is turned into a schema.
+ * Callbacks may arrive on render or HTTP client threads.
+ */
+public interface IdpProgressListener {
+
+    String STAGE_RENDERING = "rendering";
+    String STAGE_CALLING_PROVIDER = "calling_provider";
+    String STAGE_STREAMING = "streaming";
+    String STAGE_VALIDATING = "validating";
+    String STAGE_DONE = "done";
+    String STAGE_FAILED = "failed";
+
+    /**
+     * Listener that ignores all updates.
+     */
+    IdpProgressListener NONE = new IdpProgressListener() {
+    };
+
+    /**
+     * The pipeline entered a new stage.
+     */
+    default void onStage(String stage, String message) {
+    }
+
+    /**
+     * A page finished rendering (1-based page number).
+     */
+    default void onPageRendered(int pageNumber, int pageCount) {
+    }
+
+    /**
+     * A complete form section was parsed from the provider's streamed output,
+     * before the rest of the schema arrived.
+     *
+     * @param pageNumber 1-based index of the section's page in the schema being streamed
+     * @param section    the section object from {@code x-form-config.pages[].sections[]}
+     * @param elapsedMs  time since the provider request was sent
+     */
+    default void onSectionParsed(String provider, int pageNumber, JsonNode section, long elapsedMs) {
+    }
+}
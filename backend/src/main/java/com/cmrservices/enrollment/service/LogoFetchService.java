@@ -1,10 +1,12 @@
 package com.cmrservices.enrollment.service;
 
+import com.cmrservices.enrollment.config.OutboundHttpClients;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 import java.net.URI;
 
@@ -21,37 +23,37 @@ public class LogoFetchService {
 
     private final WebClient webClient;
 
-    public LogoFetchService(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.build();
+    public LogoFetchService(OutboundHttpClients outboundHttpClients) {
+        this.webClient = outboundHttpClients.builder(OutboundHttpClients.POOL_LOGO).build();
     }
 
     /**
-     * Try to fetch logo using Logo.dev API
+     * Try to fetch logo using Logo.dev API.
+     * Completes empty if no logo is found.
      */
-    public String fetchLogo(String websiteUrl) {
-        log.info("Attempting to fetch logo for: {}", websiteUrl);
+    public Mono<String> fetchLogoAsync(String websiteUrl) {
+        return Mono.defer(() -> {
+            log.info("Attempting to fetch logo for: {}", websiteUrl);
 
-        try {
             String domain = extractDomain(websiteUrl);
 
             // Build Logo.dev URL with API token
             String logoUrl = logoApiUrl + "/" + domain + "?token=" + apiKey + "&format=png&size=400";
 
             // Test if logo exists by making HEAD request
-            boolean exists = testUrl(logoUrl);
-
-            if (exists) {
-                log.info("Logo found at Logo.dev: {}", domain);
-                return logoUrl;
-            } else {
-                log.info("Logo not found at Logo.dev for domain: {}", domain);
-                return null;
-            }
-
-        } catch (Exception e) {
+            return testUrl(logoUrl).flatMap(exists -> {
+                if (exists) {
+                    log.info("Logo found at Logo.dev: {}", domain);
+                    return Mono.just(logoUrl);
+                } else {
+                    log.info("Logo not found at Logo.dev for domain: {}", domain);
+                    return Mono.<String>empty();
+                }
+            });
+        }).onErrorResume(e -> {
             log.error("Error fetching logo", e);
-            return null;
-        }
+            return Mono.empty();
+        });
     }
 
     private String extractDomain(String url) {
@@ -80,20 +82,16 @@ public class LogoFetchService {
         }
     }
 
-    private boolean testUrl(String url) {
-        try {
-            if (url == null) {
-                return false;
-            }
-
-            webClient.head()
-                    .uri(url)
-                    .retrieve()
-                    .toBodilessEntity()
-                    .block();
-            return true;
-        } catch (Exception e) {
-            return false;
+    private Mono<Boolean> testUrl(String url) {
+        if (url == null) {
+            return Mono.just(false);
         }
+
+        return webClient.head()
+                .uri(url)
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> true)
+                .onErrorReturn(false);
     }
 }
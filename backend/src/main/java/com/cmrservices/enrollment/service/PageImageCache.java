@@ -0,0 +1,362 @@
+package com.cmrservices.enrollment.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier cache of rendered PDF page images, keyed by document hash, page
+ * index and render profile (DPI and encoding settings). A byte-bounded in-memory LRU sits in front of a byte-bounded
+ * disk tier; pages evicted from memory stay available on disk. Page counts are
+ * cached per document too, so a fully cached PDF never has to be opened. They
+ * are kept in a count-bounded LRU in memory and in a .meta file on disk that
+ * goes when the document's last page file is evicted.
+ */
+@Service
+public class PageImageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PageImageCache.class);
+    private static final String PAGE_SUFFIX = ".page";
+    private static final String META_SUFFIX = ".meta";
+
+    private final boolean enabled;
+    private final Path cacheDir;
+    private final long memoryMaxBytes;
+    private final long diskMaxBytes;
+
+    private final LinkedHashMap<String, RenderedPage> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Integer> pageCounts;
+    private final ReentrantLock memoryLock = new ReentrantLock();
+    private final ReentrantLock diskLock = new ReentrantLock();
+    private long memoryBytes;
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PageImageCache(
+            @Value("${pdf.page-cache.enabled:true}") boolean enabled,
+            @Value("${pdf.page-cache.dir:./data/page-cache}") String cacheDir,
+            @Value("${pdf.page-cache.memory-max-mb:64}") long memoryMaxMb,
+            @Value("${pdf.page-cache.disk-max-mb:1024}") long diskMaxMb,
+            @Value("${pdf.page-cache.page-counts-max:10000}") int pageCountsMax) {
+        this.enabled = enabled;
+        this.cacheDir = Paths.get(cacheDir);
+        this.memoryMaxBytes = memoryMaxMb * 1024 * 1024;
+        this.diskMaxBytes = diskMaxMb * 1024 * 1024;
+        this.pageCounts = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > pageCountsMax;
+            }
+        });
+
+        if (enabled) {
+            initialize();
+        }
+    }
+
+    private void initialize() {
+        try {
+            Files.createDirectories(cacheDir);
+            try (Stream<Path> entries = Files.list(cacheDir)) {
+                diskBytes.set(entries.mapToLong(this::sizeOf).sum());
+            }
+            log.info("Page image cache initialized at {} ({} MB memory, {} MB disk, {} KB used on disk)",
+                    cacheDir.toAbsolutePath(), memoryMaxBytes / (1024 * 1024), diskMaxBytes / (1024 * 1024),
+                    diskBytes.get() / 1024);
+        } catch (IOException e) {
+            log.error("Could not initialize page image cache directory {}", cacheDir, e);
+        }
+    }
+
+    /**
+     * Hash identifying a PDF document's content.
+     */
+    public String documentHash(byte[] pdfBytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(pdfBytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cached page count for a document, if it has been opened before.
+     */
+    public Optional<Integer> getPageCount(String documentHash) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        Integer count = pageCounts.get(documentHash);
+        if (count != null) {
+            return Optional.of(count);
+        }
+
+        try {
+            count = Integer.parseInt(Files.readString(cacheDir.resolve(documentHash + META_SUFFIX)).trim());
+            pageCounts.put(documentHash, count);
+            return Optional.of(count);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | NumberFormatException e) {
+            log.debug("Could not read page count for document {}: {}", documentHash, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void putPageCount(String documentHash, int pageCount) {
+        if (!enabled) {
+            return;
+        }
+
+        pageCounts.put(documentHash, pageCount);
+        try {
+            Path file = cacheDir.resolve(documentHash + META_SUFFIX);
+            long previousSize = Files.exists(file) ? sizeOf(file) : 0;
+            writeAtomically(file, Integer.toString(pageCount).getBytes(StandardCharsets.UTF_8));
+            diskBytes.addAndGet(sizeOf(file) - previousSize);
+        } catch (IOException e) {
+            log.debug("Could not write page count for document {}: {}", documentHash, e.getMessage());
+        }
+    }
+
+    /**
+     * Look up a rendered page, checking memory first and then disk. Disk hits
+     * are promoted back into memory.
+     */
+    public Optional<RenderedPage> get(String documentHash, int pageIndex, String profile) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        String key = key(documentHash, pageIndex, profile);
+        memoryLock.lock();
+        try {
+            RenderedPage page = memory.get(key);
+            if (page != null) {
+                memoryHits.incrementAndGet();
+                return Optional.of(page);
+            }
+        } finally {
+            memoryLock.unlock();
+        }
+
+        Path file = cacheDir.resolve(key + PAGE_SUFFIX);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            String mediaType = in.readUTF();
+            byte[] data = in.readAllBytes();
+            RenderedPage page = new RenderedPage(pageIndex, mediaType, data);
+
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            putInMemory(key, page);
+            diskHits.incrementAndGet();
+            return Optional.of(page);
+        } catch (NoSuchFileException e) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        } catch (IOException e) {
+            misses.incrementAndGet();
+            log.debug("Could not read cached page {}: {}", key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store a rendered page in both tiers.
+     */
+    public void put(String documentHash, String profile, RenderedPage page) {
+        if (!enabled) {
+            return;
+        }
+
+        String key = key(documentHash, page.getPageIndex(), profile);
+        putInMemory(key, page);
+
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(page.getData().length + 32);
+            try (DataOutputStream out = new DataOutputStream(buffer)) {
+                out.writeUTF(page.getMediaType());
+                out.write(page.getData());
+            }
+
+            Path file = cacheDir.resolve(key + PAGE_SUFFIX);
+            long previousSize = Files.exists(file) ? sizeOf(file) : 0;
+            writeAtomically(file, buffer.toByteArray());
+            diskBytes.addAndGet(sizeOf(file) - previousSize);
+
+            evictFromDiskIfNeeded();
+        } catch (IOException e) {
+            log.debug("Could not write cached page {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Hit/miss counters and current sizes, for the metrics endpoint.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hits = memoryHits.get() + diskHits.get();
+        long lookups = hits + misses.get();
+
+        stats.put("enabled", enabled);
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("evictions", evictions.get());
+        memoryLock.lock();
+        try {
+            stats.put("memoryEntries", memory.size());
+            stats.put("memoryBytes", memoryBytes);
+        } finally {
+            memoryLock.unlock();
+        }
+        stats.put("diskBytes", diskBytes.get());
+        stats.put("pageCountEntries", pageCounts.size());
+        return stats;
+    }
+
+    private void putInMemory(String key, RenderedPage page) {
+        // A single page larger than the whole memory budget only goes to disk
+        if (page.getData().length > memoryMaxBytes) {
+            return;
+        }
+
+        memoryLock.lock();
+        try {
+            RenderedPage previous = memory.put(key, page);
+            memoryBytes += page.getData().length - (previous != null ? previous.getData().length : 0);
+
+            Iterator<RenderedPage> eldest = memory.values().iterator();
+            while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().getData().length;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        } finally {
+            memoryLock.unlock();
+        }
+    }
+
+    /**
+     * Delete least recently used page files until the disk tier fits its
+     * budget, then drop the page count of every document left with no pages.
+     */
+    private void evictFromDiskIfNeeded() throws IOException {
+        diskLock.lock();
+        try {
+            if (diskBytes.get() <= diskMaxBytes) {
+                return;
+            }
+
+            List<Path> files;
+            try (Stream<Path> entries = Files.list(cacheDir)) {
+                files = entries
+                        .filter(path -> path.toString().endsWith(PAGE_SUFFIX))
+                        .sorted(Comparator.comparing(this::lastModified))
+                        .collect(Collectors.toList());
+            }
+
+            Map<String, Integer> remainingPages = new HashMap<>();
+            files.forEach(file -> remainingPages.merge(documentHashOf(file), 1, Integer::sum));
+
+            for (Path file : files) {
+                if (diskBytes.get() <= diskMaxBytes) {
+                    break;
+                }
+                long size = sizeOf(file);
+                if (Files.deleteIfExists(file)) {
+                    diskBytes.addAndGet(-size);
+                    evictions.incrementAndGet();
+                    String documentHash = documentHashOf(file);
+                    if (remainingPages.merge(documentHash, -1, Integer::sum) == 0) {
+                        evictPageCount(documentHash);
+                    }
+                }
+            }
+        } finally {
+            diskLock.unlock();
+        }
+    }
+
+    private void evictPageCount(String documentHash) throws IOException {
+        pageCounts.remove(documentHash);
+        Path meta = cacheDir.resolve(documentHash + META_SUFFIX);
+        long size = sizeOf(meta);
+        if (Files.deleteIfExists(meta)) {
+            diskBytes.addAndGet(-size);
+        }
+    }
+
+    private void writeAtomically(Path target, byte[] bytes) throws IOException {
+        // Write to a temp file first so readers never see a partial entry
+        Path temp = Files.createTempFile(cacheDir, "page", ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            out.write(bytes);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String key(String documentHash, int pageIndex, String profile) {
+        return documentHash + "-" + profile + "-" + pageIndex;
+    }
+
+    private String documentHashOf(Path pageFile) {
+        // Hex document hashes contain no '-', so the key's first segment is the hash
+        String name = pageFile.getFileName().toString();
+        return name.substring(0, name.indexOf('-'));
+    }
+
+    private long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
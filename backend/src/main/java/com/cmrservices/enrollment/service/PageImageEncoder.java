@@ -0,0 +1,297 @@
+package com.cmrservices.enrollment.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Encodes rendered PDF pages for the vision providers. With adaptive encoding
+ * enabled each page is analyzed before encoding: near-blank pages drop to the
+ * minimum DPI, colorless pages are converted to grayscale, JPEG is used when it
+ * is clearly smaller than PNG, and pages are scaled down further when they
+ * would exceed their share of the total payload budget. Lossless color PNG at
+ * the configured DPI is the baseline for the reported savings. It is only
+ * encoded when the page keeps its full DPI and color; for a grayscale or
+ * downscaled page it is estimated from the PNG of the smaller image, so the
+ * metric costs no extra full-size encode.
+ */
+@Component
+public class PageImageEncoder {
+
+    private static final Logger log = LoggerFactory.getLogger(PageImageEncoder.class);
+
+    private static final int SAMPLE_STRIDE = 4;
+    private static final int INK_LUMINANCE = 240; // Darker than this counts as content
+    private static final int GRAY_CHANNEL_SPREAD = 12; // Max RGB spread for a pixel to count as gray
+    private static final double GRAY_PIXEL_RATIO = 0.995;
+    private static final double SPARSE_DENSITY = 0.005; // Ink ratio at or below which a page gets min DPI
+    private static final double DENSE_DENSITY = 0.03; // Ink ratio at or above which a page gets full DPI
+    private static final double JPEG_MIN_SAVING = 0.25; // JPEG must beat PNG by this much to be used
+    private static final int MAX_DOWNSCALE_STEPS = 3;
+
+    private final int dpi;
+    private final int minDpi;
+    private final boolean adaptive;
+    private final long payloadBudgetBytes;
+    private final float jpegQuality;
+
+    private final AtomicLong pagesEncoded = new AtomicLong();
+    private final AtomicLong baselineBytes = new AtomicLong();
+    private final AtomicLong estimatedBaselines = new AtomicLong();
+    private final AtomicLong encodedBytes = new AtomicLong();
+
+    public PageImageEncoder(
+            @Value("${pdf.rendering.dpi:150}") int dpi,
+            @Value("${pdf.rendering.min-dpi:100}") int minDpi,
+            @Value("${pdf.rendering.adaptive-encoding:true}") boolean adaptive,
+            @Value("${pdf.rendering.payload-budget-mb:8}") long payloadBudgetMb,
+            @Value("${pdf.rendering.jpeg-quality:0.85}") float jpegQuality) {
+        this.dpi = dpi;
+        this.minDpi = Math.min(minDpi, dpi);
+        this.adaptive = adaptive;
+        // The budget applies to the request body, where images are base64 (4/3 larger)
+        this.payloadBudgetBytes = payloadBudgetMb * 1024 * 1024 * 3 / 4;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * Resolution pages are rendered at before any downscaling.
+     */
+    public int getRenderDpi() {
+        return dpi;
+    }
+
+    /**
+     * Identifies the encoder settings, so cached pages are only reused when
+     * they were produced the same way.
+     */
+    public String getProfile() {
+        if (!adaptive) {
+            return "png-" + dpi;
+        }
+        return "adaptive-" + dpi + "-" + minDpi + "-" + payloadBudgetBytes + "-" + Math.round(jpegQuality * 100);
+    }
+
+    /**
+     * Encode one rendered page.
+     *
+     * @param image     the page rendered at {@link #getRenderDpi()}
+     * @param pageIndex zero-based page index
+     * @param pageCount pages in the document, used to split the payload budget
+     */
+    public EncodedPage encode(BufferedImage image, int pageIndex, int pageCount) throws IOException {
+        if (!adaptive) {
+            byte[] png = encodePng(image);
+            return record(new RenderedPage(pageIndex, "image/png", png), png.length, false);
+        }
+
+        PageAnalysis analysis = analyze(image);
+
+        BufferedImage working = analysis.grayscale ? toGrayscale(image) : image;
+        int targetDpi = targetDpi(analysis.inkDensity);
+        if (targetDpi < dpi) {
+            working = scale(working, (double) targetDpi / dpi);
+        }
+
+        // The lossless candidate is the baseline itself only when the image is unchanged
+        byte[] lossless = encodePng(working);
+        boolean estimated = working != image;
+        long baseline = estimated ? estimateBaseline(image, working, lossless.length) : lossless.length;
+        byte[] lossy = encodeJpeg(working);
+        boolean useJpeg = lossy.length < lossless.length * (1 - JPEG_MIN_SAVING);
+        byte[] best = useJpeg ? lossy : lossless;
+
+        // Scale down until the page fits its share of the payload budget
+        long pageBudget = payloadBudgetBytes / Math.max(1, pageCount);
+        int currentDpi = targetDpi;
+        for (int step = 0; step < MAX_DOWNSCALE_STEPS && best.length > pageBudget && currentDpi > minDpi; step++) {
+            int nextDpi = Math.max(minDpi, (int) (currentDpi * Math.sqrt((double) pageBudget / best.length) * 0.95));
+            working = scale(working, (double) nextDpi / currentDpi);
+            currentDpi = nextDpi;
+            best = encodeJpeg(working);
+            useJpeg = true;
+        }
+
+        log.debug("Page {}: ink {}%, {}, {} DPI, {} -> {} bytes", pageIndex + 1,
+                String.format("%.1f", analysis.inkDensity * 100), analysis.grayscale ? "grayscale" : "color",
+                currentDpi, baseline, best.length);
+
+        return record(new RenderedPage(pageIndex, useJpeg ? "image/jpeg" : "image/png", best), baseline, estimated);
+    }
+
+    /**
+     * Totals across all encoded pages, for the metrics endpoint.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("adaptive", adaptive);
+        stats.put("pagesEncoded", pagesEncoded.get());
+        stats.put("baselineBytes", baselineBytes.get());
+        stats.put("estimatedBaselinePages", estimatedBaselines.get());
+        stats.put("encodedBytes", encodedBytes.get());
+        stats.put("bytesSaved", baselineBytes.get() - encodedBytes.get());
+        return stats;
+    }
+
+    private EncodedPage record(RenderedPage page, long baseline, boolean estimated) {
+        pagesEncoded.incrementAndGet();
+        baselineBytes.addAndGet(baseline);
+        if (estimated) {
+            estimatedBaselines.incrementAndGet();
+        }
+        encodedBytes.addAndGet(page.getData().length);
+        return new EncodedPage(page, baseline);
+    }
+
+    /**
+     * Size the page would have had as a full-DPI color PNG, extrapolated from
+     * the PNG of its grayscale or downscaled version: PNG size grows roughly
+     * with the pixel count and the number of color channels.
+     */
+    private long estimateBaseline(BufferedImage image, BufferedImage working, int workingPngBytes) {
+        double pixels = (double) image.getWidth() * image.getHeight()
+                / ((double) working.getWidth() * working.getHeight());
+        double channels = (double) image.getColorModel().getNumColorComponents()
+                / working.getColorModel().getNumColorComponents();
+        return Math.round(workingPngBytes * pixels * channels);
+    }
+
+    private int targetDpi(double inkDensity) {
+        if (inkDensity <= SPARSE_DENSITY) {
+            return minDpi;
+        }
+        if (inkDensity >= DENSE_DENSITY) {
+            return dpi;
+        }
+        double ratio = (inkDensity - SPARSE_DENSITY) / (DENSE_DENSITY - SPARSE_DENSITY);
+        return minDpi + (int) Math.round((dpi - minDpi) * ratio);
+    }
+
+    /**
+     * Sample the page on a grid to measure how much of it is ink and whether
+     * it contains any real color.
+     */
+    private PageAnalysis analyze(BufferedImage image) {
+        long samples = 0;
+        long ink = 0;
+        long gray = 0;
+
+        for (int y = 0; y < image.getHeight(); y += SAMPLE_STRIDE) {
+            for (int x = 0; x < image.getWidth(); x += SAMPLE_STRIDE) {
+                int rgb = image.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+
+                samples++;
+                if ((r * 299 + g * 587 + b * 114) / 1000 < INK_LUMINANCE) {
+                    ink++;
+                }
+                if (Math.max(r, Math.max(g, b)) - Math.min(r, Math.min(g, b)) <= GRAY_CHANNEL_SPREAD) {
+                    gray++;
+                }
+            }
+        }
+
+        if (samples == 0) {
+            return new PageAnalysis(0, true);
+        }
+        return new PageAnalysis((double) ink / samples, (double) gray / samples >= GRAY_PIXEL_RATIO);
+    }
+
+    private BufferedImage toGrayscale(BufferedImage image) {
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return gray;
+    }
+
+    private BufferedImage scale(BufferedImage image, double factor) {
+        int width = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * factor));
+
+        int type = image.getType() == BufferedImage.TYPE_CUSTOM ? BufferedImage.TYPE_INT_RGB : image.getType();
+        BufferedImage scaled = new BufferedImage(width, height, type);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "PNG", baos);
+        return baos.toByteArray();
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+
+    private static final class PageAnalysis {
+        private final double inkDensity;
+        private final boolean grayscale;
+
+        private PageAnalysis(double inkDensity, boolean grayscale) {
+            this.inkDensity = inkDensity;
+            this.grayscale = grayscale;
+        }
+    }
+
+    /**
+     * An encoded page plus the size it would have had as lossless PNG
+     * (estimated for grayscale or downscaled pages).
+     */
+    public static final class EncodedPage {
+        private final RenderedPage page;
+        private final long baselineBytes;
+
+        private EncodedPage(RenderedPage page, long baselineBytes) {
+            this.page = page;
+            this.baselineBytes = baselineBytes;
+        }
+
+        public RenderedPage getPage() {
+            return page;
+        }
+
+        public long getBaselineBytes() {
+            return baselineBytes;
+        }
+    }
+}
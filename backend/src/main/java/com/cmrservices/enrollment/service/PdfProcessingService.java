@@ -1,72 +1,156 @@
 package com.cmrservices.enrollment.service;
 
+import jakarta.annotation.PreDestroy;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Base64;
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Renders PDF pages to images for the AI providers; {@link PageImageEncoder}
+ * decides the resolution and format of each page.
+ * Pages are rendered on a shared, bounded worker pool. Each document is split
+ * into "lanes" that own a private PDDocument (PDFBox documents are not thread
+ * safe), and every lane re-queues itself after each page so concurrent uploads
+ * interleave on the pool instead of waiting for one another. Rendered pages
+ * go through {@link PageImageCache}, so re-analyzing a PDF (for example with
+ * another provider) does not open it in PDFBox again.
+ */
 @Service
 public class PdfProcessingService {
 
     private static final Logger log = LoggerFactory.getLogger(PdfProcessingService.class);
-    private static final int DPI = 150; // Resolution for rendering
+
+    // Markers for page slots that failed or were already handed to the sink
+    private static final Object FAILED_PAGE = new Object();
+    private static final Object EMITTED_PAGE = new Object();
+
+    private final ExecutorService renderExecutor;
+    private final Scheduler renderScheduler;
+    private final int maxWorkersPerDocument;
+    private final PageImageCache pageImageCache;
+    private final PageImageEncoder pageImageEncoder;
+
+    public PdfProcessingService(
+            PageImageCache pageImageCache,
+            PageImageEncoder pageImageEncoder,
+            @Value("${pdf.rendering.pool-size:0}") int poolSize,
+            @Value("${pdf.rendering.max-workers-per-document:0}") int maxWorkersPerDocument) {
+        this.pageImageCache = pageImageCache;
+        this.pageImageEncoder = pageImageEncoder;
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        this.maxWorkersPerDocument = maxWorkersPerDocument > 0 ? Math.min(maxWorkersPerDocument, threads) : threads;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.renderExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pdf-render-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.renderScheduler = Schedulers.fromExecutorService(renderExecutor, "pdf-render");
+
+        log.info("PDF rendering pool initialized with {} threads ({} workers per document)",
+                threads, this.maxWorkersPerDocument);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdownNow();
+    }
 
     /**
-     * Convert PDF pages to base64-encoded PNG images
+     * Render PDF pages to images and emit each page, in page order, as soon
+     * as it and all earlier pages are ready. Only pages that are waiting on an
+     * earlier, slower page are buffered; the full document is never held in
+     * memory at once.
      */
-    public List<String> convertPdfToBase64Images(byte[] pdfBytes) throws IOException {
-        log.info("Converting PDF to images");
-        List<String> base64Images = new ArrayList<>();
-
-        try (PDDocument document = PDDocument.load(new ByteArrayInputStream(pdfBytes))) {
-            PDFRenderer renderer = new PDFRenderer(document);
-            int pageCount = document.getNumberOfPages();
+    public Flux<RenderedPage> streamPdfPages(byte[] pdfBytes) {
+        return streamPdfPages(pdfBytes, IdpProgressListener.NONE);
+    }
 
+    /**
+     * Same as {@link #streamPdfPages(byte[])}, reporting each emitted page to
+     * the given listener.
+     */
+    public Flux<RenderedPage> streamPdfPages(byte[] pdfBytes, IdpProgressListener listener) {
+        // Hashing and opening the document block, so subscribe on the render
+        // pool rather than on whichever HTTP client thread requested the body
+        return Flux.defer(() -> {
+            String documentHash = pageImageCache.isEnabled() ? pageImageCache.documentHash(pdfBytes) : null;
+            int pageCount;
+            try {
+                pageCount = resolvePageCount(pdfBytes, documentHash);
+            } catch (IOException e) {
+                return Flux.error(e);
+            }
             log.info("PDF has {} pages", pageCount);
+            listener.onStage(IdpProgressListener.STAGE_RENDERING, "Rendering " + pageCount + " pages");
 
-            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
-                log.debug("Rendering page {}", pageIndex + 1);
+            RenderJob job = new RenderJob(pdfBytes, documentHash, pageCount);
+            int lanes = Math.max(1, Math.min(maxWorkersPerDocument, pageCount));
+            job.start(lanes);
 
-                try {
-                    // Render page to image
-                    BufferedImage image = renderer.renderImageWithDPI(pageIndex, DPI);
-
-                    // Convert to PNG bytes
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    ImageIO.write(image, "PNG", baos);
-                    byte[] imageBytes = baos.toByteArray();
-
-                    // Encode to base64
-                    String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-                    base64Images.add(base64Image);
-
-                } catch (ExceptionInInitializerError e) {
-                    log.error("PDFBox font system initialization failed - this is a known macOS issue with malformed system fonts", e);
-                    throw new IOException("PDF rendering failed due to macOS font system error. " +
-                        "This is caused by malformed system fonts on macOS. " +
-                        "Workaround: Try restarting the JVM or contact support for font configuration help.", e);
-                } catch (NoClassDefFoundError e) {
-                    if (e.getMessage() != null && e.getMessage().contains("FontMapperImpl$DefaultFontProvider")) {
-                        log.error("PDFBox font provider failed to initialize - malformed system fonts detected", e);
-                        throw new IOException("PDF rendering failed due to corrupted system fonts. " +
-                            "This is a macOS-specific issue. Please try a different PDF or contact support.", e);
-                    }
-                    throw new IOException("PDF rendering failed", e);
-                } catch (Exception e) {
-                    log.error("Failed to render page {} - attempting to continue with remaining pages", pageIndex + 1, e);
-                    // Continue processing other pages even if one fails
-                }
-            }
+            return job.sink.asFlux()
+                    .doOnNext(page -> listener.onPageRendered(page.getPageIndex() + 1, pageCount))
+                    .doOnCancel(job::cancel)
+                    .doOnComplete(() -> {
+                        log.info("Successfully rendered {} pages using {} render workers",
+                                job.emittedPages, lanes);
+                        job.logSavings();
+                    });
+        }).subscribeOn(renderScheduler);
+    }
+
+    /**
+     * Number of pages in the PDF. Served from the page image cache for
+     * documents seen before; otherwise the document is opened to count them.
+     */
+    public int getPageCount(byte[] pdfBytes) throws IOException {
+        String documentHash = pageImageCache.isEnabled() ? pageImageCache.documentHash(pdfBytes) : null;
+        return resolvePageCount(pdfBytes, documentHash);
+    }
+
+    private int resolvePageCount(byte[] pdfBytes, String documentHash) throws IOException {
+        // A document seen before does not need to be opened just to count its pages
+        Optional<Integer> cachedPageCount = documentHash != null
+                ? pageImageCache.getPageCount(documentHash)
+                : Optional.empty();
+        if (cachedPageCount.isPresent()) {
+            return cachedPageCount.get();
+        }
+
+        int pageCount = countPages(pdfBytes);
+        if (documentHash != null) {
+            pageImageCache.putPageCount(documentHash, pageCount);
+        }
+        return pageCount;
+    }
+
+    /**
+     * Load the document once on the subscribing thread to validate it and read the
+     * page count before fanning out to the render pool.
+     */
+    private int countPages(byte[] pdfBytes) throws IOException {
+        try (PDDocument document = PDDocument.load(new ByteArrayInputStream(pdfBytes))) {
+            return document.getNumberOfPages();
         } catch (ExceptionInInitializerError | NoClassDefFoundError e) {
             // Catch at document level in case it happens during renderer creation
             log.error("PDFBox initialization failed due to system font issues", e);
@@ -76,12 +160,237 @@ public class PdfProcessingService {
             log.error("Error loading or processing PDF document", e);
             throw e;
         }
+    }
+
+    /**
+     * Render a single page and encode it for the vision providers
+     */
+    private PageImageEncoder.EncodedPage renderPage(PDFRenderer renderer, int pageIndex, int pageCount)
+            throws IOException {
+        // Render page to image
+        BufferedImage image = renderer.renderImageWithDPI(pageIndex, pageImageEncoder.getRenderDpi());
+
+        // Pick resolution, color and format for this page
+        return pageImageEncoder.encode(image, pageIndex, pageCount);
+    }
+
+    /**
+     * Rendering state for one document. Lanes claim page indexes from a shared
+     * counter and hand results back by index; the job releases them to the sink
+     * strictly in page order, no matter which lane finishes first.
+     */
+    private final class RenderJob {
+
+        private final byte[] pdfBytes;
+        private final String documentHash;
+        private final int pageCount;
+        private final Object[] results;
+        private final AtomicInteger nextPage = new AtomicInteger();
+        private final AtomicInteger activeLanes = new AtomicInteger();
+        private final Sinks.Many<RenderedPage> sink = Sinks.many().unicast().onBackpressureBuffer();
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile IOException fatalError;
+        private volatile boolean cancelled;
+        private int emitCursor;
+        private int emittedPages;
+        private final AtomicLong baselineBytes = new AtomicLong();
+        private final AtomicLong encodedBytes = new AtomicLong();
+
+        private RenderJob(byte[] pdfBytes, String documentHash, int pageCount) {
+            this.pdfBytes = pdfBytes;
+            this.documentHash = documentHash;
+            this.pageCount = pageCount;
+            this.results = new Object[pageCount];
+        }
+
+        private void start(int lanes) {
+            if (pageCount == 0) {
+                sink.tryEmitError(new IOException("Failed to render any pages from PDF"));
+                return;
+            }
+            activeLanes.set(lanes);
+            for (int i = 0; i < lanes; i++) {
+                renderExecutor.execute(new RenderLane(this));
+            }
+        }
+
+        private boolean isStopped() {
+            return cancelled || fatalError != null;
+        }
+
+        private void cancel() {
+            log.debug("PDF rendering cancelled by subscriber");
+            cancelled = true;
+        }
+
+        /**
+         * Record a finished page (null when the page failed) and emit every
+         * contiguous page that is now ready.
+         */
+        private void pageFinished(int pageIndex, RenderedPage page) {
+            lock.lock();
+            try {
+                results[pageIndex] = page != null ? page : FAILED_PAGE;
+
+                while (emitCursor < pageCount && results[emitCursor] != null) {
+                    Object result = results[emitCursor];
+                    results[emitCursor] = EMITTED_PAGE;
+                    emitCursor++;
+                    if (result != FAILED_PAGE && !cancelled) {
+                        sink.tryEmitNext((RenderedPage) result);
+                        emittedPages++;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void logSavings() {
+            long baseline = baselineBytes.get();
+            if (baseline == 0) {
+                return;
+            }
+            long saved = baseline - encodedBytes.get();
+            log.info("Encoded pages total {} KB instead of {} KB as lossless PNG (saved {} KB, {}%)",
+                    encodedBytes.get() / 1024, baseline / 1024, saved / 1024, saved * 100 / baseline);
+        }
+
+        private void laneFinished() {
+            lock.lock();
+            try {
+                if (activeLanes.decrementAndGet() > 0) {
+                    return;
+                }
+
+                if (fatalError != null) {
+                    sink.tryEmitError(fatalError);
+                } else if (emittedPages == 0 && !cancelled) {
+                    sink.tryEmitError(new IOException("Failed to render any pages from PDF"));
+                } else {
+                    sink.tryEmitComplete();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A render worker holding its own PDDocument. Renders one page per run and
+     * then re-submits itself to the pool until the document is exhausted.
+     */
+    private final class RenderLane implements Runnable {
+
+        private final RenderJob job;
+        private PDDocument document;
 
-        if (base64Images.isEmpty()) {
-            throw new IOException("Failed to render any pages from PDF");
+        private RenderLane(RenderJob job) {
+            this.job = job;
         }
 
-        log.info("Successfully converted {} pages to base64 images", base64Images.size());
-        return base64Images;
+        @Override
+        public void run() {
+            int pageIndex = job.nextPage.getAndIncrement();
+            if (pageIndex >= job.pageCount || job.isStopped()) {
+                finish();
+                return;
+            }
+
+            RenderedPage rendered = null;
+            try {
+                rendered = job.documentHash != null
+                        ? pageImageCache.get(job.documentHash, pageIndex, pageImageEncoder.getProfile()).orElse(null)
+                        : null;
+                if (rendered != null) {
+                    log.debug("Page {} served from page image cache", pageIndex + 1);
+                } else {
+                    rendered = render(pageIndex);
+                }
+            } catch (Throwable e) {
+                // Anything render() does not handle (a cache failure, OutOfMemoryError,
+                // StackOverflowError on a malformed PDF) must still terminate the
+                // stream, or the subscriber waits for this page forever
+                log.error("Render worker failed on page {}, abandoning the document", pageIndex + 1, e);
+                job.fatalError = new IOException("PDF rendering failed", e);
+            } finally {
+                job.pageFinished(pageIndex, rendered);
+            }
+            if (job.fatalError != null) {
+                finish();
+                return;
+            }
+
+            // Yield the thread so lanes of other documents get a turn
+            try {
+                renderExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                log.warn("Render pool is shutting down, abandoning remaining pages");
+                job.fatalError = new IOException("PDF rendering was cancelled", e);
+                finish();
+            }
+        }
+
+        /**
+         * Render a page with this lane's document, opening it on first use.
+         * Returns null when the page could not be rendered.
+         */
+        private RenderedPage render(int pageIndex) {
+            log.debug("Rendering page {} on {}", pageIndex + 1, Thread.currentThread().getName());
+
+            try {
+                if (document == null) {
+                    document = PDDocument.load(new ByteArrayInputStream(job.pdfBytes));
+                }
+                // A renderer keeps its last page image, so one kept across pages would pin
+                // a full-size bitmap per lane while the lane waits in the pool's queue
+                PageImageEncoder.EncodedPage encoded = renderPage(new PDFRenderer(document), pageIndex, job.pageCount);
+                RenderedPage rendered = encoded.getPage();
+                job.baselineBytes.addAndGet(encoded.getBaselineBytes());
+                job.encodedBytes.addAndGet(rendered.getData().length);
+
+                if (job.documentHash != null) {
+                    pageImageCache.put(job.documentHash, pageImageEncoder.getProfile(), rendered);
+                }
+                return rendered;
+
+            } catch (ExceptionInInitializerError e) {
+                log.error("PDFBox font system initialization failed - this is a known macOS issue with malformed system fonts", e);
+                job.fatalError = new IOException("PDF rendering failed due to macOS font system error. " +
+                    "This is caused by malformed system fonts on macOS. " +
+                    "Workaround: Try restarting the JVM or contact support for font configuration help.", e);
+            } catch (NoClassDefFoundError e) {
+                if (e.getMessage() != null && e.getMessage().contains("FontMapperImpl$DefaultFontProvider")) {
+                    log.error("PDFBox font provider failed to initialize - malformed system fonts detected", e);
+                    job.fatalError = new IOException("PDF rendering failed due to corrupted system fonts. " +
+                        "This is a macOS-specific issue. Please try a different PDF or contact support.", e);
+                } else {
+                    job.fatalError = new IOException("PDF rendering failed", e);
+                }
+            } catch (IOException e) {
+                if (document == null) {
+                    log.error("Error loading PDF document for render worker", e);
+                    job.fatalError = e;
+                } else {
+                    log.error("Failed to render page {} - attempting to continue with remaining pages", pageIndex + 1, e);
+                }
+            } catch (Exception e) {
+                log.error("Failed to render page {} - attempting to continue with remaining pages", pageIndex + 1, e);
+                // Continue processing other pages even if one fails
+            }
+            return null;
+        }
+
+        private void finish() {
+            if (document != null) {
+                try {
+                    document.close();
+                } catch (IOException e) {
+                    log.debug("Error closing render worker document", e);
+                }
+                document = null;
+            }
+            job.laneFinished();
+        }
     }
 }
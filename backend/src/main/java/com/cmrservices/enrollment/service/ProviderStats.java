@@ -0,0 +1,105 @@
+package com.cmrservices.enrollment.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-provider latency and outcome counters for schema generation, including
+ * how often each provider wins in race mode.
+ */
+@Component
+public class ProviderStats {
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    public void recordValid(String provider, long latencyMs) {
+        Counters c = counters(provider);
+        c.valid.incrementAndGet();
+        c.recordLatency(latencyMs);
+    }
+
+    public void recordInvalid(String provider, long latencyMs) {
+        Counters c = counters(provider);
+        c.invalid.incrementAndGet();
+        c.recordLatency(latencyMs);
+    }
+
+    public void recordFailure(String provider) {
+        counters(provider).failed.incrementAndGet();
+    }
+
+    public void recordCancelled(String provider) {
+        counters(provider).cancelled.incrementAndGet();
+    }
+
+    /**
+     * Time from sending a streamed request to the first complete form section.
+     */
+    public void recordFirstSection(String provider, long elapsedMs) {
+        Counters c = counters(provider);
+        c.firstSections.incrementAndGet();
+        c.totalFirstSectionMs.addAndGet(elapsedMs);
+    }
+
+    public void recordRaceEntry(String provider) {
+        counters(provider).raceEntries.incrementAndGet();
+    }
+
+    public void recordRaceWin(String provider) {
+        counters(provider).raceWins.incrementAndGet();
+    }
+
+    /**
+     * Snapshot of all counters, for the metrics endpoint.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        counters.forEach((provider, c) -> {
+            Map<String, Object> providerStats = new LinkedHashMap<>();
+            long responses = c.valid.get() + c.invalid.get();
+            long raceEntries = c.raceEntries.get();
+            long firstSections = c.firstSections.get();
+
+            providerStats.put("validResponses", c.valid.get());
+            providerStats.put("invalidResponses", c.invalid.get());
+            providerStats.put("failures", c.failed.get());
+            providerStats.put("cancelled", c.cancelled.get());
+            providerStats.put("averageLatencyMs", responses == 0 ? 0 : c.totalLatencyMs.get() / responses);
+            providerStats.put("maxLatencyMs", c.maxLatencyMs.get());
+            if (firstSections > 0) {
+                providerStats.put("averageTimeToFirstSectionMs", c.totalFirstSectionMs.get() / firstSections);
+            }
+            providerStats.put("raceEntries", raceEntries);
+            providerStats.put("raceWins", c.raceWins.get());
+            providerStats.put("raceWinRate", raceEntries == 0 ? 0.0 : (double) c.raceWins.get() / raceEntries);
+            stats.put(provider, providerStats);
+        });
+        return stats;
+    }
+
+    private Counters counters(String provider) {
+        return counters.computeIfAbsent(provider, key -> new Counters());
+    }
+
+    private static final class Counters {
+        private final AtomicLong valid = new AtomicLong();
+        private final AtomicLong invalid = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong raceEntries = new AtomicLong();
+        private final AtomicLong raceWins = new AtomicLong();
+        private final AtomicLong totalLatencyMs = new AtomicLong();
+        private final AtomicLong maxLatencyMs = new AtomicLong();
+        private final AtomicLong firstSections = new AtomicLong();
+        private final AtomicLong totalFirstSectionMs = new AtomicLong();
+
+        private void recordLatency(long latencyMs) {
+            totalLatencyMs.addAndGet(latencyMs);
+            maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+        }
+    }
+}
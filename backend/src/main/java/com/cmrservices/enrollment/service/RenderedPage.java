@@ -0,0 +1,39 @@
+package com.cmrservices.enrollment.service;
+
+/**
+ * A single rendered PDF page as raw encoded image bytes.
+ * Kept as bytes (not base64) so request writers can encode it on the fly.
+ */
+public final class RenderedPage {
+
+    private final int pageIndex;
+    private final String mediaType;
+    private final byte[] data;
+
+    public RenderedPage(int pageIndex, String mediaType, byte[] data) {
+        this.pageIndex = pageIndex;
+        this.mediaType = mediaType;
+        this.data = data;
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderedPage{" +
+                "pageIndex=" + pageIndex +
+                ", mediaType='" + mediaType + '\'' +
+                ", bytes=" + data.length +
+                '}';
+    }
+}
@@ -0,0 +1,223 @@
+package com.cmrservices.enrollment.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, content-addressed cache of generated form schemas.
+ * Entries are keyed by a SHA-256 of the PDF bytes plus the provider, model and
+ * prompt version, stored as one file per key on local disk, and evicted least
+ * recently used first once the configured size budget is exceeded.
+ */
+@Service
+public class SchemaCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaCacheService.class);
+    private static final String ENTRY_SUFFIX = ".json";
+
+    private final boolean enabled;
+    private final Path cacheDir;
+    private final long maxSizeBytes;
+    private final AtomicLong currentSizeBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public SchemaCacheService(
+            @Value("${idp.schema-cache.enabled:true}") boolean enabled,
+            @Value("${idp.schema-cache.dir:./data/schema-cache}") String cacheDir,
+            @Value("${idp.schema-cache.max-size-mb:256}") long maxSizeMb) {
+        this.enabled = enabled;
+        this.cacheDir = Paths.get(cacheDir);
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+
+        if (enabled) {
+            initialize();
+        }
+    }
+
+    private void initialize() {
+        try {
+            Files.createDirectories(cacheDir);
+            try (Stream<Path> entries = Files.list(cacheDir)) {
+                currentSizeBytes.set(entries
+                        .filter(path -> path.toString().endsWith(ENTRY_SUFFIX))
+                        .mapToLong(this::sizeOf)
+                        .sum());
+            }
+            log.info("Schema cache initialized at {} ({} KB used of {} MB)",
+                    cacheDir.toAbsolutePath(), currentSizeBytes.get() / 1024, maxSizeBytes / (1024 * 1024));
+        } catch (IOException e) {
+            log.error("Could not initialize schema cache directory {}", cacheDir, e);
+        }
+    }
+
+    /**
+     * Build the content-addressed key for a PDF analysis.
+     */
+    public String buildKey(byte[] pdfBytes, String provider, String model, String promptVersion) {
+        MessageDigest digest = sha256();
+        digest.update(pdfBytes);
+        digest.update(("\n" + provider + "\n" + model + "\n" + promptVersion).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Short, stable fingerprint of a prompt, used as its version.
+     */
+    public static String fingerprint(String text) {
+        byte[] hash = sha256().digest(text.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, 6);
+    }
+
+    /**
+     * Look up a cached schema. A hit refreshes the entry's recency.
+     */
+    public Optional<String> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        Path entry = entryPath(key);
+        try {
+            String schema = Files.readString(entry, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+            log.info("Schema cache hit for key {}", key);
+            return Optional.of(schema);
+        } catch (java.nio.file.NoSuchFileException e) {
+            misses.incrementAndGet();
+            log.debug("Schema cache miss for key {}", key);
+            return Optional.empty();
+        } catch (IOException e) {
+            misses.incrementAndGet();
+            log.warn("Could not read schema cache entry {}: {}", key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store a generated schema and evict old entries if over budget.
+     */
+    public void put(String key, String schema) {
+        if (!enabled || schema == null || schema.isEmpty()) {
+            return;
+        }
+
+        Path entry = entryPath(key);
+        try {
+            long previousSize = Files.exists(entry) ? sizeOf(entry) : 0;
+
+            // Write to a temp file first so readers never see a partial entry
+            Path temp = Files.createTempFile(cacheDir, key, ".tmp");
+            Files.writeString(temp, schema, StandardCharsets.UTF_8);
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            currentSizeBytes.addAndGet(sizeOf(entry) - previousSize);
+            log.info("Stored schema in cache with key {} ({} bytes)", key, schema.length());
+
+            evictIfNeeded();
+        } catch (IOException e) {
+            log.warn("Could not write schema cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Hit/miss counters and current size, for the metrics endpoint.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits.get() + misses.get();
+
+        stats.put("enabled", enabled);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hits.get() / lookups);
+        stats.put("sizeBytes", currentSizeBytes.get());
+        stats.put("maxSizeBytes", maxSizeBytes);
+        return stats;
+    }
+
+    /**
+     * Delete least recently used entries until the cache fits its size budget.
+     */
+    private void evictIfNeeded() throws IOException {
+        evictionLock.lock();
+        try {
+            if (currentSizeBytes.get() <= maxSizeBytes) {
+                return;
+            }
+
+            List<Path> entries;
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                entries = files
+                        .filter(path -> path.toString().endsWith(ENTRY_SUFFIX))
+                        .sorted(Comparator.comparing(this::lastModified))
+                        .collect(Collectors.toList());
+            }
+
+            for (Path entry : entries) {
+                if (currentSizeBytes.get() <= maxSizeBytes) {
+                    break;
+                }
+                long size = sizeOf(entry);
+                if (Files.deleteIfExists(entry)) {
+                    currentSizeBytes.addAndGet(-size);
+                    log.info("Evicted schema cache entry {} ({} bytes)", entry.getFileName(), size);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private Path entryPath(String key) {
+        return cacheDir.resolve(key + ENTRY_SUFFIX);
+    }
+
+    private long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
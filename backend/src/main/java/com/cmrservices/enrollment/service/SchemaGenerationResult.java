@@ -0,0 +1,49 @@
+package com.cmrservices.enrollment.service;
+
+/**
+ * Outcome of a PDF-to-schema generation: the schema plus where it came from.
+ */
+public final class SchemaGenerationResult {
+
+    private final String schema;
+    private final String provider;
+    private final boolean fromCache;
+    private final long elapsedMs;
+    private final boolean raced;
+
+    public SchemaGenerationResult(String schema, String provider, boolean fromCache, long elapsedMs) {
+        this(schema, provider, fromCache, elapsedMs, false);
+    }
+
+    public SchemaGenerationResult(String schema, String provider, boolean fromCache, long elapsedMs, boolean raced) {
+        this.schema = schema;
+        this.provider = provider;
+        this.fromCache = fromCache;
+        this.elapsedMs = elapsedMs;
+        this.raced = raced;
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    /**
+     * True when the schema came from race mode, i.e. both providers were asked
+     * and this was the first valid answer.
+     */
+    public boolean isRaced() {
+        return raced;
+    }
+}
@@ -0,0 +1,376 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.JsonSchemaResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Turns an uploaded PDF into a form schema using the selected AI provider.
+ * Results are served from the content-addressed schema cache when the same
+ * PDF has already been analyzed with the same provider, model and prompt.
+ * In race mode the rendered pages go to both providers at once and the first
+ * schema that passes validation wins; the slower call is cancelled.
+ * With {@code idp.chunking.enabled}, very long PDFs are split into page
+ * chunks that are analyzed concurrently and merged, so output size and
+ * wall-clock time are bounded by the largest chunk. It is off by default:
+ * a PDF short enough to fit in one response is always analyzed whole.
+ */
+@Service
+public class SchemaGenerationService {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaGenerationService.class);
+
+    public static final String PROVIDER_CLAUDE = "claude";
+    public static final String PROVIDER_GOOGLE = "google";
+    public static final String PROVIDER_RACE = "race";
+
+    private final PdfProcessingService pdfProcessingService;
+    private final ClaudeApiService claudeApiService;
+    private final GoogleAiService googleAiService;
+    private final SchemaCacheService schemaCacheService;
+    private final FormSchemaValidator formSchemaValidator;
+    private final ProviderStats providerStats;
+    private final SchemaMerger schemaMerger;
+    private final boolean chunkingEnabled;
+    private final int chunkingMinPages;
+    private final int pagesPerChunk;
+    private final int maxConcurrentChunks;
+    private final String chunkingVersion;
+
+    public SchemaGenerationService(
+            PdfProcessingService pdfProcessingService,
+            ClaudeApiService claudeApiService,
+            GoogleAiService googleAiService,
+            SchemaCacheService schemaCacheService,
+            FormSchemaValidator formSchemaValidator,
+            ProviderStats providerStats,
+            SchemaMerger schemaMerger,
+            @Value("${idp.chunking.enabled:false}") boolean chunkingEnabled,
+            @Value("${idp.chunking.min-pages:30}") int chunkingMinPages,
+            @Value("${idp.chunking.pages-per-chunk:4}") int pagesPerChunk,
+            @Value("${idp.chunking.max-concurrency:4}") int maxConcurrentChunks) {
+        this.pdfProcessingService = pdfProcessingService;
+        this.claudeApiService = claudeApiService;
+        this.googleAiService = googleAiService;
+        this.schemaCacheService = schemaCacheService;
+        this.formSchemaValidator = formSchemaValidator;
+        this.providerStats = providerStats;
+        this.schemaMerger = schemaMerger;
+        this.chunkingEnabled = chunkingEnabled;
+        this.chunkingMinPages = Math.max(2, chunkingMinPages);
+        this.pagesPerChunk = Math.max(1, pagesPerChunk);
+        this.maxConcurrentChunks = Math.max(1, maxConcurrentChunks);
+        this.chunkingVersion = chunkingEnabled
+                ? "/chunked:" + this.chunkingMinPages + ":" + this.pagesPerChunk + ":"
+                        + SchemaCacheService.fingerprint(chunkInstructions(0, 0, 0))
+                : "";
+    }
+
+    /**
+     * Generate a schema for the PDF, or return the cached one.
+     *
+     * @param pdfBytes the uploaded PDF
+     * @param provider "google", "race" or "claude" (anything else falls back to Claude)
+     */
+    public SchemaGenerationResult generateSchema(byte[] pdfBytes, String provider) {
+        return generateSchema(pdfBytes, provider, IdpProgressListener.NONE);
+    }
+
+    /**
+     * Generate a schema for the PDF, reporting each stage to the listener.
+     */
+    public SchemaGenerationResult generateSchema(byte[] pdfBytes, String provider, IdpProgressListener listener) {
+        return generateSchemaAsync(pdfBytes, provider, listener).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #generateSchema(byte[], String, IdpProgressListener)}.
+     * Cache file I/O runs on the bounded elastic scheduler and rendering on the
+     * PDF render pool; no thread waits on the provider call.
+     */
+    public Mono<SchemaGenerationResult> generateSchemaAsync(byte[] pdfBytes, String provider,
+            IdpProgressListener listener) {
+        String normalizedProvider = normalizeProvider(provider);
+
+        if (PROVIDER_RACE.equals(normalizedProvider)) {
+            return raceProviders(pdfBytes, listener).subscribeOn(Schedulers.boundedElastic());
+        }
+
+        return Mono.defer(() -> {
+            long start = System.currentTimeMillis();
+            String cacheKey = cacheKey(pdfBytes, normalizedProvider);
+
+            Optional<String> cached = schemaCacheService.get(cacheKey);
+            if (cached.isPresent()) {
+                long elapsed = System.currentTimeMillis() - start;
+                log.info("Serving cached {} schema in {} ms", normalizedProvider, elapsed);
+                listener.onStage(IdpProgressListener.STAGE_DONE, "Schema served from cache");
+                return Mono.just(new SchemaGenerationResult(cached.get(), normalizedProvider, true, elapsed));
+            }
+
+            int pageCount = chunkingEnabled ? pageCount(pdfBytes) : 0;
+
+            // Pages are uploaded as they render, so the provider call starts with the first page
+            Flux<RenderedPage> pages = pdfProcessingService.streamPdfPages(pdfBytes, listener)
+                    .doOnComplete(() -> listener.onStage(IdpProgressListener.STAGE_CALLING_PROVIDER,
+                            "All pages sent to " + normalizedProvider + ", waiting for the schema"));
+
+            return callProvider(normalizedProvider, pages, pageCount, listener)
+                    .publishOn(Schedulers.boundedElastic())
+                    .map(response -> {
+                        String schema = response.getT2();
+
+                        // Only cache schemas that validate; a broken response should be regenerated next time
+                        listener.onStage(IdpProgressListener.STAGE_VALIDATING, "Validating generated schema");
+                        List<String> problems = formSchemaValidator.validate(schema);
+                        if (problems.isEmpty()) {
+                            providerStats.recordValid(normalizedProvider, response.getT1());
+                            schemaCacheService.put(cacheKey, schema);
+                        } else {
+                            providerStats.recordInvalid(normalizedProvider, response.getT1());
+                            log.warn("Generated schema failed validation, not caching it: {}", problems);
+                        }
+
+                        listener.onStage(IdpProgressListener.STAGE_DONE, "Schema generated using " + normalizedProvider);
+                        return new SchemaGenerationResult(schema, normalizedProvider, false,
+                                System.currentTimeMillis() - start);
+                    });
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Send the same rendered pages to Claude and Google concurrently and return
+     * the first schema that passes validation. If neither validates, the first
+     * invalid response is returned so the admin still has something to edit.
+     */
+    private Mono<SchemaGenerationResult> raceProviders(byte[] pdfBytes, IdpProgressListener listener) {
+        return Mono.defer(() -> {
+            long start = System.currentTimeMillis();
+            String claudeKey = cacheKey(pdfBytes, PROVIDER_CLAUDE);
+            String googleKey = cacheKey(pdfBytes, PROVIDER_GOOGLE);
+
+            // Either provider's cached schema is as good as a fresh race result
+            for (String provider : List.of(PROVIDER_CLAUDE, PROVIDER_GOOGLE)) {
+                Optional<String> cached = schemaCacheService.get(PROVIDER_GOOGLE.equals(provider) ? googleKey : claudeKey);
+                if (cached.isPresent()) {
+                    long elapsed = System.currentTimeMillis() - start;
+                    log.info("Serving cached {} schema for race request in {} ms", provider, elapsed);
+                    listener.onStage(IdpProgressListener.STAGE_DONE, "Schema served from cache");
+                    return Mono.just(new SchemaGenerationResult(cached.get(), provider, true, elapsed));
+                }
+            }
+
+            int pageCount = chunkingEnabled ? pageCount(pdfBytes) : 0;
+
+            // Render once and replay the pages to whichever provider subscribes second
+            Flux<RenderedPage> pages = pdfProcessingService.streamPdfPages(pdfBytes, listener)
+                    .doOnComplete(() -> listener.onStage(IdpProgressListener.STAGE_CALLING_PROVIDER,
+                            "All pages sent to Claude and Google, waiting for the first valid schema"))
+                    .replay()
+                    .refCount(1);
+
+            AtomicReference<SchemaGenerationResult> fallback = new AtomicReference<>();
+            log.info("Racing Claude and Google AI for PDF analysis");
+
+            return Mono.firstWithValue(
+                            raceEntry(PROVIDER_CLAUDE, pages, pageCount, listener, fallback, start),
+                            raceEntry(PROVIDER_GOOGLE, pages, pageCount, listener, fallback, start))
+                    .doOnNext(result -> {
+                        providerStats.recordRaceWin(result.getProvider());
+                        schemaCacheService.put(PROVIDER_GOOGLE.equals(result.getProvider()) ? googleKey : claudeKey,
+                                result.getSchema());
+                        log.info("{} won the race in {} ms", result.getProvider(), result.getElapsedMs());
+                        listener.onStage(IdpProgressListener.STAGE_DONE,
+                                "Schema generated using " + result.getProvider() + " (race winner)");
+                    })
+                    .onErrorResume(e -> {
+                        SchemaGenerationResult invalid = fallback.get();
+                        if (invalid == null) {
+                            return Mono.error(new RuntimeException("Neither provider returned a schema", e));
+                        }
+                        log.warn("Neither provider returned a valid schema, returning the {} response unvalidated",
+                                invalid.getProvider());
+                        listener.onStage(IdpProgressListener.STAGE_DONE,
+                                "Schema generated using " + invalid.getProvider() + " (failed validation)");
+                        return Mono.just(invalid);
+                    });
+        });
+    }
+
+    /**
+     * One side of the race: completes with a result only if the provider's schema
+     * validates, otherwise completes empty so the other provider can still win.
+     */
+    private Mono<SchemaGenerationResult> raceEntry(String provider, Flux<RenderedPage> pages, int pageCount,
+            IdpProgressListener listener, AtomicReference<SchemaGenerationResult> fallback, long start) {
+        return Mono.defer(() -> {
+            providerStats.recordRaceEntry(provider);
+            return callProvider(provider, pages, pageCount, listener);
+        })
+                .publishOn(Schedulers.boundedElastic())
+                .flatMap(response -> {
+                    String schema = response.getT2();
+                    SchemaGenerationResult result = new SchemaGenerationResult(schema, provider, false,
+                            System.currentTimeMillis() - start, true);
+
+                    List<String> problems = formSchemaValidator.validate(schema);
+                    if (problems.isEmpty()) {
+                        providerStats.recordValid(provider, response.getT1());
+                        return Mono.just(result);
+                    }
+
+                    providerStats.recordInvalid(provider, response.getT1());
+                    log.warn("{} returned a schema that failed validation: {}", provider, problems);
+                    fallback.compareAndSet(null, result);
+                    return Mono.<SchemaGenerationResult>empty();
+                })
+                .doOnCancel(() -> {
+                    providerStats.recordCancelled(provider);
+                    log.info("Cancelled {} call, the other provider answered first", provider);
+                });
+    }
+
+    /**
+     * Call one provider, emitting the call latency in ms alongside the schema.
+     * PDFs of at least {@code idp.chunking.min-pages} pages are analyzed in chunks.
+     */
+    private Mono<Tuple2<Long, String>> callProvider(String provider, Flux<RenderedPage> pages, int pageCount,
+            IdpProgressListener listener) {
+        Mono<String> call = chunkingEnabled && pageCount >= chunkingMinPages
+                ? analyzeInChunks(provider, pages, pageCount, listener)
+                : analyze(provider, pages, null, listener);
+        return call
+                .elapsed()
+                .doOnError(e -> providerStats.recordFailure(provider));
+    }
+
+    private Mono<String> analyze(String provider, Flux<RenderedPage> pages, String additionalInstructions,
+            IdpProgressListener listener) {
+        if (PROVIDER_GOOGLE.equals(provider)) {
+            log.info("Using Google AI for PDF analysis");
+            return googleAiService.analyzePdfAndGenerateSchemaAsync(pages, additionalInstructions);
+        }
+        log.info("Using Claude AI for PDF analysis");
+        // Claude streams its response, so sections reach the listener as they are generated
+        return claudeApiService.analyzePdfAndGenerateSchemaAsync(pages, additionalInstructions, listener);
+    }
+
+    /**
+     * Map-reduce extraction: split the page stream into windows of
+     * {@code pagesPerChunk} pages, analyze up to {@code maxConcurrentChunks}
+     * windows at once, and merge the per-chunk schemas in page order. Each
+     * window's request starts as soon as its first page is rendered.
+     */
+    private Mono<String> analyzeInChunks(String provider, Flux<RenderedPage> pages, int pageCount,
+            IdpProgressListener listener) {
+        int chunkCount = (pageCount + pagesPerChunk - 1) / pagesPerChunk;
+        log.info("Splitting {} pages into {} chunks of up to {} pages for {}",
+                pageCount, chunkCount, pagesPerChunk, provider);
+
+        return pages
+                .window(pagesPerChunk)
+                .index()
+                .flatMapSequential(chunk -> {
+                    int firstPage = (int) (chunk.getT1() * pagesPerChunk) + 1;
+                    int lastPage = Math.min(firstPage + pagesPerChunk - 1, pageCount);
+                    // A window can only be subscribed once; cache it so a connection retry can resend it
+                    return analyze(provider, chunk.getT2().cache(),
+                            chunkInstructions(firstPage, lastPage, pageCount), listener)
+                            .doOnNext(schema -> log.info("Chunk {}/{} (pages {}-{}) analyzed by {}",
+                                    chunk.getT1() + 1, chunkCount, firstPage, lastPage, provider));
+                }, maxConcurrentChunks)
+                .collectList()
+                .publishOn(Schedulers.boundedElastic())
+                .map(schemaMerger::merge);
+    }
+
+    private String chunkInstructions(int firstPage, int lastPage, int pageCount) {
+        return """
+
+                ## PARTIAL DOCUMENT
+
+                The images in this request are only pages %d to %d of a %d-page form. The other pages are
+                analyzed in separate requests and the schemas are merged afterwards, so:
+                - Include only the fields, pages and sections visible on these pages.
+                - Use pageId values that include the PDF page number (e.g. "page-%d").
+                - Name fields after their printed labels, so a field that is repeated on several pages
+                  (such as the patient name in a page header) gets the same name every time.
+                - Still return a complete schema object in the format above.
+                """.formatted(firstPage, lastPage, pageCount, firstPage);
+    }
+
+    private int pageCount(byte[] pdfBytes) {
+        try {
+            return pdfProcessingService.getPageCount(pdfBytes);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read PDF page count", e);
+        }
+    }
+
+    /**
+     * Build the API response for a generated schema.
+     */
+    public JsonSchemaResponse toResponse(SchemaGenerationResult result, String filename) {
+        JsonSchemaResponse response = new JsonSchemaResponse();
+        response.setSchema(result.getSchema());
+        response.setFormId(generateFormIdFromFilename(filename));
+        response.setConfidence(85); // Placeholder
+        if (result.isFromCache()) {
+            response.setNotes("Schema served from cache in " + result.getElapsedMs() + " ms (previously generated using "
+                    + result.getProvider() + " AI for this PDF). Please review and adjust as needed.");
+        } else if (result.isRaced()) {
+            response.setNotes("Schema generated successfully using " + result.getProvider()
+                    + " AI (first valid response in race mode). Please review and adjust as needed.");
+        } else {
+            response.setNotes("Schema generated successfully using " + result.getProvider()
+                    + " AI. Please review and adjust as needed.");
+        }
+        return response;
+    }
+
+    private String generateFormIdFromFilename(String filename) {
+        if (filename == null) {
+            return "form-schema-" + System.currentTimeMillis();
+        }
+        return filename
+                .toLowerCase()
+                .replaceAll("\\.pdf$", "")
+                .replaceAll("[^a-z0-9]+", "-");
+    }
+
+    /**
+     * With chunking enabled the prompt version includes the chunking settings:
+     * a chunked analysis sends different prompts and merges partial schemas,
+     * so changing them must not serve schemas generated the other way. With
+     * chunking off the key is the plain prompt version.
+     */
+    private String cacheKey(byte[] pdfBytes, String provider) {
+        if (PROVIDER_GOOGLE.equals(provider)) {
+            return schemaCacheService.buildKey(pdfBytes, provider,
+                    googleAiService.getModel(), googleAiService.getPromptVersion() + chunkingVersion);
+        }
+        return schemaCacheService.buildKey(pdfBytes, provider,
+                claudeApiService.getModel(), claudeApiService.getPromptVersion() + chunkingVersion);
+    }
+
+    private String normalizeProvider(String provider) {
+        if (PROVIDER_GOOGLE.equalsIgnoreCase(provider)) {
+            return PROVIDER_GOOGLE;
+        }
+        if (PROVIDER_RACE.equalsIgnoreCase(provider)) {
+            return PROVIDER_RACE;
+        }
+        return PROVIDER_CLAUDE;
+    }
+}
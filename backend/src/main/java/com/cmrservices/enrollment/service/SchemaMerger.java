@@ -0,0 +1,230 @@
+package com.cmrservices.enrollment.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Merges the schemas generated for consecutive page chunks of one PDF into a
+ * single schema. Pages and sections are concatenated in chunk order and field
+ * ids are de-duplicated across chunks:
+ * <ul>
+ *   <li>a field repeated with the same type and title (e.g. the patient name
+ *       printed at the top of every page) is kept once, at its first position</li>
+ *   <li>a different field that happens to reuse an id is renamed with a
+ *       numeric suffix, and its chunk's layout and required list are rewritten</li>
+ * </ul>
+ */
+@Component
+public class SchemaMerger {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMerger.class);
+
+    private final ObjectMapper objectMapper;
+
+    public SchemaMerger(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Merge chunk schemas, given in page order, into one schema.
+     * Chunks that are not valid JSON are skipped with a warning.
+     *
+     * @throws RuntimeException if no chunk could be parsed
+     */
+    public String merge(List<String> chunkSchemas) {
+        ObjectNode merged = null;
+        ObjectNode properties = objectMapper.createObjectNode();
+        ArrayNode pages = objectMapper.createArrayNode();
+        Set<String> required = new LinkedHashSet<>();
+        Set<String> pageIds = new HashSet<>();
+        Set<String> sectionIds = new HashSet<>();
+        int duplicates = 0;
+        int renamed = 0;
+
+        for (int i = 0; i < chunkSchemas.size(); i++) {
+            JsonNode root;
+            try {
+                root = objectMapper.readTree(chunkSchemas.get(i));
+            } catch (Exception e) {
+                log.warn("Skipping chunk {} of {}: not valid JSON ({})", i + 1, chunkSchemas.size(), e.getMessage());
+                continue;
+            }
+            if (!root.isObject()) {
+                log.warn("Skipping chunk {} of {}: schema root is not an object", i + 1, chunkSchemas.size());
+                continue;
+            }
+
+            if (merged == null) {
+                // Title, description and form id come from the first chunk
+                merged = ((ObjectNode) root).deepCopy();
+            }
+
+            // Map each of this chunk's field ids to its id in the merged schema;
+            // repeated fields are also recorded so their layout entries are dropped
+            Map<String, String> fieldIds = new HashMap<>();
+            Set<String> repeatedFields = new HashSet<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = root.path("properties").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String id = field.getKey();
+                JsonNode existing = properties.get(id);
+
+                if (existing == null) {
+                    properties.set(id, field.getValue());
+                    fieldIds.put(id, id);
+                } else if (isSameField(existing, field.getValue())) {
+                    fieldIds.put(id, id);
+                    repeatedFields.add(id);
+                    duplicates++;
+                } else {
+                    String newId = uniqueId(id, properties::has);
+                    properties.set(newId, field.getValue());
+                    fieldIds.put(id, newId);
+                    renamed++;
+                }
+            }
+
+            for (JsonNode page : root.path("x-form-config").path("pages")) {
+                if (!page.isObject()) {
+                    continue;
+                }
+                ObjectNode pageCopy = ((ObjectNode) page).deepCopy();
+                pageCopy.put("pageId", uniqueId(page.path("pageId").asText("page-" + (pages.size() + 1)),
+                        id -> !pageIds.add(id)));
+
+                ArrayNode sections = objectMapper.createArrayNode();
+                for (JsonNode section : page.path("sections")) {
+                    ObjectNode sectionCopy = rewriteSection(section, fieldIds, repeatedFields);
+                    if (sectionCopy == null) {
+                        continue;
+                    }
+                    sectionCopy.put("sectionId", uniqueId(section.path("sectionId").asText("section"),
+                            id -> !sectionIds.add(id)));
+                    sections.add(sectionCopy);
+                }
+
+                if (!sections.isEmpty()) {
+                    pageCopy.set("sections", sections);
+                    pages.add(pageCopy);
+                }
+            }
+
+            for (JsonNode field : root.path("required")) {
+                required.add(fieldIds.getOrDefault(field.asText(), field.asText()));
+            }
+        }
+
+        if (merged == null) {
+            throw new RuntimeException("None of the " + chunkSchemas.size() + " chunk schemas could be parsed");
+        }
+
+        merged.set("properties", properties);
+        JsonNode formConfig = merged.get("x-form-config");
+        ObjectNode mergedFormConfig = formConfig instanceof ObjectNode
+                ? (ObjectNode) formConfig
+                : merged.putObject("x-form-config");
+        mergedFormConfig.set("pages", pages);
+        ArrayNode requiredNode = merged.putArray("required");
+        required.forEach(requiredNode::add);
+
+        log.info("Merged {} chunk schemas into {} pages and {} fields ({} repeated fields merged, {} renamed)",
+                chunkSchemas.size(), pages.size(), properties.size(), duplicates, renamed);
+
+        try {
+            return objectMapper.writeValueAsString(merged);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize merged schema", e);
+        }
+    }
+
+    /**
+     * Copy a section with its layout field ids rewritten. Repeated fields are
+     * dropped, along with any column or row left empty. Returns null when the
+     * section only contained repeated fields.
+     */
+    private ObjectNode rewriteSection(JsonNode section, Map<String, String> fieldIds, Set<String> repeatedFields) {
+        ObjectNode sectionCopy = section.isObject()
+                ? ((ObjectNode) section).deepCopy()
+                : objectMapper.createObjectNode();
+        JsonNode layout = section.path("layout");
+        if (!layout.isArray()) {
+            return sectionCopy;
+        }
+
+        ArrayNode rows = objectMapper.createArrayNode();
+        for (JsonNode row : layout) {
+            if (!row.isObject()) {
+                continue;
+            }
+            ArrayNode columns = objectMapper.createArrayNode();
+            for (JsonNode column : row.path("columns")) {
+                if (!column.isObject()) {
+                    continue;
+                }
+                ArrayNode columnFields = objectMapper.createArrayNode();
+                for (JsonNode field : column.path("fields")) {
+                    String id = field.asText();
+                    if (!repeatedFields.contains(id)) {
+                        columnFields.add(fieldIds.getOrDefault(id, id));
+                    }
+                }
+                if (!columnFields.isEmpty()) {
+                    ObjectNode columnCopy = ((ObjectNode) column).deepCopy();
+                    columnCopy.set("fields", columnFields);
+                    columns.add(columnCopy);
+                }
+            }
+            if (!columns.isEmpty()) {
+                ObjectNode rowCopy = ((ObjectNode) row).deepCopy();
+                rowCopy.set("columns", columns);
+                rows.add(rowCopy);
+            }
+        }
+
+        if (rows.isEmpty() && !layout.isEmpty()) {
+            return null;
+        }
+        sectionCopy.set("layout", rows);
+        return sectionCopy;
+    }
+
+    /**
+     * Two chunks describe the same field when the type and label match.
+     */
+    private boolean isSameField(JsonNode a, JsonNode b) {
+        return Objects.equals(a.path("type").asText(), b.path("type").asText())
+                && a.path("title").asText().trim().equalsIgnoreCase(b.path("title").asText().trim());
+    }
+
+    /**
+     * The id itself if free, otherwise the id with the first free numeric
+     * suffix. Ids ending in a digit get a dash first, so a second "page-1"
+     * becomes "page-1-2" rather than "page-12".
+     */
+    private String uniqueId(String id, Predicate<String> taken) {
+        if (!taken.test(id)) {
+            return id;
+        }
+        String prefix = !id.isEmpty() && Character.isDigit(id.charAt(id.length() - 1)) ? id + "-" : id;
+        int suffix = 2;
+        while (taken.test(prefix + suffix)) {
+            suffix++;
+        }
+        return prefix + suffix;
+    }
+}
@@ -0,0 +1,171 @@
+package com.cmrservices.enrollment.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses a schema incrementally while its text streams in from a provider.
+ * Text deltas are fed to Jackson's non-blocking parser as they arrive, so:
+ * <ul>
+ *   <li>each {@code x-form-config.pages[].sections[]} object is reported to the
+ *       listener as soon as it is complete</li>
+ *   <li>malformed output fails {@link #accept(String)} at the first bad token,
+ *       letting the caller cancel the response instead of waiting for the rest</li>
+ * </ul>
+ * Trailing commas are tolerated because the providers' JSON repair removes them.
+ * One instance per response; not thread-safe.
+ */
+public final class StreamingSchemaParser {
+
+    // Code fence or stray text allowed before the opening brace
+    private static final int MAX_PREAMBLE_CHARS = 512;
+
+    private final ObjectMapper objectMapper;
+    private final IdpProgressListener listener;
+    private final String provider;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final StringBuilder text = new StringBuilder();
+    private final long startNanos = System.nanoTime();
+
+    private boolean rootStarted;
+    private boolean rootClosed;
+    private TokenBuffer section;
+    private int sectionDepth;
+    private int sectionPageIndex;
+    private int sectionCount;
+    private long firstSectionMs = -1;
+
+    public StreamingSchemaParser(ObjectMapper objectMapper, IdpProgressListener listener, String provider) {
+        this.objectMapper = objectMapper;
+        this.listener = listener;
+        this.provider = provider;
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create streaming JSON parser", e);
+        }
+        this.parser.enable(JsonReadFeature.ALLOW_TRAILING_COMMA.mappedFeature());
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Feed the next chunk of generated text.
+     *
+     * @throws IOException if the text so far cannot be a valid JSON object
+     */
+    public void accept(String delta) throws IOException {
+        text.append(delta);
+        if (rootClosed) {
+            // Anything after the closing brace (e.g. a code fence) is stripped later
+            return;
+        }
+
+        String input = delta;
+        if (!rootStarted) {
+            int brace = delta.indexOf('{');
+            if (brace < 0) {
+                if (text.length() > MAX_PREAMBLE_CHARS) {
+                    throw new IOException("No JSON object in the first " + text.length() + " characters of output");
+                }
+                return;
+            }
+            rootStarted = true;
+            input = delta.substring(brace);
+        }
+
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        feeder.feedInput(bytes, 0, bytes.length);
+        drain();
+    }
+
+    /**
+     * Everything received so far, including any code fence around the JSON.
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    public int getSectionCount() {
+        return sectionCount;
+    }
+
+    /**
+     * Milliseconds from creation to the first complete section, or -1 if none was seen.
+     */
+    public long getFirstSectionMs() {
+        return firstSectionMs;
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (section != null) {
+                section.copyCurrentEvent(parser);
+                if (token.isStructStart()) {
+                    sectionDepth++;
+                } else if (token.isStructEnd() && --sectionDepth == 0) {
+                    sectionParsed();
+                }
+            } else if (token == JsonToken.START_OBJECT && isSection(parser.getParsingContext())) {
+                section = new TokenBuffer(parser);
+                section.copyCurrentEvent(parser);
+                sectionDepth = 1;
+                sectionPageIndex = parser.getParsingContext().getParent().getParent().getParent().getCurrentIndex();
+            }
+
+            if (token == JsonToken.END_OBJECT && parser.getParsingContext().inRoot()) {
+                rootClosed = true;
+                return;
+            }
+        }
+    }
+
+    private void sectionParsed() throws IOException {
+        JsonNode node;
+        try (JsonParser sectionParser = section.asParser()) {
+            node = objectMapper.readTree(sectionParser);
+        }
+        section = null;
+
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+        if (sectionCount++ == 0) {
+            firstSectionMs = elapsedMs;
+        }
+        listener.onSectionParsed(provider, sectionPageIndex + 1, node, elapsedMs);
+    }
+
+    /**
+     * True when the object just opened sits at {@code /x-form-config/pages/N/sections/N}.
+     */
+    private static boolean isSection(JsonStreamContext context) {
+        JsonStreamContext sections = context.getParent();
+        if (sections == null || !sections.inArray()) {
+            return false;
+        }
+        JsonStreamContext page = sections.getParent();
+        if (page == null || !page.inObject() || !"sections".equals(page.getCurrentName())) {
+            return false;
+        }
+        JsonStreamContext pages = page.getParent();
+        if (pages == null || !pages.inArray()) {
+            return false;
+        }
+        JsonStreamContext formConfig = pages.getParent();
+        if (formConfig == null || !formConfig.inObject() || !"pages".equals(formConfig.getCurrentName())) {
+            return false;
+        }
+        JsonStreamContext root = formConfig.getParent();
+        return root != null && root.inObject() && "x-form-config".equals(root.getCurrentName())
+                && root.getParent() != null && root.getParent().inRoot();
+    }
+}
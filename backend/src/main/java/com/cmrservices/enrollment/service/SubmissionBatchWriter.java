@@ -0,0 +1,198 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.entity.FormSubmission;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes submissions into form_submissions, bypassing the JPA persistence
+ * context. Each call is one transaction. Rows are streamed with COPY
+ * ({@link SubmissionCopyWriter}) when the database supports it; if the COPY
+ * fails on a duplicate id or another refused row, the batch is re-sent as
+ * one multi-row INSERT (the columns are passed as arrays and unnested) that
+ * skips rows whose id already exists, so writing the same batch twice (e.g.
+ * when a journal is replayed after a crash) is harmless. Being one statement,
+ * its update count is the exact number of rows inserted; a JDBC batch would
+ * not tell, as the driver reports SUCCESS_NO_INFO for rewritten batches.
+ * The transactions are programmatic so that the fallback runs in a fresh one
+ * after the failed COPY rolls back.
+ *
+ * {@link #insertIsolatingBadRows} additionally retries a refused batch row by
+ * row, so one bad row does not keep the others out.
+ */
+@Component
+public class SubmissionBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionBatchWriter.class);
+
+    static final String INSERT_SQL = "INSERT INTO form_submissions "
+            + "(id, program_id, form_id, form_type, submission_data, submission_status, "
+            + "submitted_at, submitted_by, created_at, updated_at) "
+            + "SELECT CAST(id AS uuid), program_id, form_id, form_type, CAST(submission_data AS jsonb), "
+            + "submission_status, CAST(submitted_at AS timestamp), submitted_by, ?, ? "
+            + "FROM unnest(?, ?, ?, ?, ?, ?, ?, ?) AS batch (id, program_id, form_id, form_type, "
+            + "submission_data, submission_status, submitted_at, submitted_by) "
+            + "ON CONFLICT (id) DO NOTHING";
+    private static final int COLUMNS = 8;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SubmissionCopyWriter copyWriter;
+    private volatile boolean copyEnabled;
+
+    private final AtomicLong copies = new AtomicLong();
+    private final AtomicLong copiedRows = new AtomicLong();
+    private final AtomicLong copyFallbacks = new AtomicLong();
+    private final AtomicLong inserts = new AtomicLong();
+    private final AtomicLong insertedRows = new AtomicLong();
+    private final AtomicLong rowIsolations = new AtomicLong();
+
+    public SubmissionBatchWriter(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            SubmissionCopyWriter copyWriter,
+            @Value("${submissions.copy.enabled:true}") boolean copyEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.copyWriter = copyWriter;
+        this.copyEnabled = copyEnabled;
+    }
+
+    /**
+     * Write submissions in one transaction, with COPY if possible.
+     *
+     * @param submissions submissions with ids already assigned
+     * @return the number of rows written; after a fallback, rows that already existed are not counted
+     */
+    public int insert(List<FormSubmission> submissions) {
+        if (submissions.isEmpty()) {
+            return 0;
+        }
+
+        if (copyEnabled) {
+            try {
+                Long copied = transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                    if (!connection.isWrapperFor(PGConnection.class)) {
+                        return null;
+                    }
+                    return copyWriter.copy(connection, submissions);
+                }));
+                if (copied != null) {
+                    copies.incrementAndGet();
+                    copiedRows.addAndGet(copied);
+                    log.debug("Copied {} submissions", copied);
+                    return copied.intValue();
+                }
+                copyEnabled = false;
+                log.warn("Database connection is not PostgreSQL; submissions will be written with batch inserts");
+
+            } catch (DataIntegrityViolationException e) {
+                copyFallbacks.incrementAndGet();
+                log.debug("COPY of {} submissions was refused, falling back to batch insert: {}",
+                        submissions.size(), e.getMostSpecificCause().getMessage());
+            }
+        }
+
+        Integer inserted = transactionTemplate.execute(status -> insertBatch(submissions));
+        return inserted != null ? inserted : 0;
+    }
+
+    /**
+     * Write submissions like {@link #insert}; if the database refuses the
+     * batch, write them one at a time and report each row it still refuses.
+     *
+     * @param submissions submissions with ids already assigned
+     * @param rejected    called with the position in {@code submissions} of each refused row, and why
+     * @return the number of rows written; rows that already existed and refused rows are not counted
+     */
+    public int insertIsolatingBadRows(List<FormSubmission> submissions,
+                                      BiConsumer<Integer, DataIntegrityViolationException> rejected) {
+        try {
+            return insert(submissions);
+        } catch (DataIntegrityViolationException e) {
+            if (submissions.size() == 1) {
+                rejected.accept(0, e);
+                return 0;
+            }
+            // One bad row fails the whole batch; insert row by row to find it
+            log.warn("Batch of {} submissions was refused, inserting one at a time: {}",
+                    submissions.size(), e.getMostSpecificCause().getMessage());
+            rowIsolations.incrementAndGet();
+            int inserted = 0;
+            for (int i = 0; i < submissions.size(); i++) {
+                try {
+                    inserted += insert(List.of(submissions.get(i)));
+                } catch (DataIntegrityViolationException rowError) {
+                    rejected.accept(i, rowError);
+                }
+            }
+            return inserted;
+        }
+    }
+
+    /**
+     * COPY and insert counters, for the metrics endpoint.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("copyEnabled", copyEnabled);
+        stats.put("copies", copies.get());
+        stats.put("copiedRows", copiedRows.get());
+        stats.put("copyFallbacks", copyFallbacks.get());
+        stats.put("batchInserts", inserts.get());
+        stats.put("insertedRows", insertedRows.get());
+        stats.put("rowByRowRetries", rowIsolations.get());
+        return stats;
+    }
+
+    private int insertBatch(List<FormSubmission> submissions) {
+        String[][] columns = new String[COLUMNS][submissions.size()];
+        for (int row = 0; row < submissions.size(); row++) {
+            FormSubmission submission = submissions.get(row);
+            columns[0][row] = submission.getId().toString();
+            columns[1][row] = submission.getProgramId();
+            columns[2][row] = submission.getFormId();
+            columns[3][row] = submission.getFormType();
+            columns[4][row] = submission.getSubmissionData();
+            columns[5][row] = submission.getSubmissionStatus();
+            columns[6][row] = submission.getSubmittedAt() != null ? submission.getSubmittedAt().toString() : null;
+            columns[7][row] = submission.getSubmittedBy();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int inserted = jdbcTemplate.update(connection -> prepareInsert(connection, columns, now));
+        inserts.incrementAndGet();
+        insertedRows.addAndGet(inserted);
+        log.debug("Batch-inserted {} of {} submissions", inserted, submissions.size());
+        return inserted;
+    }
+
+    private static PreparedStatement prepareInsert(Connection connection, String[][] columns, LocalDateTime now)
+            throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(INSERT_SQL);
+        ps.setObject(1, now);
+        ps.setObject(2, now);
+        for (int column = 0; column < COLUMNS; column++) {
+            ps.setArray(column + 3, connection.createArrayOf("text", columns[column]));
+        }
+        return ps;
+    }
+}
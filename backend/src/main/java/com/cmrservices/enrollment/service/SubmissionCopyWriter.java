@@ -0,0 +1,114 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.entity.FormSubmission;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Streams submissions into form_submissions with PostgreSQL's COPY protocol,
+ * using the driver's CopyManager. Rows are encoded as CSV and sent in chunks,
+ * so the server parses them in bulk with no per-row statement, parameter
+ * binding or entity state.
+ *
+ * COPY has no ON CONFLICT clause: a row whose id already exists fails the
+ * whole COPY. {@link SubmissionBatchWriter} falls back to batched inserts in
+ * that case.
+ */
+@Component
+public class SubmissionCopyWriter {
+
+    static final String COPY_SQL = "COPY form_submissions "
+            + "(id, program_id, form_id, form_type, submission_data, submission_status, "
+            + "submitted_at, submitted_by, created_at, updated_at) "
+            + "FROM STDIN WITH (FORMAT csv)";
+
+    private static final int CHUNK_CHARS = 64 * 1024;
+
+    /**
+     * Copy submissions over a connection. The caller owns the transaction.
+     *
+     * @param connection a PostgreSQL connection (pool proxies are unwrapped)
+     * @param submissions submissions with ids already assigned
+     * @return the number of rows copied
+     */
+    public long copy(Connection connection, List<FormSubmission> submissions) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            StringBuilder chunk = new StringBuilder(CHUNK_CHARS + 1024);
+            for (FormSubmission submission : submissions) {
+                appendRow(chunk, submission, now);
+                if (chunk.length() >= CHUNK_CHARS) {
+                    write(copyIn, chunk);
+                }
+            }
+            write(copyIn, chunk);
+            return copyIn.endCopy();
+
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder chunk) throws SQLException {
+        if (chunk.length() > 0) {
+            byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            chunk.setLength(0);
+        }
+    }
+
+    private static void appendRow(StringBuilder row, FormSubmission submission, LocalDateTime now) {
+        appendValue(row, submission.getId());
+        row.append(',');
+        appendValue(row, submission.getProgramId());
+        row.append(',');
+        appendValue(row, submission.getFormId());
+        row.append(',');
+        appendValue(row, submission.getFormType());
+        row.append(',');
+        appendValue(row, submission.getSubmissionData());
+        row.append(',');
+        appendValue(row, submission.getSubmissionStatus());
+        row.append(',');
+        appendValue(row, submission.getSubmittedAt());
+        row.append(',');
+        appendValue(row, submission.getSubmittedBy());
+        row.append(',');
+        appendValue(row, now);
+        row.append(',');
+        appendValue(row, now);
+        row.append('\n');
+    }
+
+    /**
+     * Append one CSV field. Values are always quoted, because in COPY's CSV
+     * format an unquoted empty field is NULL while a quoted one is an empty
+     * string.
+     */
+    private static void appendValue(StringBuilder row, Object value) {
+        if (value == null) {
+            return;
+        }
+        // LocalDateTime.toString() is ISO-8601, which timestamp input accepts
+        String text = value.toString();
+        row.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+}
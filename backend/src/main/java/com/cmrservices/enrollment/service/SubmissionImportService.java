@@ -0,0 +1,210 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.BulkImportResult;
+import com.cmrservices.enrollment.model.dto.SubmissionDTO;
+import com.cmrservices.enrollment.model.entity.FormSubmission;
+import com.cmrservices.enrollment.model.entity.TimeOrderedUuidGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports submissions in bulk from a JSON array or NDJSON stream. The body is
+ * read with Jackson's streaming parser one record at a time, each record is
+ * validated like a single POST /submissions, and valid records are inserted
+ * in batches of batch-size, one transaction per batch. Memory use depends on
+ * the batch size, not on the number of records.
+ *
+ * Records may carry their own {@code id}; rows whose id already exists are
+ * skipped (and counted as such), so re-sending a file with ids after a
+ * failed import does not create duplicates. A {@code submittedAt} in the
+ * record is kept, for back-filled enrollments.
+ *
+ * A database error other than a refused row (lost connection, timeout) stops
+ * the import: batches already written stay committed, the rest of the body is
+ * not read, and the result gives the index range of the batch that failed.
+ */
+@Service
+public class SubmissionImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionImportService.class);
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final SubmissionService submissionService;
+    private final SubmissionBatchWriter batchWriter;
+    private final int batchSize;
+    private final int maxReportedFailures;
+
+    public SubmissionImportService(
+            ObjectMapper objectMapper,
+            Validator validator,
+            SubmissionService submissionService,
+            SubmissionBatchWriter batchWriter,
+            @Value("${submissions.bulk.batch-size:1000}") int batchSize,
+            @Value("${submissions.bulk.max-reported-failures:1000}") int maxReportedFailures) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.submissionService = submissionService;
+        this.batchWriter = batchWriter;
+        this.batchSize = batchSize;
+        this.maxReportedFailures = maxReportedFailures;
+    }
+
+    /**
+     * Import every record in the body. Records before a syntax error are still
+     * imported; the result is then marked aborted, as it is when a batch
+     * cannot be written.
+     *
+     * @param body a JSON array of submissions, or submissions separated by newlines
+     * @return counts and the failed records
+     */
+    public BulkImportResult importSubmissions(InputStream body) throws IOException {
+        BulkImportResult result = new BulkImportResult();
+        List<FormSubmission> batch = new ArrayList<>(batchSize);
+        List<Long> batchIndexes = new ArrayList<>(batchSize);
+        long start = System.currentTimeMillis();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            // A top-level array is unwrapped; otherwise the body is a sequence of root-level records
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+
+            while (token != null && !(array && token == JsonToken.END_ARRAY)) {
+                long index = result.getReceived();
+                result.setReceived(index + 1);
+
+                JsonNode record = objectMapper.readTree(parser);
+                FormSubmission submission = toSubmission(record, index, result);
+                if (submission != null) {
+                    batch.add(submission);
+                    batchIndexes.add(index);
+                    if (batch.size() >= batchSize && !flush(batch, batchIndexes, result)) {
+                        break;
+                    }
+                }
+                token = parser.nextToken();
+            }
+
+            if (BulkImportResult.STATUS_COMPLETED.equals(result.getStatus())
+                    && array && parser.nextToken() != null) {
+                result.setStatus(BulkImportResult.STATUS_ABORTED);
+                result.setError("Unexpected content after the JSON array");
+            }
+
+        } catch (JsonProcessingException e) {
+            result.setStatus(BulkImportResult.STATUS_ABORTED);
+            result.setError(e.getLocation() != null
+                    ? String.format("Malformed JSON at line %d, column %d: %s",
+                            e.getLocation().getLineNr(), e.getLocation().getColumnNr(), e.getOriginalMessage())
+                    : "Malformed JSON: " + e.getOriginalMessage());
+        }
+
+        // Records read before a syntax error are still valid
+        flush(batch, batchIndexes, result);
+
+        log.info("Bulk import {}: {} received, {} inserted, {} skipped, {} failed in {} ms",
+                result.getStatus(), result.getReceived(), result.getInserted(), result.getSkipped(),
+                result.getFailed(), System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * Map and validate one record.
+     *
+     * @return the submission to insert, or null if the record was rejected
+     */
+    private FormSubmission toSubmission(JsonNode record, long index, BulkImportResult result) {
+        SubmissionDTO dto;
+        try {
+            dto = objectMapper.treeToValue(record, SubmissionDTO.class);
+        } catch (JsonProcessingException e) {
+            fail(result, index, List.of("Invalid record: " + e.getOriginalMessage()));
+            return null;
+        }
+
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<SubmissionDTO> violation : validator.validate(dto)) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        if (!errors.isEmpty()) {
+            fail(result, index, errors);
+            return null;
+        }
+
+        FormSubmission submission;
+        try {
+            submission = submissionService.toEntity(dto);
+        } catch (JsonProcessingException e) {
+            fail(result, index, List.of("Invalid formData: " + e.getOriginalMessage()));
+            return null;
+        }
+        submission.setId(dto.getId() != null ? dto.getId() : TimeOrderedUuidGenerator.next());
+        if (dto.getSubmittedAt() != null) {
+            submission.setSubmittedAt(dto.getSubmittedAt());
+        }
+        return submission;
+    }
+
+    /**
+     * Write the batch and add its counts to the result. Refused rows are
+     * reported as failed records; any other database error aborts the import.
+     *
+     * @return false if the batch could not be written and the import was aborted
+     */
+    private boolean flush(List<FormSubmission> batch, List<Long> batchIndexes, BulkImportResult result) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        long failedBefore = result.getFailed();
+        try {
+            int inserted = batchWriter.insertIsolatingBadRows(batch, (position, cause) ->
+                    fail(result, batchIndexes.get(position), List.of(cause.getMostSpecificCause().getMessage())));
+            result.setInserted(result.getInserted() + inserted);
+            // Whatever was neither inserted nor refused already existed
+            result.setSkipped(result.getSkipped() + batch.size() - inserted - (result.getFailed() - failedBefore));
+            return true;
+
+        } catch (DataAccessException e) {
+            long first = batchIndexes.get(0);
+            long last = batchIndexes.get(batchIndexes.size() - 1);
+            log.error("Bulk import aborted: records {}-{} could not be written", first, last, e);
+            result.setStatus(BulkImportResult.STATUS_ABORTED);
+            result.setFailedFromIndex(first);
+            result.setFailedToIndex(last);
+            result.setError(String.format("Database error while writing records %d to %d, import stopped: %s",
+                    first, last, e.getMostSpecificCause().getMessage()));
+            return false;
+
+        } finally {
+            batch.clear();
+            batchIndexes.clear();
+        }
+    }
+
+    private void fail(BulkImportResult result, long index, List<String> errors) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getFailures().size() < maxReportedFailures) {
+            result.getFailures().add(new BulkImportResult.RecordFailure(index, errors));
+        } else {
+            result.setFailuresTruncated(true);
+        }
+    }
+}
@@ -0,0 +1,546 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.entity.FormSubmission;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind intake for form submissions. An accepted submission is given
+ * its id, appended to a local {@link SubmissionJournal} and fsynced, and
+ * queued in memory; a single flusher thread then drains the queue and writes
+ * whatever has accumulated in one COPY (or JDBC batch), so a burst of
+ * submissions costs a handful of round trips and one pooled connection instead
+ * of a transaction each.
+ *
+ * The queue is bounded: once queue-capacity submissions are waiting, further
+ * ones are rejected until a batch commits. Journal records are only released
+ * after their batch commits, and segments left by a crash are replayed on
+ * startup, a batch at a time between live batches; inserts skip existing
+ * ids, so replaying rows that did make it to the database is harmless. A row
+ * the database refuses outright (e.g. a constraint violation) is moved to
+ * rejected.ndjson in the journal directory rather than blocking the queue.
+ * Live batches are retried for as long as the failure is transient (lost
+ * connection, timeout); one that keeps failing for any other reason, such as
+ * a schema mismatch, is moved to rejected.ndjson whole after a few attempts.
+ * If the flusher stops, intake is closed so clients get errors instead of
+ * 202s for submissions nobody will insert.
+ */
+@Service
+public class SubmissionIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionIngestService.class);
+
+    private static final String REJECTED_FILE = "rejected.ndjson";
+    private static final long POLL_INTERVAL_MS = 200;
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+    // A recovered segment that still fails after this many attempts is left for the next startup
+    private static final int REPLAY_MAX_ATTEMPTS = 5;
+    // A live batch that fails this many times with a non-transient error is dead-lettered
+    private static final int LIVE_MAX_NON_TRANSIENT_ATTEMPTS = 5;
+
+    private final ObjectMapper objectMapper;
+    private final SubmissionBatchWriter batchWriter;
+    private final boolean enabled;
+    private final Path journalDir;
+    private final int batchSize;
+    private final long maxBatchDelayMs;
+    private final long shutdownTimeoutMs;
+    private final long retryDelayMs;
+    private final Semaphore capacity;
+    private final BlockingQueue<QueuedSubmission> queue = new LinkedBlockingQueue<>();
+    private final Map<UUID, FormSubmission> queuedById = new ConcurrentHashMap<>();
+    private final SubmissionJournal journal;
+    private volatile boolean running;
+    private volatile boolean stopping;
+    private Thread flusher;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastBatchMs;
+    private volatile String lastError;
+
+    public SubmissionIngestService(
+            ObjectMapper objectMapper,
+            SubmissionBatchWriter batchWriter,
+            @Value("${submissions.write-behind.enabled:false}") boolean enabled,
+            @Value("${submissions.write-behind.dir:./data/submission-journal}") String journalDir,
+            @Value("${submissions.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${submissions.write-behind.batch-size:500}") int batchSize,
+            @Value("${submissions.write-behind.max-batch-delay-ms:50}") long maxBatchDelayMs,
+            @Value("${submissions.write-behind.segment-max-mb:16}") long segmentMaxMb,
+            @Value("${submissions.write-behind.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+            @Value("${submissions.write-behind.retry-delay-ms:500}") long retryDelayMs) {
+        this.objectMapper = objectMapper;
+        this.batchWriter = batchWriter;
+        this.enabled = enabled;
+        this.journalDir = Paths.get(journalDir);
+        this.batchSize = batchSize;
+        this.maxBatchDelayMs = maxBatchDelayMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.retryDelayMs = retryDelayMs;
+        this.capacity = new Semaphore(queueCapacity);
+
+        // A journal left by an earlier run is replayed even if write-behind has since been turned off
+        SubmissionJournal opened = null;
+        if (enabled || Files.isDirectory(this.journalDir)) {
+            try {
+                opened = new SubmissionJournal(this.journalDir, segmentMaxMb * 1024 * 1024);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open submission journal in " + journalDir, e);
+            }
+            if (!enabled && opened.recoveredSegments().isEmpty()) {
+                closeQuietly(opened);
+                opened = null;
+            }
+        }
+        this.journal = opened;
+
+        if (journal != null) {
+            log.info("Submission write-behind {} with journal {} ({} segments to replay), batch size {}, queue capacity {}",
+                    enabled ? "enabled" : "replaying only", this.journalDir.toAbsolutePath(),
+                    journal.recoveredSegments().size(), batchSize, queueCapacity);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (journal == null) {
+            return;
+        }
+        running = enabled;
+        flusher = new Thread(this::run, "submission-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Let the flusher drain the queue, then close the journal. Anything not
+     * inserted by then stays in the journal for the next startup.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (journal == null) {
+            return;
+        }
+        running = false;
+        stopping = true;
+        try {
+            flusher.join(shutdownTimeoutMs);
+            if (flusher.isAlive()) {
+                log.warn("Submission flusher did not drain within {} ms; {} submissions stay in the journal",
+                        shutdownTimeoutMs, queue.size());
+                flusher.interrupt();
+                flusher.join(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly(journal);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether submissions are being accepted, i.e. intake is enabled and the
+     * flusher is alive.
+     */
+    public boolean isRunning() {
+        return enabled && running && flusher != null && flusher.isAlive();
+    }
+
+    /**
+     * Journal a submission and queue it for insertion. Returns once the
+     * submission is durable on local disk, not once it is in the database.
+     *
+     * @param submission the submission, with its id already assigned
+     * @throws RejectedExecutionException if the queue is full or the flusher has stopped
+     */
+    public void accept(FormSubmission submission) {
+        if (!enabled) {
+            throw new IllegalStateException("Write-behind submission intake is not enabled");
+        }
+        if (!running) {
+            throw new RejectedExecutionException("Submission flusher is not running");
+        }
+        if (!capacity.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Submission queue is full");
+        }
+
+        try {
+            long segment = journal.append(objectMapper.writeValueAsBytes(submission));
+            queuedById.put(submission.getId(), submission);
+            queue.add(new QueuedSubmission(submission, segment));
+            accepted.incrementAndGet();
+        } catch (IOException e) {
+            capacity.release();
+            throw new RuntimeException("Failed to journal submission " + submission.getId(), e);
+        }
+    }
+
+    /**
+     * A submission that has been accepted but not yet inserted.
+     */
+    public Optional<FormSubmission> findQueued(UUID id) {
+        return Optional.ofNullable(queuedById.get(id));
+    }
+
+    /**
+     * Queue depth, batch and replay counters, for the metrics endpoint.
+     */
+    public Map<String, Object> getStats() {
+        long batchCount = batches.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("running", isRunning());
+        stats.put("queued", queue.size());
+        stats.put("accepted", accepted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("inserted", inserted.get());
+        stats.put("batches", batchCount);
+        stats.put("averageBatchSize", batchCount > 0 ? (double) inserted.get() / batchCount : 0.0);
+        stats.put("lastBatchMs", lastBatchMs);
+        stats.put("replayed", replayed.get());
+        stats.put("deadLettered", deadLettered.get());
+        stats.put("failures", failures.get());
+        stats.put("replayPendingSegments", journal != null ? journal.recoveredSegments().size() : 0);
+        stats.put("journalSegments", journal != null ? journal.getSegmentCount() : 0);
+        stats.put("journalFsyncs", journal != null ? journal.getFsyncCount() : 0);
+        stats.put("lastError", lastError);
+        return stats;
+    }
+
+    /**
+     * Flush live batches as they fill, and in between replay the segments
+     * left by a previous run one batch at a time, so a large backlog does not
+     * hold up new submissions.
+     */
+    private void run() {
+        SegmentReplay replay = new SegmentReplay(journal.recoveredSegments());
+        List<QueuedSubmission> batch = new ArrayList<>(batchSize);
+        try {
+            while (!stopping || !queue.isEmpty()) {
+                if (!enabled && replay.isDone()) {
+                    break;
+                }
+                try {
+                    QueuedSubmission first = queue.poll(replay.isDone() ? POLL_INTERVAL_MS : 0, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        collectBatch(batch);
+                        flush(batch);
+                        batch.clear();
+                    }
+                    if (!replay.isDone() && !stopping) {
+                        replay.replayNextBatch();
+                    }
+                } catch (RuntimeException e) {
+                    // Keep the flusher alive; the failed batch is still in the journal
+                    failures.incrementAndGet();
+                    lastError = e.getMessage();
+                    log.error("Failed to flush {} queued submissions; they stay in the journal for the next startup",
+                            batch.size(), e);
+                    release(batch);
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            replay.close();
+            if (running) {
+                // Only reached if something fatal escaped; stop acknowledging submissions
+                running = false;
+                log.error("Submission flusher stopped; write-behind intake is closed");
+            }
+        }
+    }
+
+    /**
+     * Top the batch up with whatever else is queued, waiting up to
+     * max-batch-delay-ms for a short batch to fill.
+     */
+    private void collectBatch(List<QueuedSubmission> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            QueuedSubmission next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<QueuedSubmission> batch) throws InterruptedException {
+        List<FormSubmission> rows = new ArrayList<>(batch.size());
+        for (QueuedSubmission queued : batch) {
+            rows.add(queued.submission);
+        }
+
+        RuntimeException failure = writeWithRetry(rows, 0);
+        if (failure != null) {
+            // Retrying will not help; keep the rows, but out of the way of the ones behind them
+            deadLetter(rows, failure);
+        }
+
+        Map<Long, Integer> perSegment = new HashMap<>();
+        for (QueuedSubmission queued : batch) {
+            perSegment.merge(queued.segment, 1, Integer::sum);
+        }
+        perSegment.forEach(journal::committed);
+        release(batch);
+    }
+
+    private void release(List<QueuedSubmission> batch) {
+        for (QueuedSubmission queued : batch) {
+            queuedById.remove(queued.submission.getId());
+        }
+        capacity.release(batch.size());
+    }
+
+    /**
+     * Insert rows, retrying with backoff. Live batches (maxAttempts 0) are
+     * retried for as long as the failures are transient, i.e. the database is
+     * unavailable; the queue keeps filling meanwhile, so clients see 503s once
+     * it is full rather than losing submissions. Other failures end a live
+     * batch after {@value #LIVE_MAX_NON_TRANSIENT_ATTEMPTS} attempts.
+     *
+     * @return null once the rows are in, or the last failure if the attempts ran out
+     */
+    private RuntimeException writeWithRetry(List<FormSubmission> rows, int maxAttempts) throws InterruptedException {
+        long delay = retryDelayMs;
+        int nonTransientFailures = 0;
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                int count = batchWriter.insertIsolatingBadRows(rows,
+                        (position, cause) -> deadLetter(rows.get(position), cause));
+                inserted.addAndGet(count);
+                batches.incrementAndGet();
+                lastBatchMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                log.debug("Inserted {} queued submissions in {} ms", count, lastBatchMs);
+                return null;
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                lastError = e.getMessage();
+                if (!isTransient(e)) {
+                    nonTransientFailures++;
+                }
+                if (maxAttempts > 0 ? attempt >= maxAttempts : nonTransientFailures >= LIVE_MAX_NON_TRANSIENT_ATTEMPTS) {
+                    log.warn("Failed to insert {} submissions after {} attempts: {}", rows.size(), attempt, e.getMessage());
+                    return e;
+                }
+                log.warn("Failed to insert {} queued submissions, retrying in {} ms: {}",
+                        rows.size(), delay, e.getMessage());
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Lost connections, timeouts and the like, which a later attempt may get past.
+     */
+    static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotGetJdbcConnectionException;
+    }
+
+    private void deadLetter(FormSubmission submission, Exception cause) {
+        log.error("Submission {} was refused by the database and moved to {}: {}",
+                submission.getId(), REJECTED_FILE, cause.getMessage());
+        writeRejected(List.of(submission), cause);
+    }
+
+    private void deadLetter(List<FormSubmission> submissions, Exception cause) {
+        log.error("Batch of {} submissions kept failing and was moved to {}: {}",
+                submissions.size(), REJECTED_FILE, cause.getMessage());
+        writeRejected(submissions, cause);
+    }
+
+    private void writeRejected(List<FormSubmission> submissions, Exception cause) {
+        try {
+            StringBuilder records = new StringBuilder();
+            String rejectedAt = LocalDateTime.now().toString();
+            for (FormSubmission submission : submissions) {
+                ObjectNode record = objectMapper.createObjectNode();
+                record.put("rejectedAt", rejectedAt);
+                record.put("error", cause.getMessage());
+                record.set("submission", objectMapper.valueToTree(submission));
+                records.append(objectMapper.writeValueAsString(record)).append('\n');
+            }
+            Files.write(journalDir.resolve(REJECTED_FILE), records.toString().getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+            deadLettered.addAndGet(submissions.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to record " + submissions.size() + " rejected submissions", e);
+        }
+    }
+
+    private void closeQuietly(SubmissionJournal toClose) {
+        try {
+            toClose.close();
+        } catch (IOException e) {
+            log.warn("Failed to close submission journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the segments left by a previous run, one batch per call. A
+     * segment is deleted once all of its rows are in; one that cannot be read
+     * or inserted is left in place for the next startup.
+     */
+    private final class SegmentReplay {
+
+        private final Iterator<Path> segments;
+        private Path segment;
+        private BufferedReader reader;
+        private int count;
+
+        private SegmentReplay(List<Path> segments) {
+            this.segments = segments.iterator();
+        }
+
+        private boolean isDone() {
+            return segment == null && !segments.hasNext();
+        }
+
+        private void replayNextBatch() throws InterruptedException {
+            if (segment == null) {
+                segment = segments.next();
+                count = 0;
+                try {
+                    reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    abandon(e.getMessage());
+                    return;
+                }
+            }
+
+            List<FormSubmission> rows = new ArrayList<>(batchSize);
+            boolean endOfSegment;
+            try {
+                endOfSegment = read(rows);
+            } catch (IOException e) {
+                abandon(e.getMessage());
+                return;
+            }
+
+            if (!rows.isEmpty()) {
+                if (writeWithRetry(rows, REPLAY_MAX_ATTEMPTS) != null) {
+                    abandon(lastError);
+                    return;
+                }
+                count += rows.size();
+            }
+            if (endOfSegment) {
+                close();
+                replayed.addAndGet(count);
+                journal.replayed(segment);
+                log.info("Replayed {} submissions from journal segment {}", count, segment.getFileName());
+                segment = null;
+            }
+        }
+
+        /**
+         * Read up to batch-size records.
+         *
+         * @return true once the segment is exhausted
+         */
+        private boolean read(List<FormSubmission> rows) throws IOException {
+            while (rows.size() < batchSize) {
+                String line = reader.readLine();
+                if (line == null) {
+                    return true;
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    rows.add(objectMapper.readValue(line, FormSubmission.class));
+                } catch (JsonProcessingException e) {
+                    // Only the last record can be torn by a crash, and it was never acknowledged
+                    log.warn("Skipping unreadable record in {}: {}", segment.getFileName(), e.getOriginalMessage());
+                }
+            }
+            return false;
+        }
+
+        private void abandon(String reason) {
+            log.error("Failed to replay submission journal segment {}; leaving it for the next startup: {}",
+                    segment, reason);
+            close();
+            segment = null;
+        }
+
+        private void close() {
+            if (reader == null) {
+                return;
+            }
+            try {
+                reader.close();
+            } catch (IOException e) {
+                log.debug("Failed to close journal segment {}: {}", segment, e.getMessage());
+            }
+            reader = null;
+        }
+    }
+
+    private static final class QueuedSubmission {
+
+        private final FormSubmission submission;
+        private final long segment;
+
+        private QueuedSubmission(FormSubmission submission, long segment) {
+            this.submission = submission;
+            this.segment = segment;
+        }
+    }
+}
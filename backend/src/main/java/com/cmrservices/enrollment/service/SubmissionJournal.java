@@ -0,0 +1,257 @@
+package com.cmrservices.enrollment.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of accepted submissions, one JSON record per line, split
+ * into numbered segment files. A record is fsynced before {@link #append}
+ * returns, and appends that arrive while an fsync is in progress share the next
+ * one, so the cost of durability is one fsync per group rather than per
+ * submission.
+ *
+ * Every record counts against its segment until it is marked committed; a
+ * segment that has been rotated out and has no uncommitted records left is
+ * deleted. Segments found on startup belong to a previous run and are handed
+ * out for replay by {@link #recoveredSegments()}.
+ *
+ * The locks are ReentrantLocks rather than synchronized, since writes and
+ * fsyncs happen while they are held and would pin a virtual thread's carrier.
+ */
+public class SubmissionJournal implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionJournal.class);
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+    private static final byte NEWLINE = '\n';
+
+    private final Path dir;
+    private final long segmentMaxBytes;
+    private final List<Path> recovered;
+    private final Map<Long, AtomicInteger> uncommitted = new ConcurrentHashMap<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private FileChannel channel;
+    private long segment;
+    private long segmentBytes;
+    // Bytes appended and bytes known to be on disk, across all segments of this run
+    private long written;
+    private final AtomicLong synced = new AtomicLong();
+    private final AtomicLong fsyncs = new AtomicLong();
+
+    public SubmissionJournal(Path dir, long segmentMaxBytes) throws IOException {
+        this.dir = dir;
+        this.segmentMaxBytes = segmentMaxBytes;
+        Files.createDirectories(dir);
+
+        List<Path> existing = new ArrayList<>();
+        long lastSegment = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    existing.add(file);
+                    lastSegment = Math.max(lastSegment, Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        existing.sort((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+        this.recovered = new CopyOnWriteArrayList<>(existing);
+
+        appendLock.lock();
+        try {
+            openSegment(lastSegment + 1);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Segments left behind by a previous run, oldest first.
+     */
+    public List<Path> recoveredSegments() {
+        return List.copyOf(recovered);
+    }
+
+    /**
+     * Append one record and wait until it is on disk.
+     *
+     * @param record a single-line JSON record
+     * @return the segment the record was written to, for {@link #committed}
+     */
+    public long append(byte[] record) throws IOException {
+        long position;
+        long recordSegment;
+        appendLock.lock();
+        try {
+            if (segmentBytes > 0 && segmentBytes + record.length + 1 > segmentMaxBytes) {
+                rotate();
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(record.length + 1);
+            buffer.put(record).put(NEWLINE).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            segmentBytes += record.length + 1;
+            written += record.length + 1;
+            position = written;
+            recordSegment = segment;
+            uncommitted.computeIfAbsent(segment, s -> new AtomicInteger()).incrementAndGet();
+        } finally {
+            appendLock.unlock();
+        }
+        syncTo(position);
+        return recordSegment;
+    }
+
+    /**
+     * Mark records as stored in the database, deleting any rotated-out segment
+     * that no longer holds uncommitted records.
+     */
+    public void committed(long recordSegment, int count) {
+        AtomicInteger remaining = uncommitted.get(recordSegment);
+        if (remaining == null || remaining.addAndGet(-count) > 0) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            if (recordSegment != segment && remaining.get() <= 0) {
+                uncommitted.remove(recordSegment);
+                delete(segmentPath(recordSegment));
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Delete a recovered segment once all of its records have been replayed.
+     */
+    public void replayed(Path recoveredSegment) {
+        recovered.remove(recoveredSegment);
+        delete(recoveredSegment);
+    }
+
+    public int getSegmentCount() {
+        return uncommitted.size() + recovered.size();
+    }
+
+    public long getFsyncCount() {
+        return fsyncs.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+            synced.accumulateAndGet(written, Math::max);
+            AtomicInteger remaining = uncommitted.get(segment);
+            if (remaining == null || remaining.get() <= 0) {
+                // Nothing to replay; don't leave an empty segment behind
+                delete(segmentPath(segment));
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Group commit: one caller fsyncs everything appended so far on behalf of
+     * every caller waiting for a position at or below it.
+     */
+    private void syncTo(long position) throws IOException {
+        while (synced.get() < position) {
+            syncLock.lock();
+            try {
+                if (synced.get() >= position) {
+                    return;
+                }
+                long target;
+                FileChannel current;
+                appendLock.lock();
+                try {
+                    target = written;
+                    current = channel;
+                } finally {
+                    appendLock.unlock();
+                }
+                try {
+                    current.force(false);
+                    fsyncs.incrementAndGet();
+                    synced.accumulateAndGet(target, Math::max);
+                } catch (ClosedChannelException e) {
+                    // Rotated meanwhile; rotation forces the old segment, so re-check
+                }
+            } finally {
+                syncLock.unlock();
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.force(false);
+        fsyncs.incrementAndGet();
+        channel.close();
+        synced.accumulateAndGet(written, Math::max);
+
+        AtomicInteger remaining = uncommitted.get(segment);
+        if (remaining == null || remaining.get() <= 0) {
+            uncommitted.remove(segment);
+            delete(segmentPath(segment));
+        }
+        openSegment(segment + 1);
+    }
+
+    private void openSegment(long number) throws IOException {
+        Path path = segmentPath(number);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        // Make the new directory entry durable too, or a crash could lose the whole file
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            log.debug("Could not fsync journal directory {}: {}", dir, e.getMessage());
+        }
+        segment = number;
+        segmentBytes = 0;
+        log.debug("Opened submission journal segment {}", path);
+    }
+
+    private Path segmentPath(long number) {
+        return dir.resolve(String.format("segment-%012d.log", number));
+    }
+
+    private static long segmentNumber(Path path) {
+        Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    private void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete submission journal segment {}: {}", path, e.getMessage());
+        }
+    }
+}
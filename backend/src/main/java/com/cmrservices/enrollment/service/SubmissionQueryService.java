@@ -0,0 +1,245 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.PageDTO;
+import com.cmrservices.enrollment.model.dto.SubmissionDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Lists submissions for a program and/or form without loading them all.
+ * Pages use keyset pagination on (submitted_at, id), so each page is one index
+ * range scan however deep into the list it is. Exports walk a server-side
+ * cursor, fetch-size rows at a time, and write each row to the response as
+ * one NDJSON line with the jsonb payload copied through as text, so memory
+ * stays flat however many rows match. An export holds a pool connection for
+ * the whole download, so only a few may run at once; the rest are refused
+ * rather than starving the other requests of connections.
+ */
+@Service
+public class SubmissionQueryService {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionQueryService.class);
+
+    private static final String SELECT_COLUMNS = "SELECT id, program_id, form_id, form_type, "
+            + "submission_data::text AS submission_data, submission_status, submitted_at, submitted_by "
+            + "FROM form_submissions WHERE ";
+    private static final String ORDER_BY = " ORDER BY submitted_at, id";
+    private static final int FLUSH_EVERY_ROWS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final Semaphore exportPermits;
+
+    public SubmissionQueryService(
+            JdbcTemplate jdbcTemplate,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${submissions.export.fetch-size:500}") int exportFetchSize,
+            @Value("${submissions.export.max-concurrent:2}") int maxConcurrentExports) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.exportPermits = new Semaphore(Math.max(1, maxConcurrentExports));
+
+        // The PostgreSQL driver only streams with a fetch size inside a transaction;
+        // otherwise it reads the whole result into memory
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(exportFetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * One page of submissions, oldest first.
+     *
+     * @param programId the program ID, or null
+     * @param formId    the form ID, or null (at least one of the two is required)
+     * @param limit     the maximum number of submissions
+     * @param cursor    the previous page's nextCursor, or null for the first page
+     * @return the page and the cursor for the next one
+     */
+    public PageDTO<SubmissionDTO> getPage(String programId, String formId, int limit, String cursor) {
+        log.debug("Fetching submissions page for program: {}, form: {}", programId, formId);
+
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append(filter(programId, formId, args));
+        if (cursor != null && !cursor.isEmpty()) {
+            Object[] position = decodeCursor(cursor);
+            sql.append(" AND (submitted_at, id) > (?, ?)");
+            args.add(position[0]);
+            args.add(position[1]);
+        }
+        // One extra row tells whether there is a next page
+        sql.append(ORDER_BY).append(" LIMIT ?");
+        args.add(limit + 1);
+
+        List<SubmissionDTO> items = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapRow(rs), args.toArray());
+
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items = new ArrayList<>(items.subList(0, limit));
+            SubmissionDTO last = items.get(limit - 1);
+            nextCursor = encodeCursor(last.getSubmittedAt(), last.getId());
+        }
+        return new PageDTO<>(items, nextCursor);
+    }
+
+    /**
+     * Write every matching submission to the stream as NDJSON, oldest first.
+     *
+     * @param programId the program ID, or null
+     * @param formId    the form ID, or null (at least one of the two is required)
+     * @param out       the response stream; not closed
+     * @return the number of submissions written
+     * @throws RejectedExecutionException if the maximum number of exports is
+     *         already running; nothing has been written to the stream
+     */
+    public long export(String programId, String formId, OutputStream out) throws IOException {
+        List<Object> args = new ArrayList<>();
+        String sql = SELECT_COLUMNS + filter(programId, formId, args) + ORDER_BY;
+        if (!exportPermits.tryAcquire()) {
+            throw new RejectedExecutionException("Too many exports in progress");
+        }
+        long start = System.currentTimeMillis();
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Rows are separated by the newline written after each one
+            generator.setRootValueSeparator(null);
+            long[] count = new long[1];
+
+            readOnlyTransaction.executeWithoutResult(status -> cursorJdbcTemplate.query(sql, rs -> {
+                try {
+                    writeRow(generator, rs);
+                    if (++count[0] % FLUSH_EVERY_ROWS == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    // Typically the client went away; stop reading rows
+                    throw new UncheckedIOException(e);
+                }
+            }, args.toArray()));
+
+            generator.flush();
+            log.info("Exported {} submissions for program: {}, form: {} in {} ms",
+                    count[0], programId, formId, System.currentTimeMillis() - start);
+            return count[0];
+
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            exportPermits.release();
+        }
+    }
+
+    private String filter(String programId, String formId, List<Object> args) {
+        boolean hasProgram = programId != null && !programId.isBlank();
+        boolean hasForm = formId != null && !formId.isBlank();
+        if (!hasProgram && !hasForm) {
+            throw new IllegalArgumentException("programId or formId is required");
+        }
+
+        List<String> conditions = new ArrayList<>();
+        if (hasProgram) {
+            conditions.add("program_id = ?");
+            args.add(programId);
+        }
+        if (hasForm) {
+            conditions.add("form_id = ?");
+            args.add(formId);
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    private SubmissionDTO mapRow(ResultSet rs) throws SQLException {
+        SubmissionDTO dto = new SubmissionDTO();
+        dto.setId(rs.getObject("id", UUID.class));
+        dto.setProgramId(rs.getString("program_id"));
+        dto.setFormId(rs.getString("form_id"));
+        dto.setFormType(rs.getString("form_type"));
+        dto.setSubmissionStatus(rs.getString("submission_status"));
+        dto.setSubmittedAt(rs.getObject("submitted_at", LocalDateTime.class));
+        dto.setSubmittedBy(rs.getString("submitted_by"));
+
+        String submissionData = rs.getString("submission_data");
+        if (submissionData != null) {
+            try {
+                dto.setFormData(objectMapper.readTree(submissionData));
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Failed to parse submission data", e);
+            }
+        }
+        return dto;
+    }
+
+    /**
+     * One submission as a JSON object with the same fields as {@link SubmissionDTO},
+     * followed by a newline. The payload is written as stored instead of being parsed.
+     */
+    private void writeRow(JsonGenerator generator, ResultSet rs) throws SQLException, IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", rs.getString("id"));
+        generator.writeStringField("programId", rs.getString("program_id"));
+        generator.writeStringField("formId", rs.getString("form_id"));
+        generator.writeStringField("formType", rs.getString("form_type"));
+        generator.writeFieldName("formData");
+        String submissionData = rs.getString("submission_data");
+        if (submissionData != null) {
+            generator.writeRawValue(submissionData);
+        } else {
+            generator.writeNull();
+        }
+        generator.writeStringField("submissionStatus", rs.getString("submission_status"));
+        generator.writeObjectField("submittedAt", rs.getObject("submitted_at", LocalDateTime.class));
+        generator.writeStringField("submittedBy", rs.getString("submitted_by"));
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private String encodeCursor(LocalDateTime submittedAt, UUID id) {
+        String position = submittedAt + "\n" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Object[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf('\n');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new Object[] {
+                    LocalDateTime.parse(position.substring(0, separator)),
+                    UUID.fromString(position.substring(separator + 1))
+            };
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.cmrservices.enrollment.service;
 
 import com.cmrservices.enrollment.model.dto.SubmissionDTO;
 import com.cmrservices.enrollment.model.entity.FormSubmission;
+import com.cmrservices.enrollment.model.entity.TimeOrderedUuidGenerator;
 import com.cmrservices.enrollment.repository.SubmissionRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -11,10 +12,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Service for managing form submissions.
@@ -26,13 +25,22 @@ public class SubmissionService {
     private static final Logger log = LoggerFactory.getLogger(SubmissionService.class);
 
     private final SubmissionRepository submissionRepository;
+    private final SubmissionIngestService ingestService;
     private final ObjectMapper objectMapper;
 
-    public SubmissionService(SubmissionRepository submissionRepository) {
+    public SubmissionService(SubmissionRepository submissionRepository, SubmissionIngestService ingestService) {
         this.submissionRepository = submissionRepository;
+        this.ingestService = ingestService;
         this.objectMapper = new ObjectMapper();
     }
 
+    /**
+     * Whether POST /submissions should go through the write-behind queue.
+     */
+    public boolean isWriteBehindEnabled() {
+        return ingestService.isEnabled();
+    }
+
     /**
      * Saves a form submission to the database.
      *
@@ -45,18 +53,7 @@ public class SubmissionService {
                 submissionDTO.getProgramId(), submissionDTO.getFormId());
 
         try {
-            // Convert form data to JSON string
-            String jsonData = objectMapper.writeValueAsString(submissionDTO.getFormData());
-
-            // Create entity
-            FormSubmission entity = new FormSubmission();
-            entity.setProgramId(submissionDTO.getProgramId());
-            entity.setFormId(submissionDTO.getFormId());
-            entity.setFormType(submissionDTO.getFormType());
-            entity.setSubmissionData(jsonData);
-            entity.setSubmissionStatus("submitted");
-            entity.setSubmittedAt(LocalDateTime.now());
-            entity.setSubmittedBy(submissionDTO.getSubmittedBy());
+            FormSubmission entity = toEntity(submissionDTO);
 
             // Save to database
             FormSubmission savedEntity = submissionRepository.save(entity);
@@ -75,6 +72,37 @@ public class SubmissionService {
         }
     }
 
+    /**
+     * Accepts a form submission for write-behind insertion. The submission is
+     * given its ID and journaled to local disk; it is inserted with the next
+     * batch.
+     *
+     * @param submissionDTO the submission data
+     * @return the accepted submission with its pre-assigned ID
+     * @throws java.util.concurrent.RejectedExecutionException if the write-behind queue is full
+     */
+    public SubmissionDTO acceptSubmission(SubmissionDTO submissionDTO) {
+        log.info("Accepting form submission for program: {}, form: {}",
+                submissionDTO.getProgramId(), submissionDTO.getFormId());
+
+        FormSubmission entity;
+        try {
+            entity = toEntity(submissionDTO);
+        } catch (JsonProcessingException e) {
+            log.error("Error converting form data to JSON", e);
+            throw new RuntimeException("Failed to process form data", e);
+        }
+        entity.setId(TimeOrderedUuidGenerator.next());
+
+        ingestService.accept(entity);
+        log.info("Accepted submission with ID: {}", entity.getId());
+
+        // The request's form data is already a tree; no need to parse it back
+        return new SubmissionDTO(entity.getId(), entity.getProgramId(), entity.getFormId(),
+                entity.getFormType(), submissionDTO.getFormData(), entity.getSubmissionStatus(),
+                entity.getSubmittedAt(), entity.getSubmittedBy());
+    }
+
     /**
      * Retrieves a submission by ID.
      *
@@ -88,36 +116,35 @@ public class SubmissionService {
             return Optional.empty();
         }
 
+        // Accepted by the write-behind queue but not inserted yet
+        Optional<FormSubmission> queued = ingestService.findQueued(id);
+        if (queued.isPresent()) {
+            return queued.map(this::mapToDTO);
+        }
+
         return submissionRepository.findById(id)
                 .map(this::mapToDTO);
     }
 
     /**
-     * Retrieves all submissions for a specific program.
-     *
-     * @param programId the program ID
-     * @return list of submissions
-     */
-    public List<SubmissionDTO> getSubmissionsByProgramId(String programId) {
-        log.debug("Fetching submissions for program: {}", programId);
-
-        return submissionRepository.findByProgramId(programId).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Retrieves all submissions for a specific form.
+     * Maps a SubmissionDTO to a new FormSubmission entity.
      *
-     * @param formId the form ID
-     * @return list of submissions
+     * @param submissionDTO the submission data
+     * @return the entity, without an ID
      */
-    public List<SubmissionDTO> getSubmissionsByFormId(String formId) {
-        log.debug("Fetching submissions for form: {}", formId);
-
-        return submissionRepository.findByFormId(formId).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+    FormSubmission toEntity(SubmissionDTO submissionDTO) throws JsonProcessingException {
+        // Convert form data to JSON string
+        String jsonData = objectMapper.writeValueAsString(submissionDTO.getFormData());
+
+        FormSubmission entity = new FormSubmission();
+        entity.setProgramId(submissionDTO.getProgramId());
+        entity.setFormId(submissionDTO.getFormId());
+        entity.setFormType(submissionDTO.getFormType());
+        entity.setSubmissionData(jsonData);
+        entity.setSubmissionStatus("submitted");
+        entity.setSubmittedAt(LocalDateTime.now());
+        entity.setSubmittedBy(submissionDTO.getSubmittedBy());
+        return entity;
     }
 
     /**
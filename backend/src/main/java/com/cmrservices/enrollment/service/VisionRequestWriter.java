@@ -0,0 +1,196 @@
+package com.cmrservices.enrollment.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes Anthropic and Gemini vision request bodies as a stream of DataBuffers.
+ * A single Jackson streaming generator writes the whole document; its output is
+ * cut into one DataBuffer per page, and image bytes are base64-encoded straight
+ * into that buffer. Peak memory per request is roughly one encoded page rather
+ * than the raw bytes, base64 strings, Map tree and serialized body combined.
+ */
+@Component
+public class VisionRequestWriter {
+
+    // Base64 grows data by 4/3; leave room for the surrounding JSON
+    private static final int SEGMENT_OVERHEAD = 256;
+
+    private final JsonFactory jsonFactory;
+    private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    public VisionRequestWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Anthropic Messages API body: one user message with the prompt followed by
+     * one base64 image block per page. With {@code stream} set the response
+     * comes back as server-sent events.
+     */
+    public Flux<DataBuffer> writeClaudeRequest(String model, int maxTokens, boolean stream, String prompt,
+            Flux<RenderedPage> pages) {
+        return write(pages,
+                generator -> {
+                    generator.writeStartObject();
+                    generator.writeStringField("model", model);
+                    generator.writeNumberField("max_tokens", maxTokens);
+                    if (stream) {
+                        generator.writeBooleanField("stream", true);
+                    }
+                    generator.writeArrayFieldStart("messages");
+                    generator.writeStartObject();
+                    generator.writeStringField("role", "user");
+                    generator.writeArrayFieldStart("content");
+                    generator.writeStartObject();
+                    generator.writeStringField("type", "text");
+                    generator.writeStringField("text", prompt);
+                    generator.writeEndObject();
+                },
+                (generator, page) -> {
+                    generator.writeStartObject();
+                    generator.writeStringField("type", "image");
+                    generator.writeObjectFieldStart("source");
+                    generator.writeStringField("type", "base64");
+                    generator.writeStringField("media_type", page.getMediaType());
+                    generator.writeFieldName("data");
+                    generator.writeBinary(page.getData());
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                },
+                generator -> {
+                    generator.writeEndArray(); // content
+                    generator.writeEndObject(); // message
+                    generator.writeEndArray(); // messages
+                    generator.writeEndObject();
+                });
+    }
+
+    /**
+     * Gemini generateContent body: one content entry with the prompt part
+     * followed by one inlineData part per page.
+     */
+    public Flux<DataBuffer> writeGeminiRequest(String prompt, Flux<RenderedPage> pages) {
+        return write(pages,
+                generator -> {
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("contents");
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("parts");
+                    generator.writeStartObject();
+                    generator.writeStringField("text", prompt);
+                    generator.writeEndObject();
+                },
+                (generator, page) -> {
+                    generator.writeStartObject();
+                    generator.writeObjectFieldStart("inlineData");
+                    generator.writeStringField("mimeType", page.getMediaType());
+                    generator.writeFieldName("data");
+                    generator.writeBinary(page.getData());
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                },
+                generator -> {
+                    generator.writeEndArray(); // parts
+                    generator.writeEndObject(); // content
+                    generator.writeEndArray(); // contents
+                    generator.writeEndObject();
+                });
+    }
+
+    private Flux<DataBuffer> write(Flux<RenderedPage> pages, BodyStep prefix, PageStep pageStep, BodyStep suffix) {
+        return Flux.defer(() -> {
+            StreamingJsonBody body = new StreamingJsonBody();
+            return Flux.concat(
+                    Mono.fromCallable(() -> body.segment(prefix, SEGMENT_OVERHEAD * 64)),
+                    pages.map(page -> body.segment(
+                            generator -> pageStep.write(generator, page),
+                            page.getData().length / 3 * 4 + SEGMENT_OVERHEAD)),
+                    Mono.fromCallable(() -> body.segment(suffix, SEGMENT_OVERHEAD)))
+                    .doFinally(signal -> body.release())
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    @FunctionalInterface
+    private interface BodyStep {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface PageStep {
+        void write(JsonGenerator generator, RenderedPage page) throws IOException;
+    }
+
+    /**
+     * Output stream that redirects generator output into the DataBuffer of the
+     * segment currently being written.
+     */
+    private final class StreamingJsonBody extends OutputStream {
+
+        private final JsonGenerator generator;
+        private DataBuffer current;
+
+        private StreamingJsonBody() {
+            try {
+                this.generator = jsonFactory.createGenerator(this)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private DataBuffer segment(BodyStep step, int capacityHint) {
+            current = bufferFactory.allocateBuffer(capacityHint);
+            try {
+                step.write(generator);
+                generator.flush();
+                return current;
+            } catch (IOException e) {
+                DataBufferUtils.release(current);
+                throw new UncheckedIOException(e);
+            } finally {
+                current = null;
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            if (current != null) {
+                current.write((byte) b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (current != null) {
+                current.write(bytes, offset, length);
+            }
+        }
+
+        /**
+         * Release the generator once the body completes, errors or is cancelled.
+         * Output outside a segment has nowhere to go and is dropped.
+         */
+        private void release() {
+            try {
+                generator.close();
+            } catch (IOException e) {
+                // Nothing left to flush to
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.cmrservices.enrollment.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RefreshAheadCacheManagerTest {
+
+    private final MockEnvironment environment = new MockEnvironment();
+    private RefreshAheadCacheManager cacheManager;
+
+    @AfterEach
+    void tearDown() {
+        if (cacheManager != null) {
+            cacheManager.destroy();
+        }
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        cacheManager = new RefreshAheadCacheManager(environment, new ObjectMapper(), 1);
+        Cache cache = cacheManager.getCache("programs");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] results = new Future<?>[4];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = callers.submit(() -> cache.get("key", () -> {
+                    loads.incrementAndGet();
+                    release.await();
+                    return "value";
+                }));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<?> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void nullValuesAreCached() {
+        cacheManager = new RefreshAheadCacheManager(environment, new ObjectMapper(), 1);
+        Cache cache = cacheManager.getCache("programs");
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat((Object) cache.get("missing", () -> {
+            loads.incrementAndGet();
+            return null;
+        })).isNull();
+        assertThat((Object) cache.get("missing", () -> {
+            loads.incrementAndGet();
+            return "loaded again";
+        })).isNull();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void staleHitIsServedWhileRefreshingInBackground() throws Exception {
+        environment.setProperty("caching.caches.programs.refresh-after-seconds", "0");
+        cacheManager = new RefreshAheadCacheManager(environment, new ObjectMapper(), 1);
+        Cache cache = cacheManager.getCache("programs");
+        cache.put("key", "old");
+        Thread.sleep(5);
+
+        CountDownLatch refreshed = new CountDownLatch(1);
+        String served = cache.get("key", () -> {
+            refreshed.countDown();
+            return "new";
+        });
+
+        assertThat(served).isEqualTo("old");
+        assertThat(refreshed.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 50 && !"new".equals(cache.get("key", String.class)); i++) {
+            Thread.sleep(20);
+        }
+        assertThat(cache.get("key", String.class)).isEqualTo("new");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void statsReportWeightedSize() {
+        environment.setProperty("caching.defaults.max-size-mb", "1");
+        cacheManager = new RefreshAheadCacheManager(environment, new ObjectMapper(), 1);
+        Cache cache = cacheManager.getCache("programs");
+        cache.put("a", "x".repeat(1000));
+        cache.get("a");
+        cache.get("b");
+        // Caffeine updates the weighted size during its asynchronous maintenance
+        ((com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache()).cleanUp();
+
+        Map<String, Object> stats = (Map<String, Object>) cacheManager.getStats().get("programs");
+
+        assertThat(stats.get("entries")).isEqualTo(1L);
+        assertThat((Long) stats.get("sizeBytes")).isGreaterThanOrEqualTo(1000L);
+        assertThat(stats.get("maxSizeBytes")).isEqualTo(1024L * 1024);
+        assertThat(stats.get("hits")).isEqualTo(1L);
+        assertThat(stats.get("misses")).isEqualTo(1L);
+    }
+}
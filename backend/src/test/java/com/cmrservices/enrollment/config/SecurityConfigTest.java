@@ -0,0 +1,90 @@
+package com.cmrservices.enrollment.config;
+
+import com.cmrservices.enrollment.controller.HealthCheckController;
+import com.cmrservices.enrollment.service.ContentfulReplicaService;
+import com.cmrservices.enrollment.service.ContentfulService;
+import com.cmrservices.enrollment.service.ContentfulWebhookService;
+import com.cmrservices.enrollment.service.FormSchemaRepresentations;
+import com.cmrservices.enrollment.service.PageImageCache;
+import com.cmrservices.enrollment.service.PageImageEncoder;
+import com.cmrservices.enrollment.service.ProviderStats;
+import com.cmrservices.enrollment.service.SchemaCacheService;
+import com.cmrservices.enrollment.service.SubmissionBatchWriter;
+import com.cmrservices.enrollment.service.SubmissionIngestService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(HealthCheckController.class)
+@Import(SecurityConfig.class)
+@TestPropertySource(properties = {"security.user.name=demo", "security.user.password=demo123"})
+class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private JdbcTemplate jdbcTemplate;
+    @MockBean
+    private ContentfulService contentfulService;
+    @MockBean
+    private SchemaCacheService schemaCacheService;
+    @MockBean
+    private PageImageCache pageImageCache;
+    @MockBean
+    private PageImageEncoder pageImageEncoder;
+    @MockBean
+    private ProviderStats providerStats;
+    @MockBean
+    private OutboundHttpClients outboundHttpClients;
+    @MockBean(name = "cacheManager")
+    private RefreshAheadCacheManager cacheManager;
+    @MockBean
+    private ContentfulReplicaService contentfulReplicaService;
+    @MockBean
+    private ContentfulWebhookService contentfulWebhookService;
+    @MockBean
+    private FormSchemaRepresentations formSchemaRepresentations;
+    @MockBean
+    private SubmissionIngestService submissionIngestService;
+    @MockBean
+    private SubmissionBatchWriter submissionBatchWriter;
+
+    @Test
+    void healthChecksArePublic() throws Exception {
+        mockMvc.perform(get("/health")).andExpect(status().isOk());
+        for (String path : new String[] {"/health/database", "/health/contentful", "/health/full"}) {
+            // Reaches the controller; the check itself may report DOWN against the mocks
+            int status = mockMvc.perform(get(path)).andReturn().getResponse().getStatus();
+            assertThat(status).as(path).isIn(200, 503);
+        }
+    }
+
+    @Test
+    void metricsRequireAuthentication() throws Exception {
+        // Form login sends unauthenticated requests to the login page
+        mockMvc.perform(get("/health/metrics")).andExpect(status().isFound());
+    }
+
+    @Test
+    void metricsAreServedToALoggedInUser() throws Exception {
+        MvcResult login = mockMvc.perform(post("/auth/login").param("username", "demo").param("password", "demo123"))
+                .andExpect(status().isOk())
+                .andReturn();
+        MockHttpSession session = (MockHttpSession) login.getRequest().getSession(false);
+
+        mockMvc.perform(get("/health/metrics").session(session)).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,111 @@
+package com.cmrservices.enrollment.controller;
+
+import com.cmrservices.enrollment.model.dto.FormSchemaDTO;
+import com.cmrservices.enrollment.service.ContentfulService;
+import com.cmrservices.enrollment.service.FormSchemaRepresentations;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FormControllerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ContentfulService contentfulService = mock(ContentfulService.class);
+    private final FormController controller =
+            new FormController(contentfulService, new FormSchemaRepresentations(objectMapper));
+
+    @Test
+    void acceptsGzipListedExplicitlyOrViaWildcard() {
+        assertThat(FormController.acceptsGzip("gzip")).isTrue();
+        assertThat(FormController.acceptsGzip("br, GZIP;q=0.5")).isTrue();
+        assertThat(FormController.acceptsGzip("deflate, *")).isTrue();
+        assertThat(FormController.acceptsGzip("gzip; Q=1")).isTrue();
+    }
+
+    @Test
+    void rejectsGzipThatIsMissingOrRefused() {
+        assertThat(FormController.acceptsGzip(null)).isFalse();
+        assertThat(FormController.acceptsGzip("br, deflate")).isFalse();
+        assertThat(FormController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(FormController.acceptsGzip("gzip;q=0.000")).isFalse();
+        assertThat(FormController.acceptsGzip("*;q=0")).isFalse();
+        assertThat(FormController.acceptsGzip("gzip;q=abc")).isFalse();
+    }
+
+    @Test
+    void explicitGzipOverridesTheWildcard() {
+        assertThat(FormController.acceptsGzip("*;q=0, gzip")).isTrue();
+        assertThat(FormController.acceptsGzip("gzip;q=0, *")).isFalse();
+    }
+
+    @Test
+    void servesGzipWithItsOwnEtag() throws IOException {
+        schema();
+
+        ResponseEntity<byte[]> plain = controller.getFormSchema("form-1", null, null);
+        ResponseEntity<byte[]> gzipped = controller.getFormSchema("form-1", null, "gzip, deflate");
+
+        assertThat(plain.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(objectMapper.readValue(plain.getBody(), FormSchemaDTO.class).getFormId()).isEqualTo("form-1");
+
+        assertThat(gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzipped.getHeaders().getETag()).isNotEqualTo(plain.getHeaders().getETag());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody()))) {
+            assertThat(in.readAllBytes()).isEqualTo(plain.getBody());
+        }
+        assertThat(gzipped.getHeaders().getVary()).contains(HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    @Test
+    void matchingIfNoneMatchGetsNotModifiedWithoutABody() {
+        schema();
+        String etag = controller.getFormSchema("form-1", null, null).getHeaders().getETag();
+        String gzipEtag = controller.getFormSchema("form-1", null, "gzip").getHeaders().getETag();
+
+        ResponseEntity<byte[]> notModified = controller.getFormSchema("form-1", "\"other\", " + etag, null);
+        // A cached gzip ETag still validates when the client asks for identity, and vice versa
+        ResponseEntity<byte[]> crossEncoding = controller.getFormSchema("form-1", "W/" + gzipEtag, null);
+
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getBody()).isNull();
+        assertThat(notModified.getHeaders().getETag()).isEqualTo(etag);
+        assertThat(crossEncoding.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(crossEncoding.getHeaders().getETag()).isEqualTo(etag);
+    }
+
+    @Test
+    void staleIfNoneMatchGetsTheBody() {
+        schema();
+
+        ResponseEntity<byte[]> response = controller.getFormSchema("form-1", "\"1.0-000000000000000000000000\"", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotEmpty();
+    }
+
+    @Test
+    void unknownFormIsNotFound() {
+        when(contentfulService.getFormSchema("missing")).thenReturn(Optional.empty());
+
+        assertThat(controller.getFormSchema("missing", null, "gzip").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private FormSchemaDTO schema() {
+        FormSchemaDTO schema = new FormSchemaDTO("form-1", "1.0",
+                objectMapper.createObjectNode().put("type", "object"));
+        when(contentfulService.getFormSchema("form-1")).thenReturn(Optional.of(schema));
+        return schema;
+    }
+}
@@ -0,0 +1,285 @@
+package com.cmrservices.enrollment.controller;
+
+import com.cmrservices.enrollment.service.PostgresTestDatabase;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.CookieManager;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Load benchmark for POST /idp/analyze-pdf with the Claude API replaced by a
+ * local stub that answers after a fixed delay, so the numbers show how many
+ * concurrent analyses the server sustains rather than how fast Claude is.
+ * Schema and page caches are off, so every request renders its PDF and calls
+ * the stub. Not part of mvn test; compare the two execution modes with
+ *
+ * <pre>
+ * mvn -Pbenchmark verify -Dit.test=IdpAnalyzePdfBenchmark
+ * mvn -Pbenchmark,java21 verify -Dit.test=IdpAnalyzePdfBenchmark -Dspring.profiles.active=virtual-threads
+ * </pre>
+ *
+ * System properties: {@code benchmark.concurrency} (comma-separated levels,
+ * default 16,64,256), {@code benchmark.requests-per-client} (default 4) and
+ * {@code benchmark.provider-latency-ms} (default 2000). The database is
+ * {@link PostgresTestDatabase}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "idp.schema-cache.enabled=false",
+        "pdf.page-cache.enabled=false",
+        "contentful.replica.enabled=false",
+        "contentful.space-id=benchmark",
+        "contentful.access-token=benchmark",
+        "contentful.management-token=benchmark",
+        "claude.api-key=benchmark",
+        "google.ai.api-key=benchmark",
+        "logo.api-key=benchmark",
+        "screenshotone.api-key=benchmark",
+        "outbound-http.pools.claude.max-connections=1024",
+        "outbound-http.pools.claude.pending-acquire-max-count=4096",
+        "outbound-http.pools.claude.http2=false",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.cmrservices.enrollment=WARN",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"
+})
+class IdpAnalyzePdfBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(IdpAnalyzePdfBenchmark.class);
+
+    private static final String BOUNDARY = "benchmark-boundary";
+    private static final String SCHEMA = "{\"type\":\"object\",\"properties\":{\"name\":{\"type\":\"string\"}},"
+            + "\"required\":[\"name\"],\"x-form-config\":{\"pages\":[{\"pageId\":\"page-1\",\"sections\":"
+            + "[{\"title\":\"Patient\",\"layout\":[{\"columns\":[{\"fields\":[\"name\"]}]}]}]}]}}";
+
+    private static final StubClaudeServer claude =
+            new StubClaudeServer(Long.getLong("benchmark.provider-latency-ms", 2000));
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private Environment environment;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.dataSource();
+        registry.add("spring.datasource.url", PostgresTestDatabase::url);
+        registry.add("spring.datasource.username", PostgresTestDatabase::username);
+        registry.add("spring.datasource.password", PostgresTestDatabase::password);
+        registry.add("claude.api-url", claude::url);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        claude.stop();
+    }
+
+    @Test
+    void analyzePdfUnderConcurrentLoad() throws Exception {
+        boolean virtualThreads = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        assumeTrue(!virtualThreads || Runtime.version().feature() >= 21,
+                "The virtual-threads profile needs Java 21 (build with -Pjava21)");
+
+        HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .executor(Executors.newCachedThreadPool())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        login(client);
+        byte[] body = multipartBody(pdf(2));
+
+        int requestsPerClient = Integer.getInteger("benchmark.requests-per-client", 4);
+        List<String> report = new ArrayList<>();
+        report.add(String.format("POST /idp/analyze-pdf, Java %s, %s threads, stub provider latency %d ms",
+                Runtime.version(), virtualThreads ? "virtual" : "platform", claude.latencyMs));
+        report.add(String.format("%11s %9s %7s %9s %9s %9s %9s",
+                "concurrency", "requests", "errors", "req/s", "p50 ms", "p95 ms", "max ms"));
+
+        // One untimed round so class loading and connection setup are not measured
+        runRound(client, body, 4, 1);
+        for (String level : System.getProperty("benchmark.concurrency", "16,64,256").split(",")) {
+            int concurrency = Integer.parseInt(level.trim());
+            Round round = runRound(client, body, concurrency, requestsPerClient);
+            report.add(String.format("%11d %9d %7d %9.1f %9d %9d %9d",
+                    concurrency, round.latenciesMs.length, round.errors, round.throughput(),
+                    round.percentile(50), round.percentile(95), round.percentile(100)));
+            assertThat(round.errors).as("failed requests at concurrency %d", concurrency).isZero();
+        }
+        log.warn("Benchmark results\n{}", String.join("\n", report));
+    }
+
+    private Round runRound(HttpClient client, byte[] body, int concurrency, int requestsPerClient) {
+        int total = concurrency * requestsPerClient;
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicInteger errors = new AtomicInteger();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<?>> requests = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            inFlight.acquireUninterruptibly();
+            long sent = System.nanoTime();
+            requests.add(client.sendAsync(analyzeRequest(body), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        latencies.add((System.nanoTime() - sent) / 1_000_000);
+                        if (error != null || response.statusCode() != 200 || !response.body().contains("\"schema\"")) {
+                            errors.incrementAndGet();
+                        }
+                        inFlight.release();
+                    }));
+        }
+        CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new Round(sorted, errors.get(), elapsedMs);
+    }
+
+    private HttpRequest analyzeRequest(byte[] body) {
+        return HttpRequest.newBuilder(uri("/idp/analyze-pdf"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .timeout(Duration.ofMinutes(5))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private void login(HttpClient client) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/auth/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("username=demo&password=demo123"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).as("login").isEqualTo(200);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + "/api" + path);
+    }
+
+    private static byte[] multipartBody(byte[] pdf) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"benchmark.pdf\"\r\n"
+                + "Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(pdf);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    private static byte[] pdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage(PDRectangle.LETTER));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private record Round(long[] latenciesMs, int errors, long elapsedMs) {
+
+        double throughput() {
+            return latenciesMs.length * 1000.0 / Math.max(1, elapsedMs);
+        }
+
+        long percentile(int percentile) {
+            if (latenciesMs.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * latenciesMs.length) - 1;
+            return latenciesMs[Math.max(0, index)];
+        }
+    }
+
+    /**
+     * Minimal Messages API stand-in: reads the request body, waits, then
+     * streams one text delta carrying a valid schema.
+     */
+    private static final class StubClaudeServer {
+
+        private final long latencyMs;
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+
+        private StubClaudeServer(long latencyMs) {
+            this.latencyMs = latencyMs;
+            try {
+                server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            server.createContext("/v1/messages", this::handle);
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        private String url() {
+            return "http://localhost:" + server.getAddress().getPort() + "/v1/messages";
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            String text = SCHEMA.replace("\\", "\\\\").replace("\"", "\\\"");
+            String events = "event: message_start\ndata: {\"type\":\"message_start\"}\n\n"
+                    + "event: content_block_delta\ndata: {\"type\":\"content_block_delta\",\"index\":0,"
+                    + "\"delta\":{\"type\":\"text_delta\",\"text\":\"" + text + "\"}}\n\n"
+                    + "event: message_delta\ndata: {\"type\":\"message_delta\",\"delta\":{\"stop_reason\":\"end_turn\"}}\n\n"
+                    + "event: message_stop\ndata: {\"type\":\"message_stop\"}\n\n";
+            byte[] bytes = events.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        private void stop() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.cmrservices.enrollment.controller;
+
+import com.cmrservices.enrollment.model.dto.ProgramDTO;
+import com.cmrservices.enrollment.service.ContentfulEntryMapper;
+import com.cmrservices.enrollment.service.ContentfulManagementService;
+import com.cmrservices.enrollment.service.ContentfulReplicaService;
+import com.cmrservices.enrollment.service.ContentfulService;
+import com.contentful.java.cda.CDAClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ProgramControllerTest {
+
+    private final ContentfulReplicaService replicaService = mock(ContentfulReplicaService.class);
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new ProgramController(
+                    new ContentfulService(mock(CDAClient.class), new ConcurrentMapCacheManager(),
+                            new ContentfulEntryMapper(), replicaService),
+                    mock(ContentfulManagementService.class)))
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    @Test
+    void pagesCarryANextCursorUntilTheLastPage() throws Exception {
+        replicaReady();
+
+        mockMvc.perform(get("/programs").param("view", "summary").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].programId").value("p1"))
+                .andExpect(jsonPath("$.nextCursor").isString());
+        mockMvc.perform(get("/programs").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void invalidCursorIsABadRequest() throws Exception {
+        replicaReady();
+
+        mockMvc.perform(get("/programs").param("cursor", "not a cursor!"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor: not a cursor!"));
+        mockMvc.perform(get("/programs").param("view", "summary").param("cursor", "YWxwaGE"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void limitOutOfRangeIsABadRequest() throws Exception {
+        mockMvc.perform(get("/programs").param("limit", "0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/programs").param("limit", "201")).andExpect(status().isBadRequest());
+    }
+
+    private void replicaReady() {
+        ProgramDTO alpha = new ProgramDTO();
+        alpha.setProgramId("p1");
+        alpha.setDisplayName("Alpha");
+        alpha.setIsActive(true);
+        ProgramDTO beta = new ProgramDTO(alpha);
+        beta.setProgramId("p2");
+        beta.setDisplayName("Beta");
+        when(replicaService.isReady()).thenReturn(true);
+        when(replicaService.getActiveProgramsByName()).thenReturn(List.of(alpha, beta));
+    }
+}
@@ -0,0 +1,52 @@
+package com.cmrservices.enrollment.model.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedUuidGeneratorTest {
+
+    @Test
+    void setsVersion7AndTheRfcVariant() {
+        for (int i = 0; i < 1000; i++) {
+            UUID id = TimeOrderedUuidGenerator.next();
+            assertThat(id.version()).isEqualTo(7);
+            assertThat(id.variant()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void embedsTheCurrentUnixTimeInMilliseconds() {
+        long before = System.currentTimeMillis();
+        UUID id = TimeOrderedUuidGenerator.next();
+        long after = System.currentTimeMillis();
+
+        long timestamp = id.getMostSignificantBits() >>> 16;
+        // The counter may push the timestamp a little past the clock
+        assertThat(timestamp).isBetween(before, after + 1000);
+    }
+
+    @Test
+    void idsIncreaseStrictlyWithinOneMillisecond() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(TimeOrderedUuidGenerator.next());
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            UUID previous = ids.get(i - 1);
+            UUID current = ids.get(i);
+            // Compare as unsigned, the order PostgreSQL uses for uuid columns
+            assertThat(Long.compareUnsigned(current.getMostSignificantBits(), previous.getMostSignificantBits()))
+                    .as("id %d follows id %d", i, i - 1)
+                    .isPositive();
+        }
+        // 10,000 ids are generated in far fewer milliseconds, so most share a timestamp
+        long distinctTimestamps = ids.stream().map(id -> id.getMostSignificantBits() >>> 16).distinct().count();
+        assertThat(distinctTimestamps).isLessThan(ids.size());
+    }
+}
@@ -0,0 +1,164 @@
+package com.cmrservices.enrollment.repository;
+
+import com.cmrservices.enrollment.model.entity.FormSubmission;
+import com.cmrservices.enrollment.service.PostgresTestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link SubmissionRepository#saveAll} with the application's Hibernate
+ * settings against PostgreSQL: ids come from the in-process generator, so
+ * the inserts go out as JDBC batches of hibernate.jdbc.batch_size rows
+ * rather than one statement per row. Run with mvn -Pintegration verify.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SubmissionRepositoryBatchingIT {
+
+    private static final StatementCounts counts = new StatementCounts();
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.dataSource();
+        registry.add("spring.datasource.url", PostgresTestDatabase::url);
+        registry.add("spring.datasource.username", PostgresTestDatabase::username);
+        registry.add("spring.datasource.password", PostgresTestDatabase::password);
+    }
+
+    @BeforeEach
+    void setUp() {
+        PostgresTestDatabase.truncate();
+        counts.reset();
+    }
+
+    @Test
+    void saveAllInsertsInJdbcBatches() {
+        // 120 rows at the configured batch size of 50: batches of 50, 50 and 20
+        List<FormSubmission> submissions = submissions(120);
+
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> submissionRepository.saveAll(submissions));
+
+        assertThat(submissionRepository.count()).isEqualTo(120);
+        assertThat(counts.addBatch.get()).as("rows added to a batch").isEqualTo(120);
+        assertThat(counts.executeBatch.get()).as("batches sent").isEqualTo(3);
+        assertThat(counts.executeUpdate.get()).as("single-row inserts").isZero();
+    }
+
+    private static List<FormSubmission> submissions(int count) {
+        List<FormSubmission> submissions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // No id: the generator assigns one, so saveAll persists instead of merging
+            FormSubmission submission = new FormSubmission();
+            submission.setProgramId("program-1");
+            submission.setFormId("form-1");
+            submission.setFormType("enrollment");
+            submission.setSubmissionData("{\"index\": " + i + "}");
+            submission.setSubmittedAt(LocalDateTime.of(2024, 7, 1, 9, 30));
+            submissions.add(submission);
+        }
+        return submissions;
+    }
+
+    /**
+     * Counts what the connection pool's prepared statements are asked to do.
+     */
+    private static final class StatementCounts {
+
+        private final AtomicInteger addBatch = new AtomicInteger();
+        private final AtomicInteger executeBatch = new AtomicInteger();
+        private final AtomicInteger executeUpdate = new AtomicInteger();
+
+        private void reset() {
+            addBatch.set(0);
+            executeBatch.set(0);
+            executeUpdate.set(0);
+        }
+
+        private DataSource wrap(DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (method, result) ->
+                    result instanceof Connection connection ? wrap(connection) : result);
+        }
+
+        private Connection wrap(Connection connection) {
+            return proxy(Connection.class, connection, (method, result) ->
+                    method.getName().equals("prepareStatement") ? wrap((PreparedStatement) result) : result);
+        }
+
+        private PreparedStatement wrap(PreparedStatement statement) {
+            return proxy(PreparedStatement.class, statement, (method, result) -> {
+                switch (method.getName()) {
+                    case "addBatch" -> addBatch.incrementAndGet();
+                    case "executeBatch", "executeLargeBatch" -> executeBatch.incrementAndGet();
+                    case "executeUpdate", "executeLargeUpdate", "execute" -> executeUpdate.incrementAndGet();
+                    default -> { }
+                }
+                return result;
+            });
+        }
+
+        private static <T> T proxy(Class<T> type, T target, ResultWrapper wrapper) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                    (proxy, method, args) -> {
+                        try {
+                            return wrapper.wrap(method, method.invoke(target, args));
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }));
+        }
+    }
+
+    private interface ResultWrapper {
+        Object wrap(Method method, Object result);
+    }
+
+    @TestConfiguration
+    static class CountingDataSource {
+
+        @Bean
+        static BeanPostProcessor countingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? counts.wrap(dataSource) : bean;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.config.ContentfulConfig;
+import com.contentful.java.cma.CMAClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Publish latency of {@link ContentfulManagementService#createFormSchema}
+ * (create, then publish) against a local stand-in for the management API:
+ * <ul>
+ *   <li>cold: a new CMAClient per publish, with its own OkHttp stack, as
+ *       before the clients were singletons</li>
+ *   <li>warm: the singleton client from {@link ContentfulConfig}, on the
+ *       shared connection pool</li>
+ * </ul>
+ * The stub speaks plain HTTP, so the cold numbers leave out the TLS handshake
+ * a real api.contentful.com connection also pays. Not part of mvn test; run with
+ *
+ * <pre>
+ * mvn -Pbenchmark verify -Dit.test=ContentfulPublishBenchmark
+ * </pre>
+ *
+ * System properties: {@code benchmark.publishes} (default 200) and
+ * {@code benchmark.cma-latency-ms} (delay per stub response, default 0).
+ */
+@SpringBootTest(classes = {ContentfulConfig.class, ContentfulManagementService.class, JacksonAutoConfiguration.class},
+        properties = {
+                "contentful.space-id=benchmark",
+                "contentful.access-token=benchmark",
+                "contentful.management-token=benchmark",
+                "contentful.environment=master"
+        })
+class ContentfulPublishBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentfulPublishBenchmark.class);
+
+    private static final String SCHEMA = "{\"type\":\"object\",\"properties\":{\"name\":{\"type\":\"string\"}}}";
+
+    static {
+        // The JDK server otherwise leaves Nagle on, adding a delayed-ACK wait to every keep-alive response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static final StubManagementServer cma =
+            new StubManagementServer(Long.getLong("benchmark.cma-latency-ms", 0));
+
+    @Autowired
+    private ContentfulManagementService warmService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private ContentfulReplicaService replicaService;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("contentful.management-endpoint", cma::url);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        cma.stop();
+    }
+
+    @Test
+    void coldVersusWarmPublish() {
+        int publishes = Integer.getInteger("benchmark.publishes", 200);
+        Supplier<ContentfulManagementService> coldService = () -> {
+            CMAClient client = new CMAClient.Builder()
+                    .setAccessToken("benchmark")
+                    .setCoreEndpoint(cma.url())
+                    .build();
+            ContentfulManagementService service =
+                    new ContentfulManagementService(objectMapper, client, replicaService);
+            ReflectionTestUtils.setField(service, "spaceId", "benchmark");
+            ReflectionTestUtils.setField(service, "environment", "master");
+            return service;
+        };
+
+        // One untimed round per path so class loading is not measured
+        time(coldService, 5);
+        time(() -> warmService, 5);
+
+        int requestsBefore = cma.requests.get();
+        long[] cold = time(coldService, publishes);
+        long[] warm = time(() -> warmService, publishes);
+        assertThat(cma.requests.get() - requestsBefore).as("stub requests").isEqualTo(4 * publishes);
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("createFormSchema (create + publish), Java %s, %d publishes, stub latency %d ms",
+                Runtime.version(), publishes, cma.latencyMs));
+        report.add(String.format("%6s %9s %9s %9s %9s", "client", "mean ms", "p50 ms", "p95 ms", "max ms"));
+        report.add(row("cold", cold));
+        report.add(row("warm", warm));
+        log.warn("Benchmark results\n{}", String.join("\n", report));
+    }
+
+    /**
+     * Publish {@code count} times, asking the supplier for the service each
+     * time, and return the sorted latencies in microseconds.
+     */
+    private long[] time(Supplier<ContentfulManagementService> service, int count) {
+        long[] elapsedMicros = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            String entryId = service.get().createFormSchema("benchmark-form", "1.0", SCHEMA);
+            elapsedMicros[i] = (System.nanoTime() - start) / 1_000;
+            assertThat(entryId).isNotBlank();
+        }
+        Arrays.sort(elapsedMicros);
+        return elapsedMicros;
+    }
+
+    private static String row(String client, long[] elapsedMicros) {
+        double mean = Arrays.stream(elapsedMicros).average().orElse(0) / 1000.0;
+        return String.format("%6s %9.2f %9.2f %9.2f %9.2f", client, mean,
+                percentile(elapsedMicros, 50) / 1000.0, percentile(elapsedMicros, 95) / 1000.0,
+                elapsedMicros[elapsedMicros.length - 1] / 1000.0);
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    /**
+     * Minimal management API stand-in: entry creation returns a draft at
+     * version 1 and publishing returns it at version 2.
+     */
+    private static final class StubManagementServer {
+
+        private final long latencyMs;
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger entryIds = new AtomicInteger();
+
+        private StubManagementServer(long latencyMs) {
+            this.latencyMs = latencyMs;
+            try {
+                server = HttpServer.create(new InetSocketAddress("localhost", 0), 256);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            server.createContext("/spaces/", this::handle);
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        private String url() {
+            return "http://localhost:" + server.getAddress().getPort() + "/";
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            try (InputStream in = exchange.getRequestBody()) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            if (latencyMs > 0) {
+                try {
+                    Thread.sleep(latencyMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            String entry;
+            int status;
+            if ("POST".equals(method) && path.endsWith("/entries")) {
+                entry = entry("entry-" + entryIds.incrementAndGet(), 1);
+                status = 201;
+            } else if ("PUT".equals(method) && path.endsWith("/published")) {
+                String[] segments = path.split("/");
+                entry = entry(segments[segments.length - 2], 2);
+                status = 200;
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/vnd.contentful.management.v1+json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        private static String entry(String id, int version) {
+            return """
+                    {"sys": {"id": "%s", "type": "Entry", "version": %d,
+                      "space": {"sys": {"type": "Link", "linkType": "Space", "id": "benchmark"}},
+                      "environment": {"sys": {"type": "Link", "linkType": "Environment", "id": "master"}},
+                      "contentType": {"sys": {"type": "Link", "linkType": "ContentType", "id": "enrollmentFormSchema"}}},
+                     "fields": {}}
+                    """.formatted(id, version);
+        }
+
+        private void stop() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.FormSchemaDTO;
+import com.cmrservices.enrollment.model.dto.ProgramDTO;
+import com.contentful.java.cda.CDAClient;
+import com.contentful.java.cda.CDAEntry;
+import com.contentful.java.cda.CDAHttpException;
+import com.contentful.java.cda.CDAResource;
+import com.contentful.java.cda.SyncQuery;
+import com.contentful.java.cda.SynchronizedSpace;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ContentfulReplicaServiceTest {
+
+    private static final String TOKEN_1 = "token-1";
+    private static final String TOKEN_2 = "token-2";
+
+    private final CDAClient client = mock(CDAClient.class);
+    private final ContentfulEntryMapper entryMapper = mock(ContentfulEntryMapper.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager();
+
+    @TempDir
+    Path replicaDir;
+
+    private ContentfulReplicaService replicaService;
+
+    @BeforeEach
+    void setUp() {
+        replicaService = newReplicaService();
+    }
+
+    @Test
+    void initialSyncBuildsTheReplicaAndResolvesLinks() {
+        initialSync(program("P1", "p1", "Beta", "F1"), program("P2", "p2", "Alpha", null),
+                inactiveProgram("P3", "p3"), formSchema("F1", "form-1", "1"));
+
+        assertThat(replicaService.isReady()).isTrue();
+        assertThat(replicaService.findProgram("p1")).get()
+                .extracting(ProgramDTO::getFormSchemaId).isEqualTo("form-1");
+        assertThat(replicaService.findFormSchema("form-1")).isPresent();
+        assertThat(replicaService.getActivePrograms()).extracting(ProgramDTO::getProgramId)
+                .containsExactly("p1", "p2");
+        assertThat(replicaService.getActiveProgramsByName()).extracting(ProgramDTO::getProgramId)
+                .containsExactly("p2", "p1");
+        assertThat(replicaService.findProgramIdByEntryId("P3")).contains("p3");
+        assertThat(replicaService.findFormIdByEntryId("F1")).contains("form-1");
+        assertThat(replicaService.getStats())
+                .containsEntry("fullSyncs", 1L)
+                .containsEntry("entriesApplied", 4L);
+    }
+
+    @Test
+    void deltaAddsUpdatesAndDeletesAndEvictsOnlyWhatChanged() {
+        initialSync(program("P1", "p1", "One", "F1"), program("P2", "p2", "Two", null),
+                program("P4", "p4", "Four", null), formSchema("F1", "form-1", "1"));
+        cacheAll("p1", "p2", "p3", "p4", "form-1");
+
+        // P2 updated, P3 added, F1 deleted; P1 still links to F1 and P4 is untouched
+        delta(TOKEN_1, TOKEN_2, List.of(program("P2", "p2", "Two renamed", null), program("P3", "p3", "Three", null)),
+                Set.of("F1"));
+
+        assertThat(replicaService.findProgram("p2")).get()
+                .extracting(ProgramDTO::getDisplayName).isEqualTo("Two renamed");
+        assertThat(replicaService.findProgram("p3")).isPresent();
+        assertThat(replicaService.findFormSchema("form-1")).isEmpty();
+        assertThat(replicaService.findProgram("p1")).get()
+                .extracting(ProgramDTO::getFormSchemaId).isNull();
+
+        assertThat(cached(ContentfulService.PROGRAMS_CACHE, "p1")).as("link no longer resolves").isFalse();
+        assertThat(cached(ContentfulService.PROGRAMS_CACHE, "p2")).isFalse();
+        assertThat(cached(ContentfulService.PROGRAMS_CACHE, "p3")).isFalse();
+        assertThat(cached(ContentfulService.PROGRAMS_CACHE, "p4")).as("unchanged").isTrue();
+        assertThat(cached(ContentfulService.FORMS_CACHE, "form-1")).isFalse();
+        assertThat(cached(ContentfulService.PROGRAM_INDEX_CACHE, ContentfulService.ACTIVE_PROGRAMS_KEY)).isFalse();
+        assertThat(replicaService.getStats())
+                .containsEntry("fullSyncs", 1L)
+                .containsEntry("entriesApplied", 7L);
+    }
+
+    @Test
+    void formSchemaRelinkedToAnotherProgram() {
+        initialSync(program("P1", "p1", "One", "F1"), program("P2", "p2", "Two", null),
+                formSchema("F1", "form-1", "1"));
+        cacheAll("p1", "p2", "form-1");
+
+        delta(TOKEN_1, TOKEN_2, List.of(program("P1", "p1", "One", null), program("P2", "p2", "Two", "F1")), Set.of());
+
+        assertThat(replicaService.findProgram("p1")).get().extracting(ProgramDTO::getFormSchemaId).isNull();
+        assertThat(replicaService.findProgram("p2")).get()
+                .extracting(ProgramDTO::getFormSchemaId).isEqualTo("form-1");
+        assertThat(cached(ContentfulService.PROGRAMS_CACHE, "p1")).isFalse();
+        assertThat(cached(ContentfulService.PROGRAMS_CACHE, "p2")).isFalse();
+        assertThat(cached(ContentfulService.FORMS_CACHE, "form-1")).as("form schema itself unchanged").isTrue();
+    }
+
+    @Test
+    void formIdChangeReachesProgramsThatWereNotInTheDelta() {
+        initialSync(program("P1", "p1", "One", "F1"), program("P2", "p2", "Two", null),
+                formSchema("F1", "form-1", "1"));
+        cacheAll("p1", "p2", "form-1");
+
+        // Only the form schema entry changes, but P1's resolved formSchemaId follows it
+        delta(TOKEN_1, TOKEN_2, List.of(formSchema("F1", "form-1b", "2")), Set.of());
+
+        assertThat(replicaService.findProgram("p1")).get()
+                .extracting(ProgramDTO::getFormSchemaId).isEqualTo("form-1b");
+        assertThat(replicaService.findFormSchema("form-1")).isEmpty();
+        assertThat(cached(ContentfulService.PROGRAMS_CACHE, "p1")).isFalse();
+        assertThat(cached(ContentfulService.PROGRAMS_CACHE, "p2")).isTrue();
+        assertThat(cached(ContentfulService.PROGRAM_INDEX_CACHE, ContentfulService.ACTIVE_PROGRAMS_KEY)).isFalse();
+        assertThat(cached(ContentfulService.FORMS_CACHE, "form-1")).isFalse();
+    }
+
+    @Test
+    void newFormSchemaVersionEvictsOnlyTheForm() {
+        initialSync(program("P1", "p1", "One", "F1"), formSchema("F1", "form-1", "1"));
+        cacheAll("p1", "form-1");
+
+        delta(TOKEN_1, TOKEN_2, List.of(formSchema("F1", "form-1", "2")), Set.of());
+
+        assertThat(replicaService.findFormSchema("form-1")).get()
+                .extracting(FormSchemaDTO::getVersion).isEqualTo("2");
+        assertThat(cached(ContentfulService.FORMS_CACHE, "form-1")).isFalse();
+        assertThat(cached(ContentfulService.PROGRAMS_CACHE, "p1")).isTrue();
+        assertThat(cached(ContentfulService.PROGRAM_INDEX_CACHE, ContentfulService.ACTIVE_PROGRAMS_KEY)).isTrue();
+    }
+
+    @Test
+    void emptyDeltaOnlyAdvancesTheToken() {
+        initialSync(program("P1", "p1", "One", null));
+        cacheAll("p1");
+
+        delta(TOKEN_1, TOKEN_2, List.of(), Set.of());
+        SyncQuery next = query(space(List.of(), Set.of(), "token-3"));
+        when(client.sync(TOKEN_2)).thenReturn(next);
+        replicaService.sync();
+
+        verify(next).fetch();
+        assertThat(cached(ContentfulService.PROGRAMS_CACHE, "p1")).isTrue();
+        assertThat(replicaService.getStats()).containsEntry("syncs", 3L).containsEntry("entriesApplied", 1L);
+    }
+
+    @Test
+    void rejectedTokenFallsBackToAFullSync() {
+        initialSync(program("P1", "p1", "One", null), program("P2", "p2", "Two", null));
+        cacheAll("p1", "p2");
+
+        CDAHttpException error = httpError(400);
+        SyncQuery rejected = mock(SyncQuery.class);
+        when(rejected.fetch()).thenThrow(error);
+        when(client.sync(TOKEN_1)).thenReturn(rejected);
+        // The full data set no longer has P1, and a delta could not have said so
+        SyncQuery full = query(space(List.of(program("P2", "p2", "Two", null)), Set.of(), TOKEN_2));
+        when(client.sync()).thenReturn(full);
+
+        replicaService.sync();
+
+        assertThat(replicaService.findProgram("p1")).isEmpty();
+        assertThat(replicaService.findProgram("p2")).isPresent();
+        assertThat(cached(ContentfulService.PROGRAMS_CACHE, "p1")).isFalse();
+        assertThat(replicaService.getStats())
+                .containsEntry("fullSyncs", 2L)
+                .containsEntry("failures", 0L);
+
+        SyncQuery resumed = query(space(List.of(), Set.of(), "token-3"));
+        when(client.sync(TOKEN_2)).thenReturn(resumed);
+        replicaService.sync();
+        verify(resumed).fetch();
+    }
+
+    @Test
+    void serverErrorKeepsTheReplicaAndToken() {
+        initialSync(program("P1", "p1", "One", null));
+
+        CDAHttpException error = httpError(503);
+        SyncQuery failing = mock(SyncQuery.class);
+        when(failing.fetch()).thenThrow(error);
+        when(client.sync(TOKEN_1)).thenReturn(failing);
+        replicaService.sync();
+
+        assertThat(replicaService.findProgram("p1")).isPresent();
+        assertThat(replicaService.getStats())
+                .containsEntry("fullSyncs", 1L)
+                .containsEntry("failures", 1L);
+
+        SyncQuery retried = query(space(List.of(), Set.of(), TOKEN_2));
+        when(client.sync(TOKEN_1)).thenReturn(retried);
+        replicaService.sync();
+        verify(retried).fetch();
+    }
+
+    @Test
+    void restartServesTheSnapshotAndResumesWithADelta() {
+        initialSync(program("P1", "p1", "One", "F1"), formSchema("F1", "form-1", "1"));
+
+        ContentfulReplicaService restarted = newReplicaService();
+
+        assertThat(restarted.isReady()).isTrue();
+        assertThat(restarted.findProgram("p1")).get()
+                .extracting(ProgramDTO::getFormSchemaId).isEqualTo("form-1");
+        assertThat(restarted.findFormSchema("form-1")).isPresent();
+
+        SyncQuery resumed = query(space(List.of(), Set.of("F1"), TOKEN_2));
+        when(client.sync(TOKEN_1)).thenReturn(resumed);
+        restarted.sync();
+
+        assertThat(restarted.findFormSchema("form-1")).isEmpty();
+        assertThat(restarted.getStats()).containsEntry("fullSyncs", 0L);
+    }
+
+    @Test
+    void disabledReplicaNeverSyncs() {
+        ContentfulReplicaService disabled = new ContentfulReplicaService(client, entryMapper, objectMapper,
+                cacheManager, false, replicaDir.toString());
+
+        disabled.scheduledSync();
+
+        assertThat(disabled.isReady()).isFalse();
+        verify(client, never()).sync();
+    }
+
+    private ContentfulReplicaService newReplicaService() {
+        return new ContentfulReplicaService(client, entryMapper, objectMapper, cacheManager, true,
+                replicaDir.toString());
+    }
+
+    private void initialSync(CDAEntry... entries) {
+        SyncQuery initial = query(space(List.of(entries), Set.of(), TOKEN_1));
+        when(client.sync()).thenReturn(initial);
+        replicaService.sync();
+    }
+
+    private void delta(String token, String nextToken, List<CDAEntry> entries, Set<String> deletedEntries) {
+        SyncQuery query = query(space(entries, deletedEntries, nextToken));
+        when(client.sync(token)).thenReturn(query);
+        replicaService.sync();
+    }
+
+    private void cacheAll(String... ids) {
+        for (String id : ids) {
+            String cacheName = id.startsWith("form-") ? ContentfulService.FORMS_CACHE : ContentfulService.PROGRAMS_CACHE;
+            cacheManager.getCache(cacheName).put(id, id);
+        }
+        cacheManager.getCache(ContentfulService.PROGRAM_INDEX_CACHE).put(ContentfulService.ACTIVE_PROGRAMS_KEY, List.of());
+    }
+
+    private boolean cached(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        return cache != null && cache.get(key) != null;
+    }
+
+    private CDAEntry program(String entryId, String programId, String displayName, String formSchemaEntryId) {
+        return program(entryId, programId, displayName, formSchemaEntryId, true);
+    }
+
+    private CDAEntry inactiveProgram(String entryId, String programId) {
+        return program(entryId, programId, programId, null, false);
+    }
+
+    private CDAEntry program(String entryId, String programId, String displayName, String formSchemaEntryId,
+            boolean active) {
+        CDAEntry entry = entry(entryId, ContentfulEntryMapper.PROGRAM_CONTENT_TYPE);
+        ProgramDTO program = new ProgramDTO();
+        program.setProgramId(programId);
+        program.setDisplayName(displayName);
+        program.setIsActive(active);
+        when(entryMapper.mapToProgram(entry)).thenReturn(program);
+        when(entryMapper.getLinkedEntryId(entry, "formSchema")).thenReturn(formSchemaEntryId);
+        return entry;
+    }
+
+    private CDAEntry formSchema(String entryId, String formId, String version) {
+        CDAEntry entry = entry(entryId, ContentfulEntryMapper.FORM_SCHEMA_CONTENT_TYPE);
+        when(entryMapper.mapToFormSchema(entry))
+                .thenReturn(new FormSchemaDTO(formId, version, objectMapper.createObjectNode()));
+        return entry;
+    }
+
+    private CDAEntry entry(String entryId, String contentType) {
+        CDAEntry entry = mock(CDAEntry.class);
+        when(entry.id()).thenReturn(entryId);
+        when(entryMapper.getContentTypeId(entry)).thenReturn(contentType);
+        return entry;
+    }
+
+    private static SynchronizedSpace space(List<CDAEntry> entries, Set<String> deletedEntries, String nextToken) {
+        SynchronizedSpace space = mock(SynchronizedSpace.class);
+        when(space.items()).thenReturn(new ArrayList<CDAResource>(entries));
+        when(space.deletedEntries()).thenReturn(deletedEntries);
+        when(space.nextSyncUrl())
+                .thenReturn("https://cdn.contentful.com/spaces/test/environments/master/sync?sync_token=" + nextToken);
+        return space;
+    }
+
+    private static SyncQuery query(SynchronizedSpace space) {
+        SyncQuery query = mock(SyncQuery.class);
+        when(query.fetch()).thenReturn(space);
+        return query;
+    }
+
+    private static CDAHttpException httpError(int responseCode) {
+        CDAHttpException exception = mock(CDAHttpException.class);
+        when(exception.responseCode()).thenReturn(responseCode);
+        return exception;
+    }
+}
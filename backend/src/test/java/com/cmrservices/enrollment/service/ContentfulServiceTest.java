@@ -0,0 +1,188 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.PageDTO;
+import com.cmrservices.enrollment.model.dto.ProgramDTO;
+import com.cmrservices.enrollment.model.dto.ProgramSummaryDTO;
+import com.contentful.java.cda.CDAClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
+
+@SpringJUnitConfig(ContentfulServiceTest.Config.class)
+class ContentfulServiceTest {
+
+    @Autowired
+    private ContentfulService contentfulService;
+
+    @Autowired
+    private ContentfulReplicaService replicaService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        // The context, and so the mock and the caches, are shared between tests
+        reset(replicaService);
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void getAllProgramsReadsEntriesCachedByGetProgramById() {
+        ProgramDTO program = new ProgramDTO();
+        program.setProgramId("p1");
+        program.setIsActive(true);
+
+        // Cache the program through the @Cacheable proxy, then list from the cache
+        when(replicaService.isReady()).thenReturn(true, false);
+        when(replicaService.findProgram("p1")).thenReturn(Optional.of(program));
+        assertThat(contentfulService.getProgramById("p1")).contains(program);
+
+        cacheManager.getCache(ContentfulService.PROGRAM_INDEX_CACHE)
+                .put(ContentfulService.ACTIVE_PROGRAMS_KEY, List.of("p1"));
+
+        assertThat(contentfulService.getAllPrograms()).containsExactly(program);
+    }
+
+    @Test
+    void pagesWalkEveryProgramOnceWithTiesBrokenByProgramId() {
+        replicaReady(program("p5", "gamma"), program("p3", "Alpha"), program("p0", null), program("p1", "alpha"),
+                program("p4", "Beta"), program("p2", "ALPHA"));
+
+        assertThat(walk(2)).containsExactly(List.of("p0", "p1"), List.of("p2", "p3"), List.of("p4", "p5"));
+        assertThat(walk(4)).containsExactly(List.of("p0", "p1", "p2", "p3"), List.of("p4", "p5"));
+        assertThat(walk(6)).containsExactly(List.of("p0", "p1", "p2", "p3", "p4", "p5"));
+        assertThat(walk(50)).containsExactly(List.of("p0", "p1", "p2", "p3", "p4", "p5"));
+    }
+
+    @Test
+    void lastPageHasNoCursorAndAnEmptyListHasOnePage() {
+        replicaReady(program("p1", "Alpha"), program("p2", "Beta"));
+
+        PageDTO<ProgramDTO> full = contentfulService.getProgramsPage(2, null);
+        assertThat(full.getItems()).hasSize(2);
+        assertThat(full.getNextCursor()).isNull();
+
+        replicaReady();
+        PageDTO<ProgramDTO> empty = contentfulService.getProgramsPage(2, null);
+        assertThat(empty.getItems()).isEmpty();
+        assertThat(empty.getNextCursor()).isNull();
+    }
+
+    @Test
+    void cursorKeepsItsPlaceWhenProgramsChangeBetweenPages() {
+        ProgramDTO alpha = program("p1", "Alpha");
+        ProgramDTO beta = program("p2", "Beta");
+        replicaReady(alpha, beta, program("p3", "Gamma"), program("p4", "Delta"));
+        String cursor = contentfulService.getProgramsPage(2, null).getNextCursor();
+
+        // The last program on the first page is unpublished and one sorting before it is added
+        replicaReady(program("p0", "Aardvark"), alpha, program("p3", "Gamma"), program("p4", "Delta"),
+                program("p5", "Bravo"));
+
+        assertThat(contentfulService.getProgramsPage(2, cursor).getItems()).extracting(ProgramDTO::getProgramId)
+                .containsExactly("p5", "p4");
+    }
+
+    @Test
+    void cursorEncodesTheLastSortKeyAndProgramId() {
+        replicaReady(program("p1", "Alpha Program"), program("p2", "Beta"));
+
+        String cursor = contentfulService.getProgramsPage(1, null).getNextCursor();
+
+        assertThat(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8))
+                .isEqualTo("alpha program\np1");
+        assertThat(cursor).doesNotContain("=", "+", "/");
+    }
+
+    @Test
+    void summaryPagesFollowTheSameOrder() {
+        replicaReady(program("p2", "beta"), program("p1", "Beta"), program("p3", "Alpha"));
+
+        PageDTO<ProgramSummaryDTO> first = contentfulService.getProgramSummaries(2, null);
+        PageDTO<ProgramSummaryDTO> second = contentfulService.getProgramSummaries(2, first.getNextCursor());
+
+        assertThat(first.getItems()).extracting(ProgramSummaryDTO::getProgramId).containsExactly("p3", "p1");
+        assertThat(second.getItems()).extracting(ProgramSummaryDTO::getProgramId).containsExactly("p2");
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        replicaReady(program("p1", "Alpha"));
+        String noSeparator = Base64.getUrlEncoder().encodeToString("alpha".getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> contentfulService.getProgramsPage(10, "not a cursor!"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cursor");
+        assertThatThrownBy(() -> contentfulService.getProgramSummaries(10, noSeparator))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid cursor");
+    }
+
+    /** Item IDs of every page, following nextCursor from the first page to the last. */
+    private List<List<String>> walk(int limit) {
+        List<List<String>> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageDTO<ProgramDTO> page = contentfulService.getProgramsPage(limit, cursor);
+            pages.add(page.getItems().stream().map(ProgramDTO::getProgramId).toList());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return pages;
+    }
+
+    private void replicaReady(ProgramDTO... programs) {
+        List<ProgramDTO> byName = new ArrayList<>(List.of(programs));
+        byName.sort(ContentfulService.PROGRAM_ORDER);
+        when(replicaService.isReady()).thenReturn(true);
+        when(replicaService.getActiveProgramsByName()).thenReturn(byName);
+    }
+
+    private static ProgramDTO program(String programId, String displayName) {
+        ProgramDTO program = new ProgramDTO();
+        program.setProgramId(programId);
+        program.setDisplayName(displayName);
+        program.setIsActive(true);
+        return program;
+    }
+
+    @Configuration
+    @EnableCaching
+    static class Config {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager();
+        }
+
+        @Bean
+        ContentfulReplicaService replicaService() {
+            return mock(ContentfulReplicaService.class);
+        }
+
+        @Bean
+        ContentfulService contentfulService(CacheManager cacheManager, ContentfulReplicaService replicaService) {
+            return new ContentfulService(mock(CDAClient.class), cacheManager, new ContentfulEntryMapper(),
+                    replicaService);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.cmrservices.enrollment.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ContentfulWebhookServiceTest {
+
+    private static final String SECRET = "webhook-secret";
+    private static final String PATH = "/api/webhooks/contentful?source=cda";
+    private static final byte[] BODY = "{\"sys\":{\"id\":\"entry-1\"}}".getBytes(StandardCharsets.UTF_8);
+
+    private final ContentfulWebhookService webhookService = service(SECRET);
+
+    @Test
+    void acceptsAValidSignature() throws Exception {
+        Map<String, String> headers = signedHeaders(System.currentTimeMillis(), BODY);
+
+        assertThat(webhookService.verifySignature("POST", PATH, headers, BODY)).isTrue();
+    }
+
+    @Test
+    void acceptsAnUpperCaseSignature() throws Exception {
+        Map<String, String> headers = signedHeaders(System.currentTimeMillis(), BODY);
+        headers.put(ContentfulWebhookService.HEADER_SIGNATURE,
+                headers.get(ContentfulWebhookService.HEADER_SIGNATURE).toUpperCase(Locale.ROOT));
+
+        assertThat(webhookService.verifySignature("POST", PATH, headers, BODY)).isTrue();
+    }
+
+    @Test
+    void rejectsATamperedBody() throws Exception {
+        Map<String, String> headers = signedHeaders(System.currentTimeMillis(), BODY);
+        byte[] tampered = "{\"sys\":{\"id\":\"entry-2\"}}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(webhookService.verifySignature("POST", PATH, headers, tampered)).isFalse();
+    }
+
+    @Test
+    void rejectsADifferentPath() throws Exception {
+        Map<String, String> headers = signedHeaders(System.currentTimeMillis(), BODY);
+
+        assertThat(webhookService.verifySignature("POST", "/api/webhooks/contentful", headers, BODY)).isFalse();
+    }
+
+    @Test
+    void rejectsAStaleTimestamp() throws Exception {
+        Map<String, String> headers = signedHeaders(System.currentTimeMillis() - 60_000, BODY);
+
+        assertThat(webhookService.verifySignature("POST", PATH, headers, BODY)).isFalse();
+    }
+
+    @Test
+    void rejectsATimestampThatIsNotSigned() throws Exception {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(ContentfulWebhookService.HEADER_TIMESTAMP, String.valueOf(System.currentTimeMillis()));
+        headers.put(ContentfulWebhookService.HEADER_TOPIC, "ContentManagement.Entry.publish");
+        headers.put(ContentfulWebhookService.HEADER_SIGNED_HEADERS, "x-contentful-topic");
+        headers.put(ContentfulWebhookService.HEADER_SIGNATURE,
+                sign("POST\n" + PATH + "\nx-contentful-topic:ContentManagement.Entry.publish\n"
+                        + new String(BODY, StandardCharsets.UTF_8)));
+
+        assertThat(webhookService.verifySignature("POST", PATH, headers, BODY)).isFalse();
+    }
+
+    @Test
+    void rejectsMissingHeadersAndAnUnconfiguredSecret() throws Exception {
+        Map<String, String> headers = signedHeaders(System.currentTimeMillis(), BODY);
+        Map<String, String> unsigned = new HashMap<>(headers);
+        unsigned.remove(ContentfulWebhookService.HEADER_SIGNATURE);
+
+        assertThat(webhookService.verifySignature("POST", PATH, unsigned, BODY)).isFalse();
+        assertThat(service("").verifySignature("POST", PATH, headers, BODY)).isFalse();
+    }
+
+    /**
+     * Headers as Contentful sends them: the timestamp and topic are signed,
+     * and the signature is the hex HMAC-SHA256 of the canonical request.
+     */
+    private static Map<String, String> signedHeaders(long timestamp, byte[] body) throws Exception {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(ContentfulWebhookService.HEADER_TIMESTAMP, String.valueOf(timestamp));
+        headers.put(ContentfulWebhookService.HEADER_TOPIC, "ContentManagement.Entry.publish");
+        headers.put(ContentfulWebhookService.HEADER_SIGNED_HEADERS, "x-contentful-timestamp,x-contentful-topic");
+        String canonical = "POST\n" + PATH + "\n"
+                + "x-contentful-timestamp:" + timestamp + ";x-contentful-topic:ContentManagement.Entry.publish\n"
+                + new String(body, StandardCharsets.UTF_8);
+        headers.put(ContentfulWebhookService.HEADER_SIGNATURE, sign(canonical));
+        return headers;
+    }
+
+    private static String sign(String canonicalRequest) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static ContentfulWebhookService service(String secret) {
+        return new ContentfulWebhookService(new ObjectMapper(), new ConcurrentMapCacheManager(),
+                mock(ContentfulReplicaService.class), secret, 30);
+    }
+}
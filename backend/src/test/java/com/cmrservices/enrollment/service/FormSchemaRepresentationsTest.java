@@ -0,0 +1,69 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.FormSchemaDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FormSchemaRepresentationsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FormSchemaRepresentations representations = new FormSchemaRepresentations(objectMapper);
+
+    @Test
+    void etagsCarryTheVersionAndDifferPerEncoding() {
+        FormSchemaRepresentations.Representation representation = representations.get(schema("1.0 (final)", "a"));
+
+        assertThat(representation.getEtag()).matches("\"1\\.0final-[0-9a-f]{24}\"");
+        assertThat(representation.getGzipEtag())
+                .isEqualTo(representation.getEtag().substring(0, representation.getEtag().length() - 1) + "-gzip\"");
+    }
+
+    @Test
+    void matchesStrongWeakWildcardAndListedTags() {
+        FormSchemaRepresentations.Representation representation = representations.get(schema("1.0", "a"));
+        String etag = representation.getEtag();
+        String gzipEtag = representation.getGzipEtag();
+
+        assertThat(representation.matches(etag)).isTrue();
+        assertThat(representation.matches(gzipEtag)).isTrue();
+        assertThat(representation.matches("W/" + etag)).isTrue();
+        assertThat(representation.matches("*")).isTrue();
+        assertThat(representation.matches("\"stale\", W/\"older\" , " + gzipEtag)).isTrue();
+    }
+
+    @Test
+    void doesNotMatchOtherTags() {
+        FormSchemaRepresentations.Representation representation = representations.get(schema("1.0", "a"));
+        String other = representations.get(schema("1.0", "b")).getEtag();
+
+        assertThat(representation.matches(null)).isFalse();
+        assertThat(representation.matches("")).isFalse();
+        assertThat(representation.matches(other)).isFalse();
+        assertThat(representation.matches("\"stale\", W/\"older\"")).isFalse();
+        // An unquoted tag is not the same entity-tag
+        assertThat(representation.matches(representation.getEtag().replace("\"", ""))).isFalse();
+    }
+
+    @Test
+    void sameInstanceIsServedFromTheCacheAndANewOneIsReserialized() {
+        FormSchemaDTO schema = schema("1.0", "a");
+        FormSchemaRepresentations.Representation first = representations.get(schema);
+
+        assertThat(representations.get(schema)).isSameAs(first);
+
+        // Edited in Contentful without bumping the version: a new DTO instance with different content
+        FormSchemaRepresentations.Representation edited = representations.get(schema("1.0", "b"));
+        assertThat(edited).isNotSameAs(first);
+        assertThat(edited.getEtag()).isNotEqualTo(first.getEtag());
+        assertThat(representations.getStats())
+                .containsEntry("entries", 1)
+                .containsEntry("hits", 1L)
+                .containsEntry("serializations", 2L);
+    }
+
+    private FormSchemaDTO schema(String version, String title) {
+        return new FormSchemaDTO("form-1", version, objectMapper.createObjectNode().put("title", title));
+    }
+}
@@ -0,0 +1,81 @@
+package com.cmrservices.enrollment.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageImageCacheTest {
+
+    private static final String PROFILE = "150-jpeg";
+    private static final int PAGE_BYTES = 400 * 1024;
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    void pageCountsInMemoryAreBounded() {
+        PageImageCache cache = cache(2);
+
+        cache.putPageCount("aaaa", 1);
+        cache.putPageCount("bbbb", 2);
+        cache.getPageCount("aaaa");
+        cache.putPageCount("cccc", 3);
+
+        assertThat(cache.getStats()).containsEntry("pageCountEntries", 2);
+        // The least recently used count is still on disk
+        assertThat(cache.getPageCount("bbbb")).contains(2);
+    }
+
+    @Test
+    void metaFileGoesWithTheDocumentsLastPage() throws IOException {
+        PageImageCache cache = cache(100);
+        cache.putPageCount("aaaa", 2);
+        cache.put("aaaa", PROFILE, page(0));
+        cache.put("aaaa", PROFILE, page(1));
+        cache.putPageCount("bbbb", 1);
+        age("aaaa-" + PROFILE + "-0", 2);
+        age("aaaa-" + PROFILE + "-1", 1);
+
+        // 1 MB budget: the third page evicts aaaa's page 0, but page 1 still needs the count
+        cache.put("bbbb", PROFILE, page(0));
+        assertThat(cacheDir.resolve("aaaa-" + PROFILE + "-0.page")).doesNotExist();
+        assertThat(cacheDir.resolve("aaaa.meta")).exists();
+
+        age("bbbb-" + PROFILE + "-0", 1);
+        cache.put("cccc", PROFILE, page(0));
+        cache.put("cccc", PROFILE, page(1));
+
+        assertThat(cacheDir.resolve("aaaa.meta")).doesNotExist();
+        assertThat(cacheDir.resolve("bbbb.meta")).doesNotExist();
+        assertThat(cache.getPageCount("aaaa")).isEmpty();
+        assertThat(cache.getPageCount("bbbb")).isEmpty();
+        assertThat(cache.getStats().get("diskBytes")).isEqualTo(sizeOfDir());
+    }
+
+    private PageImageCache cache(int pageCountsMax) {
+        return new PageImageCache(true, cacheDir.toString(), 1, 1, pageCountsMax);
+    }
+
+    private static RenderedPage page(int pageIndex) {
+        return new RenderedPage(pageIndex, "image/jpeg", new byte[PAGE_BYTES]);
+    }
+
+    /** Backdate a page file so disk eviction order does not hang on mtime resolution. */
+    private void age(String key, int minutes) throws IOException {
+        Files.setLastModifiedTime(cacheDir.resolve(key + ".page"),
+                FileTime.fromMillis(System.currentTimeMillis() - minutes * 60_000L));
+    }
+
+    private long sizeOfDir() throws IOException {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            return files.mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.cmrservices.enrollment.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageImageEncoderTest {
+
+    // Rendered at 150 DPI, with pages down to 75 DPI
+    private final PageImageEncoder encoder = new PageImageEncoder(150, 75, true, 8, 0.85f);
+
+    @Test
+    void blankPageIsDownscaledAndItsBaselineEstimated() throws IOException {
+        BufferedImage blank = page(Color.WHITE);
+
+        PageImageEncoder.EncodedPage encoded = encoder.encode(blank, 0, 1);
+
+        BufferedImage sent = ImageIO.read(new ByteArrayInputStream(encoded.getPage().getData()));
+        assertThat(sent.getWidth()).isEqualTo(blank.getWidth() / 2);
+        assertThat(encoded.getBaselineBytes()).isGreaterThan(encoded.getPage().getData().length);
+        assertThat(encoder.getStats())
+                .containsEntry("pagesEncoded", 1L)
+                .containsEntry("estimatedBaselinePages", 1L)
+                .containsEntry("baselineBytes", encoded.getBaselineBytes());
+    }
+
+    @Test
+    void fullDpiColorPageReportsTheExactPngBaseline() throws IOException {
+        BufferedImage colorful = page(Color.WHITE);
+        Random random = new Random(42);
+        for (int y = 0; y < colorful.getHeight(); y++) {
+            for (int x = 0; x < colorful.getWidth(); x++) {
+                colorful.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+
+        PageImageEncoder.EncodedPage encoded = encoder.encode(colorful, 0, 1);
+
+        // Dense color ink keeps full DPI and color, so the baseline is measured, not estimated
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(colorful, "PNG", png);
+        assertThat(encoded.getBaselineBytes()).isEqualTo(png.size());
+        assertThat(encoder.getStats()).containsEntry("estimatedBaselinePages", 0L);
+    }
+
+    private static BufferedImage page(Color background) {
+        BufferedImage image = new BufferedImage(200, 260, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(background);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
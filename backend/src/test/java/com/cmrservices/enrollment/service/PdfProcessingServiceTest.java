@@ -0,0 +1,87 @@
+package com.cmrservices.enrollment.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+class PdfProcessingServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final PageImageCache pageImageCache = mock(PageImageCache.class);
+    private final PageImageEncoder pageImageEncoder = spy(new PageImageEncoder(36, 36, false, 8, 0.85f));
+    private final PdfProcessingService pdfProcessingService =
+            new PdfProcessingService(pageImageCache, pageImageEncoder, 2, 2);
+
+    @AfterEach
+    void tearDown() {
+        pdfProcessingService.shutdown();
+    }
+
+    @Test
+    void emitsEveryPageInOrder() throws IOException {
+        List<RenderedPage> pages = pdfProcessingService.streamPdfPages(pdf(5)).collectList().block(TIMEOUT);
+
+        assertThat(pages).extracting(RenderedPage::getPageIndex).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void errorThrownByTheEncoderTerminatesTheStream() throws IOException {
+        doThrow(new StackOverflowError("malformed page")).when(pageImageEncoder)
+                .encode(any(BufferedImage.class), eq(2), anyInt());
+
+        Throwable error = catchThrowable(() -> pdfProcessingService.streamPdfPages(pdf(5)).blockLast(TIMEOUT));
+
+        assertThat(Exceptions.unwrap(error))
+                .isInstanceOf(IOException.class)
+                .hasMessage("PDF rendering failed")
+                .hasCauseInstanceOf(StackOverflowError.class);
+    }
+
+    @Test
+    void pageCacheFailureTerminatesTheStream() throws IOException {
+        when(pageImageCache.isEnabled()).thenReturn(true);
+        when(pageImageCache.documentHash(any())).thenReturn("document");
+        when(pageImageCache.getPageCount("document")).thenReturn(Optional.empty());
+        when(pageImageCache.get(eq("document"), anyInt(), anyString()))
+                .thenThrow(new IllegalStateException("cache directory unreadable"));
+
+        Throwable error = catchThrowable(() -> pdfProcessingService.streamPdfPages(pdf(3)).blockLast(TIMEOUT));
+
+        assertThat(Exceptions.unwrap(error))
+                .isInstanceOf(IOException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    private static byte[] pdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage(PDRectangle.A6));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}
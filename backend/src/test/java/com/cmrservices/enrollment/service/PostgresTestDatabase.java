@@ -0,0 +1,98 @@
+package com.cmrservices.enrollment.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+
+/**
+ * PostgreSQL database shared by the integration tests and benchmarks. A
+ * Testcontainers database is started on first use, unless the
+ * {@code test.postgres.url} system property (with {@code test.postgres.username}
+ * and {@code test.postgres.password}) points at an existing one; that database
+ * must be a scratch database, as form_submissions is created and truncated.
+ */
+public final class PostgresTestDatabase {
+
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS form_submissions (
+                id UUID PRIMARY KEY,
+                program_id VARCHAR(255) NOT NULL,
+                form_id VARCHAR(255) NOT NULL,
+                form_type VARCHAR(255),
+                submission_data JSONB NOT NULL,
+                submission_status VARCHAR(255),
+                submitted_at TIMESTAMP,
+                submitted_by VARCHAR(255),
+                created_at TIMESTAMP,
+                updated_at TIMESTAMP
+            );
+            CREATE INDEX IF NOT EXISTS idx_form_submissions_program_submitted
+                ON form_submissions (program_id, submitted_at, id);
+            CREATE INDEX IF NOT EXISTS idx_form_submissions_form_submitted
+                ON form_submissions (form_id, submitted_at, id);
+            """;
+
+    private static String url;
+    private static String username;
+    private static String password;
+    private static HikariDataSource dataSource;
+
+    private PostgresTestDatabase() {
+    }
+
+    public static synchronized String url() {
+        start();
+        return url;
+    }
+
+    public static synchronized String username() {
+        start();
+        return username;
+    }
+
+    public static synchronized String password() {
+        start();
+        return password;
+    }
+
+    /**
+     * Pooled data source with the form_submissions table in place.
+     */
+    public static synchronized DataSource dataSource() {
+        start();
+        if (dataSource == null) {
+            dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(url);
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(5);
+            new JdbcTemplate(dataSource).execute(CREATE_TABLE);
+        }
+        return dataSource;
+    }
+
+    public static void truncate() {
+        new JdbcTemplate(dataSource()).execute("TRUNCATE form_submissions");
+    }
+
+    private static void start() {
+        if (url != null) {
+            return;
+        }
+        String configuredUrl = System.getProperty("test.postgres.url");
+        if (configuredUrl != null && !configuredUrl.isBlank()) {
+            url = configuredUrl;
+            username = System.getProperty("test.postgres.username", "postgres");
+            password = System.getProperty("test.postgres.password", "");
+            return;
+        }
+        // Stopped by the Testcontainers reaper when the JVM exits
+        PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:16-alpine");
+        container.start();
+        url = container.getJdbcUrl();
+        username = container.getUsername();
+        password = container.getPassword();
+    }
+}
@@ -0,0 +1,172 @@
+package com.cmrservices.enrollment.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SchemaMergerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SchemaMerger merger = new SchemaMerger(objectMapper);
+
+    @Test
+    void concatenatesPagesAndFieldsInChunkOrder() throws Exception {
+        JsonNode merged = merge(
+                chunk("page-1", "patient", List.of("firstName"), List.of("firstName"),
+                        field("firstName", "string", "First Name")),
+                chunk("page-5", "insurance", List.of("memberId"), List.of(),
+                        field("memberId", "string", "Member ID")));
+
+        assertThat(merged.path("title").asText()).isEqualTo("Chunk page-1");
+        assertThat(fieldNames(merged.path("properties"))).containsExactly("firstName", "memberId");
+        assertThat(texts(merged.path("x-form-config").path("pages"), "pageId")).containsExactly("page-1", "page-5");
+        assertThat(texts(merged.path("required"))).containsExactly("firstName");
+    }
+
+    @Test
+    void repeatedFieldIsKeptOnceAndDroppedFromLaterLayouts() throws Exception {
+        JsonNode merged = merge(
+                chunk("page-1", "patient", List.of("patientName", "dob"), List.of("patientName"),
+                        field("patientName", "string", "Patient Name"), field("dob", "string", "Date of Birth")),
+                chunk("page-2", "header", List.of("patientName"), List.of("patientName"),
+                        field("patientName", "string", " patient name ")),
+                chunk("page-3", "consent", List.of("patientName", "signature"), List.of("patientName"),
+                        field("patientName", "string", "Patient Name"), field("signature", "string", "Signature")));
+
+        assertThat(fieldNames(merged.path("properties"))).containsExactly("patientName", "dob", "signature");
+        assertThat(texts(merged.path("required"))).containsExactly("patientName");
+
+        // The header section only held the repeated field, so it and its page are gone
+        JsonNode pages = merged.path("x-form-config").path("pages");
+        assertThat(texts(pages, "pageId")).containsExactly("page-1", "page-3");
+        assertThat(layoutFields(pages.get(0))).containsExactly("patientName", "dob");
+        assertThat(layoutFields(pages.get(1))).containsExactly("signature");
+    }
+
+    @Test
+    void differentFieldReusingAnIdIsRenamedInLayoutAndRequired() throws Exception {
+        JsonNode merged = merge(
+                chunk("page-1", "patient", List.of("date"), List.of("date"),
+                        field("date", "string", "Date of Birth")),
+                chunk("page-2", "prescriber", List.of("date"), List.of("date"),
+                        field("date", "string", "Date Signed")),
+                chunk("page-3", "consent", List.of("date"), List.of(),
+                        field("date", "string", "Consent Date")));
+
+        JsonNode properties = merged.path("properties");
+        assertThat(fieldNames(properties)).containsExactly("date", "date2", "date3");
+        assertThat(properties.path("date2").path("title").asText()).isEqualTo("Date Signed");
+        assertThat(properties.path("date3").path("title").asText()).isEqualTo("Consent Date");
+        assertThat(texts(merged.path("required"))).containsExactly("date", "date2");
+
+        JsonNode pages = merged.path("x-form-config").path("pages");
+        assertThat(layoutFields(pages.get(0))).containsExactly("date");
+        assertThat(layoutFields(pages.get(1))).containsExactly("date2");
+        assertThat(layoutFields(pages.get(2))).containsExactly("date3");
+    }
+
+    @Test
+    void sameIdWithDifferentTypeIsNotTreatedAsRepeated() throws Exception {
+        JsonNode merged = merge(
+                chunk("page-1", "patient", List.of("consent"), List.of(),
+                        field("consent", "string", "Consent")),
+                chunk("page-2", "patient", List.of("consent"), List.of(),
+                        field("consent", "boolean", "Consent")));
+
+        assertThat(fieldNames(merged.path("properties"))).containsExactly("consent", "consent2");
+    }
+
+    @Test
+    void clashingPageAndSectionIdsAreMadeUnique() throws Exception {
+        JsonNode merged = merge(
+                chunk("page-1", "patient", List.of("a"), List.of(), field("a", "string", "A")),
+                chunk("page-1", "patient", List.of("b"), List.of(), field("b", "string", "B")));
+
+        JsonNode pages = merged.path("x-form-config").path("pages");
+        assertThat(texts(pages, "pageId")).containsExactly("page-1", "page-1-2");
+        assertThat(pages.get(0).path("sections").get(0).path("sectionId").asText()).isEqualTo("patient");
+        assertThat(pages.get(1).path("sections").get(0).path("sectionId").asText()).isEqualTo("patient2");
+    }
+
+    @Test
+    void unparseableChunksAreSkipped() throws Exception {
+        String merged = merger.merge(List.of(
+                "{\"title\": \"truncated",
+                chunk("page-2", "patient", List.of("a"), List.of(), field("a", "string", "A"))));
+
+        assertThat(fieldNames(objectMapper.readTree(merged).path("properties"))).containsExactly("a");
+    }
+
+    @Test
+    void failsWhenNoChunkParses() {
+        assertThatThrownBy(() -> merger.merge(List.of("not json", "[]")))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("None of the 2 chunk schemas");
+    }
+
+    private JsonNode merge(String... chunks) throws Exception {
+        return objectMapper.readTree(merger.merge(List.of(chunks)));
+    }
+
+    /**
+     * A one-page, one-section chunk schema with one layout row per field.
+     */
+    private String chunk(String pageId, String sectionId, List<String> layout, List<String> required,
+            String... fields) throws Exception {
+        StringBuilder rows = new StringBuilder();
+        for (String field : layout) {
+            if (rows.length() > 0) {
+                rows.append(',');
+            }
+            rows.append("{\"columns\":[{\"fields\":[\"").append(field).append("\"]}]}");
+        }
+        return """
+                {"title": "Chunk %s", "type": "object",
+                 "properties": {%s},
+                 "required": %s,
+                 "x-form-config": {"pages": [{"pageId": "%s", "sections": [
+                   {"sectionId": "%s", "title": "%s", "layout": [%s]}]}]}}
+                """.formatted(pageId, String.join(",", fields), objectMapper.writeValueAsString(required),
+                pageId, sectionId, sectionId, rows);
+    }
+
+    private static String field(String id, String type, String title) {
+        return "\"%s\": {\"type\": \"%s\", \"title\": \"%s\"}".formatted(id, type, title);
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    private static List<String> texts(JsonNode array) {
+        List<String> values = new ArrayList<>();
+        array.forEach(value -> values.add(value.asText()));
+        return values;
+    }
+
+    private static List<String> texts(JsonNode array, String property) {
+        List<String> values = new ArrayList<>();
+        array.forEach(value -> values.add(value.path(property).asText()));
+        return values;
+    }
+
+    private static List<String> layoutFields(JsonNode page) {
+        List<String> fields = new ArrayList<>();
+        for (JsonNode section : page.path("sections")) {
+            for (JsonNode row : section.path("layout")) {
+                for (JsonNode column : row.path("columns")) {
+                    column.path("fields").forEach(field -> fields.add(field.asText()));
+                }
+            }
+        }
+        return fields;
+    }
+}
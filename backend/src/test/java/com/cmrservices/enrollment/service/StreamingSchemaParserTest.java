@@ -0,0 +1,117 @@
+package com.cmrservices.enrollment.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingSchemaParserTest {
+
+    private static final String SCHEMA = """
+            {"type": "object",
+             "properties": {"name": {"type": "string"}, "dob": {"type": "string"}},
+             "x-form-config": {"pages": [
+               {"pageId": "page-1", "sections": [
+                 {"sectionId": "patient", "layout": [{"columns": [{"fields": ["name"]}]}]},
+                 {"sectionId": "birth", "layout": [{"columns": [{"fields": ["dob"]}]}]}]},
+               {"pageId": "page-2", "sections": [
+                 {"sectionId": "consent", "nested": {"sections": [{"sectionId": "not-a-section"}]}}]}]}}
+            """;
+
+    private final List<String> sections = new ArrayList<>();
+    private final List<Integer> sectionPages = new ArrayList<>();
+    private final StreamingSchemaParser parser = new StreamingSchemaParser(new ObjectMapper(),
+            new IdpProgressListener() {
+                @Override
+                public void onSectionParsed(String provider, int pageNumber, JsonNode section, long elapsedMs) {
+                    assertThat(provider).isEqualTo(SchemaGenerationService.PROVIDER_CLAUDE);
+                    sections.add(section.path("sectionId").asText());
+                    sectionPages.add(pageNumber);
+                }
+            }, SchemaGenerationService.PROVIDER_CLAUDE);
+
+    @Test
+    void reportsEachSectionWithItsPage() throws IOException {
+        parser.accept(SCHEMA);
+
+        assertThat(sections).containsExactly("patient", "birth", "consent");
+        assertThat(sectionPages).containsExactly(1, 1, 2);
+        assertThat(parser.getSectionCount()).isEqualTo(3);
+        assertThat(parser.getFirstSectionMs()).isGreaterThanOrEqualTo(0);
+        assertThat(parser.getText()).isEqualTo(SCHEMA);
+    }
+
+    @Test
+    void reportsASectionAsSoonAsItsClosingBraceArrives() throws IOException {
+        String patientSection = "{\"sectionId\": \"patient\", \"layout\": [{\"columns\": [{\"fields\": [\"name\"]}]}]}";
+        int sectionEnd = SCHEMA.indexOf(patientSection) + patientSection.length();
+        int reportedAt = -1;
+        for (int i = 0; i < SCHEMA.length(); i++) {
+            parser.accept(SCHEMA.substring(i, i + 1));
+            if (reportedAt < 0 && !sections.isEmpty()) {
+                reportedAt = i + 1;
+            }
+        }
+
+        assertThat(reportedAt).isEqualTo(sectionEnd);
+        assertThat(sections).containsExactly("patient", "birth", "consent");
+        assertThat(parser.getText()).isEqualTo(SCHEMA);
+    }
+
+    @Test
+    void skipsACodeFenceBeforeAndAfterTheObject() throws IOException {
+        parser.accept("Here is the schema:\n```js");
+        parser.accept("on\n");
+        parser.accept(SCHEMA.trim());
+        parser.accept("\n```\nLet me know if you need changes.");
+
+        assertThat(sections).containsExactly("patient", "birth", "consent");
+        assertThat(parser.getText()).startsWith("Here is the schema:").endsWith("need changes.");
+    }
+
+    @Test
+    void toleratesTrailingCommas() throws IOException {
+        parser.accept("""
+                {"properties": {"name": {"type": "string"},},
+                 "x-form-config": {"pages": [{"sections": [{"sectionId": "patient",},],},],},}
+                """);
+
+        assertThat(sections).containsExactly("patient");
+    }
+
+    @Test
+    void failsAtTheFirstMalformedToken() throws IOException {
+        parser.accept("{\"x-form-config\": {\"pages\": [{\"sections\": [{\"sectionId\": \"patient\"}");
+
+        assertThatThrownBy(() -> parser.accept(", {\"sectionId\": \"consent\" \"title\": \"Consent\"}]}]}}"))
+                .isInstanceOf(IOException.class);
+        assertThat(sections).containsExactly("patient");
+    }
+
+    @Test
+    void failsWhenNoObjectStartsWithinThePreamble() throws IOException {
+        parser.accept("I'm sorry, ");
+
+        assertThatThrownBy(() -> parser.accept("but I cannot read this document. ".repeat(20)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("No JSON object");
+        assertThat(sections).isEmpty();
+    }
+
+    @Test
+    void ignoresSectionsOutsideFormConfig() throws IOException {
+        parser.accept("""
+                {"pages": [{"sections": [{"sectionId": "top-level"}]}],
+                 "properties": {"x-form-config": {"pages": [{"sections": [{"sectionId": "in-a-field"}]}]}}}
+                """);
+
+        assertThat(sections).isEmpty();
+        assertThat(parser.getFirstSectionMs()).isEqualTo(-1);
+    }
+}
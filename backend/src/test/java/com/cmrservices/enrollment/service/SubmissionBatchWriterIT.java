@@ -0,0 +1,156 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.BulkImportResult;
+import com.cmrservices.enrollment.model.entity.FormSubmission;
+import com.cmrservices.enrollment.model.entity.TimeOrderedUuidGenerator;
+import com.cmrservices.enrollment.repository.SubmissionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link SubmissionBatchWriter} against PostgreSQL: COPY, the multi-row
+ * insert fallback and the counts they report. Run with mvn -Pintegration verify.
+ */
+class SubmissionBatchWriterIT {
+
+    private final DataSource dataSource = PostgresTestDatabase.dataSource();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @BeforeEach
+    void setUp() {
+        PostgresTestDatabase.truncate();
+    }
+
+    @Test
+    void copyCountsEveryRow() {
+        SubmissionBatchWriter writer = writer(true);
+
+        assertThat(writer.insert(submissions(3))).isEqualTo(3);
+        assertThat(writer.getStats()).containsEntry("copies", 1L).containsEntry("copyFallbacks", 0L);
+        assertThat(rowCount()).isEqualTo(3);
+    }
+
+    @Test
+    void resentBatchFallsBackAndCountsOnlyNewRows() {
+        SubmissionBatchWriter writer = writer(true);
+        List<FormSubmission> first = submissions(2);
+        writer.insert(first);
+
+        List<FormSubmission> resent = new ArrayList<>(first);
+        resent.addAll(submissions(3));
+
+        assertThat(writer.insert(resent)).isEqualTo(3);
+        assertThat(writer.getStats()).containsEntry("copyFallbacks", 1L).containsEntry("insertedRows", 3L);
+        assertThat(rowCount()).isEqualTo(5);
+    }
+
+    @Test
+    void batchInsertCountsRowsThatAlreadyExistAsZero() {
+        SubmissionBatchWriter writer = writer(false);
+        List<FormSubmission> submissions = submissions(5);
+
+        assertThat(writer.insert(submissions)).isEqualTo(5);
+        assertThat(writer.insert(submissions)).isZero();
+        assertThat(writer.insert(submissions.subList(0, 1))).isZero();
+        assertThat(rowCount()).isEqualTo(5);
+    }
+
+    @Test
+    void batchInsertWritesEveryColumn() {
+        FormSubmission submission = submissions(1).get(0);
+        submission.setSubmissionData("{\"name\": \"O'Brien, \\\"Pat\\\"\"}");
+        submission.setSubmittedBy(null);
+
+        writer(false).insert(List.of(submission));
+
+        assertThat(jdbcTemplate.queryForMap("SELECT program_id, form_id, form_type, submission_data->>'name' AS name, "
+                + "submission_status, submitted_at, submitted_by, created_at FROM form_submissions WHERE id = ?",
+                submission.getId()))
+                .containsEntry("program_id", "program-1")
+                .containsEntry("form_id", "form-1")
+                .containsEntry("form_type", "enrollment")
+                .containsEntry("name", "O'Brien, \"Pat\"")
+                .containsEntry("submission_status", "submitted")
+                .containsEntry("submitted_at", Timestamp.valueOf(submission.getSubmittedAt()))
+                .containsEntry("submitted_by", null)
+                .hasEntrySatisfying("created_at", createdAt -> assertThat(createdAt).isNotNull());
+    }
+
+    @Test
+    void resentImportReportsRowsAsSkipped() throws IOException {
+        SubmissionImportService importService = importService(writer(true));
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            body.append("{\"id\":\"").append(TimeOrderedUuidGenerator.next())
+                    .append("\",\"programId\":\"program-1\",\"formId\":\"form-1\",\"formData\":{\"n\":")
+                    .append(i).append("}}\n");
+        }
+
+        BulkImportResult first = importService.importSubmissions(stream(body.toString()));
+        BulkImportResult resent = importService.importSubmissions(stream(body.toString()));
+
+        assertThat(first.getInserted()).isEqualTo(4);
+        assertThat(first.getSkipped()).isZero();
+        assertThat(resent.getInserted()).isZero();
+        assertThat(resent.getSkipped()).isEqualTo(4);
+        assertThat(resent.getFailed()).isZero();
+        assertThat(rowCount()).isEqualTo(4);
+    }
+
+    private SubmissionBatchWriter writer(boolean copyEnabled) {
+        return new SubmissionBatchWriter(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                new SubmissionCopyWriter(), copyEnabled);
+    }
+
+    private static SubmissionImportService importService(SubmissionBatchWriter writer) {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        SubmissionService submissionService =
+                new SubmissionService(mock(SubmissionRepository.class), mock(SubmissionIngestService.class));
+        return new SubmissionImportService(objectMapper, Validation.buildDefaultValidatorFactory().getValidator(),
+                submissionService, writer, 100, 100);
+    }
+
+    private long rowCount() {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM form_submissions", Long.class);
+        return count != null ? count : 0;
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static List<FormSubmission> submissions(int count) {
+        List<FormSubmission> submissions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            FormSubmission submission = new FormSubmission();
+            UUID id = TimeOrderedUuidGenerator.next();
+            submission.setId(id);
+            submission.setProgramId("program-1");
+            submission.setFormId("form-1");
+            submission.setFormType("enrollment");
+            submission.setSubmissionData("{\"index\": " + i + "}");
+            submission.setSubmittedAt(LocalDateTime.of(2024, 7, 1, 9, 30, 15, 123_456_000));
+            submission.setSubmittedBy("user-" + i);
+            submissions.add(submission);
+        }
+        return submissions;
+    }
+}
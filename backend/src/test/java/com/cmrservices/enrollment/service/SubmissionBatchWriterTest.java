@@ -0,0 +1,110 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.entity.FormSubmission;
+import com.cmrservices.enrollment.model.entity.TimeOrderedUuidGenerator;
+import org.mockito.ArgumentMatchers;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+class SubmissionBatchWriterTest {
+
+    private final SubmissionBatchWriter writer = spy(new SubmissionBatchWriter(
+            mock(JdbcTemplate.class), mock(PlatformTransactionManager.class), new SubmissionCopyWriter(), true));
+
+    @Test
+    void refusedBatchIsRetriedRowByRow() {
+        List<FormSubmission> rows = List.of(submission(), submission(), submission(), submission());
+        FormSubmission bad = rows.get(2);
+        FormSubmission existing = rows.get(3);
+        // Any batch containing the bad row is refused; the existing row inserts nothing
+        doAnswer(invocation -> {
+            List<FormSubmission> batch = invocation.getArgument(0);
+            if (batch.contains(bad)) {
+                throw new DataIntegrityViolationException("violates check constraint");
+            }
+            return (int) batch.stream().filter(row -> row != existing).count();
+        }).when(writer).insert(anyList());
+
+        List<Integer> rejected = new ArrayList<>();
+        int inserted = writer.insertIsolatingBadRows(rows, (position, cause) -> rejected.add(position));
+
+        assertThat(inserted).isEqualTo(2);
+        assertThat(rejected).containsExactly(2);
+    }
+
+    @Test
+    void acceptedBatchIsWrittenOnce() {
+        List<FormSubmission> rows = List.of(submission(), submission());
+        doAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size()).when(writer).insert(anyList());
+
+        List<Integer> rejected = new ArrayList<>();
+        assertThat(writer.insertIsolatingBadRows(rows, (position, cause) -> rejected.add(position))).isEqualTo(2);
+        assertThat(rejected).isEmpty();
+    }
+
+    @Test
+    void refusedSingleRowIsReportedWithoutRetry() {
+        doAnswer(invocation -> {
+            throw new DataIntegrityViolationException("violates check constraint");
+        }).when(writer).insert(anyList());
+
+        List<Integer> rejected = new ArrayList<>();
+        assertThat(writer.insertIsolatingBadRows(List.of(submission()), (position, cause) -> rejected.add(position)))
+                .isZero();
+        assertThat(rejected).containsExactly(0);
+    }
+
+    @Test
+    void copyReportsTheRowsTheDatabaseCopied() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        SubmissionCopyWriter copyWriter = mock(SubmissionCopyWriter.class);
+        Connection connection = mock(Connection.class);
+        when(connection.isWrapperFor(PGConnection.class)).thenReturn(true);
+        when(copyWriter.copy(any(), anyList())).thenReturn(3L);
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Long>>any()))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<Long>>getArgument(0).doInConnection(connection));
+
+        SubmissionBatchWriter copying = new SubmissionBatchWriter(
+                jdbcTemplate, mock(PlatformTransactionManager.class), copyWriter, true);
+
+        assertThat(copying.insert(List.of(submission(), submission(), submission()))).isEqualTo(3);
+    }
+
+    @Test
+    void fallbackReportsTheRowsTheDatabaseInsertedNotTheBatchSize() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Long>>any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"));
+        // Two of the three ids already exist, so ON CONFLICT DO NOTHING inserts one row
+        when(jdbcTemplate.update(any(PreparedStatementCreator.class))).thenReturn(1);
+
+        SubmissionBatchWriter copying = new SubmissionBatchWriter(
+                jdbcTemplate, mock(PlatformTransactionManager.class), new SubmissionCopyWriter(), true);
+
+        assertThat(copying.insert(List.of(submission(), submission(), submission()))).isEqualTo(1);
+        assertThat(copying.getStats()).containsEntry("copyFallbacks", 1L).containsEntry("insertedRows", 1L);
+    }
+
+    private static FormSubmission submission() {
+        FormSubmission submission = new FormSubmission();
+        submission.setId(TimeOrderedUuidGenerator.next());
+        return submission;
+    }
+}
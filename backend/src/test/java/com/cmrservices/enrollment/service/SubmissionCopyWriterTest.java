@@ -0,0 +1,176 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.entity.FormSubmission;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubmissionCopyWriterTest {
+
+    private static final UUID ID = UUID.fromString("0190f1e2-3a4b-7c5d-8e6f-0123456789ab");
+    private static final LocalDateTime SUBMITTED_AT = LocalDateTime.of(2024, 7, 1, 9, 30, 15);
+
+    private final SubmissionCopyWriter copyWriter = new SubmissionCopyWriter();
+    private final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+    private final CopyIn copyIn = mock(CopyIn.class);
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        CopyManager copyManager = mock(CopyManager.class);
+        when(copyManager.copyIn(SubmissionCopyWriter.COPY_SQL)).thenReturn(copyIn);
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        connection = mock(Connection.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+
+        doAnswer(invocation -> {
+            copied.write(invocation.<byte[]>getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    void quotesEveryValue() throws SQLException {
+        when(copyIn.endCopy()).thenReturn(1L);
+
+        long count = copyWriter.copy(connection, List.of(submission("program-1", "{\"a\":1}", "alice")));
+
+        assertThat(count).isEqualTo(1);
+        List<List<String>> rows = parseCsv(copiedText());
+        assertThat(rows).hasSize(1);
+        List<String> row = rows.get(0);
+        assertThat(row).hasSize(10);
+        assertThat(row.subList(0, 8)).containsExactly(
+                ID.toString(), "program-1", "form-1", "enrollment", "{\"a\":1}", "submitted",
+                SUBMITTED_AT.toString(), "alice");
+        assertThat(copiedText()).startsWith("\"" + ID + "\",\"program-1\",");
+    }
+
+    @Test
+    void doublesEmbeddedQuotesAndKeepsNewlinesAndCommasInsideQuotes() throws SQLException {
+        String data = "{\"note\":\"line one\\nline \\\"two\\\"\",\"list\":\"a,b\"}";
+        String submittedBy = "O'Brien, \"Pat\"\nsecond line";
+
+        copyWriter.copy(connection, List.of(submission("program-1", data, submittedBy)));
+
+        assertThat(copiedText()).contains("\"O'Brien, \"\"Pat\"\"\nsecond line\"");
+        List<String> row = parseCsv(copiedText()).get(0);
+        assertThat(row.get(4)).isEqualTo(data);
+        assertThat(row.get(7)).isEqualTo(submittedBy);
+    }
+
+    @Test
+    void writesNullAsAnUnquotedEmptyFieldAndEmptyStringAsQuoted() throws SQLException {
+        copyWriter.copy(connection, List.of(submission("", "{}", null)));
+
+        String text = copiedText();
+        assertThat(text).contains(",\"\",");
+        assertThat(text).contains("\"" + SUBMITTED_AT + "\",,\"");
+        List<String> row = parseCsv(text).get(0);
+        assertThat(row.get(1)).isEmpty();
+        assertThat(row.get(7)).isNull();
+    }
+
+    @Test
+    void sendsLargeBatchesInChunksWithOneRowPerRecord() throws SQLException {
+        List<FormSubmission> submissions = new ArrayList<>();
+        String data = "{\"padding\":\"" + "x".repeat(1000) + "\"}";
+        for (int i = 0; i < 200; i++) {
+            submissions.add(submission("program-" + i, data, "user"));
+        }
+
+        copyWriter.copy(connection, submissions);
+
+        List<List<String>> rows = parseCsv(copiedText());
+        assertThat(rows).hasSize(200);
+        assertThat(rows.get(199).get(1)).isEqualTo("program-199");
+    }
+
+    @Test
+    void cancelsTheCopyWhenWritingFails() throws SQLException {
+        doThrow(new SQLException("connection reset")).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+        when(copyIn.isActive()).thenReturn(true);
+
+        assertThatThrownBy(() -> copyWriter.copy(connection, List.of(submission("program-1", "{}", "alice"))))
+                .isInstanceOf(SQLException.class);
+        verify(copyIn).cancelCopy();
+    }
+
+    private String copiedText() {
+        return copied.toString(StandardCharsets.UTF_8);
+    }
+
+    private static FormSubmission submission(String programId, String data, String submittedBy) {
+        FormSubmission submission = new FormSubmission();
+        submission.setId(ID);
+        submission.setProgramId(programId);
+        submission.setFormId("form-1");
+        submission.setFormType("enrollment");
+        submission.setSubmissionData(data);
+        submission.setSubmissionStatus("submitted");
+        submission.setSubmittedAt(SUBMITTED_AT);
+        submission.setSubmittedBy(submittedBy);
+        return submission;
+    }
+
+    /**
+     * Parse CSV the way COPY does: a quoted field may contain commas, doubled
+     * quotes and newlines, and an unquoted empty field is NULL.
+     */
+    private static List<List<String>> parseCsv(String text) {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inQuotes) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+                quoted = true;
+            } else if (c == ',' || c == '\n') {
+                row.add(quoted || field.length() > 0 ? field.toString() : null);
+                field.setLength(0);
+                quoted = false;
+                if (c == '\n') {
+                    rows.add(row);
+                    row = new ArrayList<>();
+                }
+            } else {
+                field.append(c);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,75 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.BulkImportResult;
+import com.cmrservices.enrollment.repository.SubmissionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubmissionImportServiceTest {
+
+    private final SubmissionBatchWriter batchWriter = mock(SubmissionBatchWriter.class);
+    private final SubmissionImportService importService = new SubmissionImportService(
+            new ObjectMapper().registerModule(new JavaTimeModule()),
+            Validation.buildDefaultValidatorFactory().getValidator(),
+            new SubmissionService(mock(SubmissionRepository.class), mock(SubmissionIngestService.class)),
+            batchWriter, 2, 100);
+
+    @Test
+    void databaseErrorStopsTheImportWithTheFailedRange() throws IOException {
+        when(batchWriter.insertIsolatingBadRows(anyList(), any()))
+                .thenReturn(2)
+                .thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"));
+
+        // Record 2 is invalid, so the second batch holds records 3 and 4
+        BulkImportResult result = importService.importSubmissions(stream(
+                record(0), record(1), "{\"programId\":\"program-1\"}", record(3), record(4), record(5), record(6)));
+
+        assertThat(result.getStatus()).isEqualTo(BulkImportResult.STATUS_ABORTED);
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getFailures()).extracting(BulkImportResult.RecordFailure::getIndex).containsExactly(2L);
+        assertThat(result.getFailedFromIndex()).isEqualTo(3);
+        assertThat(result.getFailedToIndex()).isEqualTo(4);
+        assertThat(result.getError()).contains("records 3 to 4").contains("statement timeout");
+        // Nothing after the failed batch is read or written
+        assertThat(result.getReceived()).isEqualTo(5);
+        verify(batchWriter, times(2)).insertIsolatingBadRows(anyList(), any());
+    }
+
+    @Test
+    void completedImportHasNoFailedRange() throws IOException {
+        when(batchWriter.insertIsolatingBadRows(anyList(), any()))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        BulkImportResult result = importService.importSubmissions(stream(record(0), record(1), record(2)));
+
+        assertThat(result.getStatus()).isEqualTo(BulkImportResult.STATUS_COMPLETED);
+        assertThat(result.getInserted()).isEqualTo(3);
+        assertThat(result.getFailedFromIndex()).isNull();
+        assertThat(result.getFailedToIndex()).isNull();
+    }
+
+    private static String record(int index) {
+        return "{\"programId\":\"program-1\",\"formId\":\"form-1\",\"formData\":{\"n\":" + index + "}}";
+    }
+
+    private static ByteArrayInputStream stream(String... records) {
+        return new ByteArrayInputStream(String.join("\n", records).getBytes(StandardCharsets.UTF_8));
+    }
+}
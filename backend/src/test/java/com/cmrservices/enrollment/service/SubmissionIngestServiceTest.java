@@ -0,0 +1,133 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.entity.FormSubmission;
+import com.cmrservices.enrollment.model.entity.TimeOrderedUuidGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SubmissionIngestServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final SubmissionBatchWriter batchWriter = mock(SubmissionBatchWriter.class);
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @TempDir
+    Path journalDir;
+
+    private SubmissionIngestService ingestService;
+
+    @BeforeEach
+    void setUp() {
+        ingestService = new SubmissionIngestService(objectMapper, batchWriter, true, journalDir.toString(),
+                100, 10, 1, 16, 5000, 1);
+        ingestService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestService.shutdown();
+    }
+
+    @Test
+    void batchFailingWithANonTransientErrorIsDeadLetteredAndTheQueueMovesOn() throws Exception {
+        // The table no longer matches: every attempt at the first batch fails the same way
+        when(batchWriter.insertIsolatingBadRows(anyList(), any())).thenAnswer(invocation -> {
+            List<FormSubmission> rows = invocation.getArgument(0);
+            if (rows.stream().anyMatch(row -> "bad-form".equals(row.getFormId()))) {
+                attempts.incrementAndGet();
+                throw new BadSqlGrammarException("COPY", "COPY form_submissions",
+                        new SQLException("column \"form_type\" does not exist"));
+            }
+            return rows.size();
+        });
+        FormSubmission bad = submission("bad-form");
+
+        ingestService.accept(bad);
+        awaitStat("deadLettered", 1L);
+
+        assertThat(attempts.get()).isEqualTo(5);
+        assertThat(ingestService.findQueued(bad.getId())).isEmpty();
+        assertThat(Files.readString(journalDir.resolve("rejected.ndjson")))
+                .contains(bad.getId().toString())
+                .contains("bad SQL grammar");
+
+        ingestService.accept(submission("form-1"));
+        awaitStat("inserted", 1L);
+        assertThat(ingestService.isRunning()).isTrue();
+        assertThat(ingestService.getStats()).containsEntry("queued", 0).containsEntry("failures", 5L);
+    }
+
+    @Test
+    void transientFailuresAreRetriedPastTheNonTransientLimit() throws Exception {
+        when(batchWriter.insertIsolatingBadRows(anyList(), any())).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() <= 8) {
+                throw attempts.get() % 2 == 0
+                        ? new QueryTimeoutException("canceling statement due to statement timeout")
+                        : new CannotGetJdbcConnectionException("Connection is not available");
+            }
+            return ((List<?>) invocation.getArgument(0)).size();
+        });
+
+        ingestService.accept(submission("form-1"));
+        awaitStat("inserted", 1L);
+
+        assertThat(attempts.get()).isEqualTo(9);
+        assertThat(ingestService.getStats()).containsEntry("deadLettered", 0L).containsEntry("failures", 8L);
+        assertThat(journalDir.resolve("rejected.ndjson")).doesNotExist();
+    }
+
+    @Test
+    void onlyConnectionAndTimeoutErrorsAreTransient() {
+        assertThat(SubmissionIngestService.isTransient(new QueryTimeoutException("timeout"))).isTrue();
+        assertThat(SubmissionIngestService.isTransient(new CannotGetJdbcConnectionException("no connection")))
+                .isTrue();
+        assertThat(SubmissionIngestService.isTransient(
+                new BadSqlGrammarException("COPY", "COPY form_submissions", new SQLException("bad")))).isFalse();
+        assertThat(SubmissionIngestService.isTransient(new DataIntegrityViolationException("duplicate"))).isFalse();
+        assertThat(SubmissionIngestService.isTransient(new IllegalStateException("bug"))).isFalse();
+    }
+
+    private void awaitStat(String name, Object expected) throws InterruptedException {
+        await(() -> expected.equals(ingestService.getStats().get(name)));
+        assertThat(ingestService.getStats()).containsEntry(name, expected);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static FormSubmission submission(String formId) {
+        FormSubmission submission = new FormSubmission();
+        submission.setId(TimeOrderedUuidGenerator.next());
+        submission.setProgramId("program-1");
+        submission.setFormId(formId);
+        submission.setSubmissionData("{\"name\": \"Pat\"}");
+        submission.setSubmittedAt(LocalDateTime.of(2024, 7, 1, 9, 30));
+        return submission;
+    }
+}
@@ -0,0 +1,120 @@
+package com.cmrservices.enrollment.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubmissionJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void uncommittedRecordsAreRecoveredByTheNextJournal() throws Exception {
+        try (SubmissionJournal journal = new SubmissionJournal(dir, 1024 * 1024)) {
+            journal.append(bytes("{\"id\":1}"));
+            journal.append(bytes("{\"id\":2}"));
+        }
+
+        try (SubmissionJournal reopened = new SubmissionJournal(dir, 1024 * 1024)) {
+            List<Path> recovered = reopened.recoveredSegments();
+            assertThat(recovered).hasSize(1);
+            assertThat(Files.readAllLines(recovered.get(0))).containsExactly("{\"id\":1}", "{\"id\":2}");
+
+            reopened.replayed(recovered.get(0));
+            assertThat(reopened.recoveredSegments()).isEmpty();
+            assertThat(recovered.get(0)).doesNotExist();
+        }
+        assertThat(segments()).isEmpty();
+    }
+
+    @Test
+    void committedRecordsAreNotRecovered() throws Exception {
+        try (SubmissionJournal journal = new SubmissionJournal(dir, 1024 * 1024)) {
+            long segment = journal.append(bytes("{\"id\":1}"));
+            journal.append(bytes("{\"id\":2}"));
+            journal.committed(segment, 2);
+        }
+
+        assertThat(segments()).isEmpty();
+        try (SubmissionJournal reopened = new SubmissionJournal(dir, 1024 * 1024)) {
+            assertThat(reopened.recoveredSegments()).isEmpty();
+        }
+    }
+
+    @Test
+    void rotatedSegmentIsDeletedOnceCommitted() throws Exception {
+        try (SubmissionJournal journal = new SubmissionJournal(dir, 20)) {
+            long first = journal.append(bytes("{\"id\":1000001}"));
+            long second = journal.append(bytes("{\"id\":1000002}"));
+            assertThat(second).isGreaterThan(first);
+            assertThat(segments()).hasSize(2);
+
+            journal.committed(first, 1);
+            assertThat(segments()).hasSize(1);
+            assertThat(journal.getSegmentCount()).isEqualTo(1);
+        }
+
+        // The active segment still holds an uncommitted record
+        try (SubmissionJournal reopened = new SubmissionJournal(dir, 20)) {
+            assertThat(reopened.recoveredSegments()).hasSize(1);
+            assertThat(Files.readAllLines(reopened.recoveredSegments().get(0))).containsExactly("{\"id\":1000002}");
+        }
+    }
+
+    @Test
+    void concurrentAppendsAreAllDurableAndShareFsyncs() throws Exception {
+        int threads = 8;
+        int perThread = 50;
+        try (SubmissionJournal journal = new SubmissionJournal(dir, 1024 * 1024)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int thread = t;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            journal.append(bytes("{\"thread\":" + thread + ",\"i\":" + i + "}"));
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertThat(journal.getFsyncCount()).isBetween(1L, (long) threads * perThread);
+        }
+
+        try (SubmissionJournal reopened = new SubmissionJournal(dir, 1024 * 1024)) {
+            List<String> lines = new ArrayList<>();
+            for (Path segment : reopened.recoveredSegments()) {
+                lines.addAll(Files.readAllLines(segment));
+            }
+            assertThat(lines).hasSize(threads * perThread).doesNotHaveDuplicates();
+        }
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).toList();
+        }
+    }
+
+    private static byte[] bytes(String record) {
+        return record.getBytes(StandardCharsets.UTF_8);
+    }
+}
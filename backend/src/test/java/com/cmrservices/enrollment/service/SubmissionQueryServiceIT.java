@@ -0,0 +1,130 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.PageDTO;
+import com.cmrservices.enrollment.model.dto.SubmissionDTO;
+import com.cmrservices.enrollment.model.entity.FormSubmission;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link SubmissionQueryService#getPage} against PostgreSQL: the keyset
+ * (submitted_at, id) across ties, page boundaries and rows written between
+ * pages. Run with mvn -Pintegration verify.
+ */
+class SubmissionQueryServiceIT {
+
+    private static final LocalDateTime SUBMITTED_AT = LocalDateTime.of(2024, 7, 1, 9, 30, 15, 123_456_000);
+
+    private final DataSource dataSource = PostgresTestDatabase.dataSource();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final SubmissionBatchWriter writer = new SubmissionBatchWriter(jdbcTemplate,
+            new DataSourceTransactionManager(dataSource), new SubmissionCopyWriter(), true);
+    private final SubmissionQueryService queryService = new SubmissionQueryService(jdbcTemplate, dataSource,
+            new DataSourceTransactionManager(dataSource), new ObjectMapper().registerModule(new JavaTimeModule()),
+            500, 2);
+
+    @BeforeEach
+    void setUp() {
+        PostgresTestDatabase.truncate();
+    }
+
+    @Test
+    void pagesReturnEveryRowOnceAcrossTiesOnSubmittedAt() {
+        // Seven rows share one submitted_at; the others differ by a microsecond either side
+        List<FormSubmission> submissions = SubmissionBatchWriterIT.submissions(10);
+        submissions.get(7).setSubmittedAt(SUBMITTED_AT.minusNanos(1_000));
+        submissions.get(8).setSubmittedAt(SUBMITTED_AT.plusNanos(1_000));
+        submissions.get(9).setSubmittedAt(SUBMITTED_AT.minusSeconds(1));
+        writer.insert(submissions);
+
+        List<UUID> expected = jdbcTemplate.queryForList(
+                "SELECT id FROM form_submissions ORDER BY submitted_at, id", UUID.class);
+        for (int limit : new int[] {1, 3, 5, 10, 11}) {
+            assertThat(walk("program-1", null, limit)).as("limit %d", limit).containsExactlyElementsOf(expected);
+        }
+        assertThat(expected.subList(0, 2)).containsExactly(submissions.get(9).getId(), submissions.get(7).getId());
+        assertThat(expected.get(9)).isEqualTo(submissions.get(8).getId());
+    }
+
+    @Test
+    void lastFullPageHasNoCursor() {
+        writer.insert(SubmissionBatchWriterIT.submissions(4));
+
+        PageDTO<SubmissionDTO> first = queryService.getPage(null, "form-1", 2, null);
+        PageDTO<SubmissionDTO> second = queryService.getPage(null, "form-1", 2, first.getNextCursor());
+
+        assertThat(first.getNextCursor()).isNotNull();
+        assertThat(second.getItems()).hasSize(2);
+        assertThat(second.getNextCursor()).isNull();
+        assertThat(second.getItems().get(0).getFormData().path("index").asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void rowsWrittenBetweenPagesOnlyAppearAfterTheCursor() {
+        List<FormSubmission> submissions = SubmissionBatchWriterIT.submissions(4);
+        writer.insert(submissions);
+        PageDTO<SubmissionDTO> first = queryService.getPage("program-1", null, 2, null);
+
+        List<FormSubmission> added = SubmissionBatchWriterIT.submissions(2);
+        added.get(0).setSubmittedAt(SUBMITTED_AT.minusMinutes(1));
+        writer.insert(added);
+        jdbcTemplate.update("DELETE FROM form_submissions WHERE id = ?", first.getItems().get(1).getId());
+
+        List<UUID> rest = new ArrayList<>();
+        String cursor = first.getNextCursor();
+        while (cursor != null) {
+            PageDTO<SubmissionDTO> page = queryService.getPage("program-1", null, 2, cursor);
+            page.getItems().forEach(item -> rest.add(item.getId()));
+            cursor = page.getNextCursor();
+        }
+
+        assertThat(rest).containsExactly(submissions.get(2).getId(), submissions.get(3).getId(),
+                added.get(1).getId());
+    }
+
+    @Test
+    void filtersByProgramAndForm() {
+        List<FormSubmission> submissions = SubmissionBatchWriterIT.submissions(6);
+        submissions.get(0).setProgramId("program-2");
+        submissions.get(1).setFormId("form-2");
+        writer.insert(submissions);
+
+        assertThat(walk("program-1", null, 2)).hasSize(5);
+        assertThat(walk(null, "form-1", 2)).hasSize(5);
+        assertThat(walk("program-1", "form-1", 2)).hasSize(4);
+        assertThat(walk("program-2", "form-2", 2)).isEmpty();
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        writer.insert(SubmissionBatchWriterIT.submissions(2));
+
+        assertThatThrownBy(() -> queryService.getPage("program-1", null, 1, "bm90IGEgY3Vyc29y"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<UUID> walk(String programId, String formId, int limit) {
+        List<UUID> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageDTO<SubmissionDTO> page = queryService.getPage(programId, formId, limit, cursor);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(limit);
+            page.getItems().forEach(item -> ids.add(item.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+}
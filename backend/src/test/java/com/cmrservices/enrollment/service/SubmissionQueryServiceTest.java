@@ -0,0 +1,143 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.dto.PageDTO;
+import com.cmrservices.enrollment.model.dto.SubmissionDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SubmissionQueryServiceTest {
+
+    private static final LocalDateTime SUBMITTED_AT = LocalDateTime.of(2024, 7, 1, 9, 30, 15, 123_456_000);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SubmissionQueryService queryService = new SubmissionQueryService(jdbcTemplate,
+            mock(DataSource.class), mock(PlatformTransactionManager.class), new ObjectMapper(), 500, 2);
+    private final List<String> queries = new ArrayList<>();
+    private final List<List<Object>> queryArgs = new ArrayList<>();
+
+    @Test
+    void fullPageFetchesOneExtraRowAndPointsTheCursorAtItsLastItem() {
+        List<SubmissionDTO> rows = rows(4);
+        returnRows(rows);
+
+        PageDTO<SubmissionDTO> page = queryService.getPage("program-1", null, 3, null);
+
+        assertThat(page.getItems()).containsExactlyElementsOf(rows.subList(0, 3));
+        assertThat(decode(page.getNextCursor())).isEqualTo(SUBMITTED_AT + "\n" + rows.get(2).getId());
+        assertThat(page.getNextCursor()).doesNotContain("=", "+", "/");
+        assertThat(queries.get(0)).doesNotContain("(submitted_at, id) >");
+        assertThat(queryArgs.get(0)).containsExactly("program-1", 4);
+    }
+
+    @Test
+    void cursorBecomesTheKeysetBound() {
+        List<SubmissionDTO> rows = rows(4);
+        returnRows(rows);
+        String cursor = queryService.getPage(null, "form-1", 3, null).getNextCursor();
+
+        queryService.getPage(null, "form-1", 3, cursor);
+
+        assertThat(queries.get(1)).contains("form_id = ?", "AND (submitted_at, id) > (?, ?)",
+                "ORDER BY submitted_at, id LIMIT ?");
+        assertThat(queryArgs.get(1)).containsExactly("form-1", SUBMITTED_AT, rows.get(2).getId(), 4);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        returnRows(rows(3));
+
+        PageDTO<SubmissionDTO> exact = queryService.getPage("program-1", "form-1", 3, null);
+
+        assertThat(exact.getItems()).hasSize(3);
+        assertThat(exact.getNextCursor()).isNull();
+    }
+
+    @Test
+    void cursorKeepsWholeSecondsAndMicroseconds() {
+        List<SubmissionDTO> rows = rows(2);
+        rows.get(0).setSubmittedAt(LocalDateTime.of(2024, 7, 1, 9, 30));
+        returnRows(rows);
+        String cursor = queryService.getPage("program-1", null, 1, null).getNextCursor();
+
+        queryService.getPage("program-1", null, 1, cursor);
+
+        assertThat(queryArgs.get(1)).containsExactly("program-1", LocalDateTime.of(2024, 7, 1, 9, 30),
+                rows.get(0).getId(), 2);
+    }
+
+    @Test
+    void invalidCursorIsRejectedBeforeQuerying() {
+        List<String> cursors = List.of(
+                "not a cursor!",
+                encode("no separator"),
+                encode("yesterday\n" + UUID.randomUUID()),
+                encode(SUBMITTED_AT + "\nnot-a-uuid"),
+                encode(UUID.randomUUID() + "\n" + SUBMITTED_AT));
+
+        for (String cursor : cursors) {
+            assertThatThrownBy(() -> queryService.getPage("program-1", null, 10, cursor))
+                    .as(cursor)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("Invalid cursor");
+        }
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void programOrFormIsRequired() {
+        assertThatThrownBy(() -> queryService.getPage(" ", null, 10, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("programId or formId");
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private void returnRows(List<SubmissionDTO> rows) {
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<SubmissionDTO>>any(),
+                any(Object[].class))).thenAnswer(invocation -> {
+            queries.add(invocation.getArgument(0));
+            queryArgs.add(List.of((Object[]) invocation.getRawArguments()[2]));
+            return new ArrayList<>(rows);
+        });
+    }
+
+    private static List<SubmissionDTO> rows(int count) {
+        List<SubmissionDTO> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            SubmissionDTO row = new SubmissionDTO();
+            row.setId(UUID.randomUUID());
+            row.setProgramId("program-1");
+            row.setFormId("form-1");
+            row.setSubmittedAt(SUBMITTED_AT);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static String encode(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+}
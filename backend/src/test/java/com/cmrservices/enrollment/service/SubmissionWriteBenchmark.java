@@ -0,0 +1,148 @@
+package com.cmrservices.enrollment.service;
+
+import com.cmrservices.enrollment.model.entity.FormSubmission;
+import com.cmrservices.enrollment.repository.SubmissionRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Write benchmark for form_submissions: {@link SubmissionBatchWriter#insert}
+ * with COPY, the same writer with COPY off (one multi-row INSERT), and
+ * {@link SubmissionRepository#saveAll} in one transaction, at several batch
+ * sizes. saveAll runs with Hibernate JDBC batching and the driver's
+ * reWriteBatchedInserts, so COPY is compared with batched JPA inserts rather
+ * than one statement per row. Each round starts from an empty table. Not part
+ * of mvn test; run with
+ *
+ * <pre>
+ * mvn -Pbenchmark verify -Dit.test=SubmissionWriteBenchmark
+ * </pre>
+ *
+ * System properties: {@code benchmark.batch-sizes} (comma-separated, default
+ * 100,1000,10000), {@code benchmark.rounds} (default 5) and
+ * {@code benchmark.jpa-batch-size} (hibernate.jdbc.batch_size for saveAll,
+ * default 1000). The database is {@link PostgresTestDatabase}.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SubmissionWriteBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionWriteBenchmark.class);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int jpaBatchSize;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        PostgresTestDatabase.dataSource();
+        registry.add("spring.datasource.url", () -> PostgresTestDatabase.url()
+                + (PostgresTestDatabase.url().contains("?") ? "&" : "?") + "reWriteBatchedInserts=true");
+        registry.add("spring.jpa.properties.hibernate.jdbc.batch_size",
+                () -> Integer.getInteger("benchmark.jpa-batch-size", 1000));
+        registry.add("spring.datasource.username", PostgresTestDatabase::username);
+        registry.add("spring.datasource.password", PostgresTestDatabase::password);
+    }
+
+    @Test
+    void compareWritePaths() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        SubmissionBatchWriter copyWriter = new SubmissionBatchWriter(jdbcTemplate, transactionManager,
+                new SubmissionCopyWriter(), true);
+        SubmissionBatchWriter insertWriter = new SubmissionBatchWriter(jdbcTemplate, transactionManager,
+                new SubmissionCopyWriter(), false);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        int rounds = Integer.getInteger("benchmark.rounds", 5);
+        List<String> report = new ArrayList<>();
+        report.add(String.format("form_submissions writes, Java %s, median of %d rounds, saveAll JDBC batch size %s",
+                Runtime.version(), rounds, jpaBatchSize));
+        report.add(String.format("%10s %-18s %9s %9s %11s", "batch", "path", "median ms", "max ms", "rows/s"));
+
+        // One untimed round per path so class loading and connection setup are not measured
+        time(copyWriter::insert, 100, 1, false);
+        time(insertWriter::insert, 100, 1, false);
+        time(batch -> saveAll(transaction, batch), 100, 1, true);
+
+        for (String size : System.getProperty("benchmark.batch-sizes", "100,1000,10000").split(",")) {
+            int batchSize = Integer.parseInt(size.trim());
+            report.add(row(batchSize, "COPY", time(copyWriter::insert, batchSize, rounds, false)));
+            report.add(row(batchSize, "multi-row INSERT", time(insertWriter::insert, batchSize, rounds, false)));
+            report.add(row(batchSize, "batched saveAll",
+                    time(batch -> saveAll(transaction, batch), batchSize, rounds, true)));
+        }
+        assertThat(copyWriter.getStats()).containsEntry("copyFallbacks", 0L);
+        log.warn("Benchmark results\n{}", String.join("\n", report));
+    }
+
+    private int saveAll(TransactionTemplate transaction, List<FormSubmission> batch) {
+        transaction.executeWithoutResult(status -> submissionRepository.saveAll(batch));
+        return batch.size();
+    }
+
+    /**
+     * Write a fresh batch {@code rounds} times into an empty table and return
+     * the sorted elapsed times in ms. JPA batches go without ids, as they
+     * would through SubmissionService, so Hibernate persists rather than merges them.
+     */
+    private long[] time(ToIntFunction<List<FormSubmission>> write, int batchSize, int rounds, boolean jpa) {
+        long[] elapsedMs = new long[rounds];
+        for (int round = 0; round < rounds; round++) {
+            PostgresTestDatabase.truncate();
+            List<FormSubmission> batch = SubmissionBatchWriterIT.submissions(batchSize);
+            if (jpa) {
+                batch.forEach(submission -> submission.setId(null));
+            }
+
+            long start = System.nanoTime();
+            int written = write.applyAsInt(batch);
+            elapsedMs[round] = (System.nanoTime() - start) / 1_000_000;
+
+            assertThat(written).as("rows written").isEqualTo(batchSize);
+            assertThat(submissionRepository.count()).as("rows in the table").isEqualTo(batchSize);
+        }
+        Arrays.sort(elapsedMs);
+        return elapsedMs;
+    }
+
+    private static String row(int batchSize, String path, long[] elapsedMs) {
+        long median = elapsedMs[elapsedMs.length / 2];
+        return String.format("%10d %-18s %9d %9d %11.0f", batchSize, path, median, elapsedMs[elapsedMs.length - 1],
+                batchSize * 1000.0 / Math.max(1, median));
+    }
+}